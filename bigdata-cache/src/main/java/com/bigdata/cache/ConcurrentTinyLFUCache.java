@@ -0,0 +1,788 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size bounded, high concurrency cache using the W-TinyLFU admission and
+ * eviction policy. Values are held by hard references, so the size of the
+ * cache is bounded by its capacity and not by the garbage collector.
+ * <p>
+ * The cache is divided into shards by the hash code of the key. Each shard has
+ * its own {@link ConcurrentHashMap} and its own policy state. Lookups are
+ * lock-free: a hit is recorded in a small lossy ring buffer for the shard and
+ * the buffer is drained into the policy by whichever thread fills it, but only
+ * if the lock for the shard is free. Inserts take the lock for the shard.
+ * <p>
+ * Each shard divides its capacity into a small LRU admission window (1%) and a
+ * main region which is a segmented LRU with probation and protected segments
+ * (the protected segment holds up to 80% of the main region). New entries
+ * enter the window. An entry evicted from the window is only admitted into the
+ * main region if its estimated access frequency is greater than that of the
+ * LRU entry of the main region, which is evicted in its place. The access
+ * frequencies are estimated by a count-min sketch with 4-bit counters which
+ * are periodically halved so that the history ages. This prevents a scan over
+ * many infrequently used keys from flushing the frequently used entries from
+ * the cache, which is what happens to an LRU.
+ * <p>
+ * Note: The counters for hits and misses are only updated by {@link #get(Object)}.
+ *
+ * @param <K>
+ *            The generic type of the keys.
+ * @param <V>
+ *            The generic type of the values.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient
+ *      Cache Admission Policy</a>
+ */
+public class ConcurrentTinyLFUCache<K, V> {
+
+    /**
+     * The minimum capacity of a shard. The #of shards is reduced for small
+     * caches since the policy works poorly for tiny shards.
+     */
+    static final int MIN_SHARD_CAPACITY = 64;
+
+    /**
+     * The #of slots in the read buffer of each shard (a power of two).
+     */
+    static final int READ_BUFFER_SIZE = 32;
+
+    private final Shard<K, V>[] shards;
+
+    private final int shardMask;
+
+    private final int capacity;
+
+    /**
+     * @param capacity
+     *            The maximum #of entries in the cache.
+     * @param concurrencyLevel
+     *            The desired #of shards. This is rounded up to a power of two
+     *            and reduced if necessary so that each shard holds at least
+     *            {@value #MIN_SHARD_CAPACITY} entries.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentTinyLFUCache(final int capacity, final int concurrencyLevel) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+
+        int nshards = 1;
+
+        while (nshards < concurrencyLevel
+                && (nshards << 1) * MIN_SHARD_CAPACITY <= capacity) {
+
+            nshards <<= 1;
+
+        }
+
+        final int shardCapacity = capacity / nshards;
+
+        this.shards = new Shard[nshards];
+
+        this.shardMask = nshards - 1;
+
+        for (int i = 0; i < nshards; i++) {
+
+            // Note: The remainder is assigned to the first shard.
+            shards[i] = new Shard<K, V>(i == 0 ? capacity - shardCapacity
+                    * (nshards - 1) : shardCapacity);
+
+        }
+
+        this.capacity = capacity;
+
+    }
+
+    /**
+     * The maximum #of entries in the cache.
+     */
+    public int capacity() {
+
+        return capacity;
+
+    }
+
+    /**
+     * The #of shards.
+     */
+    public int getShardCount() {
+
+        return shards.length;
+
+    }
+
+    /**
+     * The #of entries in the cache.
+     */
+    public int size() {
+
+        int n = 0;
+
+        for (Shard<K, V> s : shards) {
+
+            n += s.map.size();
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Return the value under the key.
+     *
+     * @return The value -or- <code>null</code> if the key is not in the cache.
+     */
+    public V get(final K key) {
+
+        return shardFor(key).get(key);
+
+    }
+
+    /**
+     * Enter the value under the key unless there is already an entry for that
+     * key. A new entry may cause the eviction of some other entry.
+     *
+     * @return The value already in the cache under that key -or-
+     *         <code>null</code> if the new value was entered into the cache.
+     */
+    public V putIfAbsent(final K key, final V value) {
+
+        if (value == null)
+            throw new IllegalArgumentException();
+
+        return shardFor(key).putIfAbsent(key, value);
+
+    }
+
+    /**
+     * Remove all entries from the cache. The counters and the frequency
+     * history are not reset.
+     */
+    public void clear() {
+
+        for (Shard<K, V> s : shards) {
+
+            s.clear();
+
+        }
+
+    }
+
+    /**
+     * The #of {@link #get(Object)} requests which found an entry.
+     */
+    public long getHitCount() {
+
+        long n = 0;
+
+        for (Shard<K, V> s : shards) {
+
+            n += s.hits.get();
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * The #of {@link #get(Object)} requests which did not find an entry.
+     */
+    public long getMissCount() {
+
+        long n = 0;
+
+        for (Shard<K, V> s : shards) {
+
+            n += s.misses.get();
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * The #of entries which were evicted (including new entries which were
+     * not admitted into the main region).
+     */
+    public long getEvictionCount() {
+
+        long n = 0;
+
+        for (Shard<K, V> s : shards) {
+
+            n += s.evictions;
+
+        }
+
+        return n;
+
+    }
+
+    private Shard<K, V> shardFor(final Object key) {
+
+        return shards[spread(key.hashCode()) & shardMask];
+
+    }
+
+    /**
+     * Apply a supplemental hash function to defend against poor hash codes.
+     */
+    static int spread(int h) {
+
+        h ^= h >>> 17;
+        h *= 0xed5ad4bb;
+        h ^= h >>> 11;
+        h *= 0xac4c1b51;
+        h ^= h >>> 15;
+
+        return h;
+
+    }
+
+    /*
+     * Queue identifiers for a node.
+     */
+    private static final int DEAD = -1;
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    /**
+     * An entry in the cache. The links and the queue are guarded by the lock
+     * of the shard.
+     */
+    private static class Node<K, V> {
+
+        final K key;
+
+        final V value;
+
+        /**
+         * The queue in which the node is linked and {@link #DEAD} once it has
+         * been removed from the cache.
+         */
+        int queue;
+
+        Node<K, V> prev, next;
+
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * An access ordered doubly linked list of nodes. The head is the LRU node.
+     * Not thread-safe.
+     */
+    private static class AccessQueue<K, V> {
+
+        /** Sentinel. */
+        private final Node<K, V> head = new Node<K, V>(null, null);
+
+        int size;
+
+        AccessQueue() {
+            head.prev = head.next = head;
+        }
+
+        void addMRU(final Node<K, V> n) {
+            n.prev = head.prev;
+            n.next = head;
+            head.prev.next = n;
+            head.prev = n;
+            size++;
+        }
+
+        void remove(final Node<K, V> n) {
+            n.prev.next = n.next;
+            n.next.prev = n.prev;
+            n.prev = n.next = null;
+            size--;
+        }
+
+        void moveToMRU(final Node<K, V> n) {
+            if (head.prev != n) {
+                remove(n);
+                addMRU(n);
+            }
+        }
+
+        Node<K, V> peekLRU() {
+            return head.next == head ? null : head.next;
+        }
+
+        /**
+         * Mark all nodes as {@link #DEAD} and clear the queue.
+         */
+        void kill() {
+            for (Node<K, V> n = head.next; n != head;) {
+                final Node<K, V> t = n.next;
+                n.queue = DEAD;
+                n.prev = n.next = null;
+                n = t;
+            }
+            head.prev = head.next = head;
+            size = 0;
+        }
+
+    }
+
+    /**
+     * One shard of the cache. The policy state is guarded by the lock.
+     */
+    private static class Shard<K, V> extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        final ConcurrentHashMap<K, Node<K, V>> map;
+
+        /**
+         * Lossy buffer of nodes which were read but whose access has not yet
+         * been applied to the policy.
+         */
+        private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<Node<K, V>>(
+                READ_BUFFER_SIZE);
+
+        private final AtomicInteger readCounter = new AtomicInteger();
+
+        final AtomicLong hits = new AtomicLong();
+
+        final AtomicLong misses = new AtomicLong();
+
+        /** Written while holding the lock. */
+        volatile long evictions;
+
+        private final FrequencySketch sketch;
+
+        private final AccessQueue<K, V> window = new AccessQueue<K, V>();
+
+        private final AccessQueue<K, V> probation = new AccessQueue<K, V>();
+
+        private final AccessQueue<K, V> protectedQueue = new AccessQueue<K, V>();
+
+        private final int windowMax;
+
+        private final int mainMax;
+
+        private final int protectedMax;
+
+        Shard(final int capacity) {
+
+            this.map = new ConcurrentHashMap<K, Node<K, V>>(
+                    (int) (capacity / .75f) + 1);
+
+            this.windowMax = Math.max(1, capacity / 100);
+
+            this.mainMax = capacity - windowMax;
+
+            this.protectedMax = (int) (mainMax * .8d);
+
+            this.sketch = new FrequencySketch(capacity);
+
+        }
+
+        V get(final K key) {
+
+            final Node<K, V> n = map.get(key);
+
+            if (n == null) {
+
+                misses.incrementAndGet();
+
+                return null;
+
+            }
+
+            hits.incrementAndGet();
+
+            afterRead(n);
+
+            return n.value;
+
+        }
+
+        V putIfAbsent(final K key, final V value) {
+
+            Node<K, V> n = map.get(key);
+
+            if (n != null) {
+
+                afterRead(n);
+
+                return n.value;
+
+            }
+
+            lock();
+
+            try {
+
+                if ((n = map.get(key)) != null) {
+
+                    return n.value;
+
+                }
+
+                n = new Node<K, V>(key, value);
+
+                map.put(key, n);
+
+                drainReadBuffer();
+
+                sketch.increment(spread(key.hashCode()));
+
+                n.queue = WINDOW;
+
+                window.addMRU(n);
+
+                evict();
+
+                return null;
+
+            } finally {
+
+                unlock();
+
+            }
+
+        }
+
+        void clear() {
+
+            lock();
+
+            try {
+
+                for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+
+                    readBuffer.set(i, null);
+
+                }
+
+                window.kill();
+
+                probation.kill();
+
+                protectedQueue.kill();
+
+                map.clear();
+
+            } finally {
+
+                unlock();
+
+            }
+
+        }
+
+        /**
+         * Record a read. The read buffer is drained when it fills, but only
+         * if the lock is free. Reads are dropped if the buffer is overwritten
+         * before it is drained, which only reduces the accuracy of the policy.
+         */
+        private void afterRead(final Node<K, V> n) {
+
+            final int i = readCounter.getAndIncrement()
+                    & (READ_BUFFER_SIZE - 1);
+
+            readBuffer.lazySet(i, n);
+
+            if (i == READ_BUFFER_SIZE - 1 && tryLock()) {
+
+                try {
+
+                    drainReadBuffer();
+
+                } finally {
+
+                    unlock();
+
+                }
+
+            }
+
+        }
+
+        /**
+         * Apply the buffered reads to the policy. The caller must hold the
+         * lock.
+         */
+        private void drainReadBuffer() {
+
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+
+                final Node<K, V> n = readBuffer.getAndSet(i, null);
+
+                if (n != null) {
+
+                    onAccess(n);
+
+                }
+
+            }
+
+        }
+
+        private void onAccess(final Node<K, V> n) {
+
+            if (n.queue == DEAD) {
+
+                // Evicted since it was read.
+                return;
+
+            }
+
+            sketch.increment(spread(n.key.hashCode()));
+
+            switch (n.queue) {
+            case WINDOW:
+                window.moveToMRU(n);
+                break;
+            case PROBATION:
+                // promote
+                probation.remove(n);
+                n.queue = PROTECTED;
+                protectedQueue.addMRU(n);
+                if (protectedQueue.size > protectedMax) {
+                    // demote the LRU protected node.
+                    final Node<K, V> t = protectedQueue.peekLRU();
+                    protectedQueue.remove(t);
+                    t.queue = PROBATION;
+                    probation.addMRU(t);
+                }
+                break;
+            case PROTECTED:
+                protectedQueue.moveToMRU(n);
+                break;
+            default:
+                throw new AssertionError();
+            }
+
+        }
+
+        /**
+         * Move nodes from the window into the main region until the window is
+         * within its capacity. Once the main region is full, the candidate
+         * from the window competes with the LRU node of the main region and
+         * the node with the lower estimated frequency is evicted.
+         */
+        private void evict() {
+
+            while (window.size > windowMax) {
+
+                final Node<K, V> candidate = window.peekLRU();
+
+                window.remove(candidate);
+
+                if (probation.size + protectedQueue.size < mainMax) {
+
+                    candidate.queue = PROBATION;
+
+                    probation.addMRU(candidate);
+
+                    continue;
+
+                }
+
+                Node<K, V> victim = probation.peekLRU();
+
+                if (victim == null)
+                    victim = protectedQueue.peekLRU();
+
+                if (victim != null
+                        && sketch.frequency(spread(candidate.key.hashCode())) > sketch
+                                .frequency(spread(victim.key.hashCode()))) {
+
+                    if (victim.queue == PROBATION)
+                        probation.remove(victim);
+                    else
+                        protectedQueue.remove(victim);
+
+                    kill(victim);
+
+                    candidate.queue = PROBATION;
+
+                    probation.addMRU(candidate);
+
+                } else {
+
+                    kill(candidate);
+
+                }
+
+                evictions++;
+
+            }
+
+        }
+
+        private void kill(final Node<K, V> n) {
+
+            n.queue = DEAD;
+
+            map.remove(n.key, n);
+
+        }
+
+    }
+
+    /**
+     * A count-min sketch with four rows of 4-bit counters packed into longs.
+     * When the #of increments reaches a sample size proportional to the
+     * capacity, all counters are halved. Not thread-safe.
+     */
+    static class FrequencySketch {
+
+        private static final long[] SEED = new long[] { //
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+                0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+
+        private final int tableMask;
+
+        private final int sampleSize;
+
+        private int additions;
+
+        FrequencySketch(final int capacity) {
+
+            int n = 8;
+
+            while (n < capacity)
+                n <<= 1;
+
+            this.table = new long[n];
+
+            this.tableMask = n - 1;
+
+            this.sampleSize = 10 * Math.max(1, capacity);
+
+        }
+
+        /**
+         * The estimated #of occurrences of the hash (0 to 15).
+         */
+        int frequency(final int hash) {
+
+            int freq = 15;
+
+            for (int i = 0; i < 4; i++) {
+
+                final long h = indexOf(hash, i);
+
+                final int count = (int) ((table[(int) (h >>> 4) & tableMask] >>> ((h & 15) << 2)) & 0xfL);
+
+                if (count < freq)
+                    freq = count;
+
+            }
+
+            return freq;
+
+        }
+
+        /**
+         * Increment the counters for the hash unless they are saturated.
+         */
+        void increment(final int hash) {
+
+            boolean added = false;
+
+            for (int i = 0; i < 4; i++) {
+
+                final long h = indexOf(hash, i);
+
+                final int slot = (int) (h >>> 4) & tableMask;
+
+                final int shift = (int) (h & 15) << 2;
+
+                if (((table[slot] >>> shift) & 0xfL) < 15) {
+
+                    table[slot] += 1L << shift;
+
+                    added = true;
+
+                }
+
+            }
+
+            if (added && ++additions == sampleSize) {
+
+                reset();
+
+            }
+
+        }
+
+        /**
+         * Halve all counters.
+         */
+        private void reset() {
+
+            for (int i = 0; i < table.length; i++) {
+
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+
+            }
+
+            additions >>>= 1;
+
+        }
+
+        private static long indexOf(final int hash, final int i) {
+
+            long h = (hash + SEED[i]) * SEED[i];
+
+            h += h >>> 32;
+
+            return h;
+
+        }
+
+    }
+
+}
@@ -67,6 +67,8 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(TestHardReferenceQueueWithBatchingUpdates.class);
 
+        suite.addTestSuite(TestConcurrentTinyLFUCache.class);
+
        //Disabled see BLZG-1417 
        // suite.addTestSuite(TestConcurrentWeakValueCacheWithBatchingUpdates.class);
         
@@ -0,0 +1,273 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.cache;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase2;
+
+/**
+ * Test suite for {@link ConcurrentTinyLFUCache}.
+ */
+public class TestConcurrentTinyLFUCache extends TestCase2 {
+
+    public TestConcurrentTinyLFUCache() {
+    }
+
+    public TestConcurrentTinyLFUCache(String name) {
+        super(name);
+    }
+
+    public void test_ctor_correctRejection() {
+
+        try {
+            new ConcurrentTinyLFUCache<Long, String>(0/* capacity */, 1);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            new ConcurrentTinyLFUCache<Long, String>(10, 0/* concurrencyLevel */);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * The #of shards is reduced for small caches.
+     */
+    public void test_shardCount() {
+
+        assertEquals(1, new ConcurrentTinyLFUCache<Long, String>(100, 16)
+                .getShardCount());
+
+        assertEquals(16, new ConcurrentTinyLFUCache<Long, String>(100000, 16)
+                .getShardCount());
+
+        assertEquals(16, new ConcurrentTinyLFUCache<Long, String>(100000, 10)
+                .getShardCount());
+
+    }
+
+    public void test_getPutIfAbsent() {
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                100, 1);
+
+        assertNull(cache.get(1L));
+
+        assertNull(cache.putIfAbsent(1L, "a"));
+
+        assertEquals("a", cache.putIfAbsent(1L, "b"));
+
+        assertEquals("a", cache.get(1L));
+
+        assertEquals(1, cache.size());
+
+        assertEquals(1, cache.getHitCount());
+
+        assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+
+        assertNull(cache.get(1L));
+
+    }
+
+    /**
+     * The size of the cache never exceeds its capacity.
+     */
+    public void test_capacity() {
+
+        final int capacity = 1000;
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                capacity, 4);
+
+        final int n = capacity * 10;
+
+        for (long i = 0; i < n; i++) {
+
+            assertNull(cache.putIfAbsent(i, Long.toString(i)));
+
+            assertTrue(cache.size() <= capacity);
+
+        }
+
+        assertEquals(n, cache.size() + cache.getEvictionCount());
+
+    }
+
+    /**
+     * Frequently used entries survive a scan over many entries which are only
+     * used once (an LRU would retain only the scanned entries).
+     */
+    public void test_scanResistance() {
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                100, 1);
+
+        final int nhot = 50;
+
+        for (long i = 0; i < nhot; i++) {
+
+            cache.putIfAbsent(i, Long.toString(i));
+
+        }
+
+        for (int pass = 0; pass < 20; pass++) {
+
+            for (long i = 0; i < nhot; i++) {
+
+                assertNotNull(cache.get(i));
+
+            }
+
+        }
+
+        // scan, while the hot entries continue to be used.
+        for (long i = nhot; i < 10000; i++) {
+
+            cache.putIfAbsent(i, Long.toString(i));
+
+            if (i % 100 == 0) {
+
+                for (long j = 0; j < nhot; j++) {
+
+                    assertNotNull(cache.get(j));
+
+                }
+
+            }
+
+        }
+
+        for (long i = 0; i < nhot; i++) {
+
+            assertEquals(Long.toString(i), cache.get(i));
+
+        }
+
+    }
+
+    /**
+     * Concurrent readers and writers.
+     */
+    public void test_concurrent() throws Exception {
+
+        final int capacity = 5000;
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                capacity, 8);
+
+        final int nthreads = 8;
+
+        final ExecutorService service = Executors.newFixedThreadPool(nthreads);
+
+        try {
+
+            final List<Callable<Void>> tasks = new LinkedList<Callable<Void>>();
+
+            for (int i = 0; i < nthreads; i++) {
+
+                final long seed = i;
+
+                tasks.add(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+
+                        final Random r = new Random(seed);
+
+                        for (int j = 0; j < 200000; j++) {
+
+                            // skewed key distribution.
+                            final long key = (long) Math.abs(r
+                                    .nextGaussian() * capacity);
+
+                            final String val = cache.get(key);
+
+                            if (val == null) {
+
+                                final String tmp = cache.putIfAbsent(key,
+                                        Long.toString(key));
+
+                                if (tmp != null)
+                                    assertEquals(Long.toString(key), tmp);
+
+                            } else {
+
+                                assertEquals(Long.toString(key), val);
+
+                            }
+
+                        }
+
+                        return null;
+
+                    }
+
+                });
+
+            }
+
+            for (Future<Void> f : service.invokeAll(tasks)) {
+
+                // check for errors.
+                f.get();
+
+            }
+
+        } finally {
+
+            service.shutdownNow();
+
+        }
+
+        assertTrue(cache.size() <= capacity);
+
+        assertEquals(nthreads * 200000L, cache.getHitCount()
+                + cache.getMissCount());
+
+    }
+
+}
@@ -102,6 +102,9 @@ public class TestAll extends TestCase {
         // test suite for query deadline ordering semantics.
         suite.addTestSuite(TestQueryDeadlineOrder.class);
 
+        // test suite for the work stealing operator scheduler.
+        suite.addTestSuite(TestWorkStealingScheduler.class);
+
         // test suite for query evaluation (basic JOINs).
         suite.addTestSuite(TestQueryEngine.class);
 
@@ -0,0 +1,202 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.engine;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.bset.CopyOp;
+
+/**
+ * Test suite for the {@link WorkStealingScheduler}.
+ */
+public class TestWorkStealingScheduler extends TestCase2 {
+
+    public TestWorkStealingScheduler() {
+
+    }
+
+    public TestWorkStealingScheduler(final String name) {
+        super(name);
+    }
+
+    /**
+     * The #of concurrently running tasks for a query never exceeds its share
+     * of the pool and the deferred tasks are run once the running tasks are
+     * done.
+     */
+    public void test_fairShare() throws InterruptedException {
+
+        final WorkStealingScheduler s = new WorkStealingScheduler(4/* parallelism */);
+
+        try {
+
+            final UUID q1 = UUID.randomUUID();
+            final UUID q2 = UUID.randomUUID();
+
+            final int ntasks = 20;
+
+            final CountDownLatch done = new CountDownLatch(2 * ntasks);
+
+            final AtomicInteger running1 = new AtomicInteger();
+            final AtomicInteger maxRunning1 = new AtomicInteger();
+
+            final CountDownLatch release = new CountDownLatch(1);
+
+            for (int i = 0; i < ntasks; i++) {
+
+                s.execute(q1, 1/* weight */, new Runnable() {
+                    @Override
+                    public void run() {
+                        final int n = running1.incrementAndGet();
+                        while (true) {
+                            final int m = maxRunning1.get();
+                            if (n <= m || maxRunning1.compareAndSet(m, n))
+                                break;
+                        }
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        } finally {
+                            running1.decrementAndGet();
+                            done.countDown();
+                        }
+                    }
+                });
+
+                s.execute(q2, 3/* weight */, new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                });
+
+            }
+
+            // some tasks for q1 were held back.
+            assertTrue(s.getDeferredCount() > 0);
+
+            release.countDown();
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            // q1 never ran more than the entire pool.
+            assertTrue("maxRunning=" + maxRunning1.get(),
+                    maxRunning1.get() <= s.getParallelism());
+
+        } finally {
+
+            s.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * A task scheduled from a worker thread is forked onto the deque of that
+     * worker.
+     */
+    public void test_localFork() throws InterruptedException {
+
+        final WorkStealingScheduler s = new WorkStealingScheduler(2/* parallelism */);
+
+        try {
+
+            final UUID q = UUID.randomUUID();
+
+            final CountDownLatch done = new CountDownLatch(1);
+
+            assertFalse(s.isWorkerThread());
+
+            s.execute(q, 1/* weight */, new Runnable() {
+                @Override
+                public void run() {
+                    assertTrue(s.isWorkerThread());
+                    s.execute(q, 1/* weight */, new Runnable() {
+                        @Override
+                        public void run() {
+                            done.countDown();
+                        }
+                    });
+                }
+            });
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            assertEquals(1L, s.getLocalForkCount());
+
+        } finally {
+
+            s.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * Operators which may block waiting on other tasks are identified so they
+     * are not run on the pool.
+     */
+    public void test_mayBlock() {
+
+        final CopyOp a = new CopyOp(new BOp[] {}, //
+                new NV(BOp.Annotations.BOP_ID, 1));
+
+        final CopyOp subquery = new CopyOp(new BOp[] {}, //
+                new NV(BOp.Annotations.BOP_ID, 10));
+
+        final CopyOp b = new CopyOp(new BOp[] { a }, //
+                new NV(BOp.Annotations.BOP_ID, 2),//
+                new NV("subquery", subquery));
+
+        final CopyOp c = new CopyOp(new BOp[] { b }, //
+                new NV(BOp.Annotations.BOP_ID, 3),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER));
+
+        final CopyOp query = new CopyOp(new BOp[] { c }, //
+                new NV(BOp.Annotations.BOP_ID, 4));
+
+        assertFalse(WorkStealingScheduler.mayBlock(query, a));
+
+        // subquery.
+        assertTrue(WorkStealingScheduler.mayBlock(query, b));
+
+        // runs on the query controller.
+        assertTrue(WorkStealingScheduler.mayBlock(query, c));
+
+        // writes on the query buffer.
+        assertTrue(WorkStealingScheduler.mayBlock(query, query));
+
+    }
+
+}
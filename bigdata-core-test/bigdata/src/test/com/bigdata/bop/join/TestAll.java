@@ -65,6 +65,7 @@ public class TestAll extends TestCase {
 
         // Test suite for the guts of the JVM hash join logic.
         suite.addTestSuite(TestJVMHashJoinUtility.class);
+        suite.addTestSuite(TestJVMLongHashIndex.class);
 
         // Test suite for the guts of the HTree hash join logic.
         suite.addTestSuite(TestHTreeHashJoinUtility.class);
@@ -79,6 +80,12 @@ public class TestAll extends TestCase {
         suite.addTestSuite(TestHTreeHashIndexOp.class);
         suite.addTestSuite(TestHTreeSolutionSetHashJoin.class);
 
+        // Test suite for the filters published by a hash index.
+        suite.addTestSuite(TestSidewaysFilter.class);
+
+        // Test suite for the worst-case optimal join.
+        suite.addTestSuite(TestLeapfrogTriejoinOp.class);
+
         /*
          * Test suite for a nested loop join using an index scan for each source
          * solution read from the pipeline.
@@ -0,0 +1,286 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.join.JVMHashIndex.Bucket;
+import com.bigdata.bop.join.JVMHashIndex.Key;
+import com.bigdata.bop.join.JVMHashIndex.SolutionHit;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+
+/**
+ * Test suite for the {@link JVMLongHashIndex}.
+ */
+public class TestJVMLongHashIndex extends TestCase2 {
+
+    public TestJVMLongHashIndex() {
+    }
+
+    public TestJVMLongHashIndex(final String name) {
+        super(name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private final IVariable<IV> x = Var.var("x");
+
+    @SuppressWarnings("rawtypes")
+    private final IVariable<IV> y = Var.var("y");
+
+    @SuppressWarnings("rawtypes")
+    private IConstant<IV> termId(final long id) {
+
+        return new Constant<IV>(new TermId(VTE.URI, id));
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private IConstant<IV> inline(final int i) {
+
+        return new Constant<IV>(new XSDNumericIV(i));
+
+    }
+
+    private IBindingSet solution(final IConstant<?> xval, final int yval) {
+
+        return new ListBindingSet(new IVariable[] { x, y }, new IConstant[] {
+                xval, inline(yval) });
+
+    }
+
+    private JVMLongHashIndex newIndex(
+            final boolean indexSolutionsHavingUnboundJoinVars) {
+
+        return new JVMLongHashIndex(x, indexSolutionsHavingUnboundJoinVars,
+                new LinkedHashMap<Key, Bucket>(), 16/* initialCapacity */);
+
+    }
+
+    private int size(final Bucket b) {
+
+        int n = 0;
+
+        for (@SuppressWarnings("unused") SolutionHit hit : b) {
+            n++;
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Solutions are found by their term identifier or, for other values, using
+     * the backing map. Solutions which do not bind the join variable are
+     * dropped.
+     */
+    public void test_addAndGetBucket() {
+
+        final JVMLongHashIndex index = newIndex(false/* indexUnbound */);
+
+        assertTrue(index.add(solution(termId(12), 1)));
+        assertTrue(index.add(solution(termId(12), 2)));
+        assertTrue(index.add(solution(termId(13), 3)));
+        assertTrue(index.add(solution(inline(12), 4)));
+        assertFalse(index.add(new ListBindingSet(new IVariable[] { y },
+                new IConstant[] { inline(5) })));
+
+        assertEquals(3, index.bucketCount());
+        assertEquals(3, index.toArray().length);
+
+        assertEquals(2, size(index.getBucket(solution(termId(12), 0))));
+        assertEquals(1, size(index.getBucket(solution(termId(13), 0))));
+        assertEquals(1, size(index.getBucket(solution(inline(12), 0))));
+        assertNull(index.getBucket(solution(termId(14), 0)));
+        assertNull(index.getBucket(solution(inline(13), 0)));
+
+        // The bucket visits the solutions in the order in which they were added.
+        final Iterator<SolutionHit> itr = index.getBucket(
+                solution(termId(12), 0)).iterator();
+        assertEquals(solution(termId(12), 1), itr.next().solution);
+        assertEquals(solution(termId(12), 2), itr.next().solution);
+        assertFalse(itr.hasNext());
+
+    }
+
+    /**
+     * Solutions which do not bind the join variable are indexed when that is
+     * requested.
+     */
+    public void test_indexUnboundJoinVars() {
+
+        final JVMLongHashIndex index = newIndex(true/* indexUnbound */);
+
+        final IBindingSet unbound = new ListBindingSet(new IVariable[] { y },
+                new IConstant[] { inline(5) });
+
+        assertTrue(index.add(unbound));
+        assertTrue(index.add(solution(termId(12), 1)));
+
+        assertEquals(2, index.bucketCount());
+
+        assertEquals(1, size(index.getBucket(unbound)));
+
+    }
+
+    /**
+     * The buckets have the same hash codes as those of a {@link JVMHashIndex}
+     * so the indices can be combined by a merge join.
+     */
+    public void test_sameHashCodes() {
+
+        final JVMLongHashIndex index = newIndex(false/* indexUnbound */);
+
+        final JVMHashIndex expected = new JVMHashIndex(new IVariable[] { x },
+                false/* indexUnbound */, new LinkedHashMap<Key, Bucket>());
+
+        final IBindingSet[] a = new IBindingSet[] { solution(termId(12), 1),
+                solution(termId(99), 2), solution(inline(12), 3) };
+
+        for (IBindingSet bset : a) {
+            index.add(bset);
+            expected.add(bset);
+        }
+
+        for (IBindingSet bset : a) {
+            assertEquals(expected.getBucket(bset).hashCode(), index
+                    .getBucket(bset).hashCode());
+        }
+
+    }
+
+    /**
+     * The table is grown as buckets are added and every bucket is visited
+     * exactly once.
+     */
+    public void test_grow() {
+
+        final JVMLongHashIndex index = newIndex(false/* indexUnbound */);
+
+        final int n = 10000;
+
+        for (int i = 1; i <= n; i++) {
+
+            // a sparse set of term identifiers.
+            index.add(solution(termId(i * 7919L), i));
+
+            if (i % 3 == 0)
+                index.add(solution(termId(i * 7919L), -i));
+
+        }
+
+        assertEquals(n, index.bucketCount());
+
+        for (int i = 1; i <= n; i++) {
+
+            final Bucket b = index.getBucket(solution(termId(i * 7919L), 0));
+
+            assertNotNull(b);
+
+            assertEquals(i % 3 == 0 ? 2 : 1, size(b));
+
+        }
+
+        final Set<Bucket> seen = new HashSet<Bucket>();
+
+        final Iterator<Bucket> itr = index.buckets();
+
+        while (itr.hasNext()) {
+
+            assertTrue(seen.add(itr.next()));
+
+        }
+
+        assertEquals(n, seen.size());
+
+    }
+
+    /**
+     * Duplicate solutions are not added by
+     * {@link JVMHashIndex#addDistinct(IBindingSet)}.
+     */
+    public void test_addDistinct() {
+
+        final JVMLongHashIndex index = newIndex(true/* indexUnbound */);
+
+        assertTrue(index.addDistinct(solution(termId(12), 1)));
+        assertFalse(index.addDistinct(solution(termId(12), 1)));
+        assertTrue(index.addDistinct(solution(termId(12), 2)));
+        assertTrue(index.addDistinct(solution(inline(12), 1)));
+        assertFalse(index.addDistinct(solution(inline(12), 1)));
+
+        assertEquals(2, size(index.getBucket(solution(termId(12), 0))));
+        assertEquals(1, size(index.getBucket(solution(inline(12), 0))));
+
+    }
+
+    /**
+     * The hit counters are maintained for each solution in a bucket.
+     */
+    public void test_hits() {
+
+        final JVMLongHashIndex index = newIndex(false/* indexUnbound */);
+
+        index.add(solution(termId(12), 1));
+        index.add(solution(termId(12), 2));
+        index.add(solution(termId(12), 3));
+
+        final Bucket b = index.getBucket(solution(termId(12), 0));
+
+        final Iterator<SolutionHit> itr = b.iterator();
+        itr.next();
+        final SolutionHit second = itr.next();
+        second.incrementHits();
+        second.incrementHits();
+
+        int nhit = 0;
+        for (SolutionHit hit : b) {
+            if (hit.getHits() > 0) {
+                assertEquals(solution(termId(12), 2), hit.solution);
+                assertEquals(2, hit.getHits());
+                nhit++;
+            }
+        }
+        assertEquals(1, nhit);
+
+    }
+
+}
@@ -0,0 +1,599 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IPredicate.Annotations;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.E;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.ap.R;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITupleCursor;
+import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.journal.BufferMode;
+import com.bigdata.journal.ITx;
+import com.bigdata.journal.Journal;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+import com.bigdata.striterator.ChunkedArrayIterator;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Unit tests for the {@link LeapfrogTriejoinOp} and its {@link ITrieIterator}
+ * s.
+ */
+public class TestLeapfrogTriejoinOp extends TestCase2 {
+
+    public TestLeapfrogTriejoinOp() {
+    }
+
+    public TestLeapfrogTriejoinOp(final String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties p = new Properties(super.getProperties());
+
+        p.setProperty(Journal.Options.BUFFER_MODE, BufferMode.Transient
+                .toString());
+
+        return p;
+
+    }
+
+    static private final String namespace = "ns";
+
+    private Journal jnl;
+
+    @Override
+    public void setUp() throws Exception {
+
+        super.setUp();
+
+        jnl = new Journal(getProperties());
+
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+
+        if (jnl != null) {
+            jnl.destroy();
+            jnl = null;
+        }
+
+        super.tearDown();
+
+    }
+
+    /**
+     * Create and populate the relation in the {@link #namespace}.
+     */
+    private void loadData(final E[] a) {
+
+        final R rel = new R(jnl, namespace, ITx.UNISOLATED, new Properties());
+        rel.create();
+
+        rel.insert(new ChunkedArrayIterator<E>(a.length, a, null/* keyOrder */));
+
+        jnl.commit();
+
+    }
+
+    private static byte[] k(final int i) {
+
+        return new byte[] { (byte) i };
+
+    }
+
+    /**
+     * Walk the trie depth first and return the visited paths.
+     */
+    private static List<String> walk(final ITrieIterator trie) {
+
+        final List<String> paths = new ArrayList<String>();
+
+        walk(trie, 0/* level */, "", paths);
+
+        return paths;
+
+    }
+
+    private static void walk(final ITrieIterator trie, final int level,
+            final String prefix, final List<String> paths) {
+
+        trie.open();
+
+        try {
+
+            for (; !trie.atEnd(); trie.next()) {
+
+                final String path = prefix + "/" + trie.value();
+
+                if (level + 1 == trie.getDepth()) {
+
+                    paths.add(path);
+
+                } else {
+
+                    walk(trie, level + 1, path, paths);
+
+                }
+
+            }
+
+        } finally {
+
+            trie.up();
+
+        }
+
+    }
+
+    /**
+     * Navigation of an {@link ArrayTrieIterator}, including the removal of
+     * duplicate rows and seeks within a level.
+     */
+    public void test_arrayTrie() {
+
+        final byte[][][] keys = new byte[][][] {//
+                { k(2), k(1) },//
+                { k(1), k(3) },//
+                { k(1), k(1) },//
+                { k(1), k(3) },// duplicate
+                { k(4), k(2) },//
+        };
+
+        final Object[][] values = new Object[keys.length][];
+
+        for (int i = 0; i < keys.length; i++) {
+
+            values[i] = new Object[] { keys[i][0][0], keys[i][1][0] };
+
+        }
+
+        final ArrayTrieIterator trie = new ArrayTrieIterator(2, keys, values);
+
+        assertEquals(4, trie.size());
+
+        assertEquals(2, trie.getDepth());
+
+        assertEquals(
+                Arrays.asList("/1/1", "/1/3", "/2/1", "/4/2"),
+                walk(trie));
+
+        trie.open();
+        assertEquals(1, trie.key()[0]);
+
+        // descend under (1).
+        trie.open();
+        assertEquals(1, trie.key()[0]);
+        trie.seek(k(2));
+        assertFalse(trie.atEnd());
+        assertEquals(3, trie.key()[0]);
+        trie.seek(k(1)); // NOP : already GTE.
+        assertEquals(3, trie.key()[0]);
+        trie.next();
+        assertTrue(trie.atEnd());
+        trie.up();
+
+        // seek to the first key GTE (3) at the first level.
+        trie.seek(k(3));
+        assertFalse(trie.atEnd());
+        assertEquals(4, trie.key()[0]);
+        trie.seek(k(5));
+        assertTrue(trie.atEnd());
+        trie.up();
+
+    }
+
+    /**
+     * The {@link TupleCursorTrieIterator} visits the same paths and lands on
+     * the same keys for seeks as an {@link ArrayTrieIterator} over the same
+     * tuples.
+     */
+    public void test_tupleCursorTrie() {
+
+        final BTree btree = BTree.create(new SimpleMemoryRawStore(),
+                new IndexMetadata(UUID.randomUUID()));
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        final Random r = new Random();
+
+        final List<byte[][]> rows = new ArrayList<byte[][]>();
+
+        final List<Object[]> vals = new ArrayList<Object[]>();
+
+        for (int i = 0; i < 200; i++) {
+
+            final XSDNumericIV<?> a = new XSDNumericIV<>(r.nextInt(20));
+            final XSDNumericIV<?> b = new XSDNumericIV<>(r.nextInt(20));
+
+            keyBuilder.reset();
+            IVUtility.encode(keyBuilder, a);
+            final byte[] ka = keyBuilder.getKey();
+
+            keyBuilder.reset();
+            IVUtility.encode(keyBuilder, b);
+            final byte[] kb = keyBuilder.getKey();
+
+            keyBuilder.reset();
+            IVUtility.encode(keyBuilder, a);
+            IVUtility.encode(keyBuilder, b);
+            btree.insert(keyBuilder.getKey(), null);
+
+            rows.add(new byte[][] { ka, kb });
+            vals.add(new Object[] { a, b });
+
+        }
+
+        final ArrayTrieIterator expected = new ArrayTrieIterator(2,
+                rows.toArray(new byte[rows.size()][][]),
+                vals.toArray(new Object[vals.size()][]));
+
+        final TupleCursorTrieIterator actual = new TupleCursorTrieIterator(
+                (ITupleCursor<?>) btree.rangeIterator(null, null,
+                        0/* capacity */, IRangeQuery.KEYS
+                                | IRangeQuery.CURSOR, null/* filter */),
+                null/* fromKey */, null/* toKey */, 2/* depth */);
+
+        assertEquals(walk(expected), walk(actual));
+
+        // random seeks at the 2nd level.
+        for (int i = 0; i < 20; i++) {
+
+            keyBuilder.reset();
+            IVUtility.encode(keyBuilder, new XSDNumericIV<>(r.nextInt(20)));
+            final byte[] seekKey = keyBuilder.getKey();
+
+            expected.open();
+            actual.open();
+
+            expected.seek(seekKey);
+            actual.seek(seekKey);
+
+            assertEquals(expected.atEnd(), actual.atEnd());
+
+            if (!expected.atEnd()) {
+
+                assertEquals(0,
+                        BytesUtil.compareBytes(expected.key(), actual.key()));
+
+                expected.open();
+                actual.open();
+
+                expected.seek(seekKey);
+                actual.seek(seekKey);
+
+                assertEquals(expected.atEnd(), actual.atEnd());
+
+                if (!expected.atEnd())
+                    assertEquals(expected.value(), actual.value());
+
+                expected.up();
+                actual.up();
+
+            }
+
+            expected.up();
+            actual.up();
+
+        }
+
+    }
+
+    private LeapfrogTriejoinOp<E> newJoin(final IVariableOrConstant<?>[]... atoms) {
+
+        @SuppressWarnings("unchecked")
+        final IPredicate<E>[] preds = new IPredicate[atoms.length];
+
+        for (int i = 0; i < atoms.length; i++) {
+
+            preds[i] = new Predicate<E>(atoms[i], NV.asMap(new NV[] {//
+                    new NV(Predicate.Annotations.RELATION_NAME,
+                            new String[] { namespace }),//
+                    new NV(Predicate.Annotations.BOP_ID, i + 2),//
+                    new NV(Annotations.TIMESTAMP, ITx.READ_COMMITTED),//
+                    }));
+
+        }
+
+        return new LeapfrogTriejoinOp<E>(new BOp[] {},//
+                new NV(LeapfrogTriejoinOp.Annotations.BOP_ID, 1),//
+                new NV(LeapfrogTriejoinOp.Annotations.PREDICATES, preds)//
+        );
+
+    }
+
+    private IBindingSet[] run(final LeapfrogTriejoinOp<E> query,
+            final IBindingSet left, final IBindingSet[] expected)
+            throws InterruptedException, ExecutionException {
+
+        final LeapfrogTriejoinStats stats = query.newStats();
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                new MockRunningQuery(null/* fed */, jnl/* indexManager */),
+                -1/* partitionId */, stats, query/* op */,
+                false/* lastInvocation */,
+                new ThickAsynchronousIterator<IBindingSet[]>(
+                        new IBindingSet[][] { new IBindingSet[] { left } }),
+                sink, null/* sink2 */);
+
+        final FutureTask<Void> ft = query.eval(context);
+
+        jnl.getExecutorService().execute(ft);
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                sink.iterator(), ft);
+
+        return expected;
+
+    }
+
+    private static IBindingSet solution(final String[] names,
+            final String[] values) {
+
+        final IVariable<?>[] vars = new IVariable[names.length];
+
+        final IConstant<?>[] vals = new IConstant[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+
+            vars[i] = Var.var(names[i]);
+
+            vals[i] = new Constant<String>(values[i]);
+
+        }
+
+        return new ListBindingSet(vars, vals);
+
+    }
+
+    /**
+     * A directed triangle query over a graph which has one triangle and one
+     * two-cycle.
+     * 
+     * <pre>
+     * (?a ?b) . (?b ?c) . (?c ?a)
+     * </pre>
+     */
+    public void test_triangle() throws InterruptedException,
+            ExecutionException {
+
+        loadData(new E[] {//
+                new E("A", "B"),//
+                new E("B", "C"),//
+                new E("C", "A"),//
+                new E("B", "D"),//
+                new E("D", "E"),//
+                new E("C", "B"),//
+        });
+
+        final Var<?> a = Var.var("a"), b = Var.var("b"), c = Var.var("c");
+
+        final String[] names = new String[] { "a", "b", "c" };
+
+        run(newJoin(new IVariableOrConstant[] { a, b },
+                new IVariableOrConstant[] { b, c },
+                new IVariableOrConstant[] { c, a }),//
+                new ListBindingSet(),//
+                new IBindingSet[] {//
+                        solution(names, new String[] { "A", "B", "C" }),//
+                        solution(names, new String[] { "B", "C", "A" }),//
+                        solution(names, new String[] { "C", "A", "B" }),//
+                });
+
+        // with ?a bound by the source solution.
+        run(newJoin(new IVariableOrConstant[] { a, b },
+                new IVariableOrConstant[] { b, c },
+                new IVariableOrConstant[] { c, a }),//
+                solution(new String[] { "a" }, new String[] { "B" }),//
+                new IBindingSet[] {//
+                solution(names, new String[] { "B", "C", "A" }),//
+                });
+
+        // two-cycles.
+        run(newJoin(new IVariableOrConstant[] { a, b },
+                new IVariableOrConstant[] { b, a }),//
+                new ListBindingSet(),//
+                new IBindingSet[] {//
+                        solution(new String[] { "a", "b" }, new String[] {
+                                "B", "C" }),//
+                        solution(new String[] { "a", "b" }, new String[] {
+                                "C", "B" }),//
+                });
+
+        // existence test for a fully bound atom and a constant.
+        run(newJoin(new IVariableOrConstant[] {
+                new Constant<String>("A"), new Constant<String>("B") },
+                new IVariableOrConstant[] { new Constant<String>("B"), b }),//
+                new ListBindingSet(),//
+                new IBindingSet[] {//
+                        solution(new String[] { "b" }, new String[] { "C" }),//
+                        solution(new String[] { "b" }, new String[] { "D" }),//
+                });
+
+    }
+
+    /**
+     * A variable which is repeated within an atom only joins tuples in which
+     * those positions have the same value.
+     */
+    public void test_repeatedVariable() throws InterruptedException,
+            ExecutionException {
+
+        loadData(new E[] {//
+                new E("A", "A"),//
+                new E("A", "B"),//
+                new E("B", "C"),//
+        });
+
+        final Var<?> a = Var.var("a"), b = Var.var("b");
+
+        run(newJoin(new IVariableOrConstant[] { a, a },
+                new IVariableOrConstant[] { a, b }),//
+                new ListBindingSet(),//
+                new IBindingSet[] {//
+                        solution(new String[] { "a", "b" }, new String[] {
+                                "A", "A" }),//
+                        solution(new String[] { "a", "b" }, new String[] {
+                                "A", "B" }),//
+                });
+
+    }
+
+    /**
+     * Synthetic triangle benchmark. The triangles found by the leapfrog
+     * triejoin over a random graph are compared against those found by
+     * nested loops over an in-memory adjacency list and the elapsed times are
+     * logged.
+     */
+    public void test_triangle_synthetic() throws InterruptedException,
+            ExecutionException {
+
+        final int nnodes = 200, nedges = 3000;
+
+        final Random r = new Random();
+
+        final Set<E> edges = new LinkedHashSet<E>();
+
+        final Map<String, Set<String>> adj = new HashMap<String, Set<String>>();
+
+        while (edges.size() < nedges) {
+
+            final String x = "n" + r.nextInt(nnodes);
+            final String y = "n" + r.nextInt(nnodes);
+
+            if (edges.add(new E(x, y))) {
+
+                Set<String> tmp = adj.get(x);
+
+                if (tmp == null)
+                    adj.put(x, tmp = new HashSet<String>());
+
+                tmp.add(y);
+
+            }
+
+        }
+
+        loadData(edges.toArray(new E[edges.size()]));
+
+        // nested loops.
+        final long begin1 = System.currentTimeMillis();
+
+        final List<IBindingSet> expected = new ArrayList<IBindingSet>();
+
+        final String[] names = new String[] { "a", "b", "c" };
+
+        for (Map.Entry<String, Set<String>> e : adj.entrySet()) {
+
+            final String x = e.getKey();
+
+            for (String y : e.getValue()) {
+
+                final Set<String> ys = adj.get(y);
+
+                if (ys == null)
+                    continue;
+
+                for (String z : ys) {
+
+                    final Set<String> zs = adj.get(z);
+
+                    if (zs != null && zs.contains(x))
+                        expected.add(solution(names, new String[] { x, y, z }));
+
+                }
+
+            }
+
+        }
+
+        final long elapsed1 = System.currentTimeMillis() - begin1;
+
+        final Var<?> a = Var.var("a"), b = Var.var("b"), c = Var.var("c");
+
+        final long begin2 = System.currentTimeMillis();
+
+        run(newJoin(new IVariableOrConstant[] { a, b },
+                new IVariableOrConstant[] { b, c },
+                new IVariableOrConstant[] { c, a }),//
+                new ListBindingSet(),//
+                expected.toArray(new IBindingSet[expected.size()]));
+
+        final long elapsed2 = System.currentTimeMillis() - begin2;
+
+        if (log.isInfoEnabled())
+            log.info("triangles=" + expected.size() + ", nestedLoops="
+                    + elapsed1 + "ms, leapfrog=" + elapsed2 + "ms");
+
+    }
+
+}
@@ -28,6 +28,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package com.bigdata.bop.join;
 
 import java.util.Properties;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 
@@ -40,6 +41,7 @@ import com.bigdata.bop.Constant;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IQueryContext;
 import com.bigdata.bop.IPredicate.Annotations;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.IVariableOrConstant;
@@ -55,6 +57,7 @@ import com.bigdata.bop.constraint.NEConstant;
 import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
 import com.bigdata.bop.engine.BlockingBufferWithStats;
 import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.bop.solutions.MockQueryContext;
 import com.bigdata.journal.BufferMode;
 import com.bigdata.journal.ITx;
 import com.bigdata.journal.Journal;
@@ -245,6 +248,225 @@ public class TestPipelineJoin extends TestCase2 {
 
     }
 
+    /**
+     * Unit test for a pipeline join fed by a single empty binding set where the
+     * access path is split into key-range morsels which are scanned in
+     * parallel.
+     */
+    public void test_join_morsels() throws InterruptedException,
+            ExecutionException {
+
+        doMorselJoinTest(true/* reorderSolutions */);
+
+    }
+
+    /**
+     * Unit test for a pipeline join fed by a single empty binding set which
+     * would be split into key-range morsels, but which may not reorder the
+     * solutions. The access path is scanned sequentially and the solutions
+     * are reported in the key order of the access path.
+     */
+    public void test_join_morsels_preserveOrder()
+            throws InterruptedException, ExecutionException {
+
+        doMorselJoinTest(false/* reorderSolutions */);
+
+    }
+
+    private void doMorselJoinTest(final boolean reorderSolutions)
+            throws InterruptedException, ExecutionException {
+
+        final int joinId = 2;
+        final int predId = 3;
+
+        final Var<?> x = Var.var("x");
+        final Var<?> y = Var.var("y");
+
+        final Predicate<E> predOp = new Predicate<E>(new IVariableOrConstant[] {
+                x, y }, NV.asMap(new NV[] {//
+                        new NV(Predicate.Annotations.RELATION_NAME,
+                                new String[] { namespace }),//
+                        new NV(Predicate.Annotations.BOP_ID, predId),//
+                        new NV(Annotations.TIMESTAMP,
+                                jnl.getLastCommitTime()),//
+                }));
+
+        final PipelineJoin<E> query = new PipelineJoin<E>(
+                new BOp[] {},// args
+                new NV(Predicate.Annotations.BOP_ID, joinId),//
+                new NV(PipelineJoin.Annotations.PREDICATE, predOp),//
+                new NV(PipelineJoin.Annotations.MORSEL_PARALLELISM, 2),//
+                new NV(PipelineJoin.Annotations.NUM_TASKS_PER_THREAD, 2),//
+                new NV(PipelineJoin.Annotations.MIN_DATAPOINTS_PER_TASK, 1),//
+                new NV(PipelineJoin.Annotations.REORDER_SOLUTIONS,
+                        reorderSolutions));
+
+        // the expected solutions (in key order).
+        final IBindingSet[] expected = new IBindingSet[] {//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("John"),
+                                new Constant<String>("Mary") }),//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("Leon"),
+                                new Constant<String>("Paul") }),//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("Mary"),
+                                new Constant<String>("John") }),//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("Mary"),
+                                new Constant<String>("Paul") }),//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("Paul"),
+                                new Constant<String>("Leon") }),//
+        };
+
+        final PipelineJoinStats stats = query.newStats();
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                new IBindingSet[][] { new IBindingSet[] { new ListBindingSet()} });
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(query, stats);
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                new MockRunningQuery(null/* fed */, jnl/* indexManager */
+                ), -1/* partitionId */, stats,query/* op */,
+                false/* lastInvocation */, 
+                source, sink, null/* sink2 */);
+
+        // get task.
+        final FutureTask<Void> ft = query.eval(context);
+        
+        // execute task.
+        jnl.getExecutorService().execute(ft);
+
+        if (reorderSolutions) {
+
+            AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                    sink.iterator(), ft);
+
+            // the access path was split into morsels.
+            assertEquals(4L, stats.accessPathMorsels.get());
+
+        } else {
+
+            AbstractQueryEngineTestCase.assertSameSolutions(expected,
+                    sink.iterator(), ft);
+
+            // the access path was scanned sequentially.
+            assertEquals(0L, stats.accessPathMorsels.get());
+
+        }
+
+        assertEquals(1L, stats.accessPathCount.get());
+        assertEquals(5L, stats.accessPathUnitsIn.get());
+        assertEquals(5L, stats.outputSolutions.get());
+
+    }
+
+    /**
+     * Unit test for an adaptive hash join. The first chunk of source solutions
+     * is joined using an index probe. Since the cost of that probe reaches the
+     * cost of a scan of the access path, the access path is then read into a
+     * hash index which is probed for the source solutions in the second chunk.
+     */
+    public void test_join_adaptiveHashJoin()
+            throws InterruptedException, ExecutionException {
+
+        final int joinId = 2;
+        final int predId = 3;
+
+        final Var<?> x = Var.var("x");
+        final Var<?> y = Var.var("y");
+
+        final Predicate<E> predOp = new Predicate<E>(new IVariableOrConstant[] {
+                x, y }, NV.asMap(new NV[] {//
+                        new NV(Predicate.Annotations.RELATION_NAME,
+                                new String[] { namespace }),//
+                        new NV(Predicate.Annotations.BOP_ID, predId),//
+                        new NV(Annotations.TIMESTAMP,
+                                jnl.getLastCommitTime()),//
+                }));
+
+        final PipelineJoin<E> query = new PipelineJoin<E>(
+                new BOp[] {},// args
+                new NV(Predicate.Annotations.BOP_ID, joinId),//
+                new NV(PipelineJoin.Annotations.PREDICATE, predOp),//
+                new NV(PipelineJoin.Annotations.ADAPTIVE_HASH_JOIN, true),//
+                // one probe costs as much as a scan of the 5 tuples.
+                new NV(PipelineJoin.Annotations.ADAPTIVE_PROBE_COST, 5));
+
+        // the expected solutions.
+        final IBindingSet[] expected = new IBindingSet[] {//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("John"),
+                                new Constant<String>("Mary") }),//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("Mary"),
+                                new Constant<String>("John") }),//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("Mary"),
+                                new Constant<String>("Paul") }),//
+                new ListBindingSet(//
+                        new IVariable[] { x, y },//
+                        new IConstant[] { new Constant<String>("Paul"),
+                                new Constant<String>("Leon") }),//
+        };
+
+        final PipelineJoinStats stats = query.newStats();
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                new IBindingSet[][] {//
+                        new IBindingSet[] {//
+                                new ListBindingSet(new IVariable[] { x },
+                                        new IConstant[] { new Constant<String>(
+                                                "John") }) },//
+                        new IBindingSet[] {//
+                                new ListBindingSet(new IVariable[] { x },
+                                        new IConstant[] { new Constant<String>(
+                                                "Mary") }),//
+                                new ListBindingSet(new IVariable[] { x },
+                                        new IConstant[] { new Constant<String>(
+                                                "Paul") }) },//
+                });
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(query, stats);
+
+        // the shared hash join state is a query attribute.
+        final IQueryContext queryContext = new MockQueryContext(
+                UUID.randomUUID());
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                new MockRunningQuery(null/* fed */, jnl/* indexManager */,
+                        queryContext), -1/* partitionId */, stats,
+                query/* op */, false/* lastInvocation */, source, sink,
+                null/* sink2 */);
+
+        // get task.
+        final FutureTask<Void> ft = query.eval(context);
+        
+        // execute task.
+        jnl.getExecutorService().execute(ft);
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                sink.iterator(), ft);
+
+        // one index probe, then the hash index was used.
+        assertEquals(1L, stats.accessPathCount.get());
+        assertEquals(5L, stats.adaptiveHashIndexSize.get());
+        assertEquals(2L, stats.adaptiveHashIndexProbes.get());
+        assertEquals(3L, stats.inputSolutions.get());
+        assertEquals(4L, stats.outputSolutions.get());
+
+    }
+
     /**
      * Unit test for a join without shared variables with multiple source
      * solutions.
@@ -0,0 +1,143 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.bop.join;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.E;
+import com.bigdata.counters.CAT;
+
+/**
+ * Test suite for the {@link SidewaysFilter}.
+ */
+public class TestSidewaysFilter extends TestCase2 {
+
+    public TestSidewaysFilter() {
+    }
+
+    public TestSidewaysFilter(final String name) {
+        super(name);
+    }
+
+    /**
+     * Every value which was added is reported as possibly present.
+     */
+    public void test_noFalseNegatives() {
+
+        final SidewaysFilter f = new SidewaysFilter(Var.var("x"), 1000);
+
+        for (int i = 0; i < 1000; i++) {
+
+            f.add(Integer.valueOf(i * 7));
+
+        }
+
+        assertEquals(1000L, f.size());
+
+        for (int i = 0; i < 1000; i++) {
+
+            assertTrue(f.mightContain(Integer.valueOf(i * 7)));
+
+        }
+
+    }
+
+    /**
+     * Values outside of the range of the values which were added are
+     * rejected and most other values which were not added are rejected.
+     */
+    public void test_rejects() {
+
+        final SidewaysFilter f = new SidewaysFilter(Var.var("x"), 1000);
+
+        for (int i = 0; i < 1000; i++) {
+
+            f.add(Integer.valueOf(1000 + 2 * i));
+
+        }
+
+        // outside of the range.
+        assertFalse(f.mightContain(Integer.valueOf(999)));
+        assertFalse(f.mightContain(Integer.valueOf(3000)));
+
+        // values within the range which were not added.
+        int nfalsePositives = 0;
+
+        for (int i = 0; i < 1000; i++) {
+
+            if (f.mightContain(Integer.valueOf(1001 + 2 * i)))
+                nfalsePositives++;
+
+        }
+
+        assertTrue("nfalsePositives=" + nfalsePositives, nfalsePositives < 100);
+
+    }
+
+    /**
+     * The range is not used when the values are not of a single class, but
+     * the filter still reports the values which were added.
+     */
+    public void test_mixedValueClasses() {
+
+        final SidewaysFilter f = new SidewaysFilter(Var.var("x"), 10);
+
+        f.add(Integer.valueOf(12));
+        f.add("abc");
+
+        assertTrue(f.mightContain(Integer.valueOf(12)));
+        assertTrue(f.mightContain("abc"));
+
+    }
+
+    /**
+     * The element test rejects elements whose value at the filtered position
+     * was not added to the filter.
+     */
+    public void test_elementTest() {
+
+        final SidewaysFilter f = new SidewaysFilter(Var.var("y"), 10);
+
+        f.add("Mary");
+        f.add("Paul");
+
+        final CAT rejected = new CAT();
+
+        final SidewaysFilter.ElementTest test = new SidewaysFilter.ElementTest(
+                new int[] { 1 }, new SidewaysFilter[] { f }, rejected);
+
+        assertTrue(test.canAccept(new E("John", "Mary")));
+        assertFalse(test.canAccept("John"));
+
+        assertTrue(test.isValid(new E("John", "Mary")));
+        assertTrue(test.isValid(new E("Leon", "Paul")));
+        assertFalse(test.isValid(new E("Mary", "Aaron")));
+
+        assertEquals(1L, rejected.get());
+
+    }
+
+}
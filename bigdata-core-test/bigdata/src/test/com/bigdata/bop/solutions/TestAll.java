@@ -88,6 +88,9 @@ public class TestAll extends TestCase {
         // in-memory sort operator.
         suite.addTestSuite(TestMemorySortOp.class);
 
+        // external memory sort operator.
+        suite.addTestSuite(TestNativeSortOp.class);
+
         /*
          * Aggregation
          */
@@ -106,6 +109,7 @@ public class TestAll extends TestCase {
 
         // Pipelined aggregation operator.
         suite.addTestSuite(TestPipelinedAggregationOp.class);
+        suite.addTestSuite(TestNativeGroupByOp.class);
 
         return suite;
         
@@ -0,0 +1,865 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Bind;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableFactory;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.bop.rdf.aggregate.AVERAGE;
+import com.bigdata.bop.rdf.aggregate.COUNT;
+import com.bigdata.bop.rdf.aggregate.GROUP_CONCAT;
+import com.bigdata.bop.rdf.aggregate.MAX;
+import com.bigdata.bop.rdf.aggregate.MIN;
+import com.bigdata.bop.rdf.aggregate.SUM;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for the {@link NativeGroupByOp}, including its use together with
+ * the {@link PartialAggregationOp} for two-phase aggregation. The solutions
+ * computed by the operator are compared against those computed by the
+ * {@link PipelinedAggregationOp} for the same aggregation. The number of
+ * groups on the JVM heap is made very small in order to force solutions to be
+ * spilled into partitions.
+ * 
+ * @see TestPipelinedAggregationOp
+ */
+public class TestNativeGroupByOp extends TestCase2 {
+
+    public TestNativeGroupByOp() {
+    }
+
+    public TestNativeGroupByOp(final String name) {
+        super(name);
+    }
+
+    /**
+     * The number of distinct groups in the test data.
+     */
+    private static final int NGROUPS = 20;
+
+    /**
+     * The number of solutions in the test data.
+     */
+    private static final int NSOLUTIONS = 500;
+
+    private long termId = 1;
+
+    private IV<BigdataLiteral, ?> makeIV(final BigdataLiteral lit) {
+
+        final IV<BigdataLiteral, ?> iv = new TermId<BigdataLiteral>(
+                VTE.LITERAL, termId++);
+
+        iv.setValue(lit);
+
+        return iv;
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private final IVariable<IV> g = Var.var("g");
+
+    @SuppressWarnings("rawtypes")
+    private final IVariable<IV> v = Var.var("v");
+
+    @SuppressWarnings("rawtypes")
+    private IConstant<IV>[] groups;
+
+    @SuppressWarnings("rawtypes")
+    private IConstant<IV> notANumber;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        final BigdataValueFactory f = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        groups = new IConstant[NGROUPS];
+
+        for (int i = 0; i < NGROUPS; i++) {
+
+            groups[i] = new Constant<IV>(makeIV(f.createLiteral("g" + i)));
+
+        }
+
+        notANumber = new Constant<IV>(makeIV(f.createLiteral("abc")));
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        groups = null;
+
+        notANumber = null;
+
+        super.tearDown();
+
+    }
+
+    /**
+     * Return test data in which the solutions for the groups are interleaved.
+     * Some solutions do not bind <code>?v</code>.
+     * 
+     * @param withErrors
+     *            When <code>true</code>, one of the solutions for the first
+     *            group binds a value for <code>?v</code> which is not numeric
+     *            and one solution does not bind <code>?g</code>.
+     */
+    @SuppressWarnings("rawtypes")
+    private IBindingSet[] newData(final boolean withErrors) {
+
+        final IBindingSet[] data = new IBindingSet[NSOLUTIONS];
+
+        for (int i = 0; i < NSOLUTIONS; i++) {
+
+            final IConstant<IV> gval = groups[i % NGROUPS];
+
+            if (i % 7 == 3) {
+
+                data[i] = new ListBindingSet(new IVariable<?>[] { g },
+                        new IConstant[] { gval });
+
+            } else if (withErrors && i == 5) {
+
+                data[i] = new ListBindingSet(new IVariable<?>[] { v },
+                        new IConstant[] { new Constant<IV>(
+                                new XSDNumericIV<BigdataLiteral>(i)) });
+
+            } else if (withErrors && i == NGROUPS * 3) {
+
+                data[i] = new ListBindingSet(new IVariable<?>[] { g, v },
+                        new IConstant[] { gval, notANumber });
+
+            } else {
+
+                data[i] = new ListBindingSet(new IVariable<?>[] { g, v },
+                        new IConstant[] {
+                                gval,
+                                new Constant<IV>(
+                                        new XSDNumericIV<BigdataLiteral>(
+                                                (i * 31) % 97)) });
+
+            }
+
+        }
+
+        return data;
+
+    }
+
+    /**
+     * <pre>
+     * SELECT ?g (COUNT(?v) AS ?cnt) (SUM(?v) AS ?sum) (MIN(?v) AS ?min)
+     *        (MAX(?v) AS ?max) (AVG(?v) AS ?avg)
+     * GROUP BY ?g
+     * </pre>
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IValueExpression<?>[] newSelect() {
+
+        return new IValueExpression[] {
+                g,
+                new Bind(Var.var("cnt"), new COUNT(false/* distinct */,
+                        (IValueExpression<IV>) v)),
+                new Bind(Var.var("sum"), new SUM(false/* distinct */,
+                        (IValueExpression<IV>) v)),
+                new Bind(Var.var("min"), new MIN(false/* distinct */,
+                        (IValueExpression<IV>) v)),
+                new Bind(Var.var("max"), new MAX(false/* distinct */,
+                        (IValueExpression<IV>) v)),
+                new Bind(Var.var("avg"), new AVERAGE(false/* distinct */,
+                        (IValueExpression<IV>) v)) };
+
+    }
+
+    private IValueExpression<?>[] newGroupBy() {
+
+        return new IValueExpression[] { g };
+
+    }
+
+    /**
+     * Provides sequential, predictable, and easily read variable names.
+     */
+    private static class MockVariableFactory implements IVariableFactory {
+
+        private int i = 0;
+
+        public IVariable<?> var() {
+
+            return Var.var("_" + i++);
+
+        }
+
+    }
+
+    private IGroupByRewriteState newRewrite(final IGroupByState groupByState) {
+
+        final IVariableFactory variableFactory = new MockVariableFactory();
+
+        return new GroupByRewriter(groupByState) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public IVariable<?> var() {
+                return variableFactory.var();
+            }
+
+        };
+
+    }
+
+    /**
+     * Return a new {@link NativeGroupByOp}.
+     * 
+     * @param nvs
+     *            Additional annotations.
+     */
+    private NativeGroupByOp newNativeGroupByOp(
+            final IValueExpression<?>[] select,
+            final IValueExpression<?>[] groupBy, final IConstraint[] having,
+            final NV... nvs) {
+
+        final IGroupByState groupByState = new GroupByState(select, groupBy,
+                having);
+
+        final NV[] base = new NV[] {//
+                new NV(BOp.Annotations.BOP_ID, 1),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(PipelineOp.Annotations.PIPELINED, true),//
+                new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                        newRewrite(groupByState)), //
+        };
+
+        final NV[] all = new NV[base.length + nvs.length];
+
+        System.arraycopy(base, 0, all, 0, base.length);
+
+        System.arraycopy(nvs, 0, all, base.length, nvs.length);
+
+        return new NativeGroupByOp(new BOp[] {}, NV.asMap(all));
+
+    }
+
+    /**
+     * Return a new {@link PipelinedAggregationOp} used to compute the expected
+     * solutions.
+     */
+    private PipelinedAggregationOp newPipelinedAggregationOp(
+            final IValueExpression<?>[] select,
+            final IValueExpression<?>[] groupBy, final IConstraint[] having) {
+
+        final IGroupByState groupByState = new GroupByState(select, groupBy,
+                having);
+
+        return new PipelinedAggregationOp(new BOp[] {},
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, 1),//
+                        new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.PIPELINED, true),//
+                        new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                        new NV(PipelineOp.Annotations.SHARED_STATE, true),//
+                        new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                        new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                        new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                newRewrite(groupByState)), //
+                }));
+
+    }
+
+    /**
+     * The identifier of the {@link PartialAggregationOp}.
+     */
+    private static final int PARTIAL_ID = 2;
+
+    /**
+     * Return a new {@link PartialAggregationOp}.
+     * 
+     * @param maxPartialGroups
+     *            The maximum #of groups in a partial aggregation state.
+     */
+    private PartialAggregationOp newPartialAggregationOp(
+            final IValueExpression<?>[] select,
+            final IValueExpression<?>[] groupBy, final IConstraint[] having,
+            final int maxPartialGroups) {
+
+        final IGroupByState groupByState = new GroupByState(select, groupBy,
+                having);
+
+        return new PartialAggregationOp(new BOp[] {},
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, PARTIAL_ID),//
+                        new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.PIPELINED, true),//
+                        new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                        new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                newRewrite(groupByState)), //
+                        new NV(PartialAggregationOp.Annotations.MAX_PARTIAL_GROUPS,
+                                maxPartialGroups), //
+                }));
+
+    }
+
+    /**
+     * Run the operator against the data.
+     * 
+     * @return The solutions written onto the sink.
+     */
+    private IBindingSet[] run(final GroupByOp query, final BOpStats stats,
+            final IBindingSet[] data) throws Exception {
+
+        final UUID queryId = UUID.randomUUID();
+        final MockQueryContext queryContext = new MockQueryContext(queryId);
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */
+        , null/* indexManager */, queryContext);
+
+        try {
+
+            return run(query, stats, data, runningQuery);
+
+        } finally {
+
+            queryContext.close();
+
+        }
+
+    }
+
+    /**
+     * Run the operator against the data in the context of the given query.
+     * 
+     * @return The solutions written onto the sink.
+     */
+    private IBindingSet[] run(final GroupByOp query, final BOpStats stats,
+            final IBindingSet[] data, final IRunningQuery runningQuery)
+            throws Exception {
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                new IBindingSet[][] { data });
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        // Note: [lastInvocation:=true] forces the solutions to be emitted.
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                runningQuery, -1/* partitionId */
+                , stats, query/* op */, true/* lastInvocation */, source,
+                sink, null/* sink2 */
+        );
+
+        final FutureTask<Void> ft = query.eval(context);
+
+        // Run the query.
+        ft.run();
+
+        ft.get();
+
+        sink.close();
+
+        final List<IBindingSet> out = new LinkedList<IBindingSet>();
+
+        final IAsynchronousIterator<IBindingSet[]> itr = sink.iterator();
+
+        while (itr.hasNext()) {
+
+            for (IBindingSet bset : itr.next()) {
+
+                out.add(bset);
+
+            }
+
+        }
+
+        return out.toArray(new IBindingSet[out.size()]);
+
+    }
+
+    /**
+     * Run the {@link NativeGroupByOp} and verify that it computes the same
+     * solutions as the {@link PipelinedAggregationOp}.
+     * 
+     * @return The statistics for the {@link NativeGroupByOp}.
+     */
+    private NativeGroupByStats runGroupBy(final IBindingSet[] data,
+            final NV... nvs) throws Exception {
+
+        final IValueExpression<?>[] select = newSelect();
+
+        final IValueExpression<?>[] groupBy = newGroupBy();
+
+        final PipelinedAggregationOp expectedOp = newPipelinedAggregationOp(
+                select, groupBy, null/* having */);
+
+        final IBindingSet[] expected = run(expectedOp, expectedOp.newStats(),
+                data);
+
+        final NativeGroupByOp query = newNativeGroupByOp(select, groupBy,
+                null/* having */, nvs);
+
+        final NativeGroupByStats stats = query.newStats();
+
+        final IBindingSet[] actual = run(query, stats, data);
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                Arrays.asList(actual).iterator());
+
+        assertEquals(1, stats.chunksIn.get());
+        assertEquals(data.length, stats.unitsIn.get());
+        assertEquals(expected.length, stats.unitsOut.get());
+        assertEquals(expected.length, stats.groupCount.get());
+
+        return stats;
+
+    }
+
+    /**
+     * Run a {@link PartialAggregationOp} against each of several chunks of the
+     * data and then combine the partial aggregates using a
+     * {@link NativeGroupByOp}. Verify that this computes the same solutions as
+     * the {@link PipelinedAggregationOp}.
+     * 
+     * @param nchunks
+     *            The #of chunks into which the data are divided.
+     * @param nvs
+     *            Additional annotations for the {@link NativeGroupByOp}.
+     * 
+     * @return The statistics for the {@link NativeGroupByOp}.
+     */
+    private NativeGroupByStats runTwoPhase(final IBindingSet[] data,
+            final int nchunks, final NV... nvs) throws Exception {
+
+        return runTwoPhase(data, nchunks, 1/* nthreads */,
+                PartialAggregationOp.Annotations.DEFAULT_MAX_PARTIAL_GROUPS,
+                nvs);
+
+    }
+
+    /**
+     * Run a {@link PartialAggregationOp} against each of several chunks of the
+     * data, using up to <i>nthreads</i> concurrent invocations, and then
+     * combine the partial aggregates (those written out by the invocations and
+     * those which they retained) using a {@link NativeGroupByOp} in the same
+     * query. Verify that this computes the same solutions as the
+     * {@link PipelinedAggregationOp}.
+     * 
+     * @param nchunks
+     *            The #of chunks into which the data are divided.
+     * @param nthreads
+     *            The #of concurrent invocations of the
+     *            {@link PartialAggregationOp}.
+     * @param maxPartialGroups
+     *            The maximum #of groups in a partial aggregation state.
+     * @param nvs
+     *            Additional annotations for the {@link NativeGroupByOp}.
+     * 
+     * @return The statistics for the {@link NativeGroupByOp}. The partial
+     *         aggregates written out by the {@link PartialAggregationOp} are
+     *         reported as {@link BOpStats#unitsIn} and those which it
+     *         retained as {@link NativeGroupByStats#partialsDrained}.
+     */
+    private NativeGroupByStats runTwoPhase(final IBindingSet[] data,
+            final int nchunks, final int nthreads, final int maxPartialGroups,
+            final NV... nvs) throws Exception {
+
+        final IValueExpression<?>[] select = newSelect();
+
+        final IValueExpression<?>[] groupBy = newGroupBy();
+
+        final PipelinedAggregationOp expectedOp = newPipelinedAggregationOp(
+                select, groupBy, null/* having */);
+
+        final IBindingSet[] expected = run(expectedOp, expectedOp.newStats(),
+                data);
+
+        final PartialAggregationOp partialOp = newPartialAggregationOp(select,
+                groupBy, null/* having */, maxPartialGroups);
+
+        final NV[] all = new NV[nvs.length + 2];
+
+        all[0] = new NV(NativeGroupByOp.Annotations.PARTIAL_INPUTS, true);
+
+        all[1] = new NV(NativeGroupByOp.Annotations.PARTIAL_AGGREGATION_ID,
+                PARTIAL_ID);
+
+        System.arraycopy(nvs, 0, all, 2, nvs.length);
+
+        final NativeGroupByOp query = newNativeGroupByOp(select, groupBy,
+                null/* having */, all);
+
+        final UUID queryId = UUID.randomUUID();
+        final MockQueryContext queryContext = new MockQueryContext(queryId);
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */
+        , null/* indexManager */, queryContext);
+
+        final ExecutorService service = Executors.newFixedThreadPool(nthreads);
+
+        try {
+
+            final List<IBindingSet> partials = Collections
+                    .synchronizedList(new LinkedList<IBindingSet>());
+
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+            final int chunkSize = (data.length + nchunks - 1) / nchunks;
+
+            for (int i = 0; i < data.length; i += chunkSize) {
+
+                final IBindingSet[] chunk = Arrays.copyOfRange(data, i,
+                        Math.min(data.length, i + chunkSize));
+
+                futures.add(service.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+
+                        final BOpStats partialStats = partialOp.newStats();
+
+                        final IBindingSet[] tmp = run(partialOp,
+                                partialStats, chunk, runningQuery);
+
+                        assertEquals(chunk.length, partialStats.unitsIn.get());
+
+                        partials.addAll(Arrays.asList(tmp));
+
+                        return null;
+
+                    }
+                }));
+
+            }
+
+            for (Future<Void> f : futures) {
+
+                f.get();
+
+            }
+
+            final NativeGroupByStats stats = query.newStats();
+
+            final IBindingSet[] actual = run(query, stats,
+                    partials.toArray(new IBindingSet[partials.size()]),
+                    runningQuery);
+
+            AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                    Arrays.asList(actual).iterator());
+
+            assertEquals(partials.size(), stats.unitsIn.get());
+            assertEquals(expected.length, stats.unitsOut.get());
+            assertEquals(expected.length, stats.groupCount.get());
+
+            // The retained partial aggregates were drained.
+            assertNull(runningQuery.getAttributes().get(
+                    Integer.toString(PARTIAL_ID)));
+
+            return stats;
+
+        } finally {
+
+            service.shutdownNow();
+
+            queryContext.close();
+
+        }
+
+    }
+
+    /**
+     * When the groups fit on the JVM heap nothing is spilled.
+     */
+    public void test_groupBy_inMemory() throws Exception {
+
+        final NativeGroupByStats stats = runGroupBy(newData(false/* withErrors */));
+
+        assertEquals(0, stats.spilledPartitions.get());
+        assertEquals(0, stats.spilledSolutions.get());
+        assertEquals(0, stats.nativeBytes.get());
+        assertEquals(0, stats.tempStoreBytes.get());
+
+    }
+
+    /**
+     * Solutions for the groups which do not fit on the JVM heap are spilled
+     * onto the native heap. Since there are only two partitions, some
+     * partitions must be spilled again at the next level.
+     */
+    public void test_groupBy_spillOntoNativeHeap() throws Exception {
+
+        final NativeGroupByStats stats = runGroupBy(
+                newData(false/* withErrors */),
+                new NV(NativeGroupByOp.Annotations.MAX_GROUPS, 2),
+                new NV(NativeGroupByOp.Annotations.PARTITIONS, 2));
+
+        assertTrue(stats.spilledPartitions.get() > 2);
+        assertTrue(stats.spilledSolutions.get() > 0);
+        assertTrue(stats.nativeBytes.get() > 0);
+        assertEquals(0, stats.tempStoreBytes.get());
+
+    }
+
+    /**
+     * When there is no native heap budget, the spilled solutions are written
+     * onto a temporary store.
+     */
+    public void test_groupBy_spillOntoTempStore() throws Exception {
+
+        final NativeGroupByStats stats = runGroupBy(
+                newData(false/* withErrors */),
+                new NV(NativeGroupByOp.Annotations.MAX_GROUPS, 3),
+                new NV(NativeGroupByOp.Annotations.PARTITIONS, 4),
+                new NV(NativeGroupByOp.Annotations.NATIVE_MEMORY, 0L));
+
+        assertTrue(stats.spilledSolutions.get() > 0);
+        assertEquals(0, stats.nativeBytes.get());
+        assertTrue(stats.tempStoreBytes.get() > 0);
+
+    }
+
+    /**
+     * A type error for an aggregate is trapped and the aggregate is not bound
+     * for that group, including when the group was spilled.
+     */
+    public void test_groupBy_withErrors() throws Exception {
+
+        runGroupBy(newData(true/* withErrors */));
+
+        runGroupBy(newData(true/* withErrors */),
+                new NV(NativeGroupByOp.Annotations.MAX_GROUPS, 1),
+                new NV(NativeGroupByOp.Annotations.PARTITIONS, 2));
+
+    }
+
+    /**
+     * Partial aggregates accumulated across the chunks are combined.
+     */
+    public void test_twoPhase() throws Exception {
+
+        runTwoPhase(newData(false/* withErrors */), 1/* nchunks */);
+
+        runTwoPhase(newData(false/* withErrors */), 7/* nchunks */);
+
+        // more chunks than solutions per group.
+        runTwoPhase(newData(false/* withErrors */), NSOLUTIONS / 2);
+
+    }
+
+    /**
+     * The partial aggregates accumulate across the invocations of the
+     * {@link PartialAggregationOp} rather than being written out for each
+     * chunk, so the #of partial aggregates combined is the #of groups rather
+     * than the #of chunks times the #of groups.
+     */
+    public void test_twoPhase_retainedAcrossChunks() throws Exception {
+
+        final int nchunks = 25;
+
+        final NativeGroupByStats stats = runTwoPhase(
+                newData(false/* withErrors */), nchunks);
+
+        // Nothing is written out until the last pass.
+        assertEquals(0, stats.unitsIn.get());
+        assertEquals(NGROUPS, stats.partialsDrained.get());
+
+        assertTrue(stats.partialsDrained.get() < nchunks * NGROUPS);
+
+    }
+
+    /**
+     * There is at most one partial aggregation state per concurrent
+     * invocation of the {@link PartialAggregationOp}.
+     */
+    public void test_twoPhase_concurrent() throws Exception {
+
+        final int nchunks = 50;
+
+        final int nthreads = 4;
+
+        final NativeGroupByStats stats = runTwoPhase(
+                newData(false/* withErrors */), nchunks, nthreads,
+                PartialAggregationOp.Annotations.DEFAULT_MAX_PARTIAL_GROUPS);
+
+        assertEquals(0, stats.unitsIn.get());
+        assertTrue(stats.partialsDrained.get() >= NGROUPS);
+        assertTrue(stats.partialsDrained.get() <= nthreads * NGROUPS);
+
+        runTwoPhase(newData(true/* withErrors */), nchunks, nthreads,
+                PartialAggregationOp.Annotations.DEFAULT_MAX_PARTIAL_GROUPS);
+
+    }
+
+    /**
+     * A partial aggregation state is written out and cleared once it holds
+     * {@link PartialAggregationOp.Annotations#MAX_PARTIAL_GROUPS} groups.
+     */
+    public void test_twoPhase_maxPartialGroups() throws Exception {
+
+        final int nchunks = 10;
+
+        final NativeGroupByStats stats = runTwoPhase(
+                newData(false/* withErrors */), nchunks, 1/* nthreads */,
+                5/* maxPartialGroups */);
+
+        assertTrue(stats.unitsIn.get() > 0);
+        assertTrue(stats.partialsDrained.get() <= 5);
+
+        runTwoPhase(newData(true/* withErrors */), nchunks, 2/* nthreads */,
+                3/* maxPartialGroups */);
+
+    }
+
+    /**
+     * Partial aggregates for groups which do not fit on the JVM heap are
+     * spilled and combined.
+     */
+    public void test_twoPhase_spill() throws Exception {
+
+        final NativeGroupByStats stats = runTwoPhase(
+                newData(false/* withErrors */), 5/* nchunks */,
+                new NV(NativeGroupByOp.Annotations.MAX_GROUPS, 2),
+                new NV(NativeGroupByOp.Annotations.PARTITIONS, 2));
+
+        assertTrue(stats.spilledSolutions.get() > 0);
+
+    }
+
+    /**
+     * A type error in any chunk causes the aggregate to be unbound for the
+     * group and a solution which does not bind the GROUP BY variable is
+     * reported in a group of its own.
+     */
+    public void test_twoPhase_withErrors() throws Exception {
+
+        runTwoPhase(newData(true/* withErrors */), 3/* nchunks */);
+
+        runTwoPhase(newData(true/* withErrors */), 3/* nchunks */,
+                new NV(NativeGroupByOp.Annotations.MAX_GROUPS, 1),
+                new NV(NativeGroupByOp.Annotations.PARTITIONS, 2));
+
+    }
+
+    /**
+     * Aggregations which can not be evaluated by the operator are rejected.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_canEvaluate() {
+
+        final IValueExpression<?>[] groupBy = newGroupBy();
+
+        {
+            final IGroupByState s = new GroupByState(newSelect(), groupBy,
+                    null/* having */);
+            assertTrue(NativeGroupByOp.canEvaluate(s, newRewrite(s)));
+            assertTrue(PartialAggregationOp.canEvaluate(s, newRewrite(s)));
+        }
+
+        // No GROUP BY.
+        {
+            final IGroupByState s = new GroupByState(
+                    new IValueExpression[] { new Bind(Var.var("cnt"),
+                            new COUNT(false/* distinct */,
+                                    (IValueExpression<IV>) v)) },
+                    null/* groupBy */, null/* having */);
+            assertFalse(NativeGroupByOp.canEvaluate(s, newRewrite(s)));
+        }
+
+        // DISTINCT
+        {
+            final IGroupByState s = new GroupByState(
+                    new IValueExpression[] {
+                            g,
+                            new Bind(Var.var("cnt"), new COUNT(
+                                    true/* distinct */,
+                                    (IValueExpression<IV>) v)) }, groupBy,
+                    null/* having */);
+            assertFalse(NativeGroupByOp.canEvaluate(s, newRewrite(s)));
+        }
+
+        // GROUP_CONCAT
+        {
+            final IGroupByState s = new GroupByState(
+                    new IValueExpression[] {
+                            g,
+                            new Bind(Var.var("cat"), new GROUP_CONCAT(
+                                    false/* distinct */,
+                                    (IValueExpression<IV>) v, "namespace",
+                                    ",")) }, groupBy, null/* having */);
+            assertFalse(NativeGroupByOp.canEvaluate(s, newRewrite(s)));
+            assertFalse(PartialAggregationOp.canEvaluate(s, newRewrite(s)));
+        }
+
+    }
+
+}
@@ -0,0 +1,502 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Bind;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.journal.BufferMode;
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.journal.ITx;
+import com.bigdata.journal.Journal;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.constraints.MathBOp;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.rdf.sparql.ast.GlobalAnnotations;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.LocalTripleStore;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for the {@link NativeSortOp}. The runs are made very small in
+ * order to force the solutions to be written out and merged.
+ * 
+ * @see TestMemorySortOp
+ */
+public class TestNativeSortOp extends TestCase2 {
+
+    public TestNativeSortOp() {
+    }
+
+    public TestNativeSortOp(final String name) {
+        super(name);
+    }
+
+    private long termId = 1;
+
+    private IV<BigdataLiteral, ?> makeIV(final BigdataLiteral lit) {
+
+        final IV<BigdataLiteral, ?> iv = new TermId<BigdataLiteral>(
+                VTE.LITERAL, termId++);
+
+        iv.setValue(lit);
+
+        return iv;
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private final IVariable<IV> x = Var.var("x");
+
+    @SuppressWarnings("rawtypes")
+    private final IVariable<IV> y = Var.var("y");
+
+    @SuppressWarnings("rawtypes")
+    private IConstant<IV> a, b, c, d, e;
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        final BigdataValueFactory f = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        a = new Constant<IV>(makeIV(f.createLiteral("a")));
+        b = new Constant<IV>(makeIV(f.createLiteral("b")));
+        c = new Constant<IV>(makeIV(f.createLiteral("c")));
+        d = new Constant<IV>(makeIV(f.createLiteral("d")));
+        e = new Constant<IV>(makeIV(f.createLiteral("e")));
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        a = b = c = d = e = null;
+
+        super.tearDown();
+
+    }
+
+    /**
+     * ORDER BY ?x DESC(?y)
+     */
+    private ISortOrder<?>[] newSortOrder() {
+
+        return new ISortOrder[] { //
+                new SortOrder(x, true/* asc */),//
+                new SortOrder(y, false/* asc */)//
+        };
+
+    }
+
+    /**
+     * Return a new {@link NativeSortOp}.
+     * 
+     * @param sors
+     *            The sort order.
+     * @param nvs
+     *            Additional annotations.
+     */
+    private NativeSortOp newSortOp(final ISortOrder<?>[] sors,
+            final NV... nvs) {
+
+        final NV[] base = new NV[] {//
+                new NV(NativeSortOp.Annotations.BOP_ID, 1),//
+                new NV(NativeSortOp.Annotations.SORT_ORDER, sors),//
+                new NV(NativeSortOp.Annotations.VALUE_COMPARATOR,
+                        new IVComparator()),//
+                new NV(NativeSortOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(NativeSortOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(PipelineOp.Annotations.REORDER_SOLUTIONS, false),//
+                new NV(NativeSortOp.Annotations.LAST_PASS, true),//
+        };
+
+        final NV[] all = new NV[base.length + nvs.length];
+
+        System.arraycopy(base, 0, all, 0, base.length);
+
+        System.arraycopy(nvs, 0, all, base.length, nvs.length);
+
+        return new NativeSortOp(new BOp[] {}, NV.asMap(all));
+
+    }
+
+    /**
+     * The test data for {@link #newSortOrder()}.
+     */
+    @SuppressWarnings("rawtypes")
+    private IBindingSet[] newData() {
+
+        return new IBindingSet []
+        {
+              new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, e } )
+            , new ListBindingSet ( new IVariable<?> [] { x },    new IConstant [] { c }    )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { d, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { d, b } )
+            , new ListBindingSet ( new IVariable<?> [] {},       new IConstant [] {}       )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, c } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, d } )
+            , new ListBindingSet ( new IVariable<?> [] { y },    new IConstant [] { a }    )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, b } )
+        } ;
+
+    }
+
+    /**
+     * The expected solutions for {@link #newData()}.
+     */
+    @SuppressWarnings("rawtypes")
+    private IBindingSet[] newExpected() {
+
+        return new IBindingSet []
+        {
+              new ListBindingSet ( new IVariable<?> [] { y },    new IConstant [] { a }    )
+            , new ListBindingSet ( new IVariable<?> [] {},       new IConstant [] {}       )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, e } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, c } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, d } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, b } )
+            , new ListBindingSet ( new IVariable<?> [] { x },    new IConstant [] { c }    )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { d, b } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { d, a } )
+        } ;
+
+    }
+
+    /**
+     * Run the operator against the data and verify the solutions.
+     * 
+     * @return The statistics for the operator.
+     */
+    private NativeSortStats runSort(final NativeSortOp query,
+            final IIndexManager indexManager, final IBindingSet[] data,
+            final IBindingSet[] expected) {
+
+        final NativeSortStats stats = query.newStats();
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                new IBindingSet[][] { data });
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final UUID queryId = UUID.randomUUID();
+        final MockQueryContext queryContext = new MockQueryContext(queryId);
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */
+        , indexManager, queryContext);
+
+        try {
+
+            final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                    runningQuery, -1/* partitionId */
+                    , stats, query/* op */, true/* lastInvocation */, source,
+                    sink, null/* sink2 */
+            );
+
+            final FutureTask<Void> ft = query.eval(context);
+            // Run the query.
+            {
+                final Thread t = new Thread() {
+                    public void run() {
+                        ft.run();
+                    }
+                };
+                t.setDaemon(true);
+                t.start();
+            }
+
+            // Check the solutions.
+            AbstractQueryEngineTestCase.assertSameSolutions(expected,
+                    sink.iterator(), ft);
+
+        } finally {
+
+            queryContext.close();
+
+        }
+
+        assertEquals(1, stats.chunksIn.get());
+        assertEquals(data.length, stats.unitsIn.get());
+        assertEquals(expected.length, stats.unitsOut.get());
+
+        return stats;
+
+    }
+
+    /**
+     * When the run size is not exceeded the solutions are sorted on the JVM
+     * heap and nothing is written out.
+     */
+    public void test_sort_inMemory() {
+
+        final NativeSortStats stats = runSort(newSortOp(newSortOrder()),
+                null/* indexManager */, newData(), newExpected());
+
+        assertEquals(1, stats.chunksOut.get());
+        assertEquals(0, stats.runCount.get());
+        assertEquals(0, stats.spilledSolutions.get());
+
+    }
+
+    /**
+     * Runs are written onto the native heap and merged with the final run.
+     * The non-inline {@link IV}s must have their cached values restored when
+     * the runs are decoded.
+     */
+    public void test_sort_runsOnNativeHeap() {
+
+        final NativeSortStats stats = runSort(
+                newSortOp(newSortOrder(), new NV(
+                        NativeSortOp.Annotations.RUN_SIZE, 3)),
+                null/* indexManager */, newData(), newExpected());
+
+        assertEquals(1, stats.chunksOut.get());
+        assertEquals(3, stats.runCount.get());
+        assertEquals(9, stats.spilledSolutions.get());
+        assertTrue(stats.nativeBytes.get() > 0);
+        assertEquals(0, stats.tempStoreBytes.get());
+
+    }
+
+    /**
+     * Runs are written onto the temporary store when the native heap budget
+     * is exhausted.
+     */
+    public void test_sort_runsOnTempStore() {
+
+        final NativeSortStats stats = runSort(
+                newSortOp(newSortOrder(),//
+                        new NV(NativeSortOp.Annotations.RUN_SIZE, 3),//
+                        new NV(NativeSortOp.Annotations.NATIVE_MEMORY, 0L)//
+                ), null/* indexManager */, newData(), newExpected());
+
+        assertEquals(3, stats.runCount.get());
+        assertEquals(0, stats.nativeBytes.get());
+        assertTrue(stats.tempStoreBytes.get() > 0);
+
+    }
+
+    /**
+     * The merge is stable: solutions which are equal in the sort order are
+     * reported in the order in which they arrived, even when they appear in
+     * different runs.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_sort_stable() {
+
+        final IBindingSet[] data = new IBindingSet []
+        {
+              new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, b } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, b } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, c } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, c } )
+        } ;
+
+        final IBindingSet[] expected = new IBindingSet []
+        {
+              new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, b } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, c } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, b } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, c } )
+        } ;
+
+        final NativeSortStats stats = runSort(
+                newSortOp(new ISortOrder[] { new SortOrder(x, true/* asc */) },
+                        new NV(NativeSortOp.Annotations.RUN_SIZE, 2)),
+                null/* indexManager */, data, expected);
+
+        assertEquals(3, stats.runCount.get());
+
+    }
+
+    /**
+     * When the LIMIT is no more than the run size, only the first LIMIT
+     * solutions are retained and nothing is written out.
+     */
+    public void test_sort_topK() {
+
+        final IBindingSet[] expected = new IBindingSet[4];
+
+        System.arraycopy(newExpected(), 0, expected, 0, expected.length);
+
+        final NativeSortOp op = newSortOp(newSortOrder(), new NV(
+                NativeSortOp.Annotations.LIMIT, 4L));
+
+        assertTrue(op.isTopK());
+
+        final NativeSortStats stats = runSort(op, null/* indexManager */,
+                newData(), expected);
+
+        assertEquals(0, stats.runCount.get());
+        assertEquals(6, stats.topKDiscarded.get());
+
+    }
+
+    /**
+     * When the LIMIT exceeds the run size, the runs are written out and the
+     * merge stops once LIMIT solutions have been reported.
+     */
+    public void test_sort_limitWithMerge() {
+
+        final IBindingSet[] expected = new IBindingSet[5];
+
+        System.arraycopy(newExpected(), 0, expected, 0, expected.length);
+
+        final NativeSortOp op = newSortOp(newSortOrder(),//
+                new NV(NativeSortOp.Annotations.RUN_SIZE, 3),//
+                new NV(NativeSortOp.Annotations.LIMIT, 5L)//
+        );
+
+        assertFalse(op.isTopK());
+
+        final NativeSortStats stats = runSort(op, null/* indexManager */,
+                newData(), expected);
+
+        assertEquals(3, stats.runCount.get());
+
+    }
+
+    /**
+     * Test with computed value expressions when the runs are written out. The
+     * anonymous variables for the computed value expressions are bound when
+     * the runs are encoded and must be dropped when the merged solutions are
+     * written out.
+     * 
+     * @see TestMemorySortOp#testComputedValueExpressions()
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_sort_computedValueExpressions() {
+
+        final String namespace = getName();
+        final String lexiconNamespace;
+        final Properties properties = new Properties();
+        properties.setProperty(com.bigdata.journal.Options.BUFFER_MODE,
+                BufferMode.MemStore.name());
+        final Journal store = new Journal(properties);
+        try {
+            {
+                final AbstractTripleStore kb = new LocalTripleStore(store,
+                        namespace, ITx.UNISOLATED, properties);
+                kb.create();
+                store.commit();
+                lexiconNamespace = kb.getLexiconRelation().getNamespace();
+            }
+
+            final IVariable<IV> z = Var.var("z");
+            final IConstant<IV> _1 = new Constant<IV>(new XSDNumericIV(1));
+            final IConstant<IV> _2 = new Constant<IV>(new XSDNumericIV(2));
+            final IConstant<IV> _3 = new Constant<IV>(new XSDNumericIV(3));
+            final IConstant<IV> _4 = new Constant<IV>(new XSDNumericIV(4));
+            final IConstant<IV> _5 = new Constant<IV>(new XSDNumericIV(5));
+
+            final ISortOrder<?> sors[] = new ISortOrder[] { //
+                    new SortOrder(new Bind(z, new MathBOp(x, y,
+                            MathBOp.MathOp.PLUS, new GlobalAnnotations(
+                                    lexiconNamespace, ITx.READ_COMMITTED))),
+                            false/* asc */),//
+                    new SortOrder(y, false/* asc */), //
+                    new SortOrder(x, true/* asc */), //
+            };
+
+            final IBindingSet data [] = new IBindingSet []
+            {
+                  new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _1, _1 } ) // x+y=2
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _1, _5 } ) // x+y=6
+                , new ListBindingSet ( new IVariable<?> [] { x },    new IConstant [] { _3 }    )  // x+y=N/A
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _4, _1 } ) // x+y=5
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _4, _2 } ) // x+y=6
+                , new ListBindingSet ( new IVariable<?> [] {},       new IConstant [] {}       )   // x+y=N/A
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _1, _3 } ) // x+y=4
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _2, _4 } ) // x+y=6
+                , new ListBindingSet ( new IVariable<?> [] { y },    new IConstant [] { _1 }    )  // x+y=N/A
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _2, _2 } ) // x+y=4
+            } ;
+
+            final IBindingSet expected [] = new IBindingSet []
+            {
+                  new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _1, _5 } )
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _2, _4 } )
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _4, _2 } )
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _4, _1 } )
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _1, _3 } )
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _2, _2 } )
+                , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { _1, _1 } )
+                , new ListBindingSet ( new IVariable<?> [] { y },    new IConstant [] { _1 }    ) // type error.
+                , new ListBindingSet ( new IVariable<?> [] {},       new IConstant [] {}       )  // type error.
+                , new ListBindingSet ( new IVariable<?> [] { x },    new IConstant [] { _3 }    ) // type error.
+            } ;
+
+            final NativeSortStats stats = runSort(
+                    newSortOp(sors, new NV(NativeSortOp.Annotations.RUN_SIZE, 4)),
+                    store, data, expected);
+
+            assertEquals(2, stats.runCount.get());
+
+        } finally {
+            store.destroy();
+        }
+
+    }
+
+}
@@ -132,6 +132,16 @@ public class TestAll_BTreeBasics extends TestCase {
         suite.addTestSuite(TestNullValues.class);
         // test recycling of checkpoint, root block, etc.
         suite.addTestSuite(TestBTreeRecycle.class);
+        // test the native memory cache for node and leaf records.
+        suite.addTestSuite(TestNodeRecordCache.class);
+        // test concurrent prefetch of the pages spanned by a key array.
+        suite.addTestSuite(TestBTreePrefetch.class);
+        // test parallel level set eviction during a checkpoint.
+        suite.addTestSuite(TestBTreeParallelEvict.class);
+        // test record level compression of nodes and leaves.
+        suite.addTestSuite(TestBTreeRecordCompression.class);
+        // test bottom-up build of a mutable B+Tree from ordered tuples.
+        suite.addTestSuite(TestBTreeBuilder.class);
 
         /*
          * test of transient BTree's (no backing store).
@@ -0,0 +1,544 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.btree;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.log4j.Level;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.journal.BufferMode;
+import com.bigdata.journal.Journal;
+import com.bigdata.journal.Options;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for the bottom-up build of a mutable {@link BTree} from an
+ * ordered tuple iterator.
+ *
+ * @see BTree#build(IRawStore, IndexMetadata, ITupleIterator, double)
+ */
+public class TestBTreeBuilder extends AbstractBTreeTestCase {
+
+    public TestBTreeBuilder() {
+    }
+
+    public TestBTreeBuilder(String name) {
+        super(name);
+    }
+
+    /**
+     * Populate a ground truth {@link BTree} with <i>ntuples</i> random keys
+     * using normal inserts.
+     */
+    private BTree getGroundTruth(final IRawStore store, final int m,
+            final int ntuples) {
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(m);
+
+        final BTree expected = BTree.create(store, md);
+
+        while (expected.getEntryCount() < ntuples) {
+
+            final int i = r.nextInt(ntuples * 10);
+
+            expected.insert(TestKeyBuilder.asSortKey(i), Integer.toString(i)
+                    .getBytes());
+
+        }
+
+        return expected;
+
+    }
+
+    /**
+     * Build a {@link BTree} from the ground truth and verify the structure
+     * and the data.
+     */
+    private BTree doBuildTest(final BTree expected, final int m,
+            final double fillFactor) {
+
+        final IndexMetadata md = expected.getIndexMetadata().clone();
+
+        md.setBranchingFactor(m);
+
+        final BTree actual = BTree.build(expected.getStore(), md,
+                expected.rangeIterator(), fillFactor);
+
+        assertEquals("entryCount", expected.getEntryCount(),
+                actual.getEntryCount());
+
+        assertTrue(actual.dump(Level.ERROR, System.err));
+
+        assertSameBTree(expected, actual);
+
+        return actual;
+
+    }
+
+    /**
+     * An empty source produces an empty (but usable) {@link BTree}.
+     */
+    public void test_emptySource() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final BTree expected = getGroundTruth(store, 3, 0);
+
+        final BTree actual = doBuildTest(expected, 3, 1.0);
+
+        assertEquals(0, actual.getHeight());
+
+        actual.insert(new byte[] { 1 }, new byte[] { 1 });
+
+        assertEquals(1, actual.getEntryCount());
+
+    }
+
+    /**
+     * A source which fits in the root leaf.
+     */
+    public void test_rootLeaf() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final BTree expected = getGroundTruth(store, 10, 7);
+
+        final BTree actual = doBuildTest(expected, 10, 1.0);
+
+        assertEquals(0, actual.getHeight());
+        assertEquals(0, actual.getNodeCount());
+        assertEquals(1, actual.getLeafCount());
+
+    }
+
+    /**
+     * Build trees for a variety of branching factors, tuple counts and fill
+     * factors. The tuple counts are chosen to cover the edge cases in which
+     * the last leaf or node in a level would otherwise underflow.
+     */
+    public void test_buildVariousTrees() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final int[] branchingFactors = new int[] { 3, 4, 5, 10, 32 };
+
+        final int[] counts = new int[] { 1, 2, 3, 4, 5, 9, 10, 11, 31, 100,
+                1000, 3001 };
+
+        final double[] fillFactors = new double[] { .1, .5, .75, 1.0 };
+
+        for (int m : branchingFactors) {
+
+            for (int n : counts) {
+
+                final BTree expected = getGroundTruth(store, m, n);
+
+                for (double f : fillFactors) {
+
+                    doBuildTest(expected, m, f);
+
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * A full fill factor produces the minimum #of leaves.
+     */
+    public void test_fillFactor() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final BTree expected = getGroundTruth(store, 10, 1000);
+
+        final BTree full = doBuildTest(expected, 10, 1.0);
+
+        assertEquals(100, full.getLeafCount());
+
+        final BTree half = doBuildTest(expected, 10, .5);
+
+        assertEquals(200, half.getLeafCount());
+
+        assertTrue(full.getHeight() <= half.getHeight());
+
+    }
+
+    /**
+     * The generated {@link BTree} is mutable and survives a checkpoint and
+     * reload.
+     */
+    public void test_updateAndReload() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final BTree expected = getGroundTruth(store, 4, 500);
+
+        final BTree actual = doBuildTest(expected, 4, 1.0);
+
+        for (int i = 0; i < 200; i++) {
+
+            final byte[] key = TestKeyBuilder.asSortKey(r.nextInt(5000));
+
+            if (r.nextBoolean()) {
+
+                expected.insert(key, key);
+
+                actual.insert(key, key);
+
+            } else {
+
+                expected.remove(key);
+
+                actual.remove(key);
+
+            }
+
+        }
+
+        assertTrue(actual.dump(Level.ERROR, System.err));
+
+        assertSameBTree(expected, actual);
+
+        final long addrCheckpoint = actual.writeCheckpoint();
+
+        final BTree reopened = BTree.load(store, addrCheckpoint, true/* readOnly */);
+
+        assertSameBTree(expected, reopened);
+
+    }
+
+    /**
+     * Deleted tuples are copied when the index supports delete markers.
+     */
+    public void test_deleteMarkers() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(3);
+
+        md.setDeleteMarkers(true);
+
+        final BTree expected = BTree.create(store, md);
+
+        for (int i = 0; i < 50; i++) {
+
+            expected.insert(TestKeyBuilder.asSortKey(i), new byte[] { (byte) i });
+
+        }
+
+        for (int i = 0; i < 50; i += 3) {
+
+            expected.remove(TestKeyBuilder.asSortKey(i));
+
+        }
+
+        final int flags = IRangeQuery.DEFAULT | IRangeQuery.DELETED;
+
+        final BTree actual = BTree.build(store, md.clone(),
+                expected.rangeIterator(null, null, 0/* capacity */, flags,
+                        null/* filter */), .75);
+
+        assertEquals(50, actual.getEntryCount());
+
+        assertTrue(actual.dump(Level.ERROR, System.err));
+
+        assertSameBTree(expected, actual);
+
+        // the deleted tuples are visible iff we request them.
+        assertEquals(50, actual.rangeCount(null, null));
+        assertEquals(33, actual.rangeCountExact(null, null));
+        assertFalse(actual.contains(TestKeyBuilder.asSortKey(3)));
+        assertTrue(actual.contains(TestKeyBuilder.asSortKey(4)));
+
+    }
+
+    /**
+     * Large values are written as raw records.
+     */
+    public void test_rawRecords() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(4);
+
+        md.setRawRecords(true);
+
+        md.setMaxRecLen(16);
+
+        final BTree expected = BTree.create(store, md);
+
+        for (int i = 0; i < 40; i++) {
+
+            final byte[] val = new byte[i % 2 == 0 ? 8 : 64];
+
+            r.nextBytes(val);
+
+            expected.insert(TestKeyBuilder.asSortKey(i), val);
+
+        }
+
+        final BTree actual = BTree.build(store, md.clone(),
+                expected.rangeIterator(), 1.0);
+
+        assertTrue(actual.dump(Level.ERROR, System.err));
+
+        assertSameBTree(expected, actual);
+
+    }
+
+    /**
+     * The bloom filter is populated as the keys are visited.
+     */
+    public void test_bloomFilter() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(10);
+
+        md.setBloomFilterFactory(BloomFilterFactory.DEFAULT);
+
+        final BTree expected = BTree.create(store, md);
+
+        for (int i = 0; i < 100; i++) {
+
+            expected.insert(TestKeyBuilder.asSortKey(i * 2), null);
+
+        }
+
+        final BTree actual = BTree.build(store, md.clone(),
+                expected.rangeIterator(), 1.0);
+
+        assertNotNull(actual.getBloomFilter());
+
+        for (int i = 0; i < 100; i++) {
+
+            assertTrue(actual.getBloomFilter().contains(
+                    TestKeyBuilder.asSortKey(i * 2)));
+
+            assertTrue(actual.contains(TestKeyBuilder.asSortKey(i * 2)));
+
+            assertFalse(actual.contains(TestKeyBuilder.asSortKey(i * 2 + 1)));
+
+        }
+
+    }
+
+    /**
+     * {@link BTree#bulkLoad(ITupleIterator, double)} builds an empty mutable
+     * {@link BTree} in place. The result survives a checkpoint and reload and
+     * the index may not be bulk loaded once it has entries.
+     */
+    public void test_bulkLoad() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final BTree expected = getGroundTruth(store, 4, 500);
+
+        final BTree actual = BTree.create(store, expected.getIndexMetadata()
+                .clone());
+
+        assertEquals(500L, actual.bulkLoad(expected.rangeIterator(), 1.0));
+
+        assertTrue(actual.dump(Level.ERROR, System.err));
+
+        assertSameBTree(expected, actual);
+
+        final byte[] key = TestKeyBuilder.asSortKey(10000);
+
+        expected.insert(key, key);
+
+        actual.insert(key, key);
+
+        assertSameBTree(expected, actual);
+
+        final long addrCheckpoint = actual.writeCheckpoint();
+
+        final BTree reopened = BTree.load(store, addrCheckpoint, true/* readOnly */);
+
+        assertSameBTree(expected, reopened);
+
+        try {
+            actual.bulkLoad(expected.rangeIterator(), 1.0);
+            fail("Expecting: " + IllegalStateException.class);
+        } catch (IllegalStateException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * The keys must be visited in strictly ascending order.
+     */
+    public void test_keysOutOfOrder() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final BTree expected = getGroundTruth(store, 3, 10);
+
+        final IndexMetadata md = expected.getIndexMetadata().clone();
+
+        try {
+
+            BTree.build(store, md, expected.rangeIterator(null, null,
+                    0/* capacity */, IRangeQuery.DEFAULT
+                            | IRangeQuery.REVERSE, null/* filter */), 1.0);
+
+            fail("Expecting: " + IllegalArgumentException.class);
+
+        } catch (IllegalArgumentException ex) {
+
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+
+        }
+
+    }
+
+    /**
+     * Create and then replace a named index on a {@link Journal}.
+     */
+    public void test_journalBuildIndex() {
+
+        final Properties properties = new Properties();
+
+        properties.setProperty(Options.BUFFER_MODE, BufferMode.MemStore
+                .toString());
+
+        final Journal journal = new Journal(properties);
+
+        try {
+
+            final String name = "test";
+
+            final BTree expected = getGroundTruth(journal, 8, 1000);
+
+            journal.buildIndex(name, expected.getIndexMetadata().clone(),
+                    expected.rangeIterator(), 1.0);
+
+            journal.commit();
+
+            assertSameBTree(expected, journal.getIndex(name));
+
+            // replace the index with a single tuple.
+            expected.removeAll();
+
+            expected.insert(new byte[] { 1 }, new byte[] { 2 });
+
+            journal.buildIndex(name, expected.getIndexMetadata().clone(),
+                    expected.rangeIterator(), .5);
+
+            journal.commit();
+
+            assertEquals(1, journal.getIndex(name).rangeCount());
+
+            assertSameBTree(expected, journal.getIndex(name));
+
+        } finally {
+
+            journal.destroy();
+
+        }
+
+    }
+
+    /**
+     * Rebuilding a named index carries over the counter and the record version
+     * of the index being replaced, for both an empty and a non-empty source.
+     */
+    public void test_journalBuildIndex_counter() {
+
+        final Properties properties = new Properties();
+
+        properties.setProperty(Options.BUFFER_MODE, BufferMode.MemStore
+                .toString());
+
+        final Journal journal = new Journal(properties);
+
+        try {
+
+            final String name = "test";
+
+            final BTree expected = getGroundTruth(journal, 8, 100);
+
+            BTree actual = journal.buildIndex(name, expected
+                    .getIndexMetadata().clone(), expected.rangeIterator(), 1.0);
+
+            assertEquals(0L, actual.getCounter().get());
+
+            actual.getCounter().incrementAndGet();
+            actual.getCounter().incrementAndGet();
+
+            final long recordVersion = actual.getRecordVersion();
+
+            actual = journal.buildIndex(name, expected.getIndexMetadata()
+                    .clone(), expected.rangeIterator(), 1.0);
+
+            assertEquals(2L, actual.getCounter().get());
+
+            assertEquals(recordVersion, actual.getRecordVersion());
+
+            assertEquals(3L, actual.getCounter().incrementAndGet());
+
+            expected.removeAll();
+
+            actual = journal.buildIndex(name, expected.getIndexMetadata()
+                    .clone(), expected.rangeIterator(), 1.0);
+
+            assertEquals(0L, actual.getEntryCount());
+
+            assertEquals(3L, actual.getCounter().get());
+
+            journal.commit();
+
+            assertEquals(3L, journal.getIndex(name).getCounter().get());
+
+        } finally {
+
+            journal.destroy();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+
+package com.bigdata.btree;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.journal.BufferMode;
+import com.bigdata.journal.Journal;
+import com.bigdata.journal.Options;
+
+/**
+ * Test suite for parallel level set eviction of the dirty nodes and leaves of
+ * a {@link BTree} when it is checkpointed.
+ * 
+ * @see IndexMetadata.Options#MAX_PARALLEL_EVICT_THREADS
+ * @see IndexMetadata.Options#MIN_DIRTY_LIST_SIZE_FOR_PARALLEL_EVICT
+ */
+public class TestBTreeParallelEvict extends TestCase2 {
+
+    public TestBTreeParallelEvict() {
+    }
+
+    public TestBTreeParallelEvict(final String name) {
+        super(name);
+    }
+
+    /**
+     * Force parallel eviction for any level with more than one dirty node or
+     * leaf using a small thread count, so that each thread evicts many nodes
+     * and leaves. The B+Tree is then reloaded from the checkpoint and every
+     * tuple is verified.
+     */
+    public void test_parallelEvict() {
+
+        final String minDirty = System
+                .getProperty(IndexMetadata.Options.MIN_DIRTY_LIST_SIZE_FOR_PARALLEL_EVICT);
+
+        final String maxThreads = System
+                .getProperty(IndexMetadata.Options.MAX_PARALLEL_EVICT_THREADS);
+
+        System.setProperty(
+                IndexMetadata.Options.MIN_DIRTY_LIST_SIZE_FOR_PARALLEL_EVICT,
+                "2");
+
+        System.setProperty(IndexMetadata.Options.MAX_PARALLEL_EVICT_THREADS,
+                "3");
+
+        final Properties properties = new Properties();
+
+        properties.setProperty(Options.BUFFER_MODE, BufferMode.Transient
+                .toString());
+
+        final Journal journal = new Journal(properties);
+
+        try {
+
+            final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+            md.setBranchingFactor(8);
+
+            final BTree btree = BTree.create(journal, md);
+
+            final int ntuples = 5000;
+
+            for (int i = 0; i < ntuples; i++) {
+
+                btree.insert(TestKeyBuilder.asSortKey(i),
+                        TestKeyBuilder.asSortKey(-i));
+
+            }
+
+            final long checkpointAddr = btree.writeCheckpoint();
+
+            assertFalse(btree.needsCheckpoint());
+
+            final BTree btree2 = BTree.load(journal, checkpointAddr, true/* readOnly */);
+
+            assertEquals(ntuples, btree2.rangeCount());
+
+            for (int i = 0; i < ntuples; i++) {
+
+                assertEquals(TestKeyBuilder.asSortKey(-i),
+                        btree2.lookup(TestKeyBuilder.asSortKey(i)));
+
+            }
+
+        } finally {
+
+            journal.destroy();
+
+            restoreProperty(
+                    IndexMetadata.Options.MIN_DIRTY_LIST_SIZE_FOR_PARALLEL_EVICT,
+                    minDirty);
+
+            restoreProperty(IndexMetadata.Options.MAX_PARALLEL_EVICT_THREADS,
+                    maxThreads);
+
+        }
+
+    }
+
+    private static void restoreProperty(final String name, final String value) {
+
+        if (value == null) {
+
+            System.clearProperty(name);
+
+        } else {
+
+            System.setProperty(name, value);
+
+        }
+
+    }
+
+}
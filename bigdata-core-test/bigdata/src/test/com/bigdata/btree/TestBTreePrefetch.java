@@ -0,0 +1,189 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+
+package com.bigdata.btree;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for {@link AbstractBTree#prefetch(IRaba, java.util.concurrent.Executor, int)}.
+ */
+public class TestBTreePrefetch extends TestCase2 {
+
+    public TestBTreePrefetch() {
+    }
+
+    public TestBTreePrefetch(final String name) {
+        super(name);
+    }
+
+    private static final int NKEYS = 400;
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        executor = Executors.newFixedThreadPool(4);
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (executor != null) {
+
+            executor.shutdownNow();
+
+            executor = null;
+
+        }
+
+        super.tearDown();
+
+    }
+
+    /**
+     * Create a B+Tree with a small branching factor and return the address
+     * of its checkpoint record.
+     */
+    private long createIndex(final IRawStore store) {
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(4);
+
+        final BTree btree = BTree.create(store, md);
+
+        for (int i = 0; i < NKEYS; i++) {
+
+            btree.insert(TestKeyBuilder.asSortKey(i), TestKeyBuilder.asSortKey(i * 2));
+
+        }
+
+        return btree.writeCheckpoint();
+
+    }
+
+    /**
+     * Keys for every third tuple.
+     */
+    private IRaba getKeys() {
+
+        final int n = NKEYS / 3;
+
+        final byte[][] a = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            a[i] = TestKeyBuilder.asSortKey(i * 3);
+
+        }
+
+        return new ReadOnlyKeysRaba(a);
+
+    }
+
+    /**
+     * Prefetch against a read-only B+Tree materializes the spanned pages, which
+     * are then visible to point lookups.
+     */
+    public void test_prefetch_readOnly() {
+
+        doPrefetchTest(true/* readOnly */);
+
+    }
+
+    /**
+     * Prefetch against a mutable B+Tree attaches the pages in the caller's
+     * thread and leaves the B+Tree in a state where it may be modified.
+     */
+    public void test_prefetch_mutable() {
+
+        final BTree btree = doPrefetchTest(false/* readOnly */);
+
+        // the B+Tree is still mutable.
+        btree.insert(TestKeyBuilder.asSortKey(NKEYS), TestKeyBuilder.asSortKey(-1));
+
+        btree.writeCheckpoint();
+
+        assertEquals(NKEYS + 1, btree.rangeCount());
+
+    }
+
+    private BTree doPrefetchTest(final boolean readOnly) {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final BTree btree = BTree.load(store, createIndex(store), readOnly);
+
+        final IRaba keys = getKeys();
+
+        final BTreeCounters counters = btree.getBtreeCounters();
+
+        final long readsBefore = counters.nodesRead.get()
+                + counters.leavesRead.get();
+
+        final int nread = btree.prefetch(keys, executor, 3/* nparallel */);
+
+        assertTrue(nread > 0);
+
+        assertEquals(nread, counters.nodesRead.get()
+                + counters.leavesRead.get() - readsBefore);
+
+        // The pages are already materialized.
+        assertEquals(0, btree.prefetch(keys, executor, 3/* nparallel */));
+
+        final long readsAfter = counters.nodesRead.get()
+                + counters.leavesRead.get();
+
+        for (int i = 0; i < keys.size(); i++) {
+
+            assertEquals(TestKeyBuilder.asSortKey(i * 3 * 2),
+                    btree.lookup(keys.get(i)));
+
+        }
+
+        // The lookups did not read through to the store.
+        assertEquals(readsAfter, counters.nodesRead.get()
+                + counters.leavesRead.get());
+
+        return btree;
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.io.compression.IRecordCompressorFactory;
+import com.bigdata.io.compression.LZ4Compressor;
+import com.bigdata.io.compression.LZ4RecordCompressorFactory;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for record level compression of the nodes and leaves of a
+ * {@link BTree}.
+ * 
+ * @see IndexMetadata.Options#BTREE_RECORD_COMPRESSOR_FACTORY
+ */
+public class TestBTreeRecordCompression extends TestCase2 {
+
+    public TestBTreeRecordCompression() {
+    }
+
+    public TestBTreeRecordCompression(final String name) {
+        super(name);
+    }
+
+    private static final int NKEYS = 1000;
+
+    private final Random r = new Random();
+
+    /**
+     * A value with a lot of redundancy.
+     */
+    private byte[] getCompressibleValue(final int i) {
+
+        return ("\"literal number " + i + "\"^^<http://www.w3.org/2001/XMLSchema#string>")
+                .getBytes();
+
+    }
+
+    /**
+     * A random value.
+     */
+    private byte[] getRandomValue() {
+
+        final byte[] a = new byte[20];
+
+        r.nextBytes(a);
+
+        return a;
+
+    }
+
+    /**
+     * Write the values onto a new B+Tree, reload the B+Tree from its
+     * checkpoint, and verify the values.
+     * 
+     * @return The counters for the B+Tree which wrote the records.
+     */
+    private BTreeCounters doRoundTripTest(
+            final IRecordCompressorFactory<?> factory, final byte[][] values) {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(32);
+
+        md.setBtreeRecordCompressorFactory(factory);
+
+        final BTree btree = BTree.create(store, md);
+
+        for (int i = 0; i < values.length; i++) {
+
+            btree.insert(TestKeyBuilder.asSortKey(i), values[i]);
+
+        }
+
+        final long checkpointAddr = btree.writeCheckpoint();
+
+        final BTree reader = BTree.load(store, checkpointAddr, true/* readOnly */);
+
+        for (int i = 0; i < values.length; i++) {
+
+            assertEquals(values[i], reader.lookup(TestKeyBuilder.asSortKey(i)));
+
+        }
+
+        assertEquals(values.length, reader.rangeCount());
+
+        return btree.getBtreeCounters();
+
+    }
+
+    /**
+     * Compressible nodes and leaves are written in a compressed form and are
+     * decompressed when they are read back.
+     */
+    public void test_lz4() {
+
+        final byte[][] values = new byte[NKEYS][];
+
+        for (int i = 0; i < NKEYS; i++) {
+
+            values[i] = getCompressibleValue(i);
+
+        }
+
+        final BTreeCounters counters = doRoundTripTest(
+                new LZ4RecordCompressorFactory(), values);
+
+        assertTrue(counters.bytesAfterCompression.get() < counters.bytesBeforeCompression
+                .get());
+
+    }
+
+    /**
+     * Leaves which do not compress are written without compression and may
+     * still be read back.
+     */
+    public void test_lz4_incompressible() {
+
+        final byte[][] values = new byte[NKEYS][];
+
+        for (int i = 0; i < NKEYS; i++) {
+
+            values[i] = getRandomValue();
+
+        }
+
+        final BTreeCounters counters = doRoundTripTest(
+                new LZ4RecordCompressorFactory(), values);
+
+        assertTrue(counters.bytesAfterCompression.get() <= counters.bytesBeforeCompression
+                .get());
+
+    }
+
+    /**
+     * Compression using a dictionary trained on sample values.
+     */
+    public void test_lz4_dictionary() {
+
+        final byte[][] values = new byte[NKEYS][];
+
+        final List<byte[]> samples = new ArrayList<byte[]>();
+
+        for (int i = 0; i < NKEYS; i++) {
+
+            values[i] = getCompressibleValue(i);
+
+            if (i % 10 == 0)
+                samples.add(values[i]);
+
+        }
+
+        final byte[] dictionary = LZ4Compressor.trainDictionary(
+                samples.iterator(), 4096/* capacity */);
+
+        assertTrue(dictionary.length > 0);
+
+        final BTreeCounters counters = doRoundTripTest(
+                new LZ4RecordCompressorFactory(dictionary), values);
+
+        assertTrue(counters.bytesAfterCompression.get() < counters.bytesBeforeCompression
+                .get());
+
+    }
+
+    /**
+     * Records written by an index without compression are not affected.
+     */
+    public void test_noCompression() {
+
+        final byte[][] values = new byte[NKEYS][];
+
+        for (int i = 0; i < NKEYS; i++) {
+
+            values[i] = getCompressibleValue(i);
+
+        }
+
+        final BTreeCounters counters = doRoundTripTest(null/* factory */,
+                values);
+
+        assertEquals(0L, counters.bytesBeforeCompression.get());
+
+    }
+
+}
@@ -0,0 +1,189 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.io.DirectBufferPool;
+
+/**
+ * Test suite for the {@link NodeRecordCache}.
+ */
+public class TestNodeRecordCache extends TestCase2 {
+
+    public TestNodeRecordCache() {
+    }
+
+    public TestNodeRecordCache(final String name) {
+        super(name);
+    }
+
+    private final Random r = new Random();
+
+    private ByteBuffer newRecord(final int len) {
+
+        final byte[] a = new byte[len];
+
+        r.nextBytes(a);
+
+        return ByteBuffer.wrap(a);
+
+    }
+
+    /**
+     * Records are returned by (storeUUID,addr) and are cleared by
+     * {@link NodeRecordCache#remove(UUID, long)}.
+     */
+    public void test_putGetRemove() {
+
+        final DirectBufferPool pool = DirectBufferPool.INSTANCE;
+
+        final NodeRecordCache cache = new NodeRecordCache(pool,
+                2L * pool.getBufferCapacity());
+
+        try {
+
+            final UUID store1 = UUID.randomUUID();
+            final UUID store2 = UUID.randomUUID();
+
+            final ByteBuffer rec1 = newRecord(100);
+            final ByteBuffer rec2 = newRecord(200);
+
+            assertNull(cache.get(store1, 12L));
+
+            cache.put(store1, 12L, rec1);
+            cache.put(store2, 12L, rec2);
+
+            // the caller's buffer is not modified.
+            assertEquals(0, rec1.position());
+            assertEquals(100, rec1.limit());
+
+            assertEquals(rec1, cache.get(store1, 12L));
+            assertEquals(rec2, cache.get(store2, 12L));
+            assertNull(cache.get(store1, 13L));
+
+            // the returned buffer is a copy.
+            final ByteBuffer tmp = cache.get(store1, 12L);
+            tmp.put(0, (byte) (tmp.get(0) + 1));
+            assertEquals(rec1, cache.get(store1, 12L));
+
+            cache.remove(store1, 12L);
+            assertNull(cache.get(store1, 12L));
+            assertEquals(rec2, cache.get(store2, 12L));
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    /**
+     * Once the segments are full, a segment is reused and the records on that
+     * segment are dropped while the most recently inserted records remain
+     * available.
+     */
+    public void test_segmentReuse() {
+
+        final DirectBufferPool pool = DirectBufferPool.INSTANCE;
+
+        final NodeRecordCache cache = new NodeRecordCache(pool,
+                2L * pool.getBufferCapacity());
+
+        try {
+
+            final UUID storeUUID = UUID.randomUUID();
+
+            final int len = 1024;
+
+            // enough records to fill the cache several times over.
+            final int n = 6 * pool.getBufferCapacity() / len;
+
+            final ByteBuffer[] recs = new ByteBuffer[n];
+
+            for (int i = 0; i < n; i++) {
+
+                recs[i] = newRecord(len);
+
+                cache.put(storeUUID, i, recs[i]);
+
+            }
+
+            // the first record was dropped.
+            assertNull(cache.get(storeUUID, 0L));
+
+            // the last record is still present.
+            assertEquals(recs[n - 1], cache.get(storeUUID, n - 1));
+
+            // any record which is present has the correct data.
+            for (int i = 0; i < n; i++) {
+
+                final ByteBuffer b = cache.get(storeUUID, i);
+
+                if (b != null)
+                    assertEquals(recs[i], b);
+
+            }
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    /**
+     * A record which is larger than a segment is not cached.
+     */
+    public void test_largeRecordNotCached() {
+
+        final DirectBufferPool pool = DirectBufferPool.INSTANCE;
+
+        final NodeRecordCache cache = new NodeRecordCache(pool,
+                2L * pool.getBufferCapacity());
+
+        try {
+
+            final UUID storeUUID = UUID.randomUUID();
+
+            cache.put(storeUUID, 1L, newRecord(pool.getBufferCapacity() + 1));
+
+            assertNull(cache.get(storeUUID, 1L));
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+}
@@ -68,6 +68,9 @@ public class TestAll extends TestCase {
         suite.addTestSuite(TestFrontCodedRabaCoderRatio8.class);
         suite.addTestSuite(TestFrontCodedRabaCoderRatio32.class);
 
+        // column-wise coding for fixed length keys.
+        suite.addTestSuite(TestColumnarKeyRabaCoder.class);
+
         // canonical huffman coding.
         suite.addTestSuite(TestCanonicalHuffmanRabaCoder.class);
 
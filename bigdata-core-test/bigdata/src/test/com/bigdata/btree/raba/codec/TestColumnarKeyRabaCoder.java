@@ -0,0 +1,174 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree.raba.codec;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.BytesUtil.UnsignedByteArrayComparator;
+
+/**
+ * Test suite for the {@link ColumnarKeyRabaCoder}.
+ */
+public class TestColumnarKeyRabaCoder extends AbstractRabaCoderTestCase {
+
+    /**
+     * 
+     */
+    public TestColumnarKeyRabaCoder() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestColumnarKeyRabaCoder(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        rabaCoder = new ColumnarKeyRabaCoder(4/* width */);
+
+    }
+
+    /**
+     * Generate sorted, distinct keys which look like the keys of a statement
+     * index (three components, each a flags byte and a long). The first
+     * component is constant, the second has a few distinct values, and the
+     * third is random.
+     */
+    private byte[][] getStatementKeys(final Random r, final int n) {
+
+        final KeyBuilder keyBuilder = new KeyBuilder(3 * ColumnarKeyRabaCoder.DEFAULT_WIDTH);
+
+        final byte[][] a = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            a[i] = keyBuilder.reset()//
+                    .append((byte) 1).append(12L)//
+                    .append((byte) 1).append((long) r.nextInt(5))//
+                    .append((byte) 1).append(r.nextLong())//
+                    .getKey();
+
+        }
+
+        Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+        // Note: duplicates are vanishingly unlikely for random longs.
+        for (int i = 1; i < n; i++) {
+
+            assertTrue(UnsignedByteArrayComparator.INSTANCE.compare(a[i - 1],
+                    a[i]) < 0);
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Round trip statement index keys, verifying that the constant and
+     * dictionary coded columns make the record smaller than the keys and that
+     * search agrees with a binary search of the uncoded keys.
+     */
+    public void test_statementKeys() {
+
+        final Random r = new Random();
+
+        final IRabaCoder coder = new ColumnarKeyRabaCoder();
+
+        final int n = 100;
+
+        final byte[][] a = getStatementKeys(r, n);
+
+        final IRaba expected = new ReadOnlyKeysRaba(a);
+
+        doRoundTripTest(coder, expected);
+
+        final AbstractFixedByteArrayBuffer data = coder.encode(expected,
+                new DataOutputBuffer());
+
+        // the first two components are compressed.
+        assertTrue(data.len() < n * 2 * ColumnarKeyRabaCoder.DEFAULT_WIDTH);
+
+        final ICodedRaba actual = coder.decode(data);
+
+        for (int i = 0; i < n; i++) {
+
+            final byte[] key = a[i];
+
+            assertEquals(i, actual.search(key));
+
+            // a prefix of the key.
+            final byte[] prefix = Arrays.copyOf(key, key.length - 3);
+            assertEquals(expected.search(prefix), actual.search(prefix));
+
+            // an extension of the key.
+            final byte[] longer = Arrays.copyOf(key, key.length + 1);
+            assertEquals(expected.search(longer), actual.search(longer));
+
+        }
+
+        // keys which are not present.
+        for (int i = 0; i < n; i++) {
+
+            final byte[] key = getStatementKeys(r, 1)[0];
+
+            assertEquals(expected.search(key), actual.search(key));
+
+        }
+
+    }
+
+    /**
+     * Leaves having keys with different lengths are front coded.
+     */
+    public void test_variableLengthKeys() {
+
+        final byte[][] a = new byte[][] { new byte[] { 1, 2 },
+                new byte[] { 1, 2, 3 }, new byte[] { 4 } };
+
+        final IRaba expected = new ReadOnlyKeysRaba(a);
+
+        doRoundTripTest(rabaCoder, expected);
+
+        final ICodedRaba actual = rabaCoder.decode(rabaCoder.encode(expected,
+                new DataOutputBuffer()));
+
+        assertEquals(1, actual.search(new byte[] { 1, 2, 3 }));
+
+        assertEquals(-3, actual.search(new byte[] { 2 }));
+
+    }
+
+}
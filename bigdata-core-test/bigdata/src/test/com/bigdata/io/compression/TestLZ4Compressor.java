@@ -0,0 +1,124 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.io.compression;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test suite for {@link LZ4Compressor}.
+ */
+public class TestLZ4Compressor extends AbstractRecordCompressorTestCase {
+
+    /**
+     * 
+     */
+    public TestLZ4Compressor() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestLZ4Compressor(String name) {
+        super(name);
+    }
+
+    public IRecordCompressor getInstance() {
+
+        return new LZ4Compressor();
+
+    }
+
+    /**
+     * Records compressed against a dictionary trained from similar records
+     * are recovered by a compressor using the same dictionary and are smaller
+     * than without the dictionary.
+     */
+    public void test_dictionary() {
+
+        final List<byte[]> samples = new ArrayList<byte[]>();
+
+        for (int i = 0; i < 100; i++) {
+
+            samples.add(getRandomRecord(20));
+
+        }
+
+        final byte[] dictionary = LZ4Compressor.trainDictionary(
+                samples.iterator(), 8192/* capacity */);
+
+        assertTrue(dictionary.length > 0);
+
+        assertTrue(dictionary.length <= 8192);
+
+        final LZ4Compressor c1 = new LZ4Compressor();
+
+        final LZ4Compressor c2 = new LZ4Compressor(dictionary);
+
+        long n1 = 0, n2 = 0;
+
+        for (int i = 0; i < 100; i++) {
+
+            final byte[] expected = getRandomRecord(20);
+
+            n1 += doCompressionTest(c1, expected, 0, expected.length);
+
+            n2 += doCompressionTest(c2, expected, 0, expected.length);
+
+        }
+
+        assertTrue(n2 < n1);
+
+    }
+
+    /**
+     * A record compressed with a dictionary can not be decompressed without
+     * that dictionary.
+     */
+    public void test_dictionary_required() {
+
+        final byte[] expected = getRandomRecord(20);
+
+        final LZ4Compressor c = new LZ4Compressor(expected);
+
+        final ByteBuffer compressed = c.compress(ByteBuffer.wrap(expected));
+
+        try {
+
+            new LZ4Compressor().decompress(compressed);
+
+            fail("Expecting: " + RuntimeException.class);
+
+        } catch (RuntimeException ex) {
+
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+
+        }
+
+    }
+
+}
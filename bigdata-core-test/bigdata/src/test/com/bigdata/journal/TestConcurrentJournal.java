@@ -1224,6 +1224,85 @@ public class TestConcurrentJournal extends ProxyTestCase<Journal> {
         
     }
 
+    /**
+     * Test verifies that a group commit lingers for tasks which are not yet
+     * running to join the commit group and that the commit group is closed as
+     * soon as it reaches the configured maximum size (rather than when the
+     * linger expires).
+     * 
+     * @see Options#WRITE_SERVICE_GROUP_COMMIT_LINGER
+     * @see Options#WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE
+     */
+    public void test_writeService_groupCommitLinger() throws Exception {
+
+        final int ntasks = 4;
+        
+        final long linger = 10000; // ms
+
+        final Properties properties = getProperties();
+
+        properties.setProperty(Options.WRITE_SERVICE_GROUP_COMMIT_LINGER, ""
+                + linger);
+
+        properties.setProperty(Options.WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE, ""
+                + ntasks);
+
+        final Journal journal = new Journal(properties);
+
+        try {
+
+            final WriteExecutorService writeService = journal
+                    .getConcurrencyManager().getWriteService();
+
+            final long commitCounterBefore = journal.getRootBlockView()
+                    .getCommitCounter();
+
+            final long begin = System.currentTimeMillis();
+
+            final List<Future<Void>> futures = new LinkedList<Future<Void>>();
+
+            for (int i = 0; i < ntasks; i++) {
+
+                // Note: distinct resources so the tasks do not contend for locks.
+                futures.add(journal.submit(new AbstractTask<Void>(journal,
+                        ITx.UNISOLATED, "test" + i) {
+
+                    @Override
+                    protected Void doTask() throws Exception {
+                        return null;
+                    }
+
+                }));
+
+            }
+
+            for (Future<Void> f : futures) {
+
+                // wait for the commit.
+                f.get();
+
+            }
+
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            // All tasks were made durable by a single commit.
+            assertEquals("commitCounter", commitCounterBefore + 1, journal
+                    .getRootBlockView().getCommitCounter());
+
+            assertEquals("fullCommitGroupCount", 1L,
+                    writeService.getFullCommitGroupCount());
+
+            // The commit did not wait for the linger to expire.
+            assertTrue("elapsed=" + elapsed, elapsed < linger);
+
+        } finally {
+
+            journal.destroy();
+
+        }
+
+    }
+
     /*
      * @todo revisit this unit test.  It's semantics appear to have aged.
      */
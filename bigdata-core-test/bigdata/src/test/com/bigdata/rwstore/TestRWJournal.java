@@ -415,6 +415,161 @@ public class TestRWJournal extends AbstractJournalTestCase {
 
     }
 
+    /**
+     * Unit test for online compaction. An index is populated and most of its
+     * tuples are then removed. All nodes and leaves are relocated as a series
+     * of bounded {@link BTree#relocate(byte[], int, int, IRelocationFilter)}
+     * invocations and the data are verified after the commit. The relocations
+     * are reported by the {@link StorageStats}.
+     */
+    public void test_relocateRWStore() {
+
+        final Journal store = new Journal(getProperties());
+
+        try {
+
+            final RWStrategy bs = (RWStrategy) store.getBufferStrategy();
+
+            final String name = "test";
+
+            {
+
+                final IndexMetadata metadata = new IndexMetadata(name, UUID
+                        .randomUUID());
+
+                metadata.setBranchingFactor(16);
+
+                store.registerIndex(name, metadata);
+
+            }
+
+            BTree btree = store.getIndex(name);
+
+            final KeyBuilder keyBuilder = new KeyBuilder(Bytes.SIZEOF_INT);
+
+            final TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+
+            for (int i = 0; i < 10000; i++) {
+
+                btree.insert(keyBuilder.reset().append(i).getKey(),
+                        new SimpleEntry(i));
+
+                expected.put(i, i);
+
+            }
+
+            store.commit();
+
+            for (int i = 0; i < 10000; i++) {
+
+                if (r.nextInt(10) != 0) {
+
+                    btree.remove(keyBuilder.reset().append(i).getKey());
+
+                    expected.remove(i);
+
+                }
+
+            }
+
+            store.commit();
+
+            btree = store.getIndex(name);
+
+            final long nrecords = btree.getNodeCount() + btree.getLeafCount();
+
+            final long relocatedBefore = bs.getStore().getStorageStats()
+                    .getRelocatedRecords();
+
+            final int[] nrelocated = new int[1];
+
+            // Selects every record.
+            final IRelocationFilter filter = new IRelocationFilter() {
+
+                @Override
+                public boolean isRelocationCandidate(final long addr) {
+                    return true;
+                }
+
+                @Override
+                public void relocated(final long addr) {
+                    nrelocated[0]++;
+                    bs.relocated(addr);
+                }
+
+            };
+
+            byte[] fromKey = null;
+
+            int ncalls = 0;
+
+            do {
+
+                fromKey = btree.relocate(fromKey, 10/* maxRecords */,
+                        50/* maxVisits */, filter);
+
+                ncalls++;
+
+                assertTrue(ncalls <= nrecords + 1);
+
+            } while (fromKey != null);
+
+            // Each persistent node and leaf was relocated exactly once.
+            assertEquals(nrecords, nrelocated[0]);
+
+            assertEquals(relocatedBefore + nrelocated[0], bs.getStore()
+                    .getStorageStats().getRelocatedRecords());
+
+            // Nothing is left to relocate until the next commit.
+            assertNull(btree.relocate(null, 10, Integer.MAX_VALUE, filter));
+
+            assertEquals(nrecords, nrelocated[0]);
+
+            store.commit();
+
+            btree = store.getIndex(name);
+
+            assertEquals(expected.size(), btree.rangeCount());
+
+            final ITupleIterator<?> itr = btree.rangeIterator();
+
+            for (Integer i : expected.keySet()) {
+
+                assertTrue(itr.hasNext());
+
+                final ITuple<?> tuple = itr.next();
+
+                assertEquals(keyBuilder.reset().append(i).getKey(),
+                        tuple.getKey());
+
+                assertEquals(new SimpleEntry(i), tuple.getObject());
+
+            }
+
+            assertFalse(itr.hasNext());
+
+            // The sparse allocator filter visits the whole index.
+            fromKey = null;
+
+            do {
+
+                fromKey = btree.relocate(fromKey, 100/* maxRecords */,
+                        1000/* maxVisits */, bs);
+
+            } while (fromKey != null);
+
+            store.commit();
+
+            assertEquals(expected.size(), store.getIndex(name).rangeCount());
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
     /**
      * Unit test for an issue where the {@link RWStore} did not discard the
      * logged delete blocks in {@link RWStore#reset()}.
@@ -1998,6 +2153,72 @@ public class TestRWJournal extends AbstractJournalTestCase {
 
 		}
 		
+		/**
+		 * Test of read back through the memory mapped view of the backing
+		 * file once the records are no longer in the write cache.
+		 *
+		 * @see RWStore.Options#MEMORY_MAPPED_READS
+		 */
+		public void test_memoryMappedReadBack() {
+
+            final Properties properties = new Properties(getProperties());
+
+            properties.setProperty(RWStore.Options.MEMORY_MAPPED_READS, "true");
+
+            properties.setProperty(Options.READ_CACHE_BUFFER_COUNT, "0");
+
+			final Journal store = (Journal) getStore(properties);
+
+			try {
+				final RWStrategy bs = (RWStrategy) store.getBufferStrategy();
+
+				final RWStore rw = bs.getStore();
+
+				final int nrecs = 1000;
+
+				final ByteBuffer[] bufs = new ByteBuffer[nrecs];
+
+				final long[] addrs = new long[nrecs];
+
+				for (int i = 0; i < nrecs; i++) {
+
+					final byte[] buf = new byte[1 + r.nextInt(1000)];
+
+					r.nextBytes(buf);
+
+					bufs[i] = ByteBuffer.wrap(buf);
+
+					addrs[i] = bs.write(bufs[i]);
+
+					bufs[i].position(0);
+
+				}
+
+				store.commit();
+
+				// Clear the write cache so the reads go through to the file.
+				rw.getWriteCacheService().resetAndClear();
+
+				final long nmappedBefore = rw.getStoreCounters().nmappedRead;
+
+				for (int i = 0; i < nrecs; i++) {
+
+					assertEquals(bufs[i], bs.read(addrs[i]));
+
+				}
+
+				assertTrue(rw.getStoreCounters().nmappedRead > nmappedBefore);
+
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} finally {
+
+				store.destroy();
+
+			}
+
+		}
+
 		public void test_stressBlobReadBack() {
 			for (int i = 0; i < 100; i++) {
 				test_blob_readBack();
@@ -158,6 +158,47 @@ public class TestMemoryManager extends TestCase2 {
 		}
 	}
 	
+	/**
+	 * The counters of an allocation context track its allocations and an
+	 * address which was already released by {@link IMemoryManager#clear()}
+	 * is not freed a second time.
+	 */
+	public void testAllocationContextCounters() {
+
+		final IMemoryManager context = manager.createAllocationContext();
+
+		final long managerCountBefore = manager.getAllocationCount();
+
+		final long addr1 = context.allocate(100);
+		final long addr2 = context.allocate(200);
+
+		assertEquals(2L, context.getAllocationCount());
+		assertEquals(300L, context.getUserBytes());
+		assertEquals(managerCountBefore + 2, manager.getAllocationCount());
+
+		context.free(addr1);
+
+		assertEquals(1L, context.getAllocationCount());
+		assertEquals(200L, context.getUserBytes());
+		assertEquals(managerCountBefore + 1, manager.getAllocationCount());
+
+		context.clear();
+
+		assertEquals(0L, context.getAllocationCount());
+		assertEquals(0L, context.getUserBytes());
+		assertEquals(0L, context.getSlotBytes());
+		assertEquals(managerCountBefore, manager.getAllocationCount());
+
+		// Already released by clear().
+		context.free(addr2);
+
+		assertEquals(0L, context.getAllocationCount());
+		assertEquals(0L, context.getUserBytes());
+		assertEquals(0L, context.getSlotBytes());
+		assertEquals(managerCountBefore, manager.getAllocationCount());
+
+	}
+
 	/**
 	 * Rather than creating contexts directly, instead associate with
 	 * externally created context.
@@ -27,7 +27,12 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rwstore.sector;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
 import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rwstore.IRawTx;
 
 import junit.framework.TestCase2;
 
@@ -131,4 +136,147 @@ public class TestMemoryManager2 extends TestCase2 {
 
     }
     
+    /**
+     * Verify that a small allocation which is freed is recycled by the free
+     * slot cache of the same thread and that the allocation statistics are
+     * maintained across the cache.
+     */
+    public void test_slotCacheRecyclesFreedSlot() {
+
+        final MemoryManager mmgr = new MemoryManager(DirectBufferPool.INSTANCE);
+
+        try {
+
+            final long addr1 = mmgr.allocate(100);
+
+            assertEquals(1L, mmgr.getAllocationCount());
+            assertEquals(100L, mmgr.getUserBytes());
+            assertEquals(128L, mmgr.getSlotBytes());
+
+            mmgr.free(addr1);
+
+            assertEquals(0L, mmgr.getAllocationCount());
+            assertEquals(0L, mmgr.getUserBytes());
+            assertEquals(0L, mmgr.getSlotBytes());
+
+            // same slot size, so the cached slot is recycled.
+            final long addr2 = mmgr.allocate(120);
+
+            assertEquals(MemoryManager.getAllocationAddress(addr1),
+                    MemoryManager.getAllocationAddress(addr2));
+            assertEquals(120, MemoryManager.getAllocationSize(addr2));
+
+            assertEquals(1L, mmgr.getAllocationCount());
+            assertEquals(120L, mmgr.getUserBytes());
+            assertEquals(128L, mmgr.getSlotBytes());
+
+        } finally {
+
+            mmgr.clear();
+
+        }
+
+    }
+
+    /**
+     * Verify that slots are not recycled by the free slot caches once a
+     * transaction is active (session protection).
+     */
+    public void test_slotCacheDisabledBySession() {
+
+        final MemoryManager mmgr = new MemoryManager(DirectBufferPool.INSTANCE);
+
+        try {
+
+            final long addr1 = mmgr.allocate(100);
+
+            final IRawTx tx = mmgr.newTx();
+
+            try {
+
+                mmgr.free(addr1);
+
+                final long addr2 = mmgr.allocate(100);
+
+                assertFalse(MemoryManager.getAllocationAddress(addr1) == MemoryManager
+                        .getAllocationAddress(addr2));
+
+            } finally {
+
+                tx.close();
+
+            }
+
+        } finally {
+
+            mmgr.clear();
+
+        }
+
+    }
+
+    /**
+     * Verify that a non-blocking {@link MemoryManager} hands back the slots
+     * held by its free slot caches before it reports that it is out of
+     * memory. The slots are freed by one thread and allocated by another so
+     * the allocations can not simply reuse the cached slots (unless the two
+     * threads share a stripe).
+     */
+    public void test_slotCacheReleasedBeforeOutOfMemory() throws Exception {
+
+        final Properties properties = new Properties();
+
+        properties.setProperty(MemoryManager.Options.SLOT_CACHE_CAPACITY,
+                "100000");
+
+        final MemoryManager mmgr = new MemoryManager(DirectBufferPool.INSTANCE,
+                1/* nsectors */, false/* blocks */, properties);
+
+        try {
+
+            final int nbytes = SectorAllocator.BLOB_SIZE;
+
+            // fill the memory manager.
+            final List<Long> addrs = new ArrayList<Long>();
+            try {
+                while (true) {
+                    addrs.add(mmgr.allocate(nbytes));
+                }
+            } catch (MemoryManagerOutOfMemory ex) {
+                // ignore.
+            }
+
+            final int n = addrs.size();
+
+            assertTrue(n > 0);
+
+            // free everything from another thread.
+            final Thread t = new Thread() {
+                @Override
+                public void run() {
+                    for (Long addr : addrs) {
+                        mmgr.free(addr);
+                    }
+                }
+            };
+            t.start();
+            t.join();
+
+            assertEquals(0L, mmgr.getAllocationCount());
+
+            // all of the memory is available again.
+            for (int i = 0; i < n; i++) {
+                mmgr.allocate(nbytes);
+            }
+
+            assertEquals((long) n, mmgr.getAllocationCount());
+
+        } finally {
+
+            mmgr.clear();
+
+        }
+
+    }
+
 }
@@ -34,6 +34,7 @@ class BatchResolveTermIVsTask implements Callable<Void> {
     private final Collection<TermId<?>> ivs;
     private final ConcurrentHashMap<IV<?,?>/* iv */, BigdataValue/* term */> ret;
     private final ITermCache<IV<?,?>, BigdataValue> termCache;
+    private final DirectTermCache directTermCache;
     private final BigdataValueFactory valueFactory;
     private final int MAX_CHUNK;
 
@@ -43,6 +44,7 @@ class BatchResolveTermIVsTask implements Callable<Void> {
             final Collection<TermId<?>> ivs,
             final ConcurrentHashMap<IV<?, ?>/* iv */, BigdataValue/* term */> ret,
             final ITermCache<IV<?,?>, BigdataValue> termCache,
+            final DirectTermCache directTermCache,
             final BigdataValueFactory valueFactory,
             final int chunkSize) {
 
@@ -56,6 +58,8 @@ class BatchResolveTermIVsTask implements Callable<Void> {
         
         this.termCache = termCache;
         
+        this.directTermCache = directTermCache;
+        
         this.valueFactory = valueFactory;
 
         this.MAX_CHUNK = chunkSize;
@@ -95,7 +99,7 @@ class BatchResolveTermIVsTask implements Callable<Void> {
             
             new ResolveTermTask(ndx, 0/* fromIndex */,
                     numNotFound/* toIndex */, keys, notFound, ret,
-                    termCache, valueFactory).call();
+                    termCache, directTermCache, valueFactory).call();
 
         } else {
             
@@ -136,7 +140,7 @@ class BatchResolveTermIVsTask implements Callable<Void> {
 //                            + toIndex + ", remaining=" + remaining);
                 
                 tasks.add(new ResolveTermTask(ndx, fromIndex, toIndex,
-                        keys, notFound, ret, termCache, valueFactory));
+                        keys, notFound, ret, termCache, directTermCache, valueFactory));
 
                 fromIndex = toIndex;
                 
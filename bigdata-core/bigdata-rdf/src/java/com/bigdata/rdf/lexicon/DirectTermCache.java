@@ -0,0 +1,928 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.rdf.lexicon;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.BlobIV;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rwstore.sector.MemoryManager;
+import com.bigdata.rwstore.sector.MemoryManagerOutOfMemory;
+
+/**
+ * A cache mapping the keys of the {@link LexiconKeyOrder#ID2TERM} and
+ * {@link LexiconKeyOrder#BLOBS} indices (the encoded {@link TermId} and
+ * {@link BlobIV}) onto the serialized RDF Values stored under those keys. The
+ * keys and values are stored in native memory allocated by a
+ * {@link MemoryManager} from the {@link DirectBufferPool}, so the cache may be
+ * sized in GBs without adding to the objects traced by the garbage collector.
+ * The only heap resident state is a hash table of primitive arrays giving the
+ * address of each record.
+ * <p>
+ * The hash table is split into segments, each of which is guarded by a
+ * {@link ReentrantReadWriteLock}. Lookups take the read lock and copy the
+ * value out of native memory. Inserts take the write lock. When the memory
+ * manager can not satisfy an allocation, records are evicted from the segment
+ * using the CLOCK policy until the allocation succeeds.
+ * <p>
+ * Note: The lexicon assigns a {@link TermId} or a {@link BlobIV} to a given
+ * RDF Value exactly once, so an entry never becomes stale as long as it was
+ * read from a committed state of the index. Entries MUST NOT be added from an
+ * unisolated view since a term identifier may be reassigned if the write set
+ * is discarded.
+ *
+ * @see AbstractTripleStore.Options#DIRECT_TERM_CACHE_CAPACITY
+ */
+public class DirectTermCache implements ICounterSetAccess {
+
+    private static final transient Logger log = Logger
+            .getLogger(DirectTermCache.class);
+
+    /**
+     * The initial #of slots in the hash table for each segment.
+     */
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+
+    /**
+     * The maximum #of records evicted to make room for a new record. Since the
+     * memory manager allocates fixed size slots, the space released by the
+     * records in one segment may not satisfy a larger record. The new record
+     * is not cached rather than discarding the entire segment.
+     */
+    private static final int MAX_EVICTIONS_PER_INSERT = 256;
+
+    /**
+     * The backing store for the records.
+     */
+    private final MemoryManager mmgr;
+
+    /**
+     * The maximum #of bytes which may be allocated from the
+     * {@link DirectBufferPool}.
+     */
+    private final long capacity;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile boolean open = true;
+
+    /**
+     * @param capacity
+     *            The maximum #of bytes of native memory used by the cache. This
+     *            is rounded up to a whole #of buffers from the
+     *            {@link DirectBufferPool}.
+     * @param concurrencyLevel
+     *            The #of segments (rounded up to a power of two).
+     *
+     * @throws IllegalArgumentException
+     *             if either argument is non-positive.
+     */
+    public DirectTermCache(final long capacity, final int concurrencyLevel) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+
+        final DirectBufferPool pool = DirectBufferPool.INSTANCE;
+
+        final long bufferCapacity = pool.getBufferCapacity();
+
+        final int nbuffers = (int) Math.min(Integer.MAX_VALUE,
+                (capacity + bufferCapacity - 1) / bufferCapacity);
+
+        this.capacity = nbuffers * bufferCapacity;
+
+        this.mmgr = new MemoryManager(pool, nbuffers, false/* blocks */,
+                null/* properties */);
+
+        int nsegments = 1;
+        int shift = 32;
+        while (nsegments < concurrencyLevel) {
+            nsegments <<= 1;
+            shift--;
+        }
+
+        this.segmentShift = shift;
+
+        this.segments = new Segment[nsegments];
+
+        for (int i = 0; i < nsegments; i++) {
+
+            segments[i] = new Segment();
+
+        }
+
+    }
+
+    /**
+     * The maximum #of bytes of native memory which may be used by the cache.
+     */
+    public long capacity() {
+
+        return capacity;
+
+    }
+
+    /**
+     * The #of records in the cache.
+     */
+    public int size() {
+
+        long n = 0;
+
+        for (Segment s : segments) {
+
+            n += s.count;
+
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE, n);
+
+    }
+
+    /**
+     * The #of bytes of native memory allocated to the records in the cache.
+     */
+    public long getBytesInUse() {
+
+        return mmgr.getSlotBytes();
+
+    }
+
+    public long getHitCount() {
+
+        return hits.get();
+
+    }
+
+    public long getMissCount() {
+
+        return misses.get();
+
+    }
+
+    public long getEvictionCount() {
+
+        return evictions.get();
+
+    }
+
+    /**
+     * Return a copy of the serialized value stored under the key.
+     *
+     * @param key
+     *            The encoded {@link IV}.
+     *
+     * @return The serialized value -or- <code>null</code> if the key is not in
+     *         the cache.
+     */
+    public byte[] get(final byte[] key) {
+
+        final int hash = hash(key);
+
+        final Segment s = segmentFor(hash);
+
+        final Lock lock = s.readLock();
+
+        lock.lock();
+
+        try {
+
+            if (open) {
+
+                final int slot = s.find(key, hash);
+
+                if (slot != -1) {
+
+                    // Note: benign race with other readers.
+                    s.refs[slot] = 1;
+
+                    hits.incrementAndGet();
+
+                    return readValue(s.addrs[slot], key.length);
+
+                }
+
+            }
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+        misses.incrementAndGet();
+
+        return null;
+
+    }
+
+    /**
+     * Add the serialized value to the cache unless the key is already present.
+     * The record is not cached if there is no room for it after evicting at
+     * most {@value #MAX_EVICTIONS_PER_INSERT} records.
+     *
+     * @param key
+     *            The encoded {@link IV}.
+     * @param val
+     *            The serialized value.
+     *
+     * @return <code>true</code> iff the record was added to the cache.
+     */
+    public boolean putIfAbsent(final byte[] key, final byte[] val) {
+
+        if (key == null || val == null)
+            throw new IllegalArgumentException();
+
+        final int hash = hash(key);
+
+        final Segment s = segmentFor(hash);
+
+        final Lock lock = s.writeLock();
+
+        lock.lock();
+
+        try {
+
+            if (!open || s.find(key, hash) != -1) {
+
+                return false;
+
+            }
+
+            final ByteBuffer record = ByteBuffer.allocate(4 + key.length
+                    + val.length);
+
+            record.putInt(key.length);
+            record.put(key);
+            record.put(val);
+
+            long addr = 0L;
+
+            int nevicted = 0;
+
+            while (addr == 0L) {
+
+                // Note: The record is exactly sized.
+                record.clear();
+
+                try {
+
+                    addr = mmgr.allocate(record, false/* blocks */);
+
+                } catch (MemoryManagerOutOfMemory ex) {
+
+                    if (s.count == 0
+                            || nevicted++ == MAX_EVICTIONS_PER_INSERT) {
+
+                        /*
+                         * Nothing left to evict from this segment (the memory
+                         * is held by the other segments or the record is
+                         * larger than the cache) or the evicted records did
+                         * not release a suitable slot.
+                         */
+
+                        if (log.isDebugEnabled())
+                            log.debug("Not cached: nbytes="
+                                    + record.capacity());
+
+                        return false;
+
+                    }
+
+                    evict(s);
+
+                }
+
+            }
+
+            s.insert(hash, addr);
+
+            return true;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Discard all records and release the native memory back to the
+     * {@link DirectBufferPool}.
+     */
+    public void clear() {
+
+        final List<Lock> locks = lockAll();
+
+        try {
+
+            for (Segment s : segments) {
+
+                s.reset();
+
+            }
+
+            if (open)
+                mmgr.clear();
+
+        } finally {
+
+            unlockAll(locks);
+
+        }
+
+    }
+
+    /**
+     * Discard all records and release the native memory. The cache will not
+     * report or accept any records once it is closed.
+     */
+    public void close() {
+
+        final List<Lock> locks = lockAll();
+
+        try {
+
+            if (!open)
+                return;
+
+            open = false;
+
+            for (Segment s : segments) {
+
+                s.reset();
+
+            }
+
+            mmgr.close();
+
+        } finally {
+
+            unlockAll(locks);
+
+        }
+
+    }
+
+    public boolean isOpen() {
+
+        return open;
+
+    }
+
+    /**
+     * Write the keys of the records in the cache onto the output. The keys of
+     * the records used since they were last considered for eviction are
+     * written first. The keys may be read back with {@link #readKeys(DataInput)}
+     * in order to warm up a new cache.
+     *
+     * @param out
+     *            The output.
+     * @param maxKeys
+     *            The maximum #of keys to write.
+     *
+     * @return The #of keys written.
+     */
+    public int writeKeys(final DataOutput out, final int maxKeys)
+            throws IOException {
+
+        int n = 0;
+
+        for (int pass = 0; pass < 2 && n < maxKeys; pass++) {
+
+            // first pass writes the referenced records.
+            final byte wantRef = (byte) (pass == 0 ? 1 : 0);
+
+            for (Segment s : segments) {
+
+                final Lock lock = s.readLock();
+
+                lock.lock();
+
+                try {
+
+                    if (!open)
+                        return n;
+
+                    for (int i = 0; i < s.addrs.length && n < maxKeys; i++) {
+
+                        if (s.addrs[i] == 0L || s.refs[i] != wantRef)
+                            continue;
+
+                        final byte[] key = readKey(s.addrs[i]);
+
+                        out.writeInt(key.length);
+
+                        out.write(key);
+
+                        n++;
+
+                    }
+
+                } finally {
+
+                    lock.unlock();
+
+                }
+
+            }
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Read keys written by {@link #writeKeys(DataOutput, int)}.
+     *
+     * @param in
+     *            The input.
+     * @param maxKeys
+     *            The maximum #of keys to read.
+     *
+     * @return The keys.
+     */
+    public static List<byte[]> readKeys(final DataInput in, final int maxKeys)
+            throws IOException {
+
+        final List<byte[]> keys = new ArrayList<byte[]>();
+
+        while (keys.size() < maxKeys) {
+
+            final int len;
+            try {
+                len = in.readInt();
+            } catch (EOFException ex) {
+                break;
+            }
+
+            final byte[] key = new byte[len];
+
+            in.readFully(key);
+
+            keys.add(key);
+
+        }
+
+        return keys;
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("capacity", new OneShotInstrument<Long>(capacity));
+
+        root.addCounter("segments", new OneShotInstrument<Integer>(
+                segments.length));
+
+        root.addCounter("size", new Instrument<Integer>() {
+            @Override
+            protected void sample() {
+                setValue(size());
+            }
+        });
+
+        root.addCounter("bytesInUse", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(getBytesInUse());
+            }
+        });
+
+        root.addCounter("hits", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(getHitCount());
+            }
+        });
+
+        root.addCounter("misses", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(getMissCount());
+            }
+        });
+
+        root.addCounter("evictions", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(getEvictionCount());
+            }
+        });
+
+        return root;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{capacity=" + capacity + ",size="
+                + size() + ",bytesInUse=" + getBytesInUse() + ",hits="
+                + getHitCount() + ",misses=" + getMissCount() + ",evictions="
+                + getEvictionCount() + "}";
+
+    }
+
+    /*
+     * Private implementation.
+     */
+
+    private static int hash(final byte[] key) {
+
+        final int h = Arrays.hashCode(key);
+
+        // spread the low bits (the keys differ mostly in their last bytes).
+        return (h ^ (h >>> 16)) * 0x9E3779B9;
+
+    }
+
+    private Segment segmentFor(final int hash) {
+
+        return segmentShift == 32 ? segments[0]
+                : segments[hash >>> segmentShift];
+
+    }
+
+    /**
+     * Evict one record from the segment using the CLOCK policy. The caller
+     * MUST hold the write lock.
+     */
+    private void evict(final Segment s) {
+
+        final int mask = s.addrs.length - 1;
+
+        while (true) {
+
+            final int i = s.hand;
+
+            if (s.addrs[i] != 0L) {
+
+                if (s.refs[i] != 0) {
+
+                    // second chance.
+                    s.refs[i] = 0;
+
+                } else {
+
+                    mmgr.free(s.addrs[i]);
+
+                    s.remove(i);
+
+                    evictions.incrementAndGet();
+
+                    /*
+                     * Note: The hand is not advanced since remove() may have
+                     * shifted another record into this slot.
+                     */
+
+                    return;
+
+                }
+
+            }
+
+            s.hand = (i + 1) & mask;
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff the key of the record at that address is
+     * the given key.
+     */
+    private boolean keyEquals(final long addr, final byte[] key) {
+
+        final ByteBuffer[] bufs = mmgr.get(addr);
+
+        if (bufs.length != 1) {
+
+            // A record which spans several slots.
+            return Arrays.equals(key, readKey(addr));
+
+        }
+
+        final ByteBuffer b = bufs[0];
+
+        final int pos = b.position();
+
+        if (b.getInt(pos) != key.length)
+            return false;
+
+        for (int i = 0; i < key.length; i++) {
+
+            if (b.get(pos + 4 + i) != key[i])
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    private byte[] readKey(final long addr) {
+
+        final ByteBuffer[] bufs = mmgr.get(addr);
+
+        if (bufs.length == 1) {
+
+            final ByteBuffer b = bufs[0];
+
+            final byte[] key = new byte[b.getInt()];
+
+            b.get(key);
+
+            return key;
+
+        }
+
+        final byte[] record = mmgr.read(addr);
+
+        final ByteBuffer b = ByteBuffer.wrap(record);
+
+        return Arrays.copyOfRange(record, 4, 4 + b.getInt());
+
+    }
+
+    private byte[] readValue(final long addr, final int keyLength) {
+
+        final ByteBuffer[] bufs = mmgr.get(addr);
+
+        if (bufs.length == 1) {
+
+            final ByteBuffer b = bufs[0];
+
+            b.position(b.position() + 4 + keyLength);
+
+            final byte[] val = new byte[b.remaining()];
+
+            b.get(val);
+
+            return val;
+
+        }
+
+        final byte[] record = mmgr.read(addr);
+
+        return Arrays.copyOfRange(record, 4 + keyLength, record.length);
+
+    }
+
+    private List<Lock> lockAll() {
+
+        final List<Lock> locks = new ArrayList<Lock>(segments.length);
+
+        for (Segment s : segments) {
+
+            final Lock lock = s.writeLock();
+
+            lock.lock();
+
+            locks.add(lock);
+
+        }
+
+        return locks;
+
+    }
+
+    private static void unlockAll(final List<Lock> locks) {
+
+        for (Lock lock : locks) {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * An open addressing hash table (linear probing) from the hash code of a
+     * key onto the address of its record.
+     */
+    private class Segment extends ReentrantReadWriteLock {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The address of the record in each slot (0L iff empty). */
+        long[] addrs;
+
+        /** The hash code of the key of the record in each slot. */
+        int[] hashes;
+
+        /** The CLOCK reference bit for each slot. */
+        byte[] refs;
+
+        /** The #of records. */
+        volatile int count;
+
+        /** The CLOCK hand. */
+        int hand;
+
+        Segment() {
+
+            reset();
+
+        }
+
+        void reset() {
+
+            addrs = new long[INITIAL_SEGMENT_CAPACITY];
+            hashes = new int[INITIAL_SEGMENT_CAPACITY];
+            refs = new byte[INITIAL_SEGMENT_CAPACITY];
+            count = 0;
+            hand = 0;
+
+        }
+
+        /**
+         * Return the slot for the key -or- <code>-1</code> if the key is not
+         * found. The caller MUST hold a lock.
+         */
+        int find(final byte[] key, final int hash) {
+
+            final int mask = addrs.length - 1;
+
+            int i = hash & mask;
+
+            while (addrs[i] != 0L) {
+
+                if (hashes[i] == hash && keyEquals(addrs[i], key))
+                    return i;
+
+                i = (i + 1) & mask;
+
+            }
+
+            return -1;
+
+        }
+
+        /**
+         * Insert a record which is known to be absent. The caller MUST hold
+         * the write lock.
+         */
+        void insert(final int hash, final long addr) {
+
+            if ((count + 1) * 4 > addrs.length * 3) {
+
+                // maximum load factor is .75
+                rehash(addrs.length << 1);
+
+            }
+
+            final int mask = addrs.length - 1;
+
+            int i = hash & mask;
+
+            while (addrs[i] != 0L) {
+
+                i = (i + 1) & mask;
+
+            }
+
+            addrs[i] = addr;
+            hashes[i] = hash;
+            refs[i] = 0;
+            count++;
+
+        }
+
+        /**
+         * Clear the slot, shifting back any records in the same probe
+         * sequence. The caller MUST hold the write lock.
+         */
+        void remove(int i) {
+
+            final int mask = addrs.length - 1;
+
+            int j = i;
+
+            while (true) {
+
+                j = (j + 1) & mask;
+
+                if (addrs[j] == 0L)
+                    break;
+
+                final int ideal = hashes[j] & mask;
+
+                if (((j - ideal) & mask) >= ((j - i) & mask)) {
+
+                    addrs[i] = addrs[j];
+                    hashes[i] = hashes[j];
+                    refs[i] = refs[j];
+
+                    i = j;
+
+                }
+
+            }
+
+            addrs[i] = 0L;
+            hashes[i] = 0;
+            refs[i] = 0;
+            count--;
+
+        }
+
+        private void rehash(final int newCapacity) {
+
+            final long[] oldAddrs = addrs;
+            final int[] oldHashes = hashes;
+            final byte[] oldRefs = refs;
+
+            addrs = new long[newCapacity];
+            hashes = new int[newCapacity];
+            refs = new byte[newCapacity];
+
+            final int mask = newCapacity - 1;
+
+            for (int k = 0; k < oldAddrs.length; k++) {
+
+                if (oldAddrs[k] == 0L)
+                    continue;
+
+                int i = oldHashes[k] & mask;
+
+                while (addrs[i] != 0L) {
+
+                    i = (i + 1) & mask;
+
+                }
+
+                addrs[i] = oldAddrs[k];
+                hashes[i] = oldHashes[k];
+                refs[i] = oldRefs[k];
+
+            }
+
+            hand = 0;
+
+        }
+
+    }
+
+}
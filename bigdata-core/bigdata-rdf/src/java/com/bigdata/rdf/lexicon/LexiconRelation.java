@@ -28,6 +28,14 @@
 
 package com.bigdata.rdf.lexicon;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -75,7 +83,11 @@ import com.bigdata.btree.filter.PrefixFilter;
 import com.bigdata.btree.filter.TupleFilter;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.keys.KVO;
-import com.bigdata.cache.ConcurrentWeakValueCacheWithBatchedUpdates;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.IJournal;
 import com.bigdata.journal.IResourceLock;
@@ -145,7 +157,7 @@ import cutthecrap.utils.striterators.Striterator;
  * @version $Id$
  */
 public class LexiconRelation extends AbstractRelation<BigdataValue> 
-        implements IDatatypeURIResolver {
+        implements IDatatypeURIResolver, ICounterSetAccess {
 
     private final static Logger log = Logger.getLogger(LexiconRelation.class);
 
@@ -524,6 +536,11 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                     AbstractTripleStore.Options.TERM_CACHE_CAPACITY,
                     AbstractTripleStore.Options.DEFAULT_TERM_CACHE_CAPACITY));
 
+            final TermCachePolicyEnum termCachePolicy = TermCachePolicyEnum
+                    .valueOf(getProperty(
+                            AbstractTripleStore.Options.TERM_CACHE_POLICY,
+                            AbstractTripleStore.Options.DEFAULT_TERM_CACHE_POLICY));
+
             final Long commitTime = getCommitTime();
             
             if (commitTime != null && TimestampUtility.isReadOnly(timestamp)) {
@@ -540,23 +557,38 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                  * store.
                  */
                 termCache = termCacheFactory.getInstance(new NT(namespace,
-                        commitTime.longValue()), termCacheCapacity * 2);
+                        commitTime.longValue()), new TermCacheConfig(
+                        termCachePolicy, termCacheCapacity * 2));
 
             } else {
 
                 /*
                  * Unshared for any other view of the triple store.
                  */
-                termCache = new TermCache<IV<?,?>, BigdataValue>(//
-                        new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?,?>, BigdataValue>(//
-                        termCacheCapacity, // queueCapacity
-                        .75f, // loadFactor (.75 is the default)
-                        16 // concurrency level (16 is the default)
-                ));
+                termCache = termCachePolicy.newInstance(termCacheCapacity);
 
             }
             
         }
+
+        {
+
+            directTermCacheCapacity = Long.parseLong(getProperty(
+                    AbstractTripleStore.Options.DIRECT_TERM_CACHE_CAPACITY,
+                    AbstractTripleStore.Options.DEFAULT_DIRECT_TERM_CACHE_CAPACITY));
+
+            if (directTermCacheCapacity < 0L)
+                throw new IllegalArgumentException(
+                        AbstractTripleStore.Options.DIRECT_TERM_CACHE_CAPACITY
+                                + "=" + directTermCacheCapacity);
+
+            final String file = getProperty(
+                    AbstractTripleStore.Options.DIRECT_TERM_CACHE_WARMUP_FILE,
+                    null/* default */);
+
+            directTermCacheWarmupFile = file == null ? null : new File(file);
+
+        }
         
         {
             
@@ -832,6 +864,8 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
             valueFactory.remove(/*getNamespace()*/);
 
             termCache.clear();
+
+            closeDirectTermCaches(getNamespace(), false/* writeWarmupFile */);
             
             super.destroy();
 
@@ -2770,6 +2804,11 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
         int numNotFound = 0;
 
         final boolean isDebugEnabled = log.isDebugEnabled();
+
+        final DirectTermCache directTermCache = getDirectTermCache();
+
+        final IKeyBuilder keyBuilder = directTermCache == null ? null
+                : KeyBuilder.newInstance();
         
         for (IV<?,?> iv : ivs) {
             
@@ -2809,6 +2848,22 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
 
                 }
 
+                if (directTermCache != null) {
+
+                    final byte[] data = directTermCache.get(iv.encode(
+                            keyBuilder.reset()).getKey());
+
+                    if (data != null) {
+
+                        // resolved without reading on an index.
+                        ret.put(iv, cacheTerm(iv, data));
+
+                        continue;
+
+                    }
+
+                }
+
                 // We will need to read on an index.
                 numNotFound++;
 
@@ -2852,14 +2907,16 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
 	        if (!termIVs.isEmpty()) {
 	
 	            tasks.add(new BatchResolveTermIVsTask(service, getId2TermIndex(),
-	                    termIVs, ret, termCache, valueFactory, termsChunksSize));
+	                    termIVs, ret, termCache, directTermCache, valueFactory,
+	                    termsChunksSize));
 	
 	        }
 	
 	        if (!blobIVs.isEmpty()) {
 	
 	            tasks.add(new BatchResolveBlobIVsTask(service, getBlobsIndex(),
-	                    blobIVs, ret, termCache, valueFactory, blobsChunkSize));
+	                    blobIVs, ret, termCache, directTermCache, valueFactory,
+	                    blobsChunkSize));
 	
 	        }
 	
@@ -3050,22 +3107,317 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
     /**
      * Factory used for {@link #termCache} for read-only views of the lexicon.
      */
-    static private CanonicalFactory<NT/* key */, ITermCache<IV<?,?>, BigdataValue>, Integer/* state */> termCacheFactory = new CanonicalFactory<NT, ITermCache<IV<?,?>, BigdataValue>, Integer>(
+    static private CanonicalFactory<NT/* key */, ITermCache<IV<?,?>, BigdataValue>, TermCacheConfig/* state */> termCacheFactory = new CanonicalFactory<NT, ITermCache<IV<?,?>, BigdataValue>, TermCacheConfig>(
             1/* queueCapacity */) {
         @Override
         protected ITermCache<IV<?,?>, BigdataValue> newInstance(
-                NT key, Integer termCacheCapacity) {
-            return new TermCache<IV<?,?>,BigdataValue>(//
-                    new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?,?>, BigdataValue>(//
-                    termCacheCapacity.intValue(),// backing hard reference LRU queue capacity.
-                    .75f, // loadFactor (.75 is the default)
-                    16 // concurrency level (16 is the default)
-            ));
+                NT key, TermCacheConfig config) {
+            return config.policy.newInstance(config.capacity);
         }
     };
+
+    /**
+     * The configuration used to create a shared term cache.
+     */
+    private static class TermCacheConfig {
+
+        final TermCachePolicyEnum policy;
+
+        final int capacity;
+
+        TermCacheConfig(final TermCachePolicyEnum policy, final int capacity) {
+            this.policy = policy;
+            this.capacity = capacity;
+        }
+
+    }
+
+    /**
+     * The maximum #of bytes of native memory for the {@link DirectTermCache}
+     * (zero iff the cache is disabled).
+     * 
+     * @see AbstractTripleStore.Options#DIRECT_TERM_CACHE_CAPACITY
+     */
+    private final long directTermCacheCapacity;
+
+    /**
+     * The file used to warm up the {@link DirectTermCache} (optional).
+     * 
+     * @see AbstractTripleStore.Options#DIRECT_TERM_CACHE_WARMUP_FILE
+     */
+    private final File directTermCacheWarmupFile;
+
+    /**
+     * The {@link DirectTermCache} for this view (set lazily).
+     */
+    private volatile DirectTermCache directTermCache;
+
+    /**
+     * The {@link DirectTermCache}s, keyed by the {@link UUID} of the ID2TERM
+     * index. The cache is shared by all read-only views of the lexicon. Unlike
+     * the {@link #termCacheFactory}, the caches are held by hard references
+     * since they are too expensive to rebuild. They are closed when the term
+     * caches for the namespace are cleared or when the lexicon is destroyed.
+     * <p>
+     * Note: The {@link UUID} of the index prevents a cache being reused across
+     * a drop/create sequence for the triple store or by another database
+     * instance having the same namespace.
+     */
+    static private final ConcurrentHashMap<UUID, DirectTermCacheEntry> directTermCaches = new ConcurrentHashMap<UUID, DirectTermCacheEntry>();
+
+    /**
+     * A shared {@link DirectTermCache} and its configuration.
+     */
+    private static class DirectTermCacheEntry {
+
+        final String namespace;
+
+        final File warmupFile;
+
+        final DirectTermCache cache;
+
+        DirectTermCacheEntry(final String namespace, final File warmupFile,
+                final DirectTermCache cache) {
+            this.namespace = namespace;
+            this.warmupFile = warmupFile;
+            this.cache = cache;
+        }
+
+    }
+
+    /**
+     * Return the {@link DirectTermCache} for this view of the lexicon.
+     * 
+     * @return The cache -or- <code>null</code> if the cache is disabled or
+     *         this is not a read-only view.
+     */
+    private DirectTermCache getDirectTermCache() {
+
+        if (directTermCacheCapacity == 0L
+                || !TimestampUtility.isReadOnly(getTimestamp())) {
+
+            /*
+             * Note: Only committed state may be cached since a term identifier
+             * may be reassigned if an unisolated write set is discarded.
+             */
+            return null;
+
+        }
+
+        DirectTermCache cache = directTermCache;
+
+        if (cache == null) {
+
+            final UUID uuid = getId2TermIndex().getIndexMetadata()
+                    .getIndexUUID();
+
+            DirectTermCacheEntry entry = directTermCaches.get(uuid);
+
+            if (entry == null) {
+
+                final DirectTermCacheEntry tmp = new DirectTermCacheEntry(
+                        getNamespace(), directTermCacheWarmupFile,
+                        new DirectTermCache(directTermCacheCapacity, 2 * Runtime
+                                .getRuntime().availableProcessors()/* concurrencyLevel */));
+
+                entry = directTermCaches.putIfAbsent(uuid, tmp);
+
+                if (entry == null) {
+
+                    entry = tmp;
+
+                    if (entry.warmupFile != null && entry.warmupFile.exists()) {
+
+                        warmUpDirectTermCache(entry);
+
+                    }
+
+                } else {
+
+                    // Lost the race. Note: Nothing was allocated.
+                    tmp.cache.close();
+
+                }
+
+            }
+
+            directTermCache = cache = entry.cache;
+
+        }
+
+        return cache.isOpen() ? cache : null;
+
+    }
+
+    /**
+     * Materialize the {@link IV}s listed in the warm up file in the background
+     * in order to populate the {@link DirectTermCache}.
+     */
+    private void warmUpDirectTermCache(final DirectTermCacheEntry entry) {
+
+        getExecutorService().submit(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+
+                final long begin = System.currentTimeMillis();
+
+                try {
+
+                    final List<byte[]> keys;
+                    final DataInputStream in = new DataInputStream(
+                            new BufferedInputStream(new FileInputStream(
+                                    entry.warmupFile)));
+                    try {
+                        keys = DirectTermCache.readKeys(in, Integer.MAX_VALUE);
+                    } finally {
+                        in.close();
+                    }
+
+                    final int chunkSize = 10000;
+
+                    final List<IV<?, ?>> ivs = new ArrayList<IV<?, ?>>(chunkSize);
+
+                    for (byte[] key : keys) {
+
+                        ivs.add(IVUtility.decode(key));
+
+                        if (ivs.size() == chunkSize) {
+
+                            getTerms(ivs);
+
+                            ivs.clear();
+
+                        }
+
+                    }
+
+                    if (!ivs.isEmpty())
+                        getTerms(ivs);
+
+                    if (log.isInfoEnabled())
+                        log.info("namespace=" + entry.namespace + ", nkeys="
+                                + keys.size() + ", elapsed="
+                                + (System.currentTimeMillis() - begin) + "ms, "
+                                + entry.cache);
+
+                } catch (Throwable t) {
+
+                    // The cache is still usable, but it may be cold.
+                    log.warn("Could not warm up the direct term cache: namespace="
+                            + entry.namespace + ", file=" + entry.warmupFile, t);
+
+                }
+
+                return null;
+
+            }
+
+        });
+
+    }
+
+    /**
+     * Close the {@link DirectTermCache}s for the namespace.
+     * 
+     * @param namespace
+     *            The namespace of the triple store.
+     * @param writeWarmupFile
+     *            When <code>true</code> the keys of the entries in each cache
+     *            are first written onto its warm up file (if any).
+     */
+    static private void closeDirectTermCaches(final String namespace,
+            final boolean writeWarmupFile) {
+
+        final Iterator<DirectTermCacheEntry> it = directTermCaches.values()
+                .iterator();
+
+        while (it.hasNext()) {
+
+            final DirectTermCacheEntry entry = it.next();
+
+            if (!entry.namespace.equals(namespace))
+                continue;
+
+            it.remove();
+
+            if (writeWarmupFile && entry.warmupFile != null
+                    && entry.cache.size() > 0) {
+
+                try {
+
+                    final DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(
+                                    entry.warmupFile)));
+                    try {
+                        entry.cache.writeKeys(out, Integer.MAX_VALUE);
+                    } finally {
+                        out.close();
+                    }
+
+                } catch (IOException ex) {
+
+                    log.warn("Could not write the warm up file: " + entry.warmupFile, ex);
+
+                }
+
+            }
+
+            entry.cache.close();
+
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reports the size of the term cache and, if the cache reports its own
+     * counters (e.g., {@link TermCachePolicyEnum#TinyLFU}), its hits, misses
+     * and evictions.
+     */
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        final CounterSet tmp = root.makePath("termCache");
+
+        if (termCache instanceof ICounterSetAccess) {
+
+            tmp.attach(((ICounterSetAccess) termCache).getCounters());
+
+        } else {
+
+            tmp.addCounter("size", new Instrument<Integer>() {
+                @Override
+                protected void sample() {
+                    setValue(termCache.size());
+                }
+            });
+
+        }
+
+        tmp.addCounter("class", new OneShotInstrument<String>(termCache
+                .getClass().getName()));
+
+        final DirectTermCache directTermCache = this.directTermCache;
+
+        if (directTermCache != null) {
+
+            root.makePath("directTermCache").attach(
+                    directTermCache.getCounters());
+
+        }
+
+        return root;
+
+    }
     
     /**
-     * Clear all term caches for the supplied namespace.
+     * Clear all term caches for the supplied namespace. The keys of the most
+     * recently used entries in the {@link DirectTermCache} are written onto
+     * its warm up file (if configured) before the cache is closed.
      */
     @SuppressWarnings("rawtypes")
     static public void clearTermCacheFactory(final String namespace) {
@@ -3077,6 +3429,8 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                 it.remove();
             }
         }
+
+        closeDirectTermCaches(namespace, true/* writeWarmupFile */);
         
     }
     
@@ -3241,26 +3595,25 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
         
         final byte[] key = tupleSer.id2key(iv);
 
-        final byte[] data = ndx.lookup(key);
+        final DirectTermCache directTermCache = getDirectTermCache();
 
-        if (data == null)
-            return null;
+        byte[] data = directTermCache == null ? null : directTermCache
+                .get(key);
 
-        // This also sets the value factory.
-        BigdataValue value = valueFactory.getValueSerializer().deserialize(data);
-        
-        // This sets the term identifier.
-        value.setIV(iv);
+        if (data == null) {
 
-        // Note: passing the IV object as the key.
-        final BigdataValue tmp = termCache.putIfAbsent(iv, value);
+            data = ndx.lookup(key);
 
-        if (tmp != null) {
+            if (data == null)
+                return null;
 
-            value = tmp;
+            if (directTermCache != null)
+                directTermCache.putIfAbsent(key, data);
 
         }
 
+        final BigdataValue value = cacheTerm(iv, data);
+
 //        assert value.getIV() == iv : "expecting iv=" + iv + ", but found "
 //                + value.getIV();
         //        value.setTermId( id );
@@ -3278,10 +3631,46 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
         
         final byte[] key = tupleSer.serializeKey(iv);
 
-        final byte[] data = ndx.lookup(key);
+        final DirectTermCache directTermCache = getDirectTermCache();
 
-        if (data == null)
-            return null;
+        byte[] data = directTermCache == null ? null : directTermCache
+                .get(key);
+
+        if (data == null) {
+
+            data = ndx.lookup(key);
+
+            if (data == null)
+                return null;
+
+            if (directTermCache != null)
+                directTermCache.putIfAbsent(key, data);
+
+        }
+
+        final BigdataValue value = cacheTerm(iv, data);
+        
+// Note: This assert could be tripped by a data race on the cache, which is not an error.
+//        assert value.getIV() == iv : "expecting iv=" + iv + ", but found "
+//                + value.getIV();
+//        //        value.setTermId( id );
+
+        return value;
+
+    }
+
+    /**
+     * De-serialize a value read from the ID2TERM or BLOBS index (or from the
+     * {@link DirectTermCache}) and add it to the {@link #termCache}.
+     * 
+     * @param iv
+     *            The {@link TermId} or {@link BlobIV}.
+     * @param data
+     *            The serialized value.
+     * 
+     * @return The value in the {@link #termCache}.
+     */
+    private BigdataValue cacheTerm(final IV<?, ?> iv, final byte[] data) {
 
         // This also sets the value factory.
         BigdataValue value = valueFactory.getValueSerializer().deserialize(data);
@@ -3297,11 +3686,6 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
             value = tmp;
 
         }
-        
-// Note: This assert could be tripped by a data race on the cache, which is not an error.
-//        assert value.getIV() == iv : "expecting iv=" + iv + ", but found "
-//                + value.getIV();
-//        //        value.setTermId( id );
 
         return value;
 
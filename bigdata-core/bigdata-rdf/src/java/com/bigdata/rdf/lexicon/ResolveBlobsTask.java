@@ -33,6 +33,7 @@ class ResolveBlobsTask implements Callable<Void> {
     private final BlobIV<?>[] notFound;
     private final ConcurrentHashMap<IV<?,?>, BigdataValue> map;
     private final ITermCache<IV<?,?>, BigdataValue> termCache;
+    private final DirectTermCache directTermCache;
     private final BigdataValueFactory valueFactory;
     
     /**
@@ -58,12 +59,16 @@ class ResolveBlobsTask implements Callable<Void> {
      *            in which case the updates to the map can be concurrent.
      * @param termCache
      *            The term cache.
+     * @param directTermCache
+     *            The native memory cache for the serialized values
+     *            (optional).
      */
     @SuppressWarnings("unchecked")
     ResolveBlobsTask(final IIndex ndx, final int fromIndex,
             final int toIndex, final byte[][] keys, final BlobIV[] notFound,
             final ConcurrentHashMap<IV<?, ?>, BigdataValue> map,
             final ITermCache<IV<?,?>, BigdataValue> termCache,
+            final DirectTermCache directTermCache,
             final BigdataValueFactory valueFactory) {
 
         this.ndx = ndx;
@@ -73,6 +78,7 @@ class ResolveBlobsTask implements Callable<Void> {
         this.notFound = notFound;
         this.map = map;
         this.termCache = termCache;
+        this.directTermCache = directTermCache;
         this.valueFactory = valueFactory;
 
     }
@@ -112,6 +118,12 @@ class ResolveBlobsTask implements Callable<Void> {
 
                 }
 
+                if (directTermCache != null) {
+
+                    directTermCache.putIfAbsent(keys[i], data);
+
+                }
+
                 /*
                  * Note: This automatically sets the valueFactory reference
                  * on the de-serialized value.
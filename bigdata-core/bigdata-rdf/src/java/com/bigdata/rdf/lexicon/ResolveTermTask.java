@@ -34,6 +34,7 @@ class ResolveTermTask implements Callable<Void> {
     private final TermId<?>[] notFound;
     private final ConcurrentHashMap<IV<?,?>, BigdataValue> map;
     private final ITermCache<IV<?,?>, BigdataValue> termCache;
+    private final DirectTermCache directTermCache;
     private final BigdataValueFactory valueFactory;
 
     /**
@@ -57,11 +58,17 @@ class ResolveTermTask implements Callable<Void> {
      *            identifier as the key. This is a concurrent map because
      *            the operation may have been split across multiple shards,
      *            in which case the updates to the map can be concurrent.
+     * @param termCache
+     *            The term cache.
+     * @param directTermCache
+     *            The native memory cache for the serialized values
+     *            (optional).
      */
     ResolveTermTask(final IIndex ndx, final int fromIndex,
             final int toIndex, final byte[][] keys, final TermId<?>[] notFound,
             final ConcurrentHashMap<IV<?,?>, BigdataValue> map,
             final ITermCache<IV<?,?>, BigdataValue> termCache,
+            final DirectTermCache directTermCache,
             final BigdataValueFactory valueFactory) {
 
         this.ndx = ndx;
@@ -71,6 +78,7 @@ class ResolveTermTask implements Callable<Void> {
         this.notFound = notFound;
         this.map = map;
         this.termCache = termCache;
+        this.directTermCache = directTermCache;
         this.valueFactory = valueFactory;
 
     }
@@ -107,6 +115,12 @@ class ResolveTermTask implements Callable<Void> {
 
                 }
 
+                if (directTermCache != null) {
+
+                    directTermCache.putIfAbsent(keys[i], data);
+
+                }
+
                 /*
                  * Note: This automatically sets the valueFactory reference
                  * on the de-serialized value.
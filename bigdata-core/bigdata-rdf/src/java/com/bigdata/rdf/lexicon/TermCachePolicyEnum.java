@@ -0,0 +1,96 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.rdf.lexicon;
+
+import com.bigdata.cache.ConcurrentWeakValueCacheWithBatchedUpdates;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * Type safe enumeration of the term cache implementations for the
+ * {@link LexiconRelation}.
+ *
+ * @see AbstractTripleStore.Options#TERM_CACHE_POLICY
+ */
+public enum TermCachePolicyEnum {
+
+    /**
+     * A {@link TermCache} backed by a
+     * {@link ConcurrentWeakValueCacheWithBatchedUpdates}. The values are
+     * weakly reachable and a hard reference LRU queue whose capacity is the
+     * configured term cache capacity keeps the most recently used values
+     * reachable.
+     */
+    WeakValueLRU {
+
+        @Override
+        public ITermCache<IV<?, ?>, BigdataValue> newInstance(
+                final int capacity) {
+
+            return new TermCache<IV<?, ?>, BigdataValue>(//
+                    new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?, ?>, BigdataValue>(//
+                            capacity, // backing hard reference LRU queue capacity.
+                            .75f, // loadFactor (.75 is the default)
+                            16 // concurrency level (16 is the default)
+                    ));
+
+        }
+
+    },
+
+    /**
+     * A {@link TinyLFUTermCache}. The values are held by hard references in a
+     * sharded cache bounded by the configured term cache capacity. Lookups are
+     * lock-free and the W-TinyLFU policy is resistant to scans over low
+     * frequency terms.
+     */
+    TinyLFU {
+
+        @Override
+        public ITermCache<IV<?, ?>, BigdataValue> newInstance(
+                final int capacity) {
+
+            return new TinyLFUTermCache<IV<?, ?>, BigdataValue>(capacity,
+                    2 * Runtime.getRuntime().availableProcessors()/* concurrencyLevel */);
+
+        }
+
+    };
+
+    /**
+     * Return a new term cache.
+     *
+     * @param capacity
+     *            The term cache capacity.
+     */
+    abstract public ITermCache<IV<?, ?>, BigdataValue> newInstance(
+            final int capacity);
+
+}
@@ -0,0 +1,152 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.rdf.lexicon;
+
+import com.bigdata.cache.ConcurrentTinyLFUCache;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataValue;
+
+/**
+ * A term cache backed by a {@link ConcurrentTinyLFUCache}. Unlike the
+ * {@link TermCache}, the values are held by hard references and the size of
+ * the cache is bounded by its capacity. Lookups do not take any locks and the
+ * W-TinyLFU policy keeps frequently used terms in the cache when a query
+ * materializes many low frequency terms.
+ *
+ * @see TermCachePolicyEnum#TinyLFU
+ */
+public class TinyLFUTermCache<K extends IV<?, ?>, V extends BigdataValue>
+        implements ITermCache<K, V>, ICounterSetAccess {
+
+    private final ConcurrentTinyLFUCache<IV<?, ?>, V> delegate;
+
+    /**
+     * @param capacity
+     *            The maximum #of terms in the cache.
+     * @param concurrencyLevel
+     *            The desired #of shards.
+     */
+    public TinyLFUTermCache(final int capacity, final int concurrencyLevel) {
+
+        this.delegate = new ConcurrentTinyLFUCache<IV<?, ?>, V>(capacity,
+                concurrencyLevel);
+
+    }
+
+    @Override
+    public int size() {
+
+        return delegate.size();
+
+    }
+
+    @Override
+    public V get(final K k) {
+
+        return delegate.get(k);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The {@link IV} is cloned with its cached value cleared so the key
+     * does not pin a second {@link BigdataValue} for the same term.
+     */
+    @Override
+    public V putIfAbsent(final K k, final V v) {
+
+        final V tmp = delegate.get(k);
+
+        if (tmp != null) {
+
+            // No need to write on the map.
+            return tmp;
+
+        }
+
+        return delegate.putIfAbsent(k.clone(true/* clearCache */), v);
+
+    }
+
+    @Override
+    public void clear() {
+
+        delegate.clear();
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("capacity", new OneShotInstrument<Integer>(
+                delegate.capacity()));
+
+        root.addCounter("shards", new OneShotInstrument<Integer>(
+                delegate.getShardCount()));
+
+        root.addCounter("size", new Instrument<Integer>() {
+            @Override
+            protected void sample() {
+                setValue(delegate.size());
+            }
+        });
+
+        root.addCounter("hits", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(delegate.getHitCount());
+            }
+        });
+
+        root.addCounter("misses", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(delegate.getMissCount());
+            }
+        });
+
+        root.addCounter("evictions", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(delegate.getEvictionCount());
+            }
+        });
+
+        return root;
+
+    }
+
+}
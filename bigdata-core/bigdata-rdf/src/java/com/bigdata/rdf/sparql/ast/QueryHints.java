@@ -32,12 +32,19 @@ import java.util.UUID;
 import com.bigdata.bop.BufferAnnotations;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.ap.SampleIndex.SampleType;
+import com.bigdata.bop.controller.NamedSetAnnotations;
 import com.bigdata.bop.engine.IChunkHandler;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
 import com.bigdata.bop.join.HashJoinAnnotations;
 import com.bigdata.bop.join.JoinAnnotations;
+import com.bigdata.bop.join.LeapfrogTriejoinOp;
+import com.bigdata.bop.join.PipelineJoin;
+import com.bigdata.bop.solutions.MemorySortOp;
+import com.bigdata.bop.solutions.NativeGroupByOp;
+import com.bigdata.bop.solutions.NativeSortOp;
+import com.bigdata.bop.solutions.PartialAggregationOp;
 import com.bigdata.htree.HTree;
 import com.bigdata.io.DirectBufferPool;
 import com.bigdata.rdf.sparql.ast.cache.CacheConnectionFactory;
@@ -271,6 +278,54 @@ public interface QueryHints {
                     IChunkHandler.class, // sharedInterface,
                     IChunkHandler.class.getClassLoader() // classLoader
               );
+
+    /**
+     * The relative weight of the query when the operator evaluation tasks of
+     * concurrent queries share the work stealing scheduler of the standalone
+     * query engine (default {@value #DEFAULT_QUERY_PRIORITY}). A query with a
+     * priority of <code>2</code> may run twice as many concurrent operator
+     * tasks as a query with a priority of <code>1</code>. This hint is ignored
+     * unless the work stealing scheduler is in use.
+     * 
+     * @see QueryEngine.Annotations#PRIORITY
+     * @see QueryEngine.Options#SCHEDULER
+     */
+    String QUERY_PRIORITY = "queryPriority";
+
+    int DEFAULT_QUERY_PRIORITY = Integer.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + QUERY_PRIORITY,
+            Integer.toString(QueryEngine.Annotations.DEFAULT_PRIORITY)));
+
+    /**
+     * When <code>true</code>, the hash index built for a named subquery
+     * publishes a compact summary (a bloom filter and the value range) of the
+     * bindings of each join variable once the named subquery is done. The
+     * statement pattern joins in a join group which INCLUDEs that named
+     * solution set use the summary to discard tuples which can not join with
+     * the named solution set before they are materialized as solutions
+     * (sideways information passing).
+     * 
+     * @see NamedSetAnnotations#SIDEWAYS_FILTER
+     * @see PipelineJoin.Annotations#SIDEWAYS_FILTERS
+     */
+    String SIDEWAYS_FILTER = "sidewaysFilter";
+
+    boolean DEFAULT_SIDEWAYS_FILTER = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + SIDEWAYS_FILTER, "false"));
+
+    /**
+     * When <code>true</code>, a run of three or more required statement
+     * patterns in a join group whose join graph is cyclic (triangles, cliques)
+     * is evaluated by a single worst-case optimal join which binds one variable
+     * at a time rather than by a sequence of pipeline joins. This is only done
+     * for triples mode stores on a standalone database.
+     * 
+     * @see LeapfrogTriejoinOp
+     */
+    String LEAPFROG_TRIEJOIN = "leapfrogTriejoin";
+
+    boolean DEFAULT_LEAPFROG_TRIEJOIN = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + LEAPFROG_TRIEJOIN, "false"));
     
     /**
      * When <code>true</code>, will use the version of DISTINCT SOLUTIONS based
@@ -283,6 +338,42 @@ public interface QueryHints {
 
     boolean DEFAULT_NATIVE_DISTINCT_SOLUTIONS = DEFAULT_ANALYTIC;
 
+    /**
+     * When <code>true</code>, ORDER BY uses the {@link NativeSortOp}, which
+     * writes sorted runs onto the native heap (and then onto a temporary store)
+     * and merges them. When <code>false</code>, ORDER BY uses the
+     * {@link MemorySortOp}, which sorts all solutions on the JVM heap. The
+     * {@link NativeSortOp} is always used when the ORDER BY is followed by a
+     * small enough LIMIT since it can then retain just the top-K solutions.
+     */
+    String NATIVE_ORDER_BY = "nativeOrderBy";
+
+    boolean DEFAULT_NATIVE_ORDER_BY = DEFAULT_ANALYTIC;
+
+    /**
+     * When <code>true</code>, a GROUP BY whose aggregates are COUNT, SUM, AVG,
+     * MIN or MAX (without DISTINCT) uses the {@link NativeGroupByOp}, which
+     * keeps compact per-group state and spills the solutions for the groups
+     * which do not fit within its bound onto the native heap (and then onto a
+     * temporary store).
+     */
+    String NATIVE_GROUP_BY = "nativeGroupBy";
+
+    boolean DEFAULT_NATIVE_GROUP_BY = DEFAULT_ANALYTIC;
+
+    /**
+     * When <code>true</code>, a GROUP BY whose aggregates are COUNT, SUM, AVG,
+     * MIN or MAX (without DISTINCT) is evaluated in two phases: a
+     * {@link PartialAggregationOp} accumulates partial aggregates in parallel
+     * as the solutions arrive, keeping one partial state per concurrent task
+     * across the chunks, and a {@link NativeGroupByOp} on the query controller
+     * combines them. Aggregations using DISTINCT, GROUP_CONCAT or SAMPLE are
+     * always evaluated by a single operator.
+     */
+    String PARTIAL_AGGREGATION = "partialAggregation";
+
+    boolean DEFAULT_PARTIAL_AGGREGATION = true;
+
     /**
      * When <code>true</code> and the range count of the default graph access
      * path exceeds the {@link #NATIVE_DISTINCT_SPO_THRESHOLD}, will use the
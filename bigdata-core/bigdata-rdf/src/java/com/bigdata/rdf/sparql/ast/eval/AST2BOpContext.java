@@ -189,6 +189,29 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      */
     public boolean nativeDistinctSolutions = QueryHints.DEFAULT_NATIVE_DISTINCT_SOLUTIONS;
 
+    /**
+     * When <code>true</code>, will use the external memory ORDER BY operator.
+     * 
+     * @see QueryHints#NATIVE_ORDER_BY
+     */
+    public boolean nativeOrderBy = QueryHints.DEFAULT_NATIVE_ORDER_BY;
+
+    /**
+     * When <code>true</code>, will use the GROUP BY operator which spills
+     * onto the native heap when it is applicable.
+     * 
+     * @see QueryHints#NATIVE_GROUP_BY
+     */
+    public boolean nativeGroupBy = QueryHints.DEFAULT_NATIVE_GROUP_BY;
+
+    /**
+     * When <code>true</code>, a decomposable GROUP BY is evaluated as partial
+     * aggregates computed in parallel which are then combined.
+     * 
+     * @see QueryHints#PARTIAL_AGGREGATION
+     */
+    public boolean partialAggregation = QueryHints.DEFAULT_PARTIAL_AGGREGATION;
+
     /**
      * Controls whether the intermediate solution chunks on the query engine
      * operator input queues are stored on the native heap and/or the managed
@@ -199,6 +222,30 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      */
     public IChunkHandler queryEngineChunkHandler = QueryHints.DEFAULT_QUERY_ENGINE_CHUNK_HANDLER;
 
+    /**
+     * The relative weight of the query for the work stealing scheduler of the
+     * query engine.
+     * 
+     * @see QueryHints#QUERY_PRIORITY
+     */
+    public int queryPriority = QueryHints.DEFAULT_QUERY_PRIORITY;
+
+    /**
+     * When <code>true</code>, named subqueries publish sideways filters for
+     * the joins which INCLUDE their solution sets.
+     * 
+     * @see QueryHints#SIDEWAYS_FILTER
+     */
+    public boolean sidewaysFilter = QueryHints.DEFAULT_SIDEWAYS_FILTER;
+
+    /**
+     * When <code>true</code>, cyclic runs of statement patterns are evaluated
+     * by a leapfrog triejoin.
+     * 
+     * @see QueryHints#LEAPFROG_TRIEJOIN
+     */
+    public boolean leapfrogTriejoin = QueryHints.DEFAULT_LEAPFROG_TRIEJOIN;
+
     /**
      * 
      * When <code>true</code>, use hash index operations based on the
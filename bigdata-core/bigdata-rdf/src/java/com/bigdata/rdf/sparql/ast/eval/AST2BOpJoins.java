@@ -61,6 +61,7 @@ import com.bigdata.bop.join.HashJoinAnnotations;
 import com.bigdata.bop.join.HashJoinOp;
 import com.bigdata.bop.join.JVMHashJoinOp;
 import com.bigdata.bop.join.JoinAnnotations;
+import com.bigdata.bop.join.LeapfrogTriejoinOp;
 import com.bigdata.bop.join.PipelineJoin;
 import com.bigdata.bop.rdf.filter.NativeDistinctFilter;
 import com.bigdata.bop.rdf.filter.StripContextFilter;
@@ -184,11 +185,23 @@ public class AST2BOpJoins extends AST2BOpFilters {
         final DatasetNode dataset = (DatasetNode) pred
                 .getProperty(Annotations.DATASET);
 
+        // the hash indices which may publish sideways filters for this join.
+        final Object sidewaysFilters = pred
+                .getProperty(PipelineJoin.Annotations.SIDEWAYS_FILTERS);
+
+        if (sidewaysFilters != null && cutoffLimit == null) {
+
+            anns.add(new NV(PipelineJoin.Annotations.SIDEWAYS_FILTERS,
+                    sidewaysFilters));
+
+        }
+
         // strip off annotations that we do not want to propagate.
 		pred = pred.clearAnnotations(new String[] { Annotations.SCOPE,
 				Annotations.QUADS, Annotations.DATASET,
 				StatementPatternNode.Annotations.DISTINCT_TERM_SCAN_VAR,
-				StatementPatternNode.Annotations.FAST_RANGE_COUNT_VAR });
+				StatementPatternNode.Annotations.FAST_RANGE_COUNT_VAR,
+				PipelineJoin.Annotations.SIDEWAYS_FILTERS });
 
 		if (fastRangeCountVar != null) {
 
@@ -372,6 +385,57 @@ public class AST2BOpJoins extends AST2BOpFilters {
 		
 	}
 
+    /**
+     * Generate a {@link LeapfrogTriejoinOp} for a run of required statement
+     * patterns whose join graph is cyclic. The predicates are evaluated
+     * together by binding one variable at a time rather than by a sequence of
+     * {@link PipelineJoin}s.
+     * <p>
+     * Note: This is only used for triples mode on a standalone database. The
+     * statement patterns MUST NOT have attached join filters.
+     * 
+     * @param left
+     * @param preds
+     *            The predicates for the statement patterns.
+     * @param queryHints
+     * @param ctx
+     * 
+     * @return The join operator.
+     * 
+     * @see QueryHints#LEAPFROG_TRIEJOIN
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static PipelineOp leapfrogTriejoin(//
+            final PipelineOp left,//
+            final List<Predicate<?>> preds,//
+            final Properties queryHints,//
+            final AST2BOpContext ctx//
+            ) {
+
+        final IPredicate[] a = new IPredicate[preds.size()];
+
+        int i = 0;
+
+        for (Predicate<?> pred : preds) {
+
+            // strip off annotations that we do not want to propagate.
+            a[i++] = pred.clearAnnotations(new String[] { Annotations.SCOPE,
+                    Annotations.QUADS, Annotations.DATASET,
+                    StatementPatternNode.Annotations.DISTINCT_TERM_SCAN_VAR,
+                    StatementPatternNode.Annotations.FAST_RANGE_COUNT_VAR,
+                    PipelineJoin.Annotations.SIDEWAYS_FILTERS });
+
+        }
+
+        return applyQueryHints(new LeapfrogTriejoinOp(leftOrEmpty(left),//
+                new NV(BOp.Annotations.BOP_ID, ctx.nextId()),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.ANY),//
+                new NV(LeapfrogTriejoinOp.Annotations.PREDICATES, a)//
+                ), queryHints, ctx);
+
+    }
+
 	/**
      * Generate a {@link PipelineJoin} for a triples mode access path.
      * 
@@ -1186,6 +1250,14 @@ public class AST2BOpJoins extends AST2BOpFilters {
             map.put(PipelineJoin.Annotations.MAX_PARALLEL_CHUNKS,
                     Integer.valueOf(0));
 
+            // disallow parallel scans of access path morsels.
+            map.put(PipelineJoin.Annotations.MORSEL_PARALLELISM,
+                    Integer.valueOf(0));
+
+            // do not switch to a hash join based on the cutoff sample.
+            map.put(PipelineJoin.Annotations.ADAPTIVE_HASH_JOIN,
+                    Boolean.FALSE);
+
             // disable access path coalescing
             map.put(PipelineJoin.Annotations.COALESCE_DUPLICATE_ACCESS_PATHS,
                     Boolean.FALSE);
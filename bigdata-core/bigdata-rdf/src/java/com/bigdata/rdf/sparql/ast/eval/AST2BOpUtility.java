@@ -69,6 +69,7 @@ import com.bigdata.bop.join.JVMSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinAnnotations;
 import com.bigdata.bop.join.JoinTypeEnum;
 import com.bigdata.bop.join.NestedLoopJoinOp;
+import com.bigdata.bop.join.PipelineJoin;
 import com.bigdata.bop.join.PipelinedHashIndexAndSolutionSetJoinOp;
 import com.bigdata.bop.join.SolutionSetHashJoinOp;
 import com.bigdata.bop.paths.ArbitraryLengthPathOp;
@@ -89,6 +90,9 @@ import com.bigdata.bop.solutions.IVComparator;
 import com.bigdata.bop.solutions.JVMDistinctBindingSetsOp;
 import com.bigdata.bop.solutions.MemoryGroupByOp;
 import com.bigdata.bop.solutions.MemorySortOp;
+import com.bigdata.bop.solutions.NativeGroupByOp;
+import com.bigdata.bop.solutions.NativeSortOp;
+import com.bigdata.bop.solutions.PartialAggregationOp;
 import com.bigdata.bop.solutions.PipelinedAggregationOp;
 import com.bigdata.bop.solutions.ProjectionOp;
 import com.bigdata.bop.solutions.SliceOp;
@@ -325,6 +329,13 @@ public class AST2BOpUtility extends AST2BOpRTO {
                     ctx.queryEngineChunkHandler
                     );
 
+            /*
+             * The weight of the query when sharing the work stealing scheduler
+             * with other queries.
+             */
+            left = (PipelineOp) left.setProperty(
+                    QueryEngine.Annotations.PRIORITY, ctx.queryPriority);
+
         }
 
         // Attach the query plan to the ASTContainer.
@@ -985,6 +996,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
                 new NV(HTreeNamedSubqueryOp.Annotations.RELATION_NAME, new String[]{ctx.getLexiconNamespace()}),//
                 new NV(HTreeNamedSubqueryOp.Annotations.SUBQUERY, subqueryPlan),//
                 new NV(HTreeNamedSubqueryOp.Annotations.JOIN_VARS, joinVars),//
+                new NV(NamedSetAnnotations.SIDEWAYS_FILTER, ctx.sidewaysFilter),//
                 new NV(NamedSetAnnotations.NAMED_SET_REF,
                                 namedSolutionSet)//
                 ), subqueryRoot, ctx);
@@ -998,6 +1010,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
                     new NV(PipelineOp.Annotations.SHARED_STATE, true),// live stats.
                     new NV(HTreeNamedSubqueryOp.Annotations.SUBQUERY, subqueryPlan),//
                     new NV(HTreeNamedSubqueryOp.Annotations.JOIN_VARS, joinVars),//
+                    new NV(NamedSetAnnotations.SIDEWAYS_FILTER, ctx.sidewaysFilter),//
                     new NV(NamedSetAnnotations.NAMED_SET_REF,
                                     namedSolutionSet)//
                     ), subqueryRoot, ctx);
@@ -1859,6 +1872,140 @@ public class AST2BOpUtility extends AST2BOpRTO {
         
     }
 
+	/**
+	 * Return the named solution sets which are INCLUDEd by the join group
+	 * using a required hash join against the hash index built by a named
+	 * subquery. Every solution produced by a required statement pattern join
+	 * in that group must join with those named solution sets, so those joins
+	 * may use the sideways filters published for the named solution sets.
+	 * 
+	 * @return The named solution sets -or- <code>null</code> if there are
+	 *         none.
+	 * 
+	 * @see QueryHints#SIDEWAYS_FILTER
+	 */
+	static private INamedSolutionSetRef[] getSidewaysFilters(
+			final JoinGroupNode joinGroup, final AST2BOpContext ctx) {
+
+		final List<INamedSolutionSetRef> refs = new LinkedList<INamedSolutionSetRef>();
+
+		for (IGroupMemberNode child : joinGroup) {
+
+			if (!(child instanceof NamedSubqueryInclude))
+				continue;
+
+			final NamedSubqueryInclude nsi = (NamedSubqueryInclude) child;
+
+			if (nsi.isOptional() || nsi.isMinus())
+				continue;
+
+			if (ctx.sa.getNamedSubqueryRoot(nsi.getName()) == null) {
+				// Not generated by a named subquery.
+				continue;
+			}
+
+			final VarNode[] joinVars = nsi.getJoinVars();
+
+			if (joinVars == null || joinVars.length == 0)
+				continue;
+
+			refs.add(NamedSolutionSetRefUtility.newInstance(ctx.queryId,
+					nsi.getName(), ASTUtil.convert(joinVars)));
+
+		}
+
+		return refs.isEmpty() ? null : refs
+				.toArray(new INamedSolutionSetRef[refs.size()]);
+
+	}
+
+	/**
+	 * Return the #of statement patterns in the run of required statement
+	 * patterns starting at the given index in the join group if that run has
+	 * at least three statement patterns and its join graph is cyclic, and
+	 * otherwise ZERO (0). Statement patterns having attached join filters, a
+	 * range constraint, or which are evaluated by a distinct term scan or a
+	 * fast range count end the run. This is only done in triples mode on a
+	 * standalone database.
+	 * 
+	 * @see QueryHints#LEAPFROG_TRIEJOIN
+	 */
+	static private int getCyclicJoinRun(final JoinGroupNode joinGroup,
+			final int start, final AST2BOpContext ctx) {
+
+		if (!ctx.isTriples() || ctx.isCluster())
+			return 0;
+
+		final List<StatementPatternNode> run = new LinkedList<StatementPatternNode>();
+
+		for (int i = start; i < joinGroup.arity(); i++) {
+
+			final IGroupMemberNode child = (IGroupMemberNode) joinGroup.get(i);
+
+			if (!(child instanceof StatementPatternNode))
+				break;
+
+			final StatementPatternNode sp = (StatementPatternNode) child;
+
+			if (sp.isOptional()
+					|| sp.getRange() != null
+					|| !sp.getAttachedJoinFilters().isEmpty()
+					|| sp.getProperty(StatementPatternNode.Annotations.DISTINCT_TERM_SCAN_VAR) != null
+					|| sp.getProperty(StatementPatternNode.Annotations.FAST_RANGE_COUNT_VAR) != null)
+				break;
+
+			run.add(sp);
+
+		}
+
+		if (run.size() < 3)
+			return 0;
+
+		/*
+		 * Union-find over the variables. A statement pattern which uses two
+		 * variables which are already connected closes a cycle.
+		 */
+		final Map<IVariable<?>, IVariable<?>> parent = new HashMap<IVariable<?>, IVariable<?>>();
+
+		boolean cyclic = false;
+
+		for (StatementPatternNode sp : run) {
+
+			final Set<IVariable<?>> vars = sp.getProducedBindings();
+
+			final Set<IVariable<?>> roots = new LinkedHashSet<IVariable<?>>();
+
+			for (IVariable<?> v : vars) {
+
+				IVariable<?> p;
+
+				while ((p = parent.get(v)) != null)
+					v = p;
+
+				roots.add(v);
+
+			}
+
+			if (roots.size() < vars.size())
+				cyclic = true;
+
+			IVariable<?> root = null;
+
+			for (IVariable<?> r : roots) {
+
+				if (root == null)
+					root = r;
+				else
+					parent.put(r, root);
+
+			}
+
+		}
+
+		return cyclic ? run.size() : 0;
+
+	}
+
     /**
 	 * Return <code>true</code> if we can optimize this INCLUDE with a SCAN of
 	 * the named solution set and a nested inner loop to join against left
@@ -3223,6 +3370,13 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         }
         
+        /*
+         * The named solution sets INCLUDEd by this group which may publish
+         * sideways filters for the statement pattern joins in this group.
+         */
+        final INamedSolutionSetRef[] sidewaysFilters = ctx.sidewaysFilter ? getSidewaysFilters(
+                joinGroup, ctx) : null;
+
         /*
          * Translate the remainder of the group. 
          */
@@ -3233,6 +3387,23 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
             if (child instanceof StatementPatternNode) {
                 final StatementPatternNode sp = (StatementPatternNode) child;
+                final int ncyclic = ctx.leapfrogTriejoin ? getCyclicJoinRun(
+                        joinGroup, i, ctx) : 0;
+                if (ncyclic > 0) {
+                    /*
+                     * A cyclic run of statement patterns is evaluated by a
+                     * single worst-case optimal join.
+                     */
+                    final List<Predicate<?>> preds = new LinkedList<Predicate<?>>();
+                    for (int j = i; j < i + ncyclic; j++) {
+                        preds.add(toPredicate(
+                                (StatementPatternNode) joinGroup.get(j), ctx));
+                    }
+                    left = leapfrogTriejoin(left, preds, sp.getQueryHints(),
+                            ctx);
+                    i += ncyclic - 1;
+                    continue;
+                }
                 /*
                  * Add statement pattern joins and the filters on those joins.
                  * 
@@ -3242,8 +3413,13 @@ public class AST2BOpUtility extends AST2BOpRTO {
                  * Note: This winds up handling materialization steps as well
                  * (it calls through to Rule2BOpUtility).
                  */
-                final Predicate<?> pred = toPredicate(sp, ctx);
+                Predicate<?> pred = toPredicate(sp, ctx);
                 final boolean optional = sp.isOptional();
+                if (sidewaysFilters != null && !optional) {
+                    pred = (Predicate<?>) pred.setProperty(
+                            PipelineJoin.Annotations.SIDEWAYS_FILTERS,
+                            sidewaysFilters);
+                }
                 left = join(left, //
                         pred,//
                         optional ? new LinkedHashSet<IVariable<?>>(doneSet)
@@ -4716,22 +4892,88 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         left = addMaterializationSteps2(left, bopId, vars, queryHints, ctx);
 
-        if (!groupByState.isAnyDistinct() && !groupByState.isSelectDependency()
+        if (ctx.partialAggregation
+                && PartialAggregationOp.canEvaluate(groupByState,
+                        groupByRewrite)) {
+
+            /*
+             * Two-phase aggregation. The partial aggregates are accumulated
+             * in parallel as the solutions arrive and are then combined on
+             * the query controller, which drains the partial aggregates still
+             * held by the first phase on its last pass. The groups are only
+             * spilled onto the native heap if the nativeGroupBy query hint
+             * was given.
+             */
+
+            final int maxGroups = ctx.nativeGroupBy ? NativeGroupByOp.Annotations.DEFAULT_MAX_GROUPS
+                    : Integer.MAX_VALUE;
+
+            final int partialId = ctx.nextId();
+
+            left = new PartialAggregationOp(leftOrEmpty(left),//
+                    NV.asMap(new NV[] {//
+                            new NV(BOp.Annotations.BOP_ID, partialId),//
+                            new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                    BOpEvaluationContext.CONTROLLER),//
+                            new NV(PipelineOp.Annotations.PIPELINED, true),//
+                            new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                    groupByState), //
+                            new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                    groupByRewrite), //
+                    }));
+
+            op = new NativeGroupByOp(leftOrEmpty(left),//
+                    NV.asMap(new NV[] {//
+                            new NV(BOp.Annotations.BOP_ID, bopId),//
+                            new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                    BOpEvaluationContext.CONTROLLER),//
+                            new NV(PipelineOp.Annotations.PIPELINED, true),//
+                            new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                            new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                    groupByState), //
+                            new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                    groupByRewrite), //
+                            new NV(NativeGroupByOp.Annotations.PARTIAL_INPUTS,
+                                    true), //
+                            new NV(NativeGroupByOp.Annotations.PARTIAL_AGGREGATION_ID,
+                                    partialId), //
+                            new NV(NativeGroupByOp.Annotations.MAX_GROUPS,
+                                    maxGroups), //
+                            new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                    }));
+
+        } else if (ctx.nativeGroupBy
+                && NativeGroupByOp.canEvaluate(groupByState, groupByRewrite)) {
+
+            /*
+             * Pipelined aggregation with compact per-group state which spills
+             * onto the native heap for high cardinality GROUP BY.
+             */
+
+            op = new NativeGroupByOp(leftOrEmpty(left),//
+                    NV.asMap(new NV[] {//
+                            new NV(BOp.Annotations.BOP_ID, bopId),//
+                            new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                    BOpEvaluationContext.CONTROLLER),//
+                            new NV(PipelineOp.Annotations.PIPELINED, true),//
+                            new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                            new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                    groupByState), //
+                            new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                    groupByRewrite), //
+                            new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                    }));
+
+        } else if (!groupByState.isAnyDistinct() && !groupByState.isSelectDependency()
                 && !groupByState.isNestedAggregates()) {
 
             /*
              * Extremely efficient pipelined aggregation operator.
              * 
-             * TODO This operation can be parallelized on a cluster either if it
-             * does not use any operators which can not be decomposed (such as
-             * AVERAGE) or if we rewrite such operators into AVG(X) :=
-             * SUM(X)/COUNT(X). When it is parallelized, we need to run it on
-             * each node and add another instance of this operator on the query
-             * controller which aggregates the aggregates from the nodes in the
-             * cluster. If we have done rewrites of things like AVERAGE, then we
-             * can not compute the AVERAGE until after we have computed the
-             * aggregate of aggregates. The simplest way to do that is using a
-             * LET operator after the aggregates have been combined.
+             * Note: Decomposable aggregates with a GROUP BY are parallelized
+             * using the PartialAggregationOp (above). This operator handles
+             * the aggregations which can not be decomposed, such as SAMPLE and
+             * GROUP_CONCAT, and aggregation without a GROUP BY.
              */
 
             op = new PipelinedAggregationOp(leftOrEmpty(left),//
@@ -4859,6 +5101,58 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         left = addMaterializationSteps2(left, sortId, vars, queryHints, ctx);
 
+        /*
+         * The #of solutions which can be consumed by the LIMIT (if any) which
+         * follows the ORDER BY. A DISTINCT or REDUCED projection can drop
+         * solutions after the sort, so the LIMIT can not be used by the sort
+         * in that case.
+         */
+        long limit = Long.MAX_VALUE;
+        {
+            final ProjectionNode projection = queryBase.getProjection();
+            if (queryBase.hasSlice()
+                    && (projection == null || !(projection.isDistinct() || projection
+                            .isReduced()))) {
+                final SliceNode slice = queryBase.getSlice();
+                if (slice.getLimit() != Long.MAX_VALUE
+                        && slice.getOffset() <= Long.MAX_VALUE
+                                - slice.getLimit()) {
+                    limit = slice.getOffset() + slice.getLimit();
+                }
+            }
+        }
+
+        if (ctx.nativeOrderBy
+                || limit <= NativeSortOp.Annotations.DEFAULT_RUN_SIZE) {
+
+            /*
+             * External memory sort. This is also used for a top-K sort when
+             * the sort is followed by a sufficiently small LIMIT.
+             */
+            left = applyQueryHints(
+                    new NativeSortOp(
+                            leftOrEmpty(left),
+                            NV.asMap(new NV[] {//
+                                    new NV(NativeSortOp.Annotations.BOP_ID, sortId),//
+                                    new NV(NativeSortOp.Annotations.SORT_ORDER,
+                                            sortOrders),//
+                                    new NV(
+                                            NativeSortOp.Annotations.VALUE_COMPARATOR,
+                                            new IVComparator()),//
+                                    new NV(
+                                            NativeSortOp.Annotations.EVALUATION_CONTEXT,
+                                            BOpEvaluationContext.CONTROLLER),//
+                                    new NV(NativeSortOp.Annotations.PIPELINED, true),//
+                                    new NV(NativeSortOp.Annotations.MAX_PARALLEL, 1),//
+                                    new NV(NativeSortOp.Annotations.REORDER_SOLUTIONS, false),//
+                                    new NV(NativeSortOp.Annotations.LAST_PASS, true),//
+                                    new NV(NativeSortOp.Annotations.LIMIT, limit),//
+                            })), queryHints, ctx);
+
+            return left;
+
+        }
+
         left = applyQueryHints(
                 new MemorySortOp(
                         leftOrEmpty(left),
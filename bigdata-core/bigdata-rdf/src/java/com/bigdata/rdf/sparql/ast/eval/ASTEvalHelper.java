@@ -247,6 +247,96 @@ public class ASTEvalHelper {
 
     }
 
+    /**
+     * Evaluate a SELECT query, reporting the chunks of solutions produced by
+     * the {@link QueryEngine} rather than openrdf {@link BindingSet}s. The
+     * non-inline {@link IV}s for the projected variables are batch resolved
+     * for each chunk (their {@link IVCache} association will be set). Inline
+     * {@link IV}s are NOT materialized. The caller is responsible for
+     * converting them (many inline literals answer the {@link org.openrdf.model.Literal}
+     * interface directly).
+     * <p>
+     * Unlike {@link #evaluateTupleQuery2(AbstractTripleStore, ASTContainer,
+     * QueryBindingSet, boolean)}, this resolves the {@link Dataset} and the
+     * query attributes in the same manner as
+     * {@link #evaluateTupleQuery(AbstractTripleStore, ASTContainer,
+     * QueryBindingSet, Dataset)}. The projected variables are available from
+     * the optimized AST once this method returns.
+     *
+     * @param store
+     *            The {@link AbstractTripleStore} having the data.
+     * @param astContainer
+     *            The {@link ASTContainer}.
+     * @param globallyScopedBS
+     *            The initial solution to kick things off.
+     * @param dataset
+     *            The {@link Dataset} (optional).
+     *
+     * @return An iterator visiting chunks of solutions. Closing the iterator
+     *         will cancel the query.
+     *
+     * @throws QueryEvaluationException
+     */
+    static public ICloseableIterator<IBindingSet[]> evaluateTupleQueryChunks(
+            final AbstractTripleStore store,
+            final ASTContainer astContainer,
+            final QueryBindingSet globallyScopedBS,
+            final Dataset dataset) throws QueryEvaluationException {
+
+        final AST2BOpContext context = new AST2BOpContext(astContainer, store);
+
+        /*
+         * Do not materialize the projection inside of the query plan. That
+         * would also materialize the inline IVs, building a Value for each
+         * of them.
+         */
+        context.materializeProjectionInQuery = false;
+
+        optimizeQuery(astContainer, context, globallyScopedBS, dataset);
+
+        // Get the projection for the query.
+        final IVariable<?>[] projected = astContainer.getOptimizedAST()
+                .getProjection().getProjectionVars();
+
+        doSparqlLogging(context);
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        IRunningQuery runningQuery = null;
+        try {
+
+            // Submit query for evaluation.
+            runningQuery = context.queryEngine.eval(queryPlan,
+                    astContainer.getOptimizedASTBindingSets(),
+                    context.getQueryAttributes());
+            runningQuery.setStaticAnalysisStats(context.getStaticAnalysisStats());
+
+            // Monitor IRunningQuery and cancel if the iterator is closed.
+            final ICloseableIterator<IBindingSet[]> it1 = new RunningQueryCloseableIterator<IBindingSet[]>(
+                    runningQuery, runningQuery.iterator());
+
+            if (projected.length == 0) {
+
+                // Nothing to materialize.
+                return it1;
+
+            }
+
+            // Batch resolve the non-inline IVs for each chunk.
+            return new ChunkedMaterializationIterator(projected,
+                    context.db.getLexiconRelation(),
+                    false/* materializeInlineIVs */, it1);
+
+        } catch (Throwable t) {
+            if (runningQuery != null) {
+                // ensure query is halted.
+                runningQuery.cancel(true/* mayInterruptIfRunning */);
+            }
+            throw new QueryEvaluationException(t);
+        }
+
+    }
+
     /**
      * Evaluate a SELECT query without converting the results into openrdf
      * solutions.
@@ -107,7 +107,13 @@ public class QueryHintRegistry {
         // Analytic query mode.
         add(new AnalyticQueryHint());
         add(new QueryEngineChunkHandlerQueryHint());
+        add(new QueryPriorityQueryHint());
+        add(new SidewaysFilterQueryHint());
+        add(new LeapfrogTriejoinQueryHint());
         add(new NativeDistinctQueryHint());
+        add(new NativeOrderByQueryHint());
+        add(new NativeGroupByQueryHint());
+        add(new PartialAggregationQueryHint());
         add(new NativeDistinctSPOHint());
         add(new NativeDistinctSPOThresholdHint());
         add(new NativeHashJoinsHint());
@@ -121,6 +127,8 @@ public class QueryHintRegistry {
         add(new AccessPathScanAndFilterHint());
         add(new NumTasksPerThreadHint());
         add(new MinDatapointsPerTaskHint());
+        add(new MorselParallelismHint());
+        add(new AdaptiveHashJoinHint());
         
         // DESCRIBE
         add(new DescribeModeHint());
@@ -708,9 +708,14 @@ public class SPORelation extends AbstractRelation<ISPO> {
 
         final IndexMetadata metadata = newIndexMetadata(getFQN(keyOrder));
 
-        // leading key compression works great.
-        final IRabaCoder leafKeySer = DefaultTupleSerializer
-                .getDefaultLeafKeysCoder();
+        /*
+         * Leading key compression works great. This is the default, but the
+         * leaf keys coder may be overridden for the namespace using
+         * IndexMetadata.Options#LEAF_KEYS_CODER (e.g., to use the
+         * ColumnarKeyRabaCoder when the statement keys are term identifiers).
+         */
+        final IRabaCoder leafKeySer = metadata.getTupleSerializer()
+                .getLeafKeysCoder();
 
 //        final IRabaCoder leafValSer;
 //        if (!statementIdentifiers) {
@@ -76,6 +76,7 @@ import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.IndexSegment;
 import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.btree.keys.SuccessorUtil;
+import com.bigdata.io.DirectBufferPool;
 import com.bigdata.journal.IConcurrencyManager;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.IResourceLock;
@@ -104,11 +105,13 @@ import com.bigdata.rdf.internal.impl.BlobIV;
 import com.bigdata.rdf.internal.impl.extensions.XSDStringExtension;
 import com.bigdata.rdf.lexicon.BigdataSubjectCentricFullTextIndex;
 import com.bigdata.rdf.lexicon.BigdataValueCentricFullTextIndex;
+import com.bigdata.rdf.lexicon.DirectTermCache;
 import com.bigdata.rdf.lexicon.ITermIndexCodes;
 import com.bigdata.rdf.lexicon.ITextIndexer;
 import com.bigdata.rdf.lexicon.IValueCentricTextIndexer;
 import com.bigdata.rdf.lexicon.LexiconKeyOrder;
 import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.lexicon.TermCachePolicyEnum;
 import com.bigdata.rdf.lexicon.TermIdEncoder;
 import com.bigdata.rdf.model.BigdataResource;
 import com.bigdata.rdf.model.BigdataStatement;
@@ -649,6 +652,54 @@ abstract public class AbstractTripleStore extends
         
         String DEFAULT_TERM_CACHE_CAPACITY = "10000";//"50000";
 
+        /**
+         * The term cache implementation (default
+         * {@value #DEFAULT_TERM_CACHE_POLICY}). This may be specified
+         * independently for each namespace. The
+         * {@link TermCachePolicyEnum#TinyLFU} cache avoids the lock contention
+         * and weak reference churn of the default cache under high query
+         * concurrency and reports its hits, misses and evictions through the
+         * {@link LexiconRelation#getCounters()}.
+         *
+         * @see TermCachePolicyEnum
+         */
+        String TERM_CACHE_POLICY = AbstractTripleStore.class.getName()
+                + ".termCache.policy";
+
+        String DEFAULT_TERM_CACHE_POLICY = TermCachePolicyEnum.WeakValueLRU
+                .name();
+
+        /**
+         * The maximum #of bytes of native memory used to cache the serialized
+         * RDF {@link Value}s read from the ID2TERM and BLOBS indices (default
+         * {@value #DEFAULT_DIRECT_TERM_CACHE_CAPACITY}). When non-zero, a
+         * {@link DirectTermCache} is shared by the read-only views of the
+         * lexicon and is consulted before those indices when materializing
+         * {@link IV}s. The memory is allocated from the
+         * {@link DirectBufferPool} and is not traced by the garbage collector,
+         * so this cache may be much larger than the
+         * {@link #TERM_CACHE_CAPACITY term cache}.
+         *
+         * @see DirectTermCache
+         */
+        String DIRECT_TERM_CACHE_CAPACITY = AbstractTripleStore.class
+                .getName() + ".directTermCache.capacity";
+
+        String DEFAULT_DIRECT_TERM_CACHE_CAPACITY = "0";
+
+        /**
+         * The name of a file used to warm up the
+         * {@link #DIRECT_TERM_CACHE_CAPACITY direct term cache} (optional).
+         * When the cache is created, the {@link IV}s listed in this file are
+         * materialized in the background. The keys of the most recently used
+         * entries in the cache are written onto this file when the term caches
+         * for the namespace are cleared on shutdown.
+         *
+         * @see LexiconRelation#clearTermCacheFactory(String)
+         */
+        String DIRECT_TERM_CACHE_WARMUP_FILE = AbstractTripleStore.class
+                .getName() + ".directTermCache.warmupFile";
+
         /**
          * The name of the class that will establish the pre-defined
          * {@link Vocabulary} for the database (default
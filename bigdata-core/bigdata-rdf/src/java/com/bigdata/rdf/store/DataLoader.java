@@ -231,6 +231,11 @@ public class DataLoader {
 	 * @see Options#DUMP_JOURNAL
 	 */
     private final boolean dumpJournal;
+
+    /**
+     * The bulk loader iff {@link Options#BULK_LOAD} was specified.
+     */
+    private final ParallelBulkLoader bulkLoader;
     
     private final CommitEnum commitEnum;
     
@@ -591,6 +596,60 @@ public class DataLoader {
 		 */
 		static final String DEFAULT_VERBOSE = "0";
 
+		/**
+		 * When <code>true</code>, files and directories are loaded in a bulk
+		 * load mode designed for loading large data sets into an empty (or
+		 * append-only) namespace. The files are parsed concurrently (see
+		 * {@link #PARSER_THREADS}), the terms are resolved against the lexicon
+		 * in batches of {@link #BUFFER_CAPACITY} statements, and the statements
+		 * are written as sorted runs for each statement index onto a temporary
+		 * file (see {@link #RUN_CAPACITY}). Once all files have been parsed the
+		 * runs are merged and each statement index is written in a single pass
+		 * in key order.
+		 * <p>
+		 * Nothing is written on the statement indices until all files in the
+		 * request have been parsed. Statement identifiers are not supported.
+		 * When closure is enabled, the closure of the database is computed once
+		 * the statement indices have been written rather than by incremental
+		 * truth maintenance.
+		 */
+		static final String BULK_LOAD = DataLoader.class.getName() + ".bulkLoad";
+
+		/**
+		 * The default value (<code>false</code>) for {@link #BULK_LOAD}.
+		 */
+		static final String DEFAULT_BULK_LOAD = "false";
+
+		/**
+		 * The #of files that are parsed concurrently when using the
+		 * {@link #BULK_LOAD} mode (default is the #of available processors).
+		 */
+		static final String PARSER_THREADS = DataLoader.class.getName() + ".parserThreads";
+
+		static final String DEFAULT_PARSER_THREADS = Integer.toString(Runtime.getRuntime().availableProcessors());
+
+		/**
+		 * The #of statements that are buffered by each parser thread before
+		 * they are written out as a sorted run for each statement index when
+		 * using the {@link #BULK_LOAD} mode (default
+		 * {@value #DEFAULT_RUN_CAPACITY}). Larger values produce fewer runs at
+		 * the expense of more heap.
+		 */
+		static final String RUN_CAPACITY = DataLoader.class.getName() + ".runCapacity";
+
+		static final String DEFAULT_RUN_CAPACITY = "500000";
+
+		/**
+		 * The maximum #of sorted runs that are merged in a single pass when
+		 * using the {@link #BULK_LOAD} mode (default
+		 * {@value #DEFAULT_MERGE_FAN_IN}). When there are more runs than this
+		 * for a statement index, they are first merged in groups onto larger
+		 * runs. Each run being merged holds one block of tuples on the heap.
+		 */
+		static final String MERGE_FAN_IN = DataLoader.class.getName() + ".mergeFanIn";
+
+		static final String DEFAULT_MERGE_FAN_IN = "256";
+
     }
 
     /**
@@ -766,6 +825,40 @@ public class DataLoader {
 				log.info(Options.DUMP_JOURNAL + "=" + dumpJournal);
 		}
 
+		{ // bulkLoad.
+
+			final boolean bulkLoad = Boolean
+					.parseBoolean(properties.getProperty(Options.BULK_LOAD, Options.DEFAULT_BULK_LOAD));
+
+			if (log.isInfoEnabled())
+				log.info(Options.BULK_LOAD + "=" + bulkLoad);
+
+			if (bulkLoad) {
+
+				final int parserThreads = Integer
+						.parseInt(properties.getProperty(Options.PARSER_THREADS, Options.DEFAULT_PARSER_THREADS));
+
+				final int runCapacity = Integer
+						.parseInt(properties.getProperty(Options.RUN_CAPACITY, Options.DEFAULT_RUN_CAPACITY));
+
+				final int mergeFanIn = Integer
+						.parseInt(properties.getProperty(Options.MERGE_FAN_IN, Options.DEFAULT_MERGE_FAN_IN));
+
+				if (log.isInfoEnabled())
+					log.info(Options.PARSER_THREADS + "=" + parserThreads + ", " + Options.RUN_CAPACITY + "="
+							+ runCapacity + ", " + Options.MERGE_FAN_IN + "=" + mergeFanIn);
+
+				bulkLoader = new ParallelBulkLoader(this, database, parserOptions, bufferCapacity,
+						ignoreInvalidFiles, parserThreads, runCapacity, mergeFanIn);
+
+			} else {
+
+				bulkLoader = null;
+
+			}
+
+		}
+
     }
 
     public class MyLoadStats extends LoadStats {
@@ -1280,6 +1373,15 @@ public class DataLoader {
             final boolean endOfBatch)
             throws IOException {
 
+        if (bulkLoader != null && depth == 0) {
+
+            loadFilesBulk(totals, file, baseURI, rdfFormat, defaultGraph,
+                    filter, endOfBatch);
+
+            return;
+
+        }
+
         if (file.isDirectory()) {
 
             if (log.isDebugEnabled())
@@ -1404,6 +1506,66 @@ public class DataLoader {
 
     }
 
+    /**
+     * Load a file or directory using the {@link ParallelBulkLoader}.
+     * 
+     * @see Options#BULK_LOAD
+     */
+    private void loadFilesBulk(final MyLoadStats totals, final File file,
+            final String baseURI, final RDFFormat rdfFormat,
+            final String defaultGraph, final FilenameFilter filter,
+            final boolean endOfBatch) throws IOException {
+
+        final long begin = System.currentTimeMillis();
+
+        final MyLoadStats stats = newLoadStats();
+
+        try {
+
+            bulkLoader.loadFiles(stats, file, baseURI, rdfFormat, defaultGraph,
+                    filter);
+
+            if (closureEnum == ClosureEnum.Incremental
+                    || (endOfBatch && closureEnum == ClosureEnum.Batch)) {
+
+                /*
+                 * Compute the closure of the database against itself since the
+                 * statements were not buffered on a tempStore.
+                 */
+
+                if (log.isInfoEnabled())
+                    log.info("Computing closure.");
+
+                stats.closureStats.add(inferenceEngine
+                        .computeClosure(null/* focusStore */));
+
+            }
+
+            if (commitEnum == CommitEnum.Incremental) {
+
+                final long beginCommit = System.currentTimeMillis();
+
+                database.commit(); // database commit.
+
+                stats.commit(); // Note: durable queues pattern.
+
+                stats.commitTime.set(System.currentTimeMillis() - beginCommit);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("bulk load: " + stats + ", elapsed="
+                        + (System.currentTimeMillis() - begin) + "ms");
+
+        } finally {
+
+            // aggregate stats even for exceptions.
+            totals.add(stats);
+
+        }
+
+    }
+
     /**
 	 * Loads data from the <i>source</i>. The caller is responsible for closing
 	 * the <i>source</i> if there is an error.
@@ -1883,7 +2045,7 @@ public class DataLoader {
      * @return
      * 			int with the buffer size
      */
-	private static int getGzipBuffer() {
+	static int getGzipBuffer() {
 
 		final String s = System.getProperty(Options.GZIP_BUFFER_SIZE);
 
@@ -0,0 +1,1468 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rdf.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+
+import com.bigdata.btree.AbstractBTree;
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.UnisolatedReadWriteIndex;
+import com.bigdata.btree.proc.ISimpleIndexProcedure;
+import com.bigdata.btree.proc.LongAggregator;
+import com.bigdata.io.DataInputBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.journal.Journal;
+import com.bigdata.journal.TemporaryRawStore;
+import com.bigdata.journal.TemporaryStore;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.model.BigdataBNode;
+import com.bigdata.rdf.model.BigdataResource;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.StatementEnum;
+import com.bigdata.rdf.rio.BasicRioLoader;
+import com.bigdata.rdf.rio.RDFParserOptions;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPO;
+import com.bigdata.rdf.spo.SPOIndexWriteProc.IndexWriteProcConstructor;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.spo.SPOTupleSerializer;
+import com.bigdata.rdf.store.DataLoader.MyLoadStats;
+import com.bigdata.util.Bytes;
+import com.bigdata.util.BytesUtil;
+import com.bigdata.util.DaemonThreadFactory;
+
+/**
+ * Bulk load mode for the {@link DataLoader} (see
+ * {@link DataLoader.Options#BULK_LOAD}). The files are parsed concurrently by
+ * a pool of parser threads. Each parser thread resolves the terms for its
+ * statements against the lexicon in batches of
+ * {@link DataLoader.Options#BUFFER_CAPACITY} statements (the term writes are
+ * serialized since the unisolated lexicon indices are single writer). The
+ * resulting {@link SPO}s are accumulated by each parser thread and, once
+ * {@link DataLoader.Options#RUN_CAPACITY} statements are buffered, they are
+ * encoded for each statement index, sorted, and written as a sorted run onto
+ * a {@link TemporaryRawStore}. Once all files have been parsed, the runs for
+ * each statement index are merged (in parallel across the statement indices)
+ * and the merged, duplicate free tuples are written onto the index in key
+ * order. When a statement index is empty and local (a {@link BTree} on a
+ * {@link Journal} or a {@link TemporaryStore}), the merged tuples are used to
+ * build the nodes and leaves of that index bottom-up with full leaves (see
+ * {@link BTree#bulkLoad(ITupleIterator, double)}). Otherwise they are written
+ * using batched unisolated writes.
+ * <p>
+ * Nothing is written on the statement indices until all files have been
+ * parsed. The statement indices do not need to be empty, but the load is most
+ * efficient for an empty namespace.
+ * <p>
+ * Note: Statement identifiers and incremental truth maintenance are not
+ * supported. When closure is requested, the {@link DataLoader} computes the
+ * closure of the database once the statement indices have been written.
+ *
+ * @see DataLoader.Options#BULK_LOAD
+ */
+class ParallelBulkLoader {
+
+    private static final transient Logger log = Logger
+            .getLogger(ParallelBulkLoader.class);
+
+    /**
+     * The target size of a block of encoded tuples within a run.
+     */
+    private static final int BLOCK_SIZE = 32 * Bytes.kilobyte32;
+
+    /**
+     * The fill factor used when an empty statement index is built bottom-up.
+     * The statement indices are read-mostly after a bulk load, so the leaves
+     * are filled.
+     */
+    private static final double FILL_FACTOR = 1.0d;
+
+    private final DataLoader dataLoader;
+
+    private final AbstractTripleStore database;
+
+    private final RDFParserOptions parserOptions;
+
+    private final int bufferCapacity;
+
+    private final boolean ignoreInvalidFiles;
+
+    private final int parserThreads;
+
+    private final int runCapacity;
+
+    private final int mergeFanIn;
+
+    /**
+     * Lock used to serialize the term writes on the lexicon.
+     */
+    private final Object lexiconLock = new Object();
+
+    /**
+     * @param dataLoader
+     *            The {@link DataLoader}.
+     * @param database
+     *            The database.
+     * @param parserOptions
+     *            The parser options.
+     * @param bufferCapacity
+     *            The #of statements whose terms are resolved against the
+     *            lexicon in each batch.
+     * @param ignoreInvalidFiles
+     *            When <code>true</code>, files with parser errors are skipped.
+     * @param parserThreads
+     *            The #of files which are parsed concurrently.
+     * @param runCapacity
+     *            The #of statements buffered by each parser thread before they
+     *            are written out as a sorted run for each statement index.
+     * @param mergeFanIn
+     *            The maximum #of runs which are merged in a single pass.
+     */
+    ParallelBulkLoader(final DataLoader dataLoader,
+            final AbstractTripleStore database,
+            final RDFParserOptions parserOptions, final int bufferCapacity,
+            final boolean ignoreInvalidFiles, final int parserThreads,
+            final int runCapacity, final int mergeFanIn) {
+
+        if (database.isStatementIdentifiers())
+            throw new UnsupportedOperationException(
+                    "Bulk load does not support statement identifiers.");
+
+        if (parserThreads <= 0)
+            throw new IllegalArgumentException();
+
+        if (runCapacity <= 0)
+            throw new IllegalArgumentException();
+
+        if (mergeFanIn < 2)
+            throw new IllegalArgumentException();
+
+        this.dataLoader = dataLoader;
+        this.database = database;
+        this.parserOptions = parserOptions;
+        this.bufferCapacity = bufferCapacity;
+        this.ignoreInvalidFiles = ignoreInvalidFiles;
+        this.parserThreads = parserThreads;
+        this.runCapacity = runCapacity;
+        this.mergeFanIn = mergeFanIn;
+
+    }
+
+    /**
+     * Load a file or a directory (recursively). The statement indices are
+     * written once all files have been parsed. The caller is responsible for
+     * the commit.
+     *
+     * @param totals
+     *            Used to report out the total load statistics.
+     * @param file
+     *            A file or directory.
+     * @param baseURI
+     *            The baseURI (optional, when not specified the name of the each
+     *            file is converted to a URL and used as the baseURI for that
+     *            file).
+     * @param rdfFormat
+     *            The format used when it can not be deduced from the file name.
+     * @param defaultGraph
+     *            The value that will be used for the graph/context co-ordinate
+     *            when loading data represented in a triple format into a quad
+     *            store.
+     * @param filter
+     *            An optional filter for the files in a directory.
+     *
+     * @return The #of statements written onto the database.
+     */
+    long loadFiles(final MyLoadStats totals, final File file,
+            final String baseURI, final RDFFormat rdfFormat,
+            final String defaultGraph, final FilenameFilter filter)
+            throws IOException {
+
+        final List<File> files = new ArrayList<File>();
+
+        listFiles(file, filter, files);
+
+        final SPORelation spoRelation = database.getSPORelation();
+
+        final List<SPOKeyOrder> keyOrders = new ArrayList<SPOKeyOrder>();
+        {
+            final Iterator<?> itr = spoRelation.getKeyOrders();
+            while (itr.hasNext()) {
+                keyOrders.add((SPOKeyOrder) itr.next());
+            }
+        }
+
+        final LoadState state = new LoadState(spoRelation, keyOrders);
+
+        final ExecutorService service = Executors.newFixedThreadPool(
+                parserThreads, new DaemonThreadFactory(getClass().getName()
+                        + "_parserService"));
+
+        try {
+
+            final ConcurrentLinkedQueue<File> queue = new ConcurrentLinkedQueue<File>(
+                    files);
+
+            final List<Future<List<MyLoadStats>>> futures = new ArrayList<Future<List<MyLoadStats>>>();
+
+            final int nthreads = Math.min(parserThreads, files.size());
+
+            for (int i = 0; i < nthreads; i++) {
+
+                futures.add(service.submit(new ParserTask(state, queue,
+                        baseURI, rdfFormat, defaultGraph)));
+
+            }
+
+            for (Future<List<MyLoadStats>> f : futures) {
+
+                for (MyLoadStats stats : getFuture(f)) {
+
+                    totals.add(stats);
+
+                }
+
+            }
+
+            final long begin = System.currentTimeMillis();
+
+            final long nwritten = buildIndices(state);
+
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            totals.loadTime.add(elapsed);
+
+            totals.totalTime.add(elapsed);
+
+            if (log.isInfoEnabled())
+                log.info("Wrote " + nwritten + " statements from "
+                        + files.size() + " files in " + elapsed + "ms"
+                        + ", tempStoreBytes=" + state.tempStore.size());
+
+            return nwritten;
+
+        } finally {
+
+            service.shutdownNow();
+
+            state.tempStore.destroy();
+
+        }
+
+    }
+
+    /**
+     * Collect the files to be loaded. Directories are processed recursively
+     * and their files are visited in sorted order.
+     */
+    private static void listFiles(final File file,
+            final FilenameFilter filter, final List<File> files) {
+
+        if (file.isDirectory()) {
+
+            final File[] a = (filter != null ? file.listFiles(filter) : file
+                    .listFiles());
+
+            Arrays.sort(a);
+
+            for (File f : a) {
+
+                listFiles(f, filter, files);
+
+            }
+
+            return;
+
+        }
+
+        files.add(file);
+
+    }
+
+    /**
+     * Return the result of the {@link Future}, unwrapping the cause of an
+     * {@link ExecutionException}.
+     */
+    private static <T> T getFuture(final Future<T> f) throws IOException {
+
+        try {
+
+            return f.get();
+
+        } catch (InterruptedException ex) {
+
+            throw new RuntimeException(ex);
+
+        } catch (ExecutionException ex) {
+
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+
+            throw new RuntimeException(cause);
+
+        }
+
+    }
+
+    /**
+     * The state shared by the parser threads for a single bulk load.
+     */
+    private static class LoadState {
+
+        final SPORelation spoRelation;
+
+        final List<SPOKeyOrder> keyOrders;
+
+        /**
+         * The tuple serializer for each statement index, in the same order as
+         * {@link #keyOrders}.
+         */
+        final SPOTupleSerializer[] tupleSers;
+
+        /**
+         * The sorted runs for each statement index, in the same order as
+         * {@link #keyOrders}.
+         */
+        final List<List<Run>> runs;
+
+        /**
+         * The backing store for the runs.
+         */
+        final TemporaryRawStore tempStore = new TemporaryRawStore();
+
+        LoadState(final SPORelation spoRelation,
+                final List<SPOKeyOrder> keyOrders) {
+
+            this.spoRelation = spoRelation;
+
+            this.keyOrders = keyOrders;
+
+            this.tupleSers = new SPOTupleSerializer[keyOrders.size()];
+
+            this.runs = new ArrayList<List<Run>>(keyOrders.size());
+
+            for (int i = 0; i < keyOrders.size(); i++) {
+
+                tupleSers[i] = (SPOTupleSerializer) spoRelation
+                        .getIndex(keyOrders.get(i)).getIndexMetadata()
+                        .getTupleSerializer();
+
+                runs.add(Collections.synchronizedList(new ArrayList<Run>()));
+
+            }
+
+        }
+
+    }
+
+    /**
+     * A tuple for a statement index.
+     */
+    private static class Tuple {
+
+        final byte[] key;
+
+        final byte[] val;
+
+        Tuple(final byte[] key, final byte[] val) {
+            this.key = key;
+            this.val = val;
+        }
+
+    }
+
+    /**
+     * Orders {@link Tuple}s by their unsigned byte[] keys.
+     */
+    private static final Comparator<Tuple> TUPLE_COMPARATOR = new Comparator<Tuple>() {
+
+        @Override
+        public int compare(final Tuple o1, final Tuple o2) {
+            return BytesUtil.compareBytes(o1.key, o2.key);
+        }
+
+    };
+
+    /**
+     * A sorted run of distinct tuples for one statement index. The run is a
+     * sequence of blocks. Each block is the packed #of tuples followed by that
+     * many tuples, each of which is coded as the packed length and the bytes
+     * of its key and then of its value.
+     */
+    private static class Run {
+
+        final List<Long> addrs = new ArrayList<Long>();
+
+        long ntuples = 0L;
+
+    }
+
+    /**
+     * Reads the tuples from a {@link Run} in order.
+     */
+    private static class RunReader {
+
+        private final TemporaryRawStore store;
+
+        private final Run run;
+
+        private int nextBlock = 0;
+
+        private DataInputBuffer in = null;
+
+        private int remaining = 0;
+
+        RunReader(final TemporaryRawStore store, final Run run) {
+            this.store = store;
+            this.run = run;
+        }
+
+        /**
+         * Return the next tuple in the run or <code>null</code> if the run is
+         * exhausted.
+         */
+        Tuple next() throws IOException {
+
+            while (remaining == 0) {
+
+                if (nextBlock == run.addrs.size())
+                    return null;
+
+                final ByteBuffer b = store.read(run.addrs.get(nextBlock++));
+
+                final byte[] a = new byte[b.remaining()];
+
+                b.get(a);
+
+                in = new DataInputBuffer(a);
+
+                remaining = in.unpackInt();
+
+            }
+
+            remaining--;
+
+            final byte[] key = new byte[in.unpackInt()];
+
+            in.readFully(key);
+
+            final byte[] val = new byte[in.unpackInt()];
+
+            in.readFully(val);
+
+            return new Tuple(key, val);
+
+        }
+
+    }
+
+    /**
+     * Something which accepts tuples in ascending key order.
+     */
+    private static interface ITupleSink {
+
+        void add(Tuple t) throws IOException;
+
+    }
+
+    /**
+     * Writes tuples in key order onto a new {@link Run}.
+     */
+    private static class RunWriter implements ITupleSink {
+
+        private final TemporaryRawStore store;
+
+        private final Run run = new Run();
+
+        private final DataOutputBuffer out = new DataOutputBuffer();
+
+        private final DataOutputBuffer block = new DataOutputBuffer();
+
+        private int n = 0;
+
+        RunWriter(final TemporaryRawStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void add(final Tuple t) {
+
+            out.packLong(t.key.length);
+            out.write(t.key);
+            out.packLong(t.val.length);
+            out.write(t.val);
+
+            n++;
+
+            run.ntuples++;
+
+            if (out.pos() >= BLOCK_SIZE)
+                writeBlock();
+
+        }
+
+        /**
+         * Write the last block and return the {@link Run}.
+         */
+        Run close() {
+
+            if (n > 0)
+                writeBlock();
+
+            return run;
+
+        }
+
+        private void writeBlock() {
+
+            block.reset();
+
+            block.packLong(n);
+
+            block.write(out.array(), 0, out.pos());
+
+            run.addrs.add(store.write(ByteBuffer.wrap(block.array(), 0,
+                    block.pos())));
+
+            out.reset();
+
+            n = 0;
+
+        }
+
+    }
+
+    /**
+     * Writes tuples in key order onto a statement index using batched
+     * unisolated writes.
+     */
+    private class IndexWriter implements ITupleSink {
+
+        private final IIndex ndx;
+
+        private final byte[][] keys = new byte[bufferCapacity][];
+
+        private final byte[][] vals = new byte[bufferCapacity][];
+
+        private int n = 0;
+
+        private long writeCount = 0L;
+
+        IndexWriter(final IIndex ndx) {
+            this.ndx = ndx;
+        }
+
+        @Override
+        public void add(final Tuple t) {
+
+            keys[n] = t.key;
+
+            vals[n] = t.val;
+
+            if (++n == bufferCapacity)
+                flush();
+
+        }
+
+        /**
+         * Write any buffered tuples and return the #of tuples which were
+         * written on the index.
+         */
+        long close() {
+
+            if (n > 0)
+                flush();
+
+            return writeCount;
+
+        }
+
+        private void flush() {
+
+            final LongAggregator aggregator = new LongAggregator();
+
+            ndx.submit(0/* fromIndex */, n/* toIndex */, keys, vals,
+                    IndexWriteProcConstructor.INSTANCE, aggregator);
+
+            writeCount += aggregator.getResult();
+
+            Arrays.fill(keys, 0, n, null);
+
+            Arrays.fill(vals, 0, n, null);
+
+            n = 0;
+
+        }
+
+    }
+
+    /**
+     * A tuple paired with the index of the run from which it was read.
+     */
+    private static class Entry {
+
+        final Tuple tuple;
+
+        final int run;
+
+        Entry(final Tuple tuple, final int run) {
+            this.tuple = tuple;
+            this.run = run;
+        }
+
+    }
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+
+        @Override
+        public int compare(final Entry o1, final Entry o2) {
+            final int ret = BytesUtil.compareBytes(o1.tuple.key, o2.tuple.key);
+            if (ret != 0)
+                return ret;
+            return o1.run < o2.run ? -1 : o1.run > o2.run ? 1 : 0;
+        }
+
+    };
+
+    /**
+     * k-way merge of sorted runs. Duplicate keys are dropped (the first tuple
+     * for a key is retained).
+     */
+    private static class MergeReader {
+
+        private final RunReader[] readers;
+
+        private final PriorityQueue<Entry> queue;
+
+        private byte[] lastKey = null;
+
+        MergeReader(final TemporaryRawStore store, final List<Run> runs)
+                throws IOException {
+
+            final int nruns = runs.size();
+
+            readers = new RunReader[nruns];
+
+            queue = new PriorityQueue<Entry>(Math.max(1, nruns),
+                    ENTRY_COMPARATOR);
+
+            for (int i = 0; i < nruns; i++) {
+
+                readers[i] = new RunReader(store, runs.get(i));
+
+                final Tuple t = readers[i].next();
+
+                if (t != null)
+                    queue.add(new Entry(t, i));
+
+            }
+
+        }
+
+        /**
+         * Return the next distinct tuple in key order or <code>null</code>
+         * if the runs are exhausted.
+         */
+        Tuple next() throws IOException {
+
+            while (!queue.isEmpty()) {
+
+                final Entry e = queue.poll();
+
+                final Tuple next = readers[e.run].next();
+
+                if (next != null)
+                    queue.add(new Entry(next, e.run));
+
+                if (lastKey == null
+                        || !BytesUtil.bytesEqual(lastKey, e.tuple.key)) {
+
+                    lastKey = e.tuple.key;
+
+                    return e.tuple;
+
+                }
+
+            }
+
+            return null;
+
+        }
+
+    }
+
+    /**
+     * k-way merge of the runs onto the sink. Duplicate keys are dropped (the
+     * first tuple for a key is retained).
+     */
+    private static void merge(final TemporaryRawStore store,
+            final List<Run> runs, final ITupleSink sink) throws IOException {
+
+        final MergeReader r = new MergeReader(store, runs);
+
+        Tuple t;
+
+        while ((t = r.next()) != null) {
+
+            sink.add(t);
+
+        }
+
+    }
+
+    /**
+     * Visits the tuples from a {@link MergeReader} as the {@link ITuple}s of
+     * an index.
+     */
+    private static class MergeTupleIterator implements ITupleIterator<Object> {
+
+        private final MergeReader r;
+
+        private final com.bigdata.btree.Tuple<Object> tuple;
+
+        private Tuple next = null;
+
+        MergeTupleIterator(final AbstractBTree btree, final MergeReader r) {
+
+            this.r = r;
+
+            this.tuple = new com.bigdata.btree.Tuple<Object>(btree,
+                    IRangeQuery.KEYS | IRangeQuery.VALS);
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (next == null) {
+
+                try {
+
+                    next = r.next();
+
+                } catch (IOException ex) {
+
+                    throw new RuntimeException(ex);
+
+                }
+
+            }
+
+            return next != null;
+
+        }
+
+        @Override
+        public ITuple<Object> next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            tuple.copyTuple(next.key, next.val);
+
+            next = null;
+
+            return tuple;
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+    }
+
+    /**
+     * Builds an empty local statement index bottom-up from the merged runs.
+     * The procedure is applied while holding the write lock on the unisolated
+     * index.
+     * <p>
+     * Note: This procedure is only used with a local index and is never
+     * serialized.
+     */
+    private static class BulkLoadProc implements ISimpleIndexProcedure<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient MergeReader r;
+
+        BulkLoadProc(final MergeReader r) {
+
+            this.r = r;
+
+        }
+
+        @Override
+        public boolean isReadOnly() {
+
+            return false;
+
+        }
+
+        @Override
+        public Long apply(final IIndex ndx) {
+
+            final BTree btree = (BTree) ndx;
+
+            return btree.bulkLoad(new MergeTupleIterator(btree, r),
+                    FILL_FACTOR);
+
+        }
+
+    }
+
+    /**
+     * Merge the runs for each statement index and write the merged tuples
+     * onto the index. The statement indices are written in parallel.
+     *
+     * @return The #of statements written on the primary statement index.
+     */
+    private long buildIndices(final LoadState state) throws IOException {
+
+        final List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+
+        for (int i = 0; i < state.keyOrders.size(); i++) {
+
+            tasks.add(new BuildIndexTask(state, i));
+
+        }
+
+        final List<Future<Long>> futures;
+
+        try {
+
+            futures = state.spoRelation.getExecutorService().invokeAll(tasks);
+
+        } catch (InterruptedException ex) {
+
+            throw new RuntimeException(ex);
+
+        }
+
+        long nwritten = 0L;
+
+        for (int i = 0; i < futures.size(); i++) {
+
+            final long n = getFuture(futures.get(i));
+
+            if (state.keyOrders.get(i).isPrimaryIndex()) {
+
+                // Note: Only the primary index is reported to avoid double counting.
+                nwritten = n;
+
+            }
+
+        }
+
+        return nwritten;
+
+    }
+
+    /**
+     * Merges the runs for one statement index and writes the merged tuples
+     * onto that index. When there are more than {@link #mergeFanIn} runs, the
+     * runs are first merged in groups onto new (larger) runs.
+     */
+    private class BuildIndexTask implements Callable<Long> {
+
+        private final LoadState state;
+
+        private final int index;
+
+        BuildIndexTask(final LoadState state, final int index) {
+            this.state = state;
+            this.index = index;
+        }
+
+        @Override
+        public Long call() throws Exception {
+
+            final SPOKeyOrder keyOrder = state.keyOrders.get(index);
+
+            List<Run> runs = new ArrayList<Run>(state.runs.get(index));
+
+            while (runs.size() > mergeFanIn) {
+
+                final List<Run> next = new ArrayList<Run>();
+
+                for (int i = 0; i < runs.size(); i += mergeFanIn) {
+
+                    final List<Run> group = runs.subList(i,
+                            Math.min(i + mergeFanIn, runs.size()));
+
+                    if (group.size() == 1) {
+
+                        next.add(group.get(0));
+
+                        continue;
+
+                    }
+
+                    final RunWriter w = new RunWriter(state.tempStore);
+
+                    merge(state.tempStore, group, w);
+
+                    next.add(w.close());
+
+                }
+
+                if (log.isInfoEnabled())
+                    log.info(keyOrder + ": merged " + runs.size() + " runs onto "
+                            + next.size() + " runs.");
+
+                runs = next;
+
+            }
+
+            final IIndex ndx = state.spoRelation.getIndex(keyOrder);
+
+            final long n;
+
+            if ((ndx instanceof UnisolatedReadWriteIndex || ndx instanceof BTree)
+                    && ndx.rangeCount() == 0L) {
+
+                // Build the empty index bottom-up.
+                n = ndx.submit(null/* key */, new BulkLoadProc(
+                        new MergeReader(state.tempStore, runs)));
+
+                if (log.isInfoEnabled())
+                    log.info(keyOrder + ": merged " + runs.size()
+                            + " runs, built=" + n);
+
+            } else {
+
+                final IndexWriter w = new IndexWriter(ndx);
+
+                merge(state.tempStore, runs, w);
+
+                n = w.close();
+
+                if (log.isInfoEnabled())
+                    log.info(keyOrder + ": merged " + runs.size()
+                            + " runs, writeCount=" + n);
+
+            }
+
+            return n;
+
+        }
+
+    }
+
+    /**
+     * Task run by each parser thread. The task parses files from the shared
+     * queue until it is empty and then writes out its buffered statements as
+     * a final run.
+     */
+    private class ParserTask implements Callable<List<MyLoadStats>> {
+
+        private final LoadState state;
+
+        private final ConcurrentLinkedQueue<File> queue;
+
+        private final String baseURI;
+
+        private final RDFFormat rdfFormat;
+
+        private final String defaultGraph;
+
+        private final BigdataValueFactory vf = database.getValueFactory();
+
+        private final LexiconRelation lexicon = database.getLexiconRelation();
+
+        private final boolean quads = database.isQuads();
+
+        /**
+         * The statements whose terms have not yet been resolved.
+         */
+        private final BigdataStatement[] stmts = new BigdataStatement[bufferCapacity];
+
+        private int nstmts = 0;
+
+        /**
+         * The #of times that {@link #stmts} was flushed.
+         */
+        private long nflushed = 0L;
+
+        /**
+         * The resolved statements which have not yet been written out as
+         * sorted runs.
+         */
+        private final SPO[] spos = new SPO[runCapacity];
+
+        private int nspos = 0;
+
+        /**
+         * Canonicalizing map for the blank nodes in the current file.
+         */
+        private Map<String, BigdataBNode> bnodes;
+
+        ParserTask(final LoadState state,
+                final ConcurrentLinkedQueue<File> queue, final String baseURI,
+                final RDFFormat rdfFormat, final String defaultGraph) {
+
+            this.state = state;
+            this.queue = queue;
+            this.baseURI = baseURI;
+            this.rdfFormat = rdfFormat;
+            this.defaultGraph = defaultGraph;
+
+        }
+
+        @Override
+        public List<MyLoadStats> call() throws Exception {
+
+            final List<MyLoadStats> ret = new ArrayList<MyLoadStats>();
+
+            File file;
+
+            while ((file = queue.poll()) != null) {
+
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+
+                ret.add(loadFile(file));
+
+            }
+
+            flushStatements();
+
+            if (nspos > 0)
+                writeRuns();
+
+            return ret;
+
+        }
+
+        private MyLoadStats loadFile(final File file) throws IOException {
+
+            final String n = file.getName();
+
+            RDFFormat fmt = RDFFormat.forFileName(n);
+
+            if (fmt == null && n.endsWith(".zip")) {
+                fmt = RDFFormat.forFileName(n.substring(0, n.length() - 4));
+            }
+
+            if (fmt == null && n.endsWith(".gz")) {
+                fmt = RDFFormat.forFileName(n.substring(0, n.length() - 3));
+            }
+
+            if (fmt == null) // fallback
+                fmt = rdfFormat;
+
+            if (log.isInfoEnabled())
+                log.info("Loading next file: " + file + " now...");
+
+            final long begin = System.currentTimeMillis();
+
+            final MyLoadStats stats = dataLoader.newLoadStats();
+
+            // Used to discard the statements from a file which fails.
+            final int mark = nstmts;
+            final long nflushed0 = nflushed;
+
+            bnodes = null;
+
+            final FileLoader loader = new FileLoader();
+
+            boolean ok = false;
+
+            InputStream is = new FileInputStream(file);
+
+            try {
+
+                if (n.endsWith(".gz")) {
+
+                    is = new GZIPInputStream(is, DataLoader.getGzipBuffer());
+
+                } else if (n.endsWith(".zip")) {
+
+                    is = new ZipInputStream(new BufferedInputStream(is,
+                            DataLoader.getGzipBuffer()));
+
+                }
+
+                final Reader reader = new BufferedReader(new InputStreamReader(
+                        is));
+
+                try {
+
+                    // baseURI for this file.
+                    final String s = baseURI != null ? baseURI : file.toURI()
+                            .toString();
+
+                    loader.loadRdf(reader, s, fmt, defaultGraph, parserOptions);
+
+                    ok = true;
+
+                } finally {
+
+                    reader.close();
+
+                }
+
+            } catch (RDFParseException ex) {
+
+                if (!ignoreInvalidFiles)
+                    throw new RuntimeException("Could not parse file: " + file,
+                            ex);
+
+                log.error("Parser error - skipping source: source=" + file, ex);
+
+            } catch (RuntimeException ex) {
+
+                throw ex;
+
+            } catch (IOException ex) {
+
+                throw ex;
+
+            } catch (Exception ex) {
+
+                throw new RuntimeException("While loading: " + file, ex);
+
+            } finally {
+
+                is.close();
+
+                bnodes = null;
+
+                if (ok) {
+
+                    stats.didGood(file);
+
+                } else {
+
+                    /*
+                     * Discard the unresolved statements from this file. Any
+                     * statements which were already resolved are retained, as
+                     * they would have been written by the DataLoader.
+                     */
+
+                    final int from = nflushed == nflushed0 ? mark : 0;
+
+                    Arrays.fill(stmts, from, nstmts, null);
+
+                    nstmts = from;
+
+                    stats.didFail(file);
+
+                }
+
+            }
+
+            stats.toldTriples.set(loader.getStatementsAdded());
+
+            stats.loadTime.set(System.currentTimeMillis() - begin);
+
+            stats.totalTime.set(System.currentTimeMillis() - begin);
+
+            return stats;
+
+        }
+
+        /**
+         * Return the canonical blank node for the current file.
+         */
+        private BigdataValue getDistinctTerm(final BigdataValue term) {
+
+            if (!(term instanceof BNode))
+                return term;
+
+            if (bnodes == null)
+                bnodes = new HashMap<String, BigdataBNode>();
+
+            final BigdataBNode bnode = (BigdataBNode) term;
+
+            final BigdataBNode existing = bnodes.get(bnode.getID());
+
+            if (existing != null)
+                return existing;
+
+            bnodes.put(bnode.getID(), bnode);
+
+            return bnode;
+
+        }
+
+        private void handleStatement(final Statement stmt,
+                final BigdataURI defaultGraphURI) {
+
+            Resource c = quads ? stmt.getContext() : null;
+
+            if (c == null)
+                c = defaultGraphURI;
+
+            if (quads && c == null)
+                throw new IllegalArgumentException("context not bound: "
+                        + stmt);
+
+            final BigdataResource s = (BigdataResource) getDistinctTerm(vf
+                    .asValue(stmt.getSubject()));
+            final BigdataURI p = (BigdataURI) vf.asValue(stmt.getPredicate());
+            final BigdataValue o = getDistinctTerm(vf.asValue(stmt.getObject()));
+            final BigdataResource g = (BigdataResource) getDistinctTerm(vf
+                    .asValue(c));
+
+            stmts[nstmts++] = vf.createStatement(s, p, o, g,
+                    StatementEnum.Explicit);
+
+            if (nstmts == stmts.length)
+                flushStatements();
+
+        }
+
+        /**
+         * Resolve the terms for the buffered statements against the lexicon
+         * (writing any new terms) and move the resolved statements into the
+         * {@link SPO} buffer.
+         */
+        private void flushStatements() {
+
+            if (nstmts == 0)
+                return;
+
+            final BigdataValue[] values = new BigdataValue[nstmts * 4];
+
+            int nvalues = 0;
+
+            for (int i = 0; i < nstmts; i++) {
+
+                final BigdataStatement stmt = stmts[i];
+
+                nvalues = addValue(values, nvalues, stmt.getSubject());
+                nvalues = addValue(values, nvalues, stmt.getPredicate());
+                nvalues = addValue(values, nvalues, stmt.getObject());
+                nvalues = addValue(values, nvalues, stmt.getContext());
+
+            }
+
+            if (nvalues > 0) {
+
+                synchronized (lexiconLock) {
+
+                    lexicon.addTerms(values, nvalues, false/* readOnly */);
+
+                }
+
+            }
+
+            for (int i = 0; i < nstmts; i++) {
+
+                spos[nspos++] = new SPO(stmts[i]);
+
+                stmts[i] = null;
+
+                if (nspos == spos.length)
+                    writeRuns();
+
+            }
+
+            nstmts = 0;
+
+            nflushed++;
+
+        }
+
+        private int addValue(final BigdataValue[] values, final int nvalues,
+                final BigdataValue v) {
+
+            if (v == null || v.getIV() != null)
+                return nvalues;
+
+            values[nvalues] = v;
+
+            return nvalues + 1;
+
+        }
+
+        /**
+         * Write the buffered {@link SPO}s as a sorted run for each statement
+         * index and clear the buffer.
+         */
+        private void writeRuns() {
+
+            for (int i = 0; i < state.keyOrders.size(); i++) {
+
+                final SPOTupleSerializer tupleSer = state.tupleSers[i];
+
+                final Tuple[] a = new Tuple[nspos];
+
+                for (int j = 0; j < nspos; j++) {
+
+                    final ISPO spo = spos[j];
+
+                    a[j] = new Tuple(tupleSer.serializeKey(spo),
+                            tupleSer.serializeVal(spo));
+
+                }
+
+                Arrays.sort(a, TUPLE_COMPARATOR);
+
+                final RunWriter w = new RunWriter(state.tempStore);
+
+                byte[] lastKey = null;
+
+                for (Tuple t : a) {
+
+                    // skip duplicate statements.
+                    if (lastKey != null && BytesUtil.bytesEqual(lastKey, t.key))
+                        continue;
+
+                    w.add(t);
+
+                    lastKey = t.key;
+
+                }
+
+                final Run run = w.close();
+
+                state.runs.get(i).add(run);
+
+                if (log.isDebugEnabled())
+                    log.debug(state.keyOrders.get(i) + ": wrote run: nstmts="
+                            + nspos + ", ntuples=" + run.ntuples + ", nblocks="
+                            + run.addrs.size());
+
+            }
+
+            Arrays.fill(spos, 0, nspos, null);
+
+            nspos = 0;
+
+        }
+
+        /**
+         * Statement handler for the RIO RDF Parser that writes on the
+         * {@link ParserTask}.
+         */
+        private class FileLoader extends BasicRioLoader implements RDFHandler {
+
+            private BigdataURI defaultGraphURI = null;
+
+            FileLoader() {
+
+                super(vf);
+
+            }
+
+            @Override
+            public RDFHandler newRDFHandler() {
+
+                defaultGraphURI = null != defaultGraph && quads ? vf
+                        .createURI(defaultGraph) : null;
+
+                return this;
+
+            }
+
+            @Override
+            public void handleStatement(final Statement stmt) {
+
+                ParserTask.this.handleStatement(stmt, defaultGraphURI);
+
+                stmtsAdded++;
+
+            }
+
+            @Override
+            public void startRDF() throws RDFHandlerException {
+
+            }
+
+            @Override
+            public void endRDF() throws RDFHandlerException {
+
+            }
+
+            @Override
+            public void handleNamespace(final String prefix, final String uri)
+                    throws RDFHandlerException {
+
+            }
+
+            @Override
+            public void handleComment(final String comment)
+                    throws RDFHandlerException {
+
+            }
+
+        }
+
+    }
+
+}
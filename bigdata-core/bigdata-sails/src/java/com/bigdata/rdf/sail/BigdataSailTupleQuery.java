@@ -8,6 +8,7 @@ import org.openrdf.query.TupleQueryResult;
 import org.openrdf.query.algebra.evaluation.QueryBindingSet;
 import org.openrdf.repository.sail.SailTupleQuery;
 
+import com.bigdata.bop.IBindingSet;
 import com.bigdata.rdf.sparql.ast.ASTContainer;
 import com.bigdata.rdf.sparql.ast.BindingsClause;
 import com.bigdata.rdf.sparql.ast.DatasetNode;
@@ -16,6 +17,8 @@ import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.eval.ASTEvalHelper;
 import com.bigdata.rdf.store.AbstractTripleStore;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 public class BigdataSailTupleQuery extends SailTupleQuery 
         implements BigdataSailQuery {
 
@@ -84,6 +87,37 @@ public class BigdataSailTupleQuery extends SailTupleQuery
 
     }
     
+    /**
+     * Evaluate the query, visiting the chunks of solutions produced by the
+     * query engine rather than openrdf {@link org.openrdf.query.BindingSet}s.
+     * The non-inline {@link com.bigdata.rdf.internal.IV}s for the projected
+     * variables are resolved, but no
+     * {@link com.bigdata.rdf.model.BigdataValue}s are created for the inline
+     * {@link com.bigdata.rdf.internal.IV}s. The projected variables are
+     * reported by the optimized AST once this method returns.
+     * 
+     * @return An iterator visiting chunks of solutions. The caller MUST close
+     *         the iterator.
+     * 
+     * @see ASTEvalHelper#evaluateTupleQueryChunks(AbstractTripleStore,
+     *      ASTContainer, QueryBindingSet, Dataset)
+     */
+    public ICloseableIterator<IBindingSet[]> evaluateChunks()
+            throws QueryEvaluationException {
+
+        final QueryRoot originalQuery = astContainer.getOriginalAST();
+
+        if (getMaxQueryTime() > 0)
+            originalQuery.setTimeout(TimeUnit.SECONDS
+                    .toMillis(getMaxQueryTime()));
+
+        originalQuery.setIncludeInferred(getIncludeInferred());
+
+        return ASTEvalHelper.evaluateTupleQueryChunks(getTripleStore(),
+                astContainer, new QueryBindingSet(getBindings()), getDataset());
+
+    }
+
     public QueryRoot optimize() throws QueryEvaluationException {
 
         return optimize((BindingsClause) null);
@@ -22,6 +22,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 */
 package com.bigdata.rdf.sail.webapp;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
 import info.aduna.xml.XMLWriter;
 
 import java.io.ByteArrayOutputStream;
@@ -76,6 +77,8 @@ import org.openrdf.rio.RDFWriter;
 import org.openrdf.rio.RDFWriterRegistry;
 
 import com.bigdata.BigdataStatics;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
@@ -1677,6 +1680,44 @@ public class BigdataRDFContext extends BigdataBaseContext {
 
             final BigdataSailTupleQuery query = (BigdataSailTupleQuery) setupQuery(cxn);
 
+            if (!xhtml && m_config.streamingSolutions) {
+
+                final TupleQueryResultFormat format = TupleQueryResultWriterRegistry
+                        .getInstance().getFileFormatForMIMEType(mimeType);
+
+                if (SolutionStreamWriter.isSupported(format)) {
+
+                    /*
+                     * Write the solutions directly from the chunks produced by
+                     * the query engine without converting them into openrdf
+                     * BindingSets.
+                     */
+
+                    final ICloseableIterator<IBindingSet[]> itr = query
+                            .evaluateChunks();
+
+                    try {
+
+                        final IVariable<?>[] vars = query.getASTContainer()
+                                .getOptimizedAST().getProjection()
+                                .getProjectionVars();
+
+                        SolutionStreamWriter.getWriter(format, os,
+                                query.getTripleStore().getLexiconRelation())
+                                .write(vars, itr);
+
+                    } finally {
+
+                        itr.close();
+
+                    }
+
+                    return;
+
+                }
+
+            }
+
             final TupleQueryResultWriter w;
 
 
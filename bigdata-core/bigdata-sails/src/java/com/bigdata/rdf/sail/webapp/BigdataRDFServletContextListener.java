@@ -452,9 +452,23 @@ public class BigdataRDFServletContextListener implements
 
         }
 
+        final boolean streamingSolutions;
+        {
+
+            final String s = getInitParameter( ConfigParams.STREAMING_SOLUTIONS);
+
+            streamingSolutions = s == null ? ConfigParams.DEFAULT_STREAMING_SOLUTIONS
+                    : Boolean.valueOf(s);
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.STREAMING_SOLUTIONS + "="
+                        + streamingSolutions);
+
+        }
+
         final SparqlEndpointConfig config = new SparqlEndpointConfig(namespace,
                 timestamp, queryThreadPoolSize, describeEachNamedGraph,
-                readOnly, queryTimeout, executorMaxThreads);
+                readOnly, queryTimeout, executorMaxThreads, streamingSolutions);
 
         rdfContext = new BigdataRDFContext(config, indexManager);
 
@@ -1,5 +1,5 @@
 /**
-Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
 
 Contact:
      SYSTAP, LLC DBA Blazegraph
@@ -194,4 +194,22 @@ public interface ConfigParams {
      * new queries would not be launched if the pool has more active threads than this.
      */
     String EXECUTOR_SERVICE_MAX_THREADS = "executorMaxThreads";
+
+    /**
+     * When <code>true</code>, SELECT query results requested as SPARQL JSON,
+     * TSV or CSV are written directly from the chunks of solutions produced
+     * by the query engine (default {@value #DEFAULT_STREAMING_SOLUTIONS}).
+     * Only the non-inline {@link com.bigdata.rdf.internal.IV}s are resolved
+     * against the lexicon and most inline values are formatted without
+     * creating a {@link com.bigdata.rdf.model.BigdataValue} for each cell.
+     * Otherwise the solutions are converted into openrdf
+     * {@link org.openrdf.query.BindingSet}s and written using the registered
+     * {@link org.openrdf.query.resultio.TupleQueryResultWriter}.
+     * 
+     * @see SolutionStreamWriter
+     */
+    String STREAMING_SOLUTIONS = "streamingSolutions";
+
+    boolean DEFAULT_STREAMING_SOLUTIONS = false;
+
 }
@@ -0,0 +1,693 @@
+/**
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.datatypes.XMLDatatypeUtil;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.FullyInlineTypedLiteralIV;
+import com.bigdata.rdf.internal.impl.literal.NumericIV;
+import com.bigdata.rdf.internal.impl.literal.UUIDLiteralIV;
+import com.bigdata.rdf.internal.impl.literal.XSDBooleanIV;
+import com.bigdata.rdf.internal.impl.literal.XSDUnsignedByteIV;
+import com.bigdata.rdf.internal.impl.literal.XSDUnsignedIntIV;
+import com.bigdata.rdf.internal.impl.literal.XSDUnsignedLongIV;
+import com.bigdata.rdf.internal.impl.literal.XSDUnsignedShortIV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.model.BigdataBNode;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Writes the solutions for a SELECT query directly from the chunks of
+ * {@link IBindingSet}s produced by the query engine. This avoids the
+ * conversion of each solution into an openrdf
+ * {@link org.openrdf.query.BindingSet} and of each inline {@link IV} into a
+ * {@link com.bigdata.rdf.model.BigdataValue}.
+ * <p>
+ * The non-inline {@link IV}s must have been resolved against the lexicon
+ * before the chunk is visited (their {@link IV#getValue()} is reported). The
+ * inline numeric, boolean and UUID literals and the fully inline typed
+ * literals answer the {@link Literal} interface and are formatted without
+ * further materialization. Other inline {@link IV}s (vocabulary URIs, blank
+ * nodes, statement identifiers, dates and other extension types) are
+ * converted using {@link IV#asValue(LexiconRelation)}.
+ * <p>
+ * The writer does not buffer solutions beyond the chunk in hand. The writes
+ * block when the client does not keep up, which in turn blocks the consumer
+ * of the query engine's bounded output buffer and throttles the query.
+ *
+ * @see ConfigParams#STREAMING_SOLUTIONS
+ */
+abstract public class SolutionStreamWriter {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The lexicon used to convert inline {@link IV}s which do not answer the
+     * openrdf {@link Value} interface.
+     */
+    protected final LexiconRelation lex;
+
+    /**
+     * The #of solutions written.
+     */
+    private long nsolutions = 0L;
+
+    /**
+     * Return <code>true</code> iff there is a {@link SolutionStreamWriter}
+     * for that format.
+     *
+     * @param format
+     *            The format (optional).
+     */
+    public static boolean isSupported(final TupleQueryResultFormat format) {
+
+        return TupleQueryResultFormat.JSON.equals(format)
+                || TupleQueryResultFormat.TSV.equals(format)
+                || TupleQueryResultFormat.CSV.equals(format);
+
+    }
+
+    /**
+     * Return a {@link SolutionStreamWriter} for the format.
+     *
+     * @param format
+     *            The format.
+     * @param os
+     *            Where to write the solutions.
+     * @param lex
+     *            The lexicon.
+     *
+     * @throws IllegalArgumentException
+     *             if the format is not supported.
+     *
+     * @see #isSupported(TupleQueryResultFormat)
+     */
+    public static SolutionStreamWriter getWriter(
+            final TupleQueryResultFormat format, final OutputStream os,
+            final LexiconRelation lex) {
+
+        if (TupleQueryResultFormat.JSON.equals(format))
+            return new JSONSolutionStreamWriter(os, lex);
+
+        if (TupleQueryResultFormat.TSV.equals(format))
+            return new TSVSolutionStreamWriter(os, lex);
+
+        if (TupleQueryResultFormat.CSV.equals(format))
+            return new CSVSolutionStreamWriter(os, lex);
+
+        throw new IllegalArgumentException("format=" + format);
+
+    }
+
+    protected SolutionStreamWriter(final LexiconRelation lex) {
+
+        if (lex == null)
+            throw new IllegalArgumentException();
+
+        this.lex = lex;
+
+    }
+
+    /**
+     * Write the solutions visited by the iterator. The iterator is NOT closed
+     * by this method.
+     *
+     * @param vars
+     *            The projected variables.
+     * @param itr
+     *            The chunks of solutions.
+     *
+     * @return The #of solutions written.
+     */
+    public long write(final IVariable<?>[] vars,
+            final ICloseableIterator<IBindingSet[]> itr) throws IOException {
+
+        startResult(vars);
+
+        while (itr.hasNext()) {
+
+            final IBindingSet[] chunk = itr.next();
+
+            for (IBindingSet bset : chunk) {
+
+                writeSolution(vars, bset);
+
+                nsolutions++;
+
+            }
+
+        }
+
+        endResult();
+
+        return nsolutions;
+
+    }
+
+    /**
+     * The #of solutions written.
+     */
+    public long getSolutionCount() {
+
+        return nsolutions;
+
+    }
+
+    /**
+     * Write the header.
+     */
+    abstract protected void startResult(IVariable<?>[] vars)
+            throws IOException;
+
+    /**
+     * Write a solution.
+     */
+    abstract protected void writeSolution(IVariable<?>[] vars,
+            IBindingSet bset) throws IOException;
+
+    /**
+     * Write the trailer and flush the output.
+     */
+    abstract protected void endResult() throws IOException;
+
+    /**
+     * Return the {@link Value} bound to the variable in the solution.
+     *
+     * @return The {@link Value} -or- <code>null</code> if the variable is not
+     *         bound.
+     */
+    protected Value getValue(final IBindingSet bset, final IVariable<?> var) {
+
+        @SuppressWarnings("rawtypes")
+        final IConstant c = bset.get(var);
+
+        if (c == null)
+            return null;
+
+        final IV<?, ?> iv = (IV<?, ?>) c.get();
+
+        if (iv.hasValue()) {
+
+            // Resolved against the lexicon or already materialized.
+            return iv.getValue();
+
+        }
+
+        if (iv.isInline()) {
+
+            if (isLiteral(iv)) {
+
+                // The IV is its own Literal.
+                return (Literal) iv;
+
+            }
+
+            return iv.asValue(lex);
+
+        }
+
+        // Will throw NotMaterializedException.
+        return iv.getValue();
+
+    }
+
+    /**
+     * Return <code>true</code> iff the inline {@link IV} reports the same
+     * label and datatype through the {@link Literal} interface as the
+     * {@link com.bigdata.rdf.model.BigdataLiteral} created by
+     * {@link IV#asValue(LexiconRelation)}.
+     */
+    static boolean isLiteral(final IV<?, ?> iv) {
+
+        return iv instanceof NumericIV //
+                || iv instanceof XSDBooleanIV //
+                || iv instanceof XSDUnsignedByteIV //
+                || iv instanceof XSDUnsignedShortIV //
+                || iv instanceof XSDUnsignedIntIV //
+                || iv instanceof XSDUnsignedLongIV //
+                || iv instanceof UUIDLiteralIV //
+                || iv instanceof FullyInlineTypedLiteralIV;
+
+    }
+
+    /**
+     * Writes the SPARQL 1.1 Query Results JSON format. The output is the same
+     * as the <code>BigdataSPARQLResultsJSONWriter</code>, including the
+     * representation of statement identifiers.
+     */
+    static class JSONSolutionStreamWriter extends SolutionStreamWriter {
+
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        static {
+            JSON_FACTORY.disable(JsonFactory.Feature.INTERN_FIELD_NAMES);
+            JSON_FACTORY.disable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES);
+            JSON_FACTORY.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        private final JsonGenerator jg;
+
+        JSONSolutionStreamWriter(final OutputStream os,
+                final LexiconRelation lex) {
+
+            super(lex);
+
+            try {
+                jg = JSON_FACTORY.createJsonGenerator(new OutputStreamWriter(
+                        os, UTF8));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+
+            jg.useDefaultPrettyPrinter();
+
+        }
+
+        @Override
+        protected void startResult(final IVariable<?>[] vars)
+                throws IOException {
+
+            jg.writeStartObject();
+
+            jg.writeObjectFieldStart("head");
+
+            jg.writeArrayFieldStart("vars");
+            for (IVariable<?> var : vars) {
+                jg.writeString(var.getName());
+            }
+            jg.writeEndArray();
+
+            jg.writeEndObject();
+
+            jg.writeObjectFieldStart("results");
+
+            jg.writeArrayFieldStart("bindings");
+
+        }
+
+        @Override
+        protected void writeSolution(final IVariable<?>[] vars,
+                final IBindingSet bset) throws IOException {
+
+            jg.writeStartObject();
+
+            for (IVariable<?> var : vars) {
+
+                final Value value = getValue(bset, var);
+
+                if (value == null)
+                    continue;
+
+                jg.writeFieldName(var.getName());
+
+                writeValue(value);
+
+            }
+
+            jg.writeEndObject();
+
+        }
+
+        @Override
+        protected void endResult() throws IOException {
+
+            // bindings array
+            jg.writeEndArray();
+            // results braces
+            jg.writeEndObject();
+            // document braces
+            jg.writeEndObject();
+
+            jg.flush();
+
+        }
+
+        private void writeValue(final Value value) throws IOException {
+
+            if (value instanceof BigdataBNode
+                    && ((BigdataBNode) value).isStatementIdentifier()) {
+
+                writeSid((BigdataBNode) value);
+
+                return;
+
+            }
+
+            jg.writeStartObject();
+
+            if (value instanceof URI) {
+                jg.writeStringField("type", "uri");
+                jg.writeStringField("value", value.stringValue());
+            } else if (value instanceof BNode) {
+                jg.writeStringField("type", "bnode");
+                jg.writeStringField("value", ((BNode) value).getID());
+            } else if (value instanceof Literal) {
+                final Literal lit = (Literal) value;
+                if (lit.getLanguage() != null) {
+                    jg.writeStringField("xml:lang", lit.getLanguage());
+                }
+                if (lit.getDatatype() != null) {
+                    jg.writeStringField("datatype", lit.getDatatype()
+                            .stringValue());
+                }
+                jg.writeStringField("type", "literal");
+                jg.writeStringField("value", lit.getLabel());
+            } else {
+                throw new IOException("Unknown Value object type: "
+                        + value.getClass());
+            }
+
+            jg.writeEndObject();
+
+        }
+
+        private void writeSid(final BigdataBNode sid) throws IOException {
+
+            jg.writeStartObject();
+
+            jg.writeStringField("type", BigdataSPARQLResultsJSONParser.SID);
+
+            final BigdataStatement stmt = sid.getStatement();
+
+            jg.writeFieldName(BigdataSPARQLResultsJSONParser.SUBJECT);
+            writeValue(stmt.getSubject());
+
+            jg.writeFieldName(BigdataSPARQLResultsJSONParser.PREDICATE);
+            writeValue(stmt.getPredicate());
+
+            jg.writeFieldName(BigdataSPARQLResultsJSONParser.OBJECT);
+            writeValue(stmt.getObject());
+
+            if (stmt.getContext() != null) {
+                jg.writeFieldName(BigdataSPARQLResultsJSONParser.CONTEXT);
+                writeValue(stmt.getContext());
+            }
+
+            jg.writeEndObject();
+
+        }
+
+    }
+
+    /**
+     * Writes the SPARQL 1.1 Query Results TSV format. RDF terms are written
+     * using their Turtle syntax. As for the openrdf
+     * <code>SPARQLResultsTSVWriter</code>, valid <code>xsd:integer</code>,
+     * <code>xsd:decimal</code> and <code>xsd:double</code> literals are
+     * written in the abbreviated form using their canonical lexical form,
+     * whether or not the {@link IV} was materialized.
+     */
+    static class TSVSolutionStreamWriter extends SolutionStreamWriter {
+
+        private final Writer w;
+
+        TSVSolutionStreamWriter(final OutputStream os,
+                final LexiconRelation lex) {
+
+            super(lex);
+
+            this.w = new BufferedWriter(new OutputStreamWriter(os, UTF8));
+
+        }
+
+        @Override
+        protected void startResult(final IVariable<?>[] vars)
+                throws IOException {
+
+            for (int i = 0; i < vars.length; i++) {
+                if (i > 0)
+                    w.write('\t');
+                w.write('?');
+                w.write(vars[i].getName());
+            }
+
+            w.write('\n');
+
+        }
+
+        @Override
+        protected void writeSolution(final IVariable<?>[] vars,
+                final IBindingSet bset) throws IOException {
+
+            for (int i = 0; i < vars.length; i++) {
+
+                if (i > 0)
+                    w.write('\t');
+
+                final Value value = getValue(bset, vars[i]);
+
+                if (value == null) // unbound
+                    continue;
+
+                if (value instanceof URI) {
+                    writeURI(value.stringValue());
+                } else if (value instanceof BNode) {
+                    w.write("_:");
+                    w.write(((BNode) value).getID());
+                } else {
+                    writeLiteral((Literal) value);
+                }
+
+            }
+
+            w.write('\n');
+
+        }
+
+        @Override
+        protected void endResult() throws IOException {
+
+            w.flush();
+
+        }
+
+        private void writeURI(final String uri) throws IOException {
+
+            w.write('<');
+            w.write(uri);
+            w.write('>');
+
+        }
+
+        private void writeLiteral(final Literal lit) throws IOException {
+
+            final String label = lit.getLabel();
+
+            final URI datatype = lit.getDatatype();
+
+            if (XMLSchema.INTEGER.equals(datatype)
+                    || XMLSchema.DECIMAL.equals(datatype)
+                    || XMLSchema.DOUBLE.equals(datatype)) {
+
+                try {
+
+                    w.write(XMLDatatypeUtil.normalize(label, datatype));
+
+                    return;
+
+                } catch (IllegalArgumentException ex) {
+
+                    // Not a valid numeric literal. Write as a quoted string.
+
+                }
+
+            }
+
+            w.write('"');
+
+            for (int i = 0; i < label.length(); i++) {
+
+                final char ch = label.charAt(i);
+
+                switch (ch) {
+                case '\\':
+                    w.write("\\\\");
+                    break;
+                case '\t':
+                    w.write("\\t");
+                    break;
+                case '\n':
+                    w.write("\\n");
+                    break;
+                case '\r':
+                    w.write("\\r");
+                    break;
+                case '"':
+                    w.write("\\\"");
+                    break;
+                default:
+                    w.write(ch);
+                }
+
+            }
+
+            w.write('"');
+
+            if (lit.getLanguage() != null) {
+                w.write('@');
+                w.write(lit.getLanguage());
+            } else if (datatype != null) {
+                w.write("^^");
+                writeURI(datatype.stringValue());
+            }
+
+        }
+
+    }
+
+    /**
+     * Writes the SPARQL 1.1 Query Results CSV format. Only the lexical form
+     * of each RDF term is written.
+     */
+    static class CSVSolutionStreamWriter extends SolutionStreamWriter {
+
+        private final Writer w;
+
+        CSVSolutionStreamWriter(final OutputStream os,
+                final LexiconRelation lex) {
+
+            super(lex);
+
+            this.w = new BufferedWriter(new OutputStreamWriter(os, UTF8));
+
+        }
+
+        @Override
+        protected void startResult(final IVariable<?>[] vars)
+                throws IOException {
+
+            for (int i = 0; i < vars.length; i++) {
+                if (i > 0)
+                    w.write(',');
+                writeField(vars[i].getName());
+            }
+
+            w.write("\r\n");
+
+        }
+
+        @Override
+        protected void writeSolution(final IVariable<?>[] vars,
+                final IBindingSet bset) throws IOException {
+
+            for (int i = 0; i < vars.length; i++) {
+
+                if (i > 0)
+                    w.write(',');
+
+                final Value value = getValue(bset, vars[i]);
+
+                if (value == null) // unbound
+                    continue;
+
+                if (value instanceof BNode) {
+                    w.write("_:");
+                    writeField(((BNode) value).getID());
+                } else if (value instanceof Literal) {
+                    writeField(((Literal) value).getLabel());
+                } else {
+                    writeField(value.stringValue());
+                }
+
+            }
+
+            w.write("\r\n");
+
+        }
+
+        @Override
+        protected void endResult() throws IOException {
+
+            w.flush();
+
+        }
+
+        /**
+         * Write the field, quoting it iff it contains a comma, a quote or a
+         * line break.
+         */
+        private void writeField(final String s) throws IOException {
+
+            boolean quote = false;
+
+            for (int i = 0; i < s.length() && !quote; i++) {
+
+                final char ch = s.charAt(i);
+
+                quote = ch == ',' || ch == '"' || ch == '\r' || ch == '\n';
+
+            }
+
+            if (!quote) {
+
+                w.write(s);
+
+                return;
+
+            }
+
+            w.write('"');
+
+            for (int i = 0; i < s.length(); i++) {
+
+                final char ch = s.charAt(i);
+
+                if (ch == '"')
+                    w.write('"');
+
+                w.write(ch);
+
+            }
+
+            w.write('"');
+
+        }
+
+    }
+
+}
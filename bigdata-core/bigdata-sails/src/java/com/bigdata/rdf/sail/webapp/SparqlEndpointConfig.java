@@ -96,10 +96,20 @@ public class SparqlEndpointConfig {
       */
     final public long executorMaxThreads;
 
+    /**
+     * When <code>true</code>, SELECT query results for SPARQL JSON, TSV and
+     * CSV are written directly from the chunks of solutions produced by the
+     * query engine.
+     * 
+     * @see ConfigParams#STREAMING_SOLUTIONS
+     */
+    final public boolean streamingSolutions;
+
     public SparqlEndpointConfig(final String namespace, final long timestamp,
             final int queryThreadPoolSize,
             final boolean describeEachNamedGraph, final boolean readOnly,
-            final long queryTimeout, final long executorMaxThreads) {
+            final long queryTimeout, final long executorMaxThreads,
+            final boolean streamingSolutions) {
 
         if (namespace == null)
             throw new IllegalArgumentException();
@@ -120,6 +130,8 @@ public class SparqlEndpointConfig {
         this.queryTimeout = queryTimeout;
 
         this.executorMaxThreads = executorMaxThreads;
+
+        this.streamingSolutions = streamingSolutions;
     }
 
 }
@@ -53,6 +53,7 @@ import com.bigdata.bop.join.HTreeHashJoinUtility;
 import com.bigdata.bop.join.HTreeSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinTypeEnum;
 import com.bigdata.bop.join.NamedSolutionSetStats;
+import com.bigdata.bop.join.SidewaysFilter;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
@@ -191,6 +192,14 @@ public class HTreeNamedSubqueryOp extends PipelineOp implements
          * we will hang the named solution set.
          */
         private final IQueryAttributes attrs;
+
+        /**
+         * The maximum size of the solution set for which sideways filters are
+         * published and <code>-1L</code> if they will not be published.
+         * 
+         * @see Annotations#SIDEWAYS_FILTER
+         */
+        private final long sidewaysFilterMaxSize;
         
         /**
          * <code>true</code> iff this is the first time the task is being
@@ -217,6 +226,12 @@ public class HTreeNamedSubqueryOp extends PipelineOp implements
             this.subquery = (PipelineOp) op
                     .getRequiredProperty(Annotations.SUBQUERY);
 
+            this.sidewaysFilterMaxSize = op.getProperty(
+                    Annotations.SIDEWAYS_FILTER,
+                    Annotations.DEFAULT_SIDEWAYS_FILTER) ? op.getProperty(
+                    Annotations.SIDEWAYS_FILTER_MAX_SIZE,
+                    Annotations.DEFAULT_SIDEWAYS_FILTER_MAX_SIZE) : -1L;
+
             this.namedSetRef = (INamedSolutionSetRef) op
                     .getRequiredProperty(Annotations.NAMED_SET_REF);
             
@@ -396,6 +411,12 @@ public class HTreeNamedSubqueryOp extends PipelineOp implements
                         // Checkpoint the solution set.
                         state.saveSolutionSet();
 
+                        if (sidewaysFilterMaxSize != -1L) {
+                            // Publish filters for the probe side joins.
+                            SidewaysFilter.publish(attrs, namedSetRef, state,
+                                    sidewaysFilterMaxSize);
+                        }
+
                         if (log.isInfoEnabled())
                             log.info("Solution set " + namedSetRef + " has "
                                     + ncopied + " solutions.");
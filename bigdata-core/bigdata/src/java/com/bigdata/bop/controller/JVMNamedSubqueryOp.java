@@ -53,6 +53,7 @@ import com.bigdata.bop.join.JVMHashJoinUtility;
 import com.bigdata.bop.join.JVMSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinTypeEnum;
 import com.bigdata.bop.join.NamedSolutionSetStats;
+import com.bigdata.bop.join.SidewaysFilter;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
@@ -180,6 +181,14 @@ public class JVMNamedSubqueryOp extends PipelineOp implements INamedSubqueryOp,
          * we will hang the named solution set.
          */
         private final IQueryAttributes attrs;
+
+        /**
+         * The maximum size of the solution set for which sideways filters are
+         * published and <code>-1L</code> if they will not be published.
+         * 
+         * @see Annotations#SIDEWAYS_FILTER
+         */
+        private final long sidewaysFilterMaxSize;
         
         /**
          * <code>true</code> iff this is the first time the task is being
@@ -206,6 +215,12 @@ public class JVMNamedSubqueryOp extends PipelineOp implements INamedSubqueryOp,
             this.subquery = (PipelineOp) op
                     .getRequiredProperty(Annotations.SUBQUERY);
 
+            this.sidewaysFilterMaxSize = op.getProperty(
+                    Annotations.SIDEWAYS_FILTER,
+                    Annotations.DEFAULT_SIDEWAYS_FILTER) ? op.getProperty(
+                    Annotations.SIDEWAYS_FILTER_MAX_SIZE,
+                    Annotations.DEFAULT_SIDEWAYS_FILTER_MAX_SIZE) : -1L;
+
             this.namedSetRef = (INamedSolutionSetRef) op
                     .getRequiredProperty(Annotations.NAMED_SET_REF);
             
@@ -381,6 +396,12 @@ public class JVMNamedSubqueryOp extends PipelineOp implements INamedSubqueryOp,
                         // Report the #of solutions in the named solution set.
                         stats.solutionSetSize.add(ncopied);
 
+                        if (sidewaysFilterMaxSize != -1L) {
+                            // Publish filters for the probe side joins.
+                            SidewaysFilter.publish(attrs, namedSetRef, state,
+                                    sidewaysFilterMaxSize);
+                        }
+
 //                        // Publish the solution set on the query context.
 //                        saveSolutionSet();
 
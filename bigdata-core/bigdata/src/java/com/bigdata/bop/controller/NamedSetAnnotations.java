@@ -32,6 +32,8 @@ import com.bigdata.bop.IQueryAttributes;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.join.IHashJoinUtility;
+import com.bigdata.bop.join.PipelineJoin;
+import com.bigdata.bop.join.SidewaysFilter;
 
 /**
  * Attributes for named solution set processing.
@@ -63,4 +65,28 @@ public interface NamedSetAnnotations {
      */
     final String NAMED_SET_REF = "namedSetRef";
 
+    /**
+     * When <code>true</code>, a {@link SidewaysFilter} is published for each
+     * join variable of the hash index once the hash index is complete (default
+     * {@value #DEFAULT_SIDEWAYS_FILTER}). Joins which are annotated with
+     * {@link PipelineJoin.Annotations#SIDEWAYS_FILTERS} use those filters to
+     * discard tuples which can not join with the hash index.
+     * <p>
+     * Note: This is only honored by the named subquery operators, which
+     * build their hash index before the main query runs.
+     */
+    final String SIDEWAYS_FILTER = "sidewaysFilter";
+
+    final boolean DEFAULT_SIDEWAYS_FILTER = false;
+
+    /**
+     * The maximum #of solutions in a hash index for which a
+     * {@link SidewaysFilter} will be published (default
+     * {@value #DEFAULT_SIDEWAYS_FILTER_MAX_SIZE}). A filter over a larger
+     * solution set is unlikely to be selective.
+     */
+    final String SIDEWAYS_FILTER_MAX_SIZE = "sidewaysFilterMaxSize";
+
+    final long DEFAULT_SIDEWAYS_FILTER_MAX_SIZE = 1000000L;
+
 }
@@ -616,18 +616,37 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
              * Note: If the operator is pipelined, then we do not drain more
              * than [maxMessagesPerTask] messages at a time. The remainder are
              * left on the work queue for the next task instance which we start
-             * for this operator.
+             * for this operator. However, if chunk coalescing is enabled and
+             * the work queue is deep, then up to [coalesceFactor] times that
+             * many messages are drained in order to amortize the per-task
+             * overhead.
              */
+            final int maxDrain;
+            if (!pipelined) {
+                maxDrain = Integer.MAX_VALUE;
+            } else {
+                final int coalesceFactor = getQueryEngine()
+                        .getCoalesceFactor();
+                if (coalesceFactor > 1 && queue.size() > maxMessagesPerTask) {
+                    maxDrain = (int) Math.min(Integer.MAX_VALUE,
+                            (long) maxMessagesPerTask * coalesceFactor);
+                } else {
+                    maxDrain = maxMessagesPerTask;
+                }
+            }
             final List<IChunkMessage<IBindingSet>> accepted = new LinkedList<IChunkMessage<IBindingSet>>();
             try {
                 /*
                  * Note: Once we drain these messages from the work queue we are
                  * responsible for calling release() on them.
                  */
-                queue.drainTo(accepted, pipelined ? maxMessagesPerTask
-                        : Integer.MAX_VALUE);
+                queue.drainTo(accepted, maxDrain);
                 // #of messages accepted from the work queue.
                 final int naccepted = accepted.size();
+                if (pipelined && naccepted > maxMessagesPerTask) {
+                    getQueryEngine().counters.coalescedChunkMessageCount
+                            .add(naccepted - maxMessagesPerTask);
+                }
                 getQueryEngine().counters.bufferedChunkMessageCount.add(-naccepted);
                 {
                     long byteCount = 0;
@@ -739,7 +758,7 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
                             + bop.toShortString() + ", messages=" + naccepted
                             + ", solutions=" + solutionsAccepted
                             + (log.isDebugEnabled()?", runState=" + runStateString():""));
-                getQueryEngine().execute(cft);
+                getQueryEngine().execute(this, bop, cft);
                 return true;
             } catch(Throwable t) {
                 // Ensure accepted messages are released();
@@ -853,9 +872,24 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
 
             }
 
-            // Schedule another task if any messages are waiting.
-            ChunkedRunningQuery.this.scheduleNext(new BSBundle(t.bopId,
-                    t.partitionId));
+            if (getQueryEngine().isWorkStealing()) {
+
+                /*
+                 * Schedule tasks for this operator and for any operator whose
+                 * input was produced by this task. Since we are running in a
+                 * worker thread, those tasks are forked onto the deque of this
+                 * thread, so the next operator normally consumes the chunks on
+                 * the same thread.
+                 */
+                ChunkedRunningQuery.this.consumeChunk();
+
+            } else {
+
+                // Schedule another task if any messages are waiting.
+                ChunkedRunningQuery.this.scheduleNext(new BSBundle(t.bopId,
+                        t.partitionId));
+
+            }
 
         }
         
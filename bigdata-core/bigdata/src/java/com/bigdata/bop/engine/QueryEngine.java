@@ -219,6 +219,64 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
      */
     protected static final transient String ERR_QUERY_NOT_RUNNING = "Query is not running:";
 
+    /**
+     * Configuration options for the {@link QueryEngine}. These options are
+     * read from the environment (system properties) when the
+     * {@link QueryEngine} is {@link QueryEngine#init() initialized}.
+     */
+    public interface Options {
+
+        /**
+         * The scheduler used to run operator evaluation tasks on a standalone
+         * {@link QueryEngine} (default {@value #DEFAULT_SCHEDULER}). The
+         * supported values are:
+         * <dl>
+         * <dt>{@value #SCHEDULER_THREAD_POOL}</dt>
+         * <dd>Tasks are executed on the {@link ExecutorService} of the local
+         * {@link IIndexManager}.</dd>
+         * <dt>{@value #SCHEDULER_WORK_STEALING}</dt>
+         * <dd>Tasks are executed by a {@link WorkStealingScheduler}. Each query
+         * receives a share of the pool weighted by its
+         * {@link Annotations#PRIORITY}, the chunks output by an operator are
+         * normally consumed by the next operator on the same worker thread,
+         * and the messages on deep operator work queues are coalesced into
+         * fewer tasks (see {@link #COALESCE_FACTOR}).</dd>
+         * </dl>
+         * This option is ignored for scale-out.
+         */
+        String SCHEDULER = QueryEngine.class.getName() + ".scheduler";
+
+        String SCHEDULER_THREAD_POOL = "ThreadPool";
+
+        String SCHEDULER_WORK_STEALING = "WorkStealing";
+
+        String DEFAULT_SCHEDULER = SCHEDULER_THREAD_POOL;
+
+        /**
+         * The parallelism of the {@link WorkStealingScheduler}. When ZERO
+         * (the default), the #of available processors is used.
+         */
+        String WORK_STEALING_PARALLELISM = QueryEngine.class.getName()
+                + ".workStealingParallelism";
+
+        String DEFAULT_WORK_STEALING_PARALLELISM = "0";
+
+        /**
+         * When using the {@link WorkStealingScheduler} and there are more than
+         * {@link PipelineOp.Annotations#MAX_MESSAGES_PER_TASK} messages waiting
+         * for a pipelined operator, up to this many times that #of messages
+         * will be drained into a single task (default
+         * {@value #DEFAULT_COALESCE_FACTOR}). This amortizes the per-task
+         * overhead when the queues are deep. A value of ONE disables chunk
+         * coalescing.
+         */
+        String COALESCE_FACTOR = QueryEngine.class.getName()
+                + ".coalesceFactor";
+
+        String DEFAULT_COALESCE_FACTOR = "4";
+
+    }
+
     /**
      * Annotations understood by the {@link QueryEngine}.
      * 
@@ -265,6 +323,19 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
          * @see BLZG-533 Vector query engine on native heap.
          */
         String CHUNK_HANDLER = QueryEngine.class.getName() + ".chunkHandler";
+
+        /**
+         * The relative weight of the query when sharing the
+         * {@link WorkStealingScheduler} with other queries (default
+         * {@value #DEFAULT_PRIORITY}). A query with a weight of
+         * <code>2</code> may run twice as many concurrent operator tasks as a
+         * query with a weight of <code>1</code>. Values LT ONE are treated as
+         * ONE. This annotation is ignored unless the
+         * {@link Options#SCHEDULER} is {@link Options#SCHEDULER_WORK_STEALING}.
+         */
+        String PRIORITY = QueryEngine.class.getName() + ".priority";
+
+        int DEFAULT_PRIORITY = 1;
         
     }
 
@@ -281,6 +352,16 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         counters.deadlineQueueSize.set(deadlineQueue.size());
 	// Running queries
 	counters.runningQueriesCount.set(runningQueries.size());
+        {
+            // Note: These counters are not otherwise tracked.
+            final WorkStealingScheduler s = scheduler.get();
+            if (s != null) {
+                counters.schedulerQueueDepth.set(s.getQueueDepth());
+                counters.schedulerStealCount.set(s.getStealCount());
+                counters.schedulerLocalForkCount.set(s.getLocalForkCount());
+                counters.schedulerDeferredCount.set(s.getDeferredCount());
+            }
+        }
         // global counters.
         root.attach(counters.getCounters());
 
@@ -450,6 +531,19 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
 //     */
 //    private final ForkJoinPool fjpool;
 
+    /**
+     * The {@link WorkStealingScheduler} iff that scheduler was selected. This
+     * is set by {@link #init()}.
+     * 
+     * @see Options#SCHEDULER
+     */
+    private final AtomicReference<WorkStealingScheduler> scheduler = new AtomicReference<WorkStealingScheduler>();
+
+    /**
+     * @see Options#COALESCE_FACTOR
+     */
+    private volatile int coalesceFactor = 1;
+
     @Override
     public UUID getServiceUUID() {
 
@@ -949,6 +1043,31 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
 
         if (engineFuture.compareAndSet(null/* expect */, ft)) {
         
+            if (!isScaleOut()
+                    && Options.SCHEDULER_WORK_STEALING.equals(System
+                            .getProperty(Options.SCHEDULER,
+                                    Options.DEFAULT_SCHEDULER))) {
+
+                int parallelism = Integer.valueOf(System.getProperty(
+                        Options.WORK_STEALING_PARALLELISM,
+                        Options.DEFAULT_WORK_STEALING_PARALLELISM));
+
+                if (parallelism <= 0)
+                    parallelism = Runtime.getRuntime().availableProcessors();
+
+                scheduler.set(new WorkStealingScheduler(parallelism));
+
+                coalesceFactor = Math.max(1, Integer.valueOf(System
+                        .getProperty(Options.COALESCE_FACTOR,
+                                Options.DEFAULT_COALESCE_FACTOR)));
+
+                if (log.isInfoEnabled())
+                    log.info("Using work stealing scheduler: parallelism="
+                            + parallelism + ", coalesceFactor="
+                            + coalesceFactor);
+
+            }
+
             engineService.set(Executors
                     .newSingleThreadExecutor(new DaemonThreadFactory(
                             QueryEngine.class + ".engineService")));
@@ -1028,6 +1147,67 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         localIndexManager.getExecutorService().execute(r);
         
     }
+
+    /**
+     * Executes an operator evaluation task for a query. The task is run by the
+     * {@link WorkStealingScheduler} when that scheduler is in use and
+     * otherwise on the local {@link IIndexManager}'s {@link ExecutorService}.
+     * Tasks for operators which may block waiting on other tasks are always
+     * run on the {@link ExecutorService}.
+     * 
+     * @param q
+     *            The query.
+     * @param op
+     *            The operator.
+     * @param r
+     *            The {@link Runnable}.
+     * 
+     * @see Options#SCHEDULER
+     * @see WorkStealingScheduler#mayBlock(BOp, BOp)
+     */
+    final protected void execute(final AbstractRunningQuery q,
+            final BOp op, final Runnable r) {
+
+        final WorkStealingScheduler s = scheduler.get();
+
+        if (s == null || WorkStealingScheduler.mayBlock(q.getQuery(), op)) {
+
+            execute(r);
+
+            return;
+
+        }
+
+        s.execute(q.getQueryId(), q.getQuery().getProperty(
+                Annotations.PRIORITY, Annotations.DEFAULT_PRIORITY), r);
+
+    }
+
+    /**
+     * Return <code>true</code> iff operator evaluation tasks are run by the
+     * {@link WorkStealingScheduler}.
+     * 
+     * @see Options#SCHEDULER
+     */
+    public boolean isWorkStealing() {
+
+        return scheduler.get() != null;
+
+    }
+
+    /**
+     * The maximum #of times {@link PipelineOp.Annotations#MAX_MESSAGES_PER_TASK}
+     * messages which may be coalesced into a single task for a pipelined
+     * operator with a deep work queue. This is ONE unless the
+     * {@link WorkStealingScheduler} is in use.
+     * 
+     * @see Options#COALESCE_FACTOR
+     */
+    public int getCoalesceFactor() {
+
+        return coalesceFactor;
+
+    }
     
     /**
      * Runnable submits chunks available for evaluation against running queries.
@@ -1218,6 +1398,14 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
                 log.info("Terminating engineService: "+this);
             s.shutdownNow();
         }
+
+        // stop the work stealing scheduler (if any).
+        final WorkStealingScheduler ws = scheduler.getAndSet(null);
+        if (ws != null) {
+            if (log.isInfoEnabled())
+                log.info("Terminating work stealing scheduler: " + this);
+            ws.shutdownNow();
+        }
         
         final HttpClient cm = clientConnectionManagerRef.get();
         if (cm != null) {
@@ -1275,6 +1463,14 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
                 log.info("Terminating engineService: "+this);
             s.shutdownNow();
         }
+
+        // stop the work stealing scheduler (if any).
+        final WorkStealingScheduler ws = scheduler.getAndSet(null);
+        if (ws != null) {
+            if (log.isInfoEnabled())
+                log.info("Terminating work stealing scheduler: " + this);
+            ws.shutdownNow();
+        }
         
         final HttpClient cm = clientConnectionManagerRef.get();
         if (cm != null) {
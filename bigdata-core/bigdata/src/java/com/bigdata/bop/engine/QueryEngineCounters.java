@@ -130,6 +130,38 @@ public class QueryEngineCounters implements ICounterSetAccess {
      */
     protected final CAT runningQueriesCount = new CAT();
 
+    /**
+     * The #of operator evaluation tasks waiting to run on the
+     * {@link WorkStealingScheduler} (sampled).
+     */
+    protected final CAT schedulerQueueDepth = new CAT();
+
+    /**
+     * The #of tasks stolen by one worker thread of the
+     * {@link WorkStealingScheduler} from another (sampled).
+     */
+    protected final CAT schedulerStealCount = new CAT();
+
+    /**
+     * The #of tasks forked onto the deque of the worker thread of the
+     * {@link WorkStealingScheduler} which produced their input (sampled).
+     */
+    protected final CAT schedulerLocalForkCount = new CAT();
+
+    /**
+     * The #of tasks held back by the {@link WorkStealingScheduler} because
+     * their query had reached its share of the pool (sampled).
+     */
+    protected final CAT schedulerDeferredCount = new CAT();
+
+    /**
+     * The #of chunk messages which were coalesced into an operator evaluation
+     * task beyond {@link com.bigdata.bop.PipelineOp.Annotations#MAX_MESSAGES_PER_TASK}.
+     * 
+     * @see QueryEngine.Options#COALESCE_FACTOR
+     */
+    protected final CAT coalescedChunkMessageCount = new CAT();
+
     @Override
     public CounterSet getCounters() {
 
@@ -261,6 +293,46 @@ public class QueryEngineCounters implements ICounterSetAccess {
             }
         });
 
+        // The #of tasks waiting on the work stealing scheduler.
+        root.addCounter("schedulerQueueDepth", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(schedulerQueueDepth.get());
+            }
+        });
+
+        // The #of tasks stolen by the work stealing scheduler.
+        root.addCounter("schedulerStealCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(schedulerStealCount.get());
+            }
+        });
+
+        // The #of tasks forked locally by the work stealing scheduler.
+        root.addCounter("schedulerLocalForkCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(schedulerLocalForkCount.get());
+            }
+        });
+
+        // The #of tasks deferred for fairness by the work stealing scheduler.
+        root.addCounter("schedulerDeferredCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(schedulerDeferredCount.get());
+            }
+        });
+
+        // The #of chunk messages coalesced into larger tasks.
+        root.addCounter("coalescedChunkMessageCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(coalescedChunkMessageCount.get());
+            }
+        });
+
         return root;
 
     }
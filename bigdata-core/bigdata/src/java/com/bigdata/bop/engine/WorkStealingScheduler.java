@@ -0,0 +1,505 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.bop.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.counters.CAT;
+
+/**
+ * A work-stealing scheduler for operator evaluation tasks on a standalone
+ * {@link QueryEngine}. Tasks are executed on a {@link ForkJoinPool} running in
+ * async (FIFO) mode. A task submitted from one of the worker threads of the
+ * pool is forked onto the local deque of that worker, so the chunk produced by
+ * an operator is normally consumed by the next operator on the same thread
+ * (and with a warm cache) unless an idle worker steals it.
+ * <p>
+ * Fairness across queries is imposed by limiting the #of concurrently running
+ * tasks for each query to its share of the pool. The share of a query is
+ * proportional to its weight (see {@link QueryEngine.Annotations#PRIORITY})
+ * relative to the total weight of the queries which currently have tasks
+ * running or waiting, but is never less than one. Tasks in excess of that
+ * share are held back by the scheduler and released in FIFO order as the
+ * tasks for the same query complete.
+ * <p>
+ * Note: The {@link ForkJoinPool} does not compensate for blocked workers.
+ * Operators which may block waiting on other tasks (see
+ * {@link #mayBlock(BOp, BOp)}) are therefore not run by this scheduler. Once
+ * every worker was blocked, a nested query (or the operator draining a
+ * subquery) would otherwise deadlock or starve. Operator tasks may still
+ * block on IO, so the parallelism should be configured with that in mind.
+ * 
+ * @see QueryEngine.Options#SCHEDULER
+ */
+public class WorkStealingScheduler {
+
+    private static final transient Logger log = Logger
+            .getLogger(WorkStealingScheduler.class);
+
+    /**
+     * The per-query scheduling state.
+     */
+    private static class QueryState {
+
+        /** The weight of the query (positive). */
+        final int weight;
+
+        /** The #of tasks for the query which are submitted to the pool. */
+        int running;
+
+        /** Tasks held back until the query is within its share. */
+        final LinkedList<Runnable> pending = new LinkedList<Runnable>();
+
+        QueryState(final int weight) {
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * The pool on which the tasks are executed.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The parallelism of the {@link #pool}.
+     */
+    private final int parallelism;
+
+    /**
+     * Lock guarding {@link #queries}, {@link #totalWeight} and the fields of
+     * each {@link QueryState}.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The queries which have tasks running or pending (in arrival order).
+     */
+    private final LinkedHashMap<UUID, QueryState> queries = new LinkedHashMap<UUID, QueryState>();
+
+    /**
+     * The sum of the weights of the {@link #queries}.
+     */
+    private long totalWeight = 0L;
+
+    /**
+     * The #of tasks currently held back by the scheduler.
+     */
+    private int pendingCount = 0;
+
+    /**
+     * The #of tasks which were forked onto the deque of the submitting worker
+     * thread.
+     */
+    private final CAT localForkCount = new CAT();
+
+    /**
+     * The #of tasks which were held back because their query had reached its
+     * share of the pool.
+     */
+    private final CAT deferredCount = new CAT();
+
+    /**
+     * @param parallelism
+     *            The target parallelism for the pool.
+     */
+    public WorkStealingScheduler(final int parallelism) {
+
+        if (parallelism <= 0)
+            throw new IllegalArgumentException();
+
+        this.parallelism = parallelism;
+
+        this.pool = new ForkJoinPool(parallelism, new WorkerThreadFactory(),
+                null/* handler */, true/* asyncMode */);
+
+    }
+
+    /**
+     * Names the worker threads and marks them as daemon threads.
+     */
+    private static class WorkerThreadFactory implements
+            ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger nthreads = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+
+            final ForkJoinWorkerThread t = new ForkJoinWorkerThread(pool) {
+            };
+
+            t.setName(QueryEngine.class.getName() + ".workStealing-"
+                    + nthreads.incrementAndGet());
+
+            t.setDaemon(true);
+
+            return t;
+
+        }
+
+    }
+
+    /**
+     * The parallelism of the pool.
+     */
+    public int getParallelism() {
+
+        return parallelism;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the caller is running in a worker thread
+     * of this scheduler.
+     */
+    public boolean isWorkerThread() {
+
+        final Thread t = Thread.currentThread();
+
+        return t instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) t).getPool() == pool;
+
+    }
+
+    /**
+     * Return <code>true</code> if an evaluation task for the operator may
+     * block waiting on other tasks, in which case it must not be run by this
+     * scheduler. Those operators are:
+     * <ul>
+     * <li>the root of the query plan, which writes its solutions onto the
+     * query buffer and blocks when that buffer is full;</li>
+     * <li>operators evaluated on the query controller, which includes the
+     * named subqueries, service calls and the runtime query optimizer;</li>
+     * <li>operators with a subquery plan (an annotation whose value is a
+     * {@link PipelineOp}), which wait on the solutions of that subquery.</li>
+     * </ul>
+     * 
+     * @param query
+     *            The query plan.
+     * @param op
+     *            An operator in that query plan.
+     */
+    public static boolean mayBlock(final BOp query, final BOp op) {
+
+        if (query.getId() == op.getId()) {
+
+            // Writes on the query buffer.
+            return true;
+
+        }
+
+        if (op.getEvaluationContext() == BOpEvaluationContext.CONTROLLER) {
+
+            return true;
+
+        }
+
+        for (Object v : op.annotations().values()) {
+
+            if (v instanceof PipelineOp) {
+
+                // Subquery.
+                return true;
+
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Schedule a task for a query.
+     * 
+     * @param queryId
+     *            The query.
+     * @param weight
+     *            The weight of the query (values LT ONE are treated as ONE).
+     * @param r
+     *            The task.
+     */
+    public void execute(final UUID queryId, final int weight, final Runnable r) {
+
+        if (queryId == null)
+            throw new IllegalArgumentException();
+
+        if (r == null)
+            throw new IllegalArgumentException();
+
+        final Runnable task;
+
+        lock.lock();
+        try {
+
+            QueryState s = queries.get(queryId);
+
+            if (s == null) {
+
+                s = new QueryState(Math.max(1, weight));
+
+                queries.put(queryId, s);
+
+                totalWeight += s.weight;
+
+            }
+
+            if (s.running < share(s)) {
+
+                s.running++;
+
+                task = new Task(s, r);
+
+            } else {
+
+                s.pending.add(r);
+
+                pendingCount++;
+
+                deferredCount.increment();
+
+                task = null;
+
+            }
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+        if (task != null)
+            submit(task);
+
+    }
+
+    /**
+     * The maximum #of concurrently running tasks for the query.
+     * <p>
+     * Note: Caller must own the {@link #lock}.
+     */
+    private int share(final QueryState s) {
+
+        return (int) Math.max(1L, (parallelism * (long) s.weight)
+                / Math.max(1L, totalWeight));
+
+    }
+
+    /**
+     * Fork the task if the caller is a worker thread (locality) and otherwise
+     * submit it to the pool.
+     */
+    private void submit(final Runnable task) {
+
+        if (isWorkerThread()) {
+
+            ForkJoinTask.adapt(task).fork();
+
+            localForkCount.increment();
+
+        } else {
+
+            pool.execute(task);
+
+        }
+
+    }
+
+    /**
+     * Invoked when a task is done. Releases pending tasks for any query which
+     * is now within its share, including other queries whose share has grown
+     * because this query is no longer active.
+     */
+    private void done(final QueryState s) {
+
+        final List<Runnable> ready = new ArrayList<Runnable>();
+
+        lock.lock();
+        try {
+
+            s.running--;
+
+            final Iterator<QueryState> itr = queries.values().iterator();
+
+            while (itr.hasNext()) {
+
+                final QueryState x = itr.next();
+
+                if (x.running == 0 && x.pending.isEmpty()) {
+
+                    // No longer active.
+                    itr.remove();
+
+                    totalWeight -= x.weight;
+
+                }
+
+            }
+
+            for (QueryState x : queries.values()) {
+
+                while (!x.pending.isEmpty() && x.running < share(x)) {
+
+                    x.running++;
+
+                    pendingCount--;
+
+                    ready.add(new Task(x, x.pending.removeFirst()));
+
+                }
+
+            }
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+        for (Runnable task : ready) {
+
+            submit(task);
+
+        }
+
+    }
+
+    /**
+     * Wraps a task in order to notify the scheduler when it is done.
+     */
+    private class Task implements Runnable {
+
+        private final QueryState s;
+
+        private final Runnable r;
+
+        Task(final QueryState s, final Runnable r) {
+            this.s = s;
+            this.r = r;
+        }
+
+        @Override
+        public void run() {
+
+            try {
+
+                r.run();
+
+            } finally {
+
+                done(s);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * The #of tasks which have been stolen by one worker thread from another.
+     */
+    public long getStealCount() {
+
+        return pool.getStealCount();
+
+    }
+
+    /**
+     * The #of tasks waiting to run, including the tasks on the deques of the
+     * worker threads, the tasks submitted to the pool by external threads and
+     * the tasks held back by the scheduler.
+     */
+    public long getQueueDepth() {
+
+        final int n;
+        lock.lock();
+        try {
+            n = pendingCount;
+        } finally {
+            lock.unlock();
+        }
+
+        return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount() + n;
+
+    }
+
+    /**
+     * The #of tasks which were forked onto the deque of a worker thread.
+     */
+    public long getLocalForkCount() {
+
+        return localForkCount.get();
+
+    }
+
+    /**
+     * The #of tasks which were held back by the scheduler because their query
+     * had reached its share of the pool.
+     */
+    public long getDeferredCount() {
+
+        return deferredCount.get();
+
+    }
+
+    /**
+     * Stop the pool. Tasks which have not started will not be executed.
+     */
+    public void shutdownNow() {
+
+        pool.shutdownNow();
+
+        lock.lock();
+        try {
+            queries.clear();
+            totalWeight = 0L;
+            pendingCount = 0;
+        } finally {
+            lock.unlock();
+        }
+
+        if (log.isInfoEnabled())
+            log.info("Terminated: stealCount=" + pool.getStealCount()
+                    + ", localForkCount=" + localForkCount.get());
+
+    }
+
+}
@@ -0,0 +1,281 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.bigdata.util.BytesUtil;
+
+/**
+ * An {@link ITrieIterator} over an in-memory array of rows. The rows are
+ * sorted and de-duplicated when the iterator is created. Each level is a
+ * contiguous run of rows sharing the keys of the parent levels, so
+ * {@link #next()} and {@link #seek(byte[])} are binary searches within that
+ * run.
+ * <p>
+ * This is used by the {@link LeapfrogTriejoinOp} when none of the indices for
+ * an atom has a key order compatible with the global variable order of the
+ * join, in which case the solutions for the atom are materialized and sorted.
+ */
+public class ArrayTrieIterator implements ITrieIterator {
+
+    /**
+     * The #of levels.
+     */
+    private final int depth;
+
+    /**
+     * The keys for each row (sorted, distinct).
+     */
+    private final byte[][][] keys;
+
+    /**
+     * The values for each row.
+     */
+    private final Object[][] values;
+
+    /**
+     * The current level (<code>-1</code> when positioned above the first
+     * level).
+     */
+    private int level = -1;
+
+    /**
+     * The index of the current row at each level.
+     */
+    private final int[] pos;
+
+    /**
+     * The exclusive upper bound on the rows for each level.
+     */
+    private final int[] hi;
+
+    /**
+     * @param depth
+     *            The #of levels.
+     * @param keys
+     *            The key for each level of each row.
+     * @param values
+     *            The value for each level of each row.
+     */
+    public ArrayTrieIterator(final int depth, final byte[][][] keys,
+            final Object[][] values) {
+
+        if (depth < 0)
+            throw new IllegalArgumentException();
+
+        if (keys == null || values == null || keys.length != values.length)
+            throw new IllegalArgumentException();
+
+        this.depth = depth;
+
+        final Integer[] order = new Integer[keys.length];
+
+        for (int i = 0; i < order.length; i++) {
+
+            if (keys[i].length != depth || values[i].length != depth)
+                throw new IllegalArgumentException();
+
+            order[i] = i;
+
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return compareRows(keys[o1], keys[o2]);
+            }
+        });
+
+        // copy in sorted order, dropping duplicate rows.
+        int n = 0;
+        final byte[][][] k = new byte[keys.length][][];
+        final Object[][] v = new Object[keys.length][];
+        for (int i = 0; i < order.length; i++) {
+            final byte[][] row = keys[order[i]];
+            if (n > 0 && compareRows(k[n - 1], row) == 0)
+                continue;
+            k[n] = row;
+            v[n] = values[order[i]];
+            n++;
+        }
+
+        this.keys = Arrays.copyOf(k, n);
+        this.values = Arrays.copyOf(v, n);
+        this.pos = new int[depth];
+        this.hi = new int[depth];
+
+    }
+
+    private static int compareRows(final byte[][] a, final byte[][] b) {
+
+        for (int i = 0; i < a.length; i++) {
+
+            final int ret = BytesUtil.compareBytes(a[i], b[i]);
+
+            if (ret != 0)
+                return ret;
+
+        }
+
+        return 0;
+
+    }
+
+    /**
+     * The #of distinct rows.
+     */
+    public int size() {
+
+        return keys.length;
+
+    }
+
+    @Override
+    public int getDepth() {
+
+        return depth;
+
+    }
+
+    @Override
+    public void open() {
+
+        if (level + 1 >= depth)
+            throw new IllegalStateException();
+
+        if (level == -1) {
+
+            pos[0] = 0;
+            hi[0] = keys.length;
+
+        } else {
+
+            if (atEnd())
+                throw new IllegalStateException();
+
+            // the run of rows sharing the current key.
+            final int lo = pos[level];
+            hi[level + 1] = upperBound(level, lo, hi[level],
+                    keys[lo][level]);
+            pos[level + 1] = lo;
+
+        }
+
+        level++;
+
+    }
+
+    @Override
+    public void up() {
+
+        if (level < 0)
+            throw new IllegalStateException();
+
+        level--;
+
+    }
+
+    @Override
+    public boolean atEnd() {
+
+        return pos[level] >= hi[level];
+
+    }
+
+    @Override
+    public byte[] key() {
+
+        return keys[pos[level]][level];
+
+    }
+
+    @Override
+    public Object value() {
+
+        return values[pos[level]][level];
+
+    }
+
+    @Override
+    public void next() {
+
+        pos[level] = upperBound(level, pos[level], hi[level], key());
+
+    }
+
+    @Override
+    public void seek(final byte[] key) {
+
+        if (atEnd())
+            return;
+
+        pos[level] = lowerBound(level, pos[level], hi[level], key);
+
+    }
+
+    /**
+     * The index of the first row in [lo:hi) whose key at the given level is GT
+     * the given key.
+     */
+    private int upperBound(final int level, int lo, int hi, final byte[] key) {
+
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (BytesUtil.compareBytes(keys[mid][level], key) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return lo;
+
+    }
+
+    /**
+     * The index of the first row in [lo:hi) whose key at the given level is
+     * GTE the given key.
+     */
+    private int lowerBound(final int level, int lo, int hi, final byte[] key) {
+
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (BytesUtil.compareBytes(keys[mid][level], key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return lo;
+
+    }
+
+}
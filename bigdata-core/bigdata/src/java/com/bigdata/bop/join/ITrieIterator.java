@@ -0,0 +1,92 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+/**
+ * A trie view of the solutions for one atom of a {@link LeapfrogTriejoinOp}.
+ * Each level of the trie corresponds to one variable of the atom, and the
+ * levels are laid out in the global variable order of the join. Keys at each
+ * level are the unsigned byte[] encoding of the bound value and are visited
+ * in ascending order.
+ * <p>
+ * The iterator starts above the first level. {@link #open()} descends to the
+ * first key at the next level under the current key and {@link #up()}
+ * returns to the parent level.
+ * 
+ * @see LeapfrogTriejoinOp
+ */
+public interface ITrieIterator {
+
+    /**
+     * The #of levels in the trie.
+     */
+    int getDepth();
+
+    /**
+     * Descend to the first key at the next level of the trie under the current
+     * key (or the first key at the first level if the iterator is positioned
+     * above the first level).
+     */
+    void open();
+
+    /**
+     * Return to the parent level.
+     */
+    void up();
+
+    /**
+     * Return <code>true</code> iff there are no more keys at the current level
+     * under the parent key.
+     */
+    boolean atEnd();
+
+    /**
+     * The key at the current position (unsigned byte[] ordering).
+     */
+    byte[] key();
+
+    /**
+     * The value corresponding to the {@link #key()}.
+     */
+    Object value();
+
+    /**
+     * Advance to the next key at the current level.
+     */
+    void next();
+
+    /**
+     * Advance to the first key at the current level which is GTE the given
+     * key. This is a NOP if the current key is already GTE the given key.
+     * 
+     * @param key
+     *            The key.
+     */
+    void seek(byte[] key);
+
+}
@@ -25,9 +25,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.log4j.Logger;
 
@@ -35,7 +34,6 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.solutions.JVMDistinctBindingSetsOp;
-import com.bigdata.counters.CAT;
 
 /**
  * A hash index for {@link IBindingSet}s that supports duplicate solutions and
@@ -59,7 +57,7 @@ public class JVMHashIndex {
      * Note: If joinVars is an empty array, then the solutions will all hash to
      * ONE (1).
      */
-    private static final int ONE = 1;
+    static final int ONE = 1;
 
 //    /**
 //     * Return the hash code which will be used as the key given the ordered
@@ -230,7 +228,9 @@ public class JVMHashIndex {
     }
 
     /**
-     * An solution and a hit counter as stored in the {@link JVMHashIndex}.
+     * An solution and its hit counter as stored in the {@link JVMHashIndex}.
+     * This is a view onto a slot of a {@link Bucket}, which stores the
+     * solutions and their hit counters in arrays.
      */
     public static class SolutionHit {
 
@@ -240,26 +240,55 @@ public class JVMHashIndex {
         final public IBindingSet solution;
 
         /**
-         * The #of hits on that solution. This may be used to detect solutions
-         * that did not join. E.g., by scanning and reporting out all solutions
-         * where {@link #nhits} is ZERO (0L).
+         * The bucket in which the solution is stored.
          */
-        public final CAT nhits = new CAT();
+        private final Bucket bucket;
 
-        private SolutionHit(final IBindingSet solution) {
+        /**
+         * The index of the solution in that bucket.
+         */
+        private final int index;
 
-            if (solution == null)
-                throw new IllegalArgumentException();
+        private SolutionHit(final Bucket bucket, final int index) {
+
+            this.bucket = bucket;
+
+            this.index = index;
+
+            this.solution = bucket.solutions[index];
+
+        }
+
+        /**
+         * Increment the #of hits on the solution.
+         * <p>
+         * Note: The hit counter is not updated atomically. If the index is
+         * probed concurrently some increments can be lost, but the counter of
+         * a solution which was hit is never ZERO (0). That is all that is
+         * required to detect the solutions which did not join.
+         */
+        public void incrementHits() {
+
+            bucket.nhits[index]++;
+
+        }
 
-            this.solution = solution;
+        /**
+         * The #of hits on that solution. This may be used to detect solutions
+         * that did not join. E.g., by scanning and reporting out all solutions
+         * where the #of hits is ZERO (0).
+         */
+        public int getHits() {
+
+            return bucket.nhits[index];
 
         }
 
         @Override
         public String toString() {
 
-            return getClass().getName() + "{nhits=" + nhits + ",solution="
-                    + solution + "}";
+            return getClass().getName() + "{nhits=" + getHits()
+                    + ",solution=" + solution + "}";
 
         }
 
@@ -268,7 +297,8 @@ public class JVMHashIndex {
     /**
      * A group of solutions having the same as-bound values for the join vars.
      * Each solution is paired with a hit counter so we can support OPTIONAL
-     * semantics for the join.
+     * semantics for the join. The solutions and their hit counters are stored
+     * in arrays which are grown as solutions are added.
      */
     public static class Bucket implements Iterable<SolutionHit>,
             Comparable<Bucket> {
@@ -277,16 +307,26 @@ public class JVMHashIndex {
         private final int hashCode;
 
         /**
-         * A set of solutions (and their hit counters) which have the same
-         * as-bound values for the join variables.
+         * A set of solutions which have the same as-bound values for the join
+         * variables. Only the first {@link #size} entries are used.
+         */
+        private IBindingSet[] solutions;
+
+        /**
+         * The hit counter for each solution in {@link #solutions}.
          */
-        private final List<SolutionHit> solutions = new LinkedList<SolutionHit>();
+        private int[] nhits;
+
+        /**
+         * The #of solutions in the bucket.
+         */
+        private int size;
 
         @Override
         public String toString() {
             return super.toString()
                     + //
-                    "{hashCode=" + hashCode + ",#solutions=" + solutions.size()
+                    "{hashCode=" + hashCode + ",#solutions=" + size
                     + "}";
         }
 
@@ -294,6 +334,10 @@ public class JVMHashIndex {
 
             this.hashCode = hashCode;
 
+            this.solutions = new IBindingSet[1];
+
+            this.nhits = new int[1];
+
             add(solution);
 
         }
@@ -303,7 +347,18 @@ public class JVMHashIndex {
             if (solution == null)
                 throw new IllegalArgumentException();
 
-            solutions.add(new SolutionHit(solution));
+            if (size == solutions.length) {
+
+                // Grow by 50% (doubling while the bucket is small).
+                final int capacity = size < 4 ? size << 1 : size + (size >> 1);
+
+                solutions = Arrays.copyOf(solutions, capacity);
+
+                nhits = Arrays.copyOf(nhits, capacity);
+
+            }
+
+            solutions[size++] = solution;
 
         }
 
@@ -328,32 +383,15 @@ public class JVMHashIndex {
          */
         public boolean addDistinct(final IBindingSet solution) {
 
-            if (solutions.isEmpty()) {
-
-                // First solution.
-                solutions.add(new SolutionHit(solution));
-
-                return true;
-
-            }
-
-            final Iterator<SolutionHit> itr = solutions.iterator();
+            if (contains(solution)) {
 
-            while (itr.hasNext()) {
-
-                final SolutionHit aSolution = itr.next();
-
-                if (aSolution.solution.equals(solution)) {
-
-                    // Solution already in this bucket.
-                    return false;
-
-                }
+                // Solution already in this bucket.
+                return false;
 
             }
 
             // This is a distinct solution.
-            solutions.add(new SolutionHit(solution));
+            add(solution);
 
             return true;
 
@@ -365,17 +403,9 @@ public class JVMHashIndex {
          */
         public boolean contains(final IBindingSet bs) {
 
-            if (solutions.isEmpty()) {
-                return false;
-            }
-
-            final Iterator<SolutionHit> itr = solutions.iterator();
-
-            while (itr.hasNext()) {
+            for (int i = 0; i < size; i++) {
 
-                final SolutionHit aSolution = itr.next();
-
-                if (aSolution.solution.equals(bs)) {
+                if (solutions[i].equals(bs)) {
                     return true;
                 }
 
@@ -388,24 +418,30 @@ public class JVMHashIndex {
         @Override
         final public Iterator<SolutionHit> iterator() {
 
-            // return Collections.unmodifiableList(solutions).iterator();
-            return solutions.iterator();
+            return new Iterator<SolutionHit>() {
 
-        }
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < size;
+                }
 
-        // @SuppressWarnings("unchecked")
-        // public Iterator<IBindingSet> bindingSetIterator() {
-        //
-        // return new Striterator(solutions.iterator()).addFilter(new Resolver()
-        // {
-        //
-        // @Override
-        // protected Object resolve(Object obj) {
-        // return ((SolutionHit)obj).solution;
-        // }
-        // });
-        //
-        // }
+                @Override
+                public SolutionHit next() {
+                    if (i >= size)
+                        throw new NoSuchElementException();
+                    return new SolutionHit(Bucket.this, i++);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+
+        }
 
         /**
          * Orders the buckets based on their hash codes.
@@ -432,7 +468,7 @@ public class JVMHashIndex {
          */
         final public boolean isEmpty() {
 
-            return solutions.isEmpty();
+            return size == 0;
 
         }
 
@@ -462,7 +498,7 @@ public class JVMHashIndex {
      * index all solutions since we will report only those solutions that do not
      * join. Once all solutions that do join have been identified, the solutions
      * that do not join are identified by a scan of the hash index looking for
-     * {@link SolutionHit#nhits} equals ZERO (0L).
+     * {@link SolutionHit#getHits()} equals ZERO (0).
      */
     private final boolean indexSolutionsHavingUnboundJoinVars;
 
@@ -532,19 +568,19 @@ public class JVMHashIndex {
      * @param bset
      *            The {@link IBindingSet}.
      * 
-     * @return The {@link Key} iff the solution was added to the index and
-     *         <code>null</code> iff the solution was not added (because a
+     * @return <code>true</code> iff the solution was added to the index and
+     *         <code>false</code> iff the solution was not added (because a
      *         {@link Key} could not be formed for the solution given the
      *         specified {@link #keyVars}).
      */
-    public Key add(final IBindingSet bset) {
+    public boolean add(final IBindingSet bset) {
 
         final Key key = makeKey(bset);
 
         if (key == null) {
 
             // Drop solution.
-            return null;
+            return false;
 
         }
 
@@ -605,7 +641,7 @@ public class JVMHashIndex {
 
         }
 
-        return key;
+        return true;
 
     }
 
@@ -330,18 +330,41 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
          */
         final IVariable<?>[] keyVars = filter ? (IVariable<?>[]) op
                 .getProperty(JoinAnnotations.SELECT) : joinVars;
-                
-        rightSolutionsRef.set(//
-            new JVMHashIndex(//
-                keyVars,//
-                indexSolutionsHavingUnboundJoinVars,//
-                new LinkedHashMap<Key, Bucket>(op.getProperty(
-                    HashMapAnnotations.INITIAL_CAPACITY,
-                    HashMapAnnotations.DEFAULT_INITIAL_CAPACITY),//
-                    op.getProperty(HashMapAnnotations.LOAD_FACTOR,
-                    HashMapAnnotations.DEFAULT_LOAD_FACTOR)//
-                )//
-        ));
+
+        final int initialCapacity = op.getProperty(
+                HashMapAnnotations.INITIAL_CAPACITY,
+                HashMapAnnotations.DEFAULT_INITIAL_CAPACITY);
+
+        final LinkedHashMap<Key, Bucket> map = new LinkedHashMap<Key, Bucket>(
+                initialCapacity,//
+                op.getProperty(HashMapAnnotations.LOAD_FACTOR,
+                        HashMapAnnotations.DEFAULT_LOAD_FACTOR)//
+        );
+
+        if (keyVars.length == 1) {
+
+            /*
+             * Specialized index for the common case of a single join variable
+             * which avoids the allocation of a Key and a hash map entry for
+             * each distinct term identifier.
+             */
+            rightSolutionsRef.set(new JVMLongHashIndex(//
+                    keyVars[0],//
+                    indexSolutionsHavingUnboundJoinVars,//
+                    map,//
+                    initialCapacity//
+            ));
+
+        } else {
+
+            rightSolutionsRef.set(new JVMHashIndex(//
+                    keyVars,//
+                    indexSolutionsHavingUnboundJoinVars,//
+                    map//
+            ));
+
+        }
+
     }
     
     @Override
@@ -435,7 +458,7 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
 
             for (IBindingSet bset : all) {
 
-                if (index.add(bset) == null) {
+                if (!index.add(bset)) {
 
                     continue;
 
@@ -634,7 +657,7 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
                                 outputSolution(outputBuffer, outSolution);
                                 // Increment counter so we know not to output
                                 // the rightSolution as an optional solution.
-                                right.nhits.increment();
+                                right.incrementHits();
                             }
                             break;
                         }
@@ -646,12 +669,12 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
                              * most one time.
                              */
                             if (outSolution != null) {
-                                // if (right.nhits.get() == 0L) {
+                                // if (right.getHits() == 0) {
                                 // // Output the solution.
                                 // outputSolution(outputBuffer, right.solution);
                                 // }
                                 // Increment counter so we know this solution joins.
-                                right.nhits.increment();
+                                right.incrementHits();
                             }
                             break;
                         }
@@ -665,7 +688,7 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
                             if (outSolution != null) {
                                 // Increment counter so we know not to output
                                 // the rightSolution as an optional solution.
-                                right.nhits.increment();
+                                right.incrementHits();
                             }
                             break;
                         }
@@ -755,7 +778,7 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
 
                 for (SolutionHit hit : b) {
 
-                    if (hit.nhits.get() > 0)
+                    if (hit.getHits() > 0)
                         continue;
 
                     IBindingSet bs = hit.solution;
@@ -982,7 +1005,7 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
 
                 for (SolutionHit hit : b) {
 
-                    if (hit.nhits.get() == 0)
+                    if (hit.getHits() == 0)
                         continue;
 
                     IBindingSet bs = hit.solution;
@@ -0,0 +1,380 @@
+/**
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.impl.TermId;
+
+/**
+ * A {@link JVMHashIndex} specialized for a single join variable. Solutions
+ * whose join variable is bound to a {@link TermId} are indexed by the
+ * <code>long</code> term identifier using open addressing over primitive
+ * arrays, so no {@link JVMHashIndex.Key} or hash map entry is allocated for
+ * them. Solutions whose join variable is bound to any other kind of value
+ * (inline values, mock {@link TermId}s, non-{@link TermId} constants) or which
+ * do not bind the join variable are handled by the {@link JVMHashIndex} using
+ * the backing map.
+ * <p>
+ * The {@link JVMHashIndex.Bucket}s have the same hash codes as those of a
+ * {@link JVMHashIndex} for the same join variable, so indices of either kind
+ * may be combined by a merge join.
+ * <p>
+ * Note: Equality of {@link TermId}s having a term identifier is equality of
+ * their term identifiers.
+ * 
+ * @see JVMHashJoinUtility
+ */
+public class JVMLongHashIndex extends JVMHashIndex {
+
+    /**
+     * The maximum fraction of the slots in the table which may be in use
+     * before the table is grown.
+     */
+    private static final float LOAD_FACTOR = .75f;
+
+    /**
+     * The join variable.
+     */
+    private final IVariable<?> keyVar;
+
+    /**
+     * The term identifiers for the buckets in the table ({@link TermId#NULL}
+     * for an empty slot). The length of the table is a power of two.
+     */
+    private long[] ids;
+
+    /**
+     * The bucket for each slot in {@link #ids}.
+     */
+    private Bucket[] table;
+
+    /**
+     * The buckets in the table in the order in which they were created. Only
+     * the first {@link #nbuckets} entries are used.
+     */
+    private Bucket[] buckets;
+
+    /**
+     * The #of buckets in the table.
+     */
+    private int nbuckets;
+
+    /**
+     * @param keyVar
+     *            The join variable.
+     * @param indexSolutionsHavingUnboundJoinVars
+     *            When <code>true</code>, we allow solutions to be stored in the
+     *            hash index that do not bind the join variable. When
+     *            <code>false</code>, such solutions are dropped.
+     * @param map
+     *            The backing map for the solutions which are not indexed by a
+     *            term identifier.
+     * @param initialCapacity
+     *            The initial capacity of the table.
+     * 
+     * @see JVMHashIndex#JVMHashIndex(IVariable[], boolean, Map)
+     */
+    public JVMLongHashIndex(final IVariable<?> keyVar,
+            final boolean indexSolutionsHavingUnboundJoinVars,
+            final Map<Key, Bucket> map, final int initialCapacity) {
+
+        super(new IVariable[] { keyVar }, indexSolutionsHavingUnboundJoinVars,
+                map);
+
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.keyVar = keyVar;
+
+        int capacity = 16;
+
+        while (capacity * LOAD_FACTOR < initialCapacity)
+            capacity <<= 1;
+
+        this.ids = new long[capacity];
+
+        this.table = new Bucket[capacity];
+
+        this.buckets = new Bucket[Math.max(16, initialCapacity)];
+
+    }
+
+    /**
+     * Return the term identifier to which the join variable is bound -or-
+     * {@link TermId#NULL} if the solution must be handled using the backing
+     * map.
+     */
+    private long getTermId(final IConstant<?> c) {
+
+        if (c == null)
+            return TermId.NULL;
+
+        final Object v = c.get();
+
+        if (v instanceof TermId<?>) {
+
+            return ((TermId<?>) v).getTermId();
+
+        }
+
+        return TermId.NULL;
+
+    }
+
+    /**
+     * Return the slot for the term identifier. This is either the slot in
+     * which that term identifier is found or the empty slot at which it would
+     * be inserted.
+     */
+    private int slot(final long[] ids, final long id) {
+
+        final int mask = ids.length - 1;
+
+        long h = id * 0x9E3779B97F4A7C15L;
+
+        int i = (int) (h ^ (h >>> 32)) & mask;
+
+        while (ids[i] != TermId.NULL && ids[i] != id) {
+
+            i = (i + 1) & mask;
+
+        }
+
+        return i;
+
+    }
+
+    /**
+     * Return the bucket for the term identifier, creating it (with the given
+     * solution) if it does not exist.
+     * 
+     * @return The existing bucket -or- <code>null</code> if a new bucket was
+     *         created.
+     */
+    private Bucket getOrCreate(final long id, final IConstant<?> c,
+            final IBindingSet bset) {
+
+        int i = slot(ids, id);
+
+        if (ids[i] != TermId.NULL) {
+
+            return table[i];
+
+        }
+
+        if (nbuckets + 1 > ids.length * LOAD_FACTOR) {
+
+            grow();
+
+            i = slot(ids, id);
+
+        }
+
+        // Note: Same hash code as JVMHashIndex#makeKey().
+        final Bucket b = new Bucket(31 * ONE + c.hashCode(), bset);
+
+        ids[i] = id;
+
+        table[i] = b;
+
+        if (nbuckets == buckets.length) {
+
+            buckets = Arrays.copyOf(buckets, nbuckets << 1);
+
+        }
+
+        buckets[nbuckets++] = b;
+
+        return null;
+
+    }
+
+    /**
+     * Double the capacity of the table.
+     */
+    private void grow() {
+
+        final long[] oldIds = ids;
+
+        final Bucket[] oldTable = table;
+
+        final long[] newIds = new long[oldIds.length << 1];
+
+        final Bucket[] newTable = new Bucket[newIds.length];
+
+        for (int j = 0; j < oldIds.length; j++) {
+
+            if (oldIds[j] == TermId.NULL)
+                continue;
+
+            final int i = slot(newIds, oldIds[j]);
+
+            newIds[i] = oldIds[j];
+
+            newTable[i] = oldTable[j];
+
+        }
+
+        ids = newIds;
+
+        table = newTable;
+
+    }
+
+    @Override
+    public boolean add(final IBindingSet bset) {
+
+        final IConstant<?> c = bset.get(keyVar);
+
+        final long id = getTermId(c);
+
+        if (id == TermId.NULL) {
+
+            return super.add(bset);
+
+        }
+
+        final Bucket b = getOrCreate(id, c, bset);
+
+        if (b != null) {
+
+            b.add(bset);
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public boolean addDistinct(final IBindingSet bset) {
+
+        final IConstant<?> c = bset.get(keyVar);
+
+        final long id = getTermId(c);
+
+        if (id == TermId.NULL) {
+
+            return super.addDistinct(bset);
+
+        }
+
+        final Bucket b = getOrCreate(id, c, bset);
+
+        if (b == null) {
+
+            // New bucket holding just this solution.
+            return true;
+
+        }
+
+        return b.addDistinct(bset);
+
+    }
+
+    @Override
+    public Bucket getBucket(final IBindingSet left) {
+
+        final IConstant<?> c = left.get(keyVar);
+
+        final long id = getTermId(c);
+
+        if (id == TermId.NULL) {
+
+            return super.getBucket(left);
+
+        }
+
+        final int i = slot(ids, id);
+
+        // May be [null].
+        return table[i];
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The buckets indexed by term identifier are visited first (in the order
+     * in which they were created) followed by the buckets in the backing map.
+     */
+    @Override
+    public Iterator<Bucket> buckets() {
+
+        final Iterator<Bucket> others = super.buckets();
+
+        return new Iterator<Bucket>() {
+
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < nbuckets || others.hasNext();
+            }
+
+            @Override
+            public Bucket next() {
+                if (i < nbuckets)
+                    return buckets[i++];
+                if (others.hasNext())
+                    return others.next();
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+
+    }
+
+    @Override
+    public int bucketCount() {
+
+        return nbuckets + super.bucketCount();
+
+    }
+
+    @Override
+    public Bucket[] toArray() {
+
+        final Bucket[] others = super.toArray();
+
+        final Bucket[] a = Arrays.copyOf(buckets, nbuckets + others.length);
+
+        System.arraycopy(others, 0, a, nbuckets, others.length);
+
+        return a;
+
+    }
+
+}
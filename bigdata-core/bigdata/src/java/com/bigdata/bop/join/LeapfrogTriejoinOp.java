@@ -0,0 +1,918 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IElement;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITupleCursor;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.relation.IRelation;
+import com.bigdata.relation.accesspath.AccessPath;
+import com.bigdata.relation.accesspath.IAccessPath;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+import com.bigdata.striterator.IKeyOrder;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * A worst-case optimal join of several {@link IPredicate}s using the leapfrog
+ * triejoin algorithm. Rather than joining the atoms two at a time, the
+ * variables are bound one at a time in a global variable order. Each atom is
+ * viewed as a trie whose levels are its variables in that order. For each
+ * variable, the tries of the atoms using that variable are intersected by
+ * repeatedly seeking the trie with the smallest key to the largest key of the
+ * other tries. The cost is bounded by the worst-case size of the output rather
+ * than by the size of the largest intermediate result, which is what makes
+ * cyclic patterns (triangles, cliques) blow up under binary joins.
+ * <p>
+ * Where the relation is an {@link SPORelation} and one of its statement
+ * indices has a key order which places the constants of the atom first and
+ * then its variables in the global order, the trie reads directly on that
+ * index using an {@link ITupleCursor} ({@link TupleCursorTrieIterator}).
+ * Otherwise the solutions for the atom are materialized and sorted (
+ * {@link ArrayTrieIterator}). For example, a triangle over a single predicate
+ * in triples mode has at least one atom which requires the (P,S,O) order and
+ * that atom is materialized.
+ * <p>
+ * The predicates are evaluated as-bound for each source solution. Atoms which
+ * are fully bound by the source solution are existence tests.
+ * 
+ * @see ITrieIterator
+ */
+public class LeapfrogTriejoinOp<E> extends PipelineOp {
+
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends JoinAnnotations {
+
+        /**
+         * The {@link IPredicate}s to be joined (required). OPTIONAL
+         * predicates are not supported.
+         */
+        String PREDICATES = LeapfrogTriejoinOp.class.getName()
+                + ".predicates";
+
+        /**
+         * The global variable order (optional). Variables which are not listed
+         * are ordered after those which are listed. When not given, variables
+         * appearing in more atoms are bound first.
+         */
+        String VARIABLE_ORDER = LeapfrogTriejoinOp.class.getName()
+                + ".variableOrder";
+
+    }
+
+    /**
+     * Deep copy constructor.
+     * 
+     * @param op
+     */
+    public LeapfrogTriejoinOp(final LeapfrogTriejoinOp<E> op) {
+
+        super(op);
+
+    }
+
+    /**
+     * Shallow copy constructor.
+     * 
+     * @param args
+     * @param annotations
+     */
+    public LeapfrogTriejoinOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        final IPredicate<E>[] preds = getPredicates();
+
+        if (preds.length == 0)
+            throw new IllegalArgumentException(Annotations.PREDICATES);
+
+        for (IPredicate<E> pred : preds) {
+
+            if (pred.isOptional()) {
+
+                // OPTIONAL is not supported by this operator.
+                throw new UnsupportedOperationException();
+
+            }
+
+        }
+
+    }
+
+    public LeapfrogTriejoinOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#PREDICATES
+     */
+    @SuppressWarnings("unchecked")
+    public IPredicate<E>[] getPredicates() {
+
+        return (IPredicate<E>[]) getRequiredProperty(Annotations.PREDICATES);
+
+    }
+
+    /**
+     * @see Annotations#VARIABLE_ORDER
+     */
+    protected IVariable<?>[] getVariableOrder() {
+
+        return getProperty(Annotations.VARIABLE_ORDER, null/* defaultValue */);
+
+    }
+
+    /**
+     * @see Annotations#SELECT
+     */
+    protected IVariable<?>[] getSelect() {
+
+        return getProperty(Annotations.SELECT, null/* defaultValue */);
+
+    }
+
+    /**
+     * @see Annotations#CONSTRAINTS
+     */
+    protected IConstraint[] constraints() {
+
+        return getProperty(Annotations.CONSTRAINTS, null/* defaultValue */);
+
+    }
+
+    @Override
+    public LeapfrogTriejoinStats newStats() {
+
+        return new LeapfrogTriejoinStats();
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new ChunkTask<E>(this, context));
+
+    }
+
+    /**
+     * Joins each source solution against the predicates.
+     */
+    static private class ChunkTask<E> implements Callable<Void> {
+
+        private final LeapfrogTriejoinOp<E> op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final LeapfrogTriejoinStats stats;
+
+        private final IPredicate<E>[] preds;
+
+        /**
+         * The relation for each predicate.
+         */
+        private final IRelation<E>[] relations;
+
+        private final IVariable<?>[] variableOrder;
+
+        private final IVariable<?>[] selectVars;
+
+        private final IConstraint[] constraints;
+
+        /**
+         * Used to encode the keys of materialized tries (lazily allocated).
+         */
+        private IKeyBuilder keyBuilder;
+
+        @SuppressWarnings("unchecked")
+        ChunkTask(final LeapfrogTriejoinOp<E> op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = (LeapfrogTriejoinStats) context.getStats();
+
+            this.preds = op.getPredicates();
+
+            this.relations = new IRelation[preds.length];
+
+            for (int i = 0; i < preds.length; i++) {
+
+                relations[i] = context.getRelation(preds[i]);
+
+            }
+
+            this.variableOrder = op.getVariableOrder();
+
+            this.selectVars = op.getSelect();
+
+            this.constraints = op.constraints();
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            // Convert source solutions to array (assumes low cardinality).
+            final IBindingSet[] leftSolutions = BOpUtility.toArray(
+                    context.getSource(), stats);
+
+            // default sink
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final UnsyncLocalOutputBuffer<IBindingSet> unsyncBuffer = new UnsyncLocalOutputBuffer<IBindingSet>(
+                    op.getChunkCapacity(), sink);
+
+            try {
+
+                // For each source solution.
+                for (IBindingSet left : leftSolutions) {
+
+                    new Join(left, unsyncBuffer).run();
+
+                }
+
+                // flush the unsync buffer.
+                unsyncBuffer.flush();
+
+                // flush the sink.
+                sink.flush();
+
+                // Done.
+                return null;
+
+            } finally {
+
+                sink.close();
+
+                context.getSource().close();
+
+            }
+
+        }
+
+        /**
+         * The leapfrog triejoin for one source solution.
+         */
+        private class Join {
+
+            private final IBindingSet left;
+
+            private final UnsyncLocalOutputBuffer<IBindingSet> out;
+
+            /**
+             * The global variable order.
+             */
+            private IVariable<?>[] vars;
+
+            /**
+             * The tries participating in each level of the join.
+             */
+            private ITrieIterator[][] tries;
+
+            /**
+             * The value bound for each level of the join.
+             */
+            private Object[] values;
+
+            private long nout = 0;
+
+            Join(final IBindingSet left,
+                    final UnsyncLocalOutputBuffer<IBindingSet> out) {
+
+                this.left = left;
+
+                this.out = out;
+
+            }
+
+            void run() throws InterruptedException {
+
+                final int n = preds.length;
+
+                @SuppressWarnings("unchecked")
+                final IPredicate<E>[] asBound = new IPredicate[n];
+
+                for (int i = 0; i < n; i++) {
+
+                    asBound[i] = preds[i].asBound(left);
+
+                    if (asBound[i] == null) {
+
+                        // The solution can not be unified with the atom.
+                        return;
+
+                    }
+
+                }
+
+                vars = getVariableOrder(asBound);
+
+                final List<List<ITrieIterator>> byVar = new ArrayList<List<ITrieIterator>>(
+                        vars.length);
+
+                for (int d = 0; d < vars.length; d++) {
+
+                    byVar.add(new ArrayList<ITrieIterator>());
+
+                }
+
+                for (int i = 0; i < n; i++) {
+
+                    final IVariable<?>[] atomVars = getAtomVars(asBound[i]);
+
+                    if (atomVars.length == 0) {
+
+                        // Fully bound atom is an existence test.
+                        final IAccessPath<E> ap = context.getAccessPath(
+                                relations[i], asBound[i]);
+
+                        stats.accessPathCount.increment();
+
+                        if (ap.isEmpty())
+                            return;
+
+                        continue;
+
+                    }
+
+                    final ITrieIterator trie = newTrie(relations[i],
+                            asBound[i], atomVars);
+
+                    for (IVariable<?> v : atomVars) {
+
+                        byVar.get(indexOf(v)).add(trie);
+
+                    }
+
+                }
+
+                tries = new ITrieIterator[vars.length][];
+
+                for (int d = 0; d < vars.length; d++) {
+
+                    tries[d] = byVar.get(d).toArray(
+                            new ITrieIterator[byVar.get(d).size()]);
+
+                }
+
+                values = new Object[vars.length];
+
+                join(0/* level */);
+
+            }
+
+            /**
+             * Bind the variable for the given level and recurse.
+             */
+            private void join(final int level) throws InterruptedException {
+
+                if (level == vars.length) {
+
+                    emit();
+
+                    return;
+
+                }
+
+                final ITrieIterator[] its = tries[level];
+
+                for (ITrieIterator it : its) {
+
+                    it.open();
+
+                }
+
+                try {
+
+                    leapfrog(level, its);
+
+                } finally {
+
+                    for (ITrieIterator it : its) {
+
+                        it.up();
+
+                    }
+
+                }
+
+            }
+
+            /**
+             * Intersect the keys of the tries at the given level.
+             */
+            private void leapfrog(final int level, final ITrieIterator[] its)
+                    throws InterruptedException {
+
+                for (ITrieIterator it : its) {
+
+                    if (it.atEnd())
+                        return;
+
+                }
+
+                Arrays.sort(its, TRIE_KEY_COMPARATOR);
+
+                final int k = its.length;
+
+                byte[] max = its[k - 1].key();
+
+                int p = 0;
+
+                while (true) {
+
+                    final ITrieIterator it = its[p];
+
+                    if (BytesUtil.compareBytes(it.key(), max) == 0) {
+
+                        // All tries agree on this key.
+                        values[level] = it.value();
+
+                        join(level + 1);
+
+                        it.next();
+
+                    } else {
+
+                        it.seek(max);
+
+                        stats.seeks.increment();
+
+                    }
+
+                    if (it.atEnd())
+                        return;
+
+                    max = it.key();
+
+                    p = (p + 1) % k;
+
+                }
+
+            }
+
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            private void emit() throws InterruptedException {
+
+                if ((++nout & 0x3ff) == 0 && Thread.interrupted())
+                    throw new InterruptedException();
+
+                final IBindingSet right = new ListBindingSet();
+
+                for (int d = 0; d < vars.length; d++) {
+
+                    right.set(vars[d], new Constant(values[d]));
+
+                }
+
+                // See if the solutions join.
+                final IBindingSet outSolution = BOpContext.bind(//
+                        left,// left
+                        right,//
+                        constraints,//
+                        selectVars//
+                        );
+
+                if (outSolution != null) {
+
+                    // Output the solution.
+                    out.add(outSolution);
+
+                }
+
+            }
+
+            private int indexOf(final IVariable<?> v) {
+
+                for (int d = 0; d < vars.length; d++) {
+
+                    if (vars[d].equals(v))
+                        return d;
+
+                }
+
+                throw new AssertionError();
+
+            }
+
+            /**
+             * The distinct variables of the atom in the global variable order.
+             */
+            private IVariable<?>[] getAtomVars(final IPredicate<E> pred) {
+
+                final List<IVariable<?>> tmp = new ArrayList<IVariable<?>>();
+
+                for (IVariable<?> v : vars) {
+
+                    for (int j = 0; j < pred.arity(); j++) {
+
+                        if (v.equals(pred.get(j))) {
+
+                            tmp.add(v);
+
+                            break;
+
+                        }
+
+                    }
+
+                }
+
+                return tmp.toArray(new IVariable<?>[tmp.size()]);
+
+            }
+
+        } // class Join
+
+        /**
+         * Return the global variable order for the as-bound predicates. Any
+         * variables given by {@link Annotations#VARIABLE_ORDER} come first.
+         * The remaining variables are ordered by the #of atoms in which they
+         * appear (descending) and then by first appearance.
+         */
+        private IVariable<?>[] getVariableOrder(final IPredicate<E>[] asBound) {
+
+            final Map<IVariable<?>, Integer> counts = new LinkedHashMap<IVariable<?>, Integer>();
+
+            for (IPredicate<E> pred : asBound) {
+
+                final List<IVariable<?>> seen = new ArrayList<IVariable<?>>();
+
+                for (int j = 0; j < pred.arity(); j++) {
+
+                    final IVariableOrConstant<?> t = pred.get(j);
+
+                    if (t == null || !t.isVar() || seen.contains(t))
+                        continue;
+
+                    final IVariable<?> v = (IVariable<?>) t;
+
+                    seen.add(v);
+
+                    final Integer c = counts.get(v);
+
+                    counts.put(v, c == null ? 1 : c + 1);
+
+                }
+
+            }
+
+            final List<IVariable<?>> order = new ArrayList<IVariable<?>>(
+                    counts.size());
+
+            if (variableOrder != null) {
+
+                for (IVariable<?> v : variableOrder) {
+
+                    if (counts.containsKey(v) && !order.contains(v))
+                        order.add(v);
+
+                }
+
+            }
+
+            final List<IVariable<?>> rest = new ArrayList<IVariable<?>>();
+
+            for (IVariable<?> v : counts.keySet()) {
+
+                if (!order.contains(v))
+                    rest.add(v);
+
+            }
+
+            // stable sort.
+            Collections.sort(rest, new Comparator<IVariable<?>>() {
+                @Override
+                public int compare(final IVariable<?> o1, final IVariable<?> o2) {
+                    return counts.get(o2) - counts.get(o1);
+                }
+            });
+
+            order.addAll(rest);
+
+            return order.toArray(new IVariable<?>[order.size()]);
+
+        }
+
+        /**
+         * Return a trie for the as-bound predicate whose levels are the given
+         * variables.
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private ITrieIterator newTrie(final IRelation<E> relation,
+                final IPredicate<E> pred, final IVariable<?>[] atomVars) {
+
+            if (relation instanceof SPORelation
+                    && pred.getIndexLocalFilter() == null
+                    && pred.getAccessPathFilter() == null
+                    && pred.getProperty(IPredicate.Annotations.RANGE) == null) {
+
+                final IKeyOrder<E> keyOrder = getCursorKeyOrder(relation,
+                        pred, atomVars);
+
+                if (keyOrder != null) {
+
+                    final IAccessPath<E> ap = relation.getAccessPath(
+                            context.getIndexManager(), keyOrder, pred);
+
+                    if (ap instanceof AccessPath) {
+
+                        final AccessPath<E> tmp = (AccessPath<E>) ap;
+
+                        final ITupleIterator<?> itr = tmp.getIndex()
+                                .rangeIterator(tmp.getFromKey(),
+                                        tmp.getToKey(), 0/* capacity */,
+                                        IRangeQuery.KEYS | IRangeQuery.CURSOR,
+                                        null/* filter */);
+
+                        if (itr instanceof ITupleCursor) {
+
+                            stats.accessPathCount.increment();
+
+                            stats.cursorTries.increment();
+
+                            return new TupleCursorTrieIterator(
+                                    (ITupleCursor) itr, tmp.getFromKey(),
+                                    tmp.getToKey(), atomVars.length);
+
+                        }
+
+                    }
+
+                }
+
+            }
+
+            return materialize(relation, pred, atomVars);
+
+        }
+
+        /**
+         * Return a key order for the relation which places the constants of
+         * the predicate first followed by the given variables in order -or-
+         * <code>null</code> if there is no such key order.
+         */
+        private IKeyOrder<E> getCursorKeyOrder(final IRelation<E> relation,
+                final IPredicate<E> pred, final IVariable<?>[] atomVars) {
+
+            final int arity = pred.arity();
+
+            int nconst = 0;
+
+            for (int j = 0; j < arity; j++) {
+
+                if (pred.get(j).isConstant())
+                    nconst++;
+
+            }
+
+            if (nconst + atomVars.length != arity) {
+
+                // Some variable is repeated within the atom.
+                return null;
+
+            }
+
+            final Iterator<IKeyOrder<E>> itr = relation.getKeyOrders();
+
+            while (itr.hasNext()) {
+
+                final IKeyOrder<E> keyOrder = itr.next();
+
+                if (keyOrder.getKeyArity() != arity)
+                    continue;
+
+                boolean ok = true;
+
+                for (int keyPos = 0; keyPos < arity && ok; keyPos++) {
+
+                    final IVariableOrConstant<?> t = pred.get(keyOrder
+                            .getKeyOrder(keyPos));
+
+                    if (keyPos < nconst) {
+
+                        ok = t.isConstant();
+
+                    } else {
+
+                        ok = t.isVar()
+                                && t.equals(atomVars[keyPos - nconst]);
+
+                    }
+
+                }
+
+                if (ok)
+                    return keyOrder;
+
+            }
+
+            return null;
+
+        }
+
+        /**
+         * Materialize the solutions for the as-bound predicate into a sorted
+         * trie whose levels are the given variables.
+         */
+        private ITrieIterator materialize(final IRelation<E> relation,
+                final IPredicate<E> pred, final IVariable<?>[] atomVars) {
+
+            final int depth = atomVars.length;
+
+            // The positions of each variable in the atom.
+            final int[][] positions = new int[depth][];
+
+            for (int d = 0; d < depth; d++) {
+
+                final List<Integer> tmp = new ArrayList<Integer>();
+
+                for (int j = 0; j < pred.arity(); j++) {
+
+                    if (atomVars[d].equals(pred.get(j)))
+                        tmp.add(j);
+
+                }
+
+                positions[d] = new int[tmp.size()];
+
+                for (int i = 0; i < positions[d].length; i++) {
+
+                    positions[d][i] = tmp.get(i);
+
+                }
+
+            }
+
+            final IAccessPath<E> ap = context.getAccessPath(relation, pred);
+
+            stats.accessPathCount.increment();
+
+            stats.materializedTries.increment();
+
+            final List<byte[][]> keys = new ArrayList<byte[][]>();
+
+            final List<Object[]> values = new ArrayList<Object[]>();
+
+            final IChunkedOrderedIterator<E> itr = ap.iterator();
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final E[] chunk = itr.nextChunk();
+
+                    stats.accessPathChunksIn.increment();
+
+                    stats.accessPathUnitsIn.add(chunk.length);
+
+                    elements: for (E e : chunk) {
+
+                        final IElement elem = (IElement) e;
+
+                        final byte[][] k = new byte[depth][];
+
+                        final Object[] v = new Object[depth];
+
+                        for (int d = 0; d < depth; d++) {
+
+                            final int[] pos = positions[d];
+
+                            v[d] = elem.get(pos[0]);
+
+                            for (int i = 1; i < pos.length; i++) {
+
+                                // Repeated variable within the atom.
+                                if (!v[d].equals(elem.get(pos[i])))
+                                    continue elements;
+
+                            }
+
+                            k[d] = encode(v[d]);
+
+                        }
+
+                        keys.add(k);
+
+                        values.add(v);
+
+                    }
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            return new ArrayTrieIterator(depth,
+                    keys.toArray(new byte[keys.size()][][]),
+                    values.toArray(new Object[values.size()][]));
+
+        }
+
+        /**
+         * Encode a value as an unsigned byte[] key. {@link IV}s use the same
+         * encoding as the statement indices so materialized tries can be
+         * intersected with tries which read directly on those indices.
+         */
+        @SuppressWarnings("rawtypes")
+        private byte[] encode(final Object v) {
+
+            if (keyBuilder == null) {
+
+                keyBuilder = KeyBuilder.newUnicodeInstance();
+
+            }
+
+            keyBuilder.reset();
+
+            if (v instanceof IV) {
+
+                IVUtility.encode(keyBuilder, (IV) v);
+
+            } else {
+
+                keyBuilder.append(v);
+
+            }
+
+            return keyBuilder.getKey();
+
+        }
+
+    } // class ChunkTask
+
+    /**
+     * Orders tries by their current key.
+     */
+    private static final Comparator<ITrieIterator> TRIE_KEY_COMPARATOR = new Comparator<ITrieIterator>() {
+        @Override
+        public int compare(final ITrieIterator o1, final ITrieIterator o2) {
+            return BytesUtil.compareBytes(o1.key(), o2.key());
+        }
+    };
+
+}
@@ -0,0 +1,89 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.counters.CAT;
+
+/**
+ * Extended statistics for the {@link LeapfrogTriejoinOp}.
+ */
+public class LeapfrogTriejoinStats extends BaseJoinStats {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The #of tries which were read directly on an index using a tuple
+     * cursor.
+     */
+    public final CAT cursorTries = new CAT();
+
+    /**
+     * The #of tries which were materialized and sorted because no index had a
+     * key order compatible with the global variable order.
+     */
+    public final CAT materializedTries = new CAT();
+
+    /**
+     * The #of seeks issued against the tries.
+     */
+    public final CAT seeks = new CAT();
+
+    @Override
+    public void add(final BOpStats o) {
+
+        super.add(o);
+
+        if (o instanceof LeapfrogTriejoinStats) {
+
+            final LeapfrogTriejoinStats t = (LeapfrogTriejoinStats) o;
+
+            cursorTries.add(t.cursorTries.get());
+
+            materializedTries.add(t.materializedTries.get());
+
+            seeks.add(t.seeks.get());
+
+        }
+
+    }
+
+    @Override
+    protected void toString(final StringBuilder sb) {
+
+        super.toString(sb);
+
+        sb.append(",cursorTries=" + cursorTries.get());
+
+        sb.append(",materializedTries=" + materializedTries.get());
+
+        sb.append(",seeks=" + seeks.get());
+
+    }
+
+}
@@ -27,6 +27,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.bop.join;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -41,12 +42,14 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 
 import com.bigdata.bop.BOp;
 import com.bigdata.bop.BOpContext;
 import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.BOpUtility;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstraint;
 import com.bigdata.bop.IElement;
@@ -55,6 +58,9 @@ import com.bigdata.bop.IShardwisePipelineOp;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.bop.controller.NamedSetAnnotations;
 import com.bigdata.bop.engine.AbstractRunningQuery;
 import com.bigdata.bop.engine.QueryTimeoutException;
 import com.bigdata.btree.keys.IKeyBuilder;
@@ -65,6 +71,7 @@ import com.bigdata.relation.accesspath.AccessPath;
 import com.bigdata.relation.accesspath.ArrayAccessPath;
 import com.bigdata.relation.accesspath.BlockingBuffer;
 import com.bigdata.relation.accesspath.BufferClosedException;
+import com.bigdata.relation.accesspath.ElementFilter;
 import com.bigdata.relation.accesspath.EmptyAccessPath;
 import com.bigdata.relation.accesspath.IAccessPath;
 import com.bigdata.relation.accesspath.IAsynchronousIterator;
@@ -259,9 +266,139 @@ public class PipelineJoin<E> extends PipelineOp implements
         
         public int DEFAULT_NUM_TASKS_PER_THREAD = 1;
         
+        /**
+         * The maximum #of threads which may scan a single access path in
+         * parallel (default {@value #DEFAULT_MORSEL_PARALLELISM}). When GT
+         * ZERO and the join reads an access path for a single source solution
+         * (for example, the first join in a query, which is fed by the empty
+         * solution) whose range count is at least twice
+         * {@link #MIN_DATAPOINTS_PER_TASK}, then the key range of the access
+         * path is split into up to
+         * <code>morselParallelism * {@link #NUM_TASKS_PER_THREAD}</code>
+         * key-range "morsels" (none smaller than
+         * {@link #MIN_DATAPOINTS_PER_TASK}) using the linear list interface of
+         * the index. The morsels are then scanned and joined in parallel.
+         * <p>
+         * The solutions from different morsels are interleaved. Access paths
+         * which can not be split (optional joins, joins with a {@link #LIMIT}
+         * or cutoff, star joins, joins which must preserve the solution order
+         * ({@link PipelineOp.Annotations#REORDER_SOLUTIONS} is
+         * <code>false</code>), and access paths with filters or whose index
+         * does not support the linear list interface) are scanned
+         * sequentially.
+         * 
+         * @see AccessPath#getMorselKeys(int)
+         */
+        String MORSEL_PARALLELISM = (PipelineJoin.class.getName() + ".morselParallelism")
+                .intern();
+
+        int DEFAULT_MORSEL_PARALLELISM = 0;
+
+        /**
+         * When <code>true</code>, the join begins as an index nested loop join
+         * but may switch at runtime to a hash join against the access path for
+         * the (unbound) {@link #PREDICATE} (default
+         * {@value #DEFAULT_ADAPTIVE_HASH_JOIN}).
+         * <p>
+         * The join tracks the #of index probes (as-bound access paths) issued
+         * by the operator. Once the cost of those probes reaches the cost of a
+         * single scan of the access path for the predicate, that is once
+         * <code>accessPathCount * {@link #ADAPTIVE_PROBE_COST} &gt;= rangeCount</code>
+         * , the access path is read once into a {@link JVMHashIndex} and the
+         * remaining source solutions probe that hash index instead of the
+         * B+Tree. This bounds the cost of a join whose static cardinality
+         * estimate was badly off to roughly twice the cost of the better of the
+         * two join strategies.
+         * <p>
+         * The hash index is keyed on the variables of the predicate which are
+         * bound in the source solution which triggered the switch. Source
+         * solutions which do not bind all of those variables continue to use
+         * the index nested loop join. The hash index is not built if the range
+         * count of the access path exceeds
+         * {@link #ADAPTIVE_MAX_HASH_INDEX_SIZE}, if the access path has a
+         * filter, if the join has a {@link #LIMIT} or cutoff, or in scale-out.
+         */
+        String ADAPTIVE_HASH_JOIN = (PipelineJoin.class.getName() + ".adaptiveHashJoin")
+                .intern();
+
+        boolean DEFAULT_ADAPTIVE_HASH_JOIN = false;
+
+        /**
+         * The cost of one index probe expressed as the #of tuples which could
+         * be read by a sequential scan in the same time (default
+         * {@value #DEFAULT_ADAPTIVE_PROBE_COST}).
+         * 
+         * @see #ADAPTIVE_HASH_JOIN
+         */
+        String ADAPTIVE_PROBE_COST = (PipelineJoin.class.getName() + ".adaptiveProbeCost")
+                .intern();
+
+        int DEFAULT_ADAPTIVE_PROBE_COST = 100;
+
+        /**
+         * The maximum range count of an access path for which an adaptive hash
+         * index will be built on the JVM heap (default
+         * {@value #DEFAULT_ADAPTIVE_MAX_HASH_INDEX_SIZE}).
+         * 
+         * @see #ADAPTIVE_HASH_JOIN
+         */
+        String ADAPTIVE_MAX_HASH_INDEX_SIZE = (PipelineJoin.class.getName() + ".adaptiveMaxHashIndexSize")
+                .intern();
+
+        long DEFAULT_ADAPTIVE_MAX_HASH_INDEX_SIZE = 1000000L;
+
+        /**
+         * An optional {@link INamedSolutionSetRef}[] identifying hash indices
+         * which the solutions produced by this join must subsequently join
+         * (as an inner join) on their join variables. When a
+         * {@link SidewaysFilter} has been published for a join variable of one
+         * of those hash indices and that variable appears in the
+         * {@link #PREDICATE}, the filter is applied to the access path as an
+         * index local filter so tuples which can not join with the hash index
+         * are discarded before they are materialized as solutions.
+         * <p>
+         * The filters are resolved when the join task starts. A filter which
+         * has not yet been published is ignored. The filters are not applied
+         * to an optional join.
+         * 
+         * @see NamedSetAnnotations#SIDEWAYS_FILTER
+         */
+        String SIDEWAYS_FILTERS = (PipelineJoin.class.getName() + ".sidewaysFilters")
+                .intern();
 
 	}
 
+    /**
+     * The state of an {@link Annotations#ADAPTIVE_HASH_JOIN} which is shared
+     * by all {@link JoinTask}s for the same join operator in a query. This is
+     * stored as a query attribute.
+     */
+    private static class AdaptiveHashJoinState {
+
+        /**
+         * Lock used to decide on and build the hash index exactly once.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The range count of the access path for the unbound predicate and
+         * <code>-1L</code> until it is known. This is set to
+         * {@link Long#MAX_VALUE} if the access path is not eligible.
+         */
+        private volatile long rangeCount = -1L;
+
+        /**
+         * The variables used as the keys of the {@link #index}.
+         */
+        private volatile IVariable<?>[] keyVars;
+
+        /**
+         * The hash index and <code>null</code> until it has been built.
+         */
+        private volatile JVMHashIndex index;
+
+    }
+
 	/**
 	 * Deep copy constructor.
 	 * 
@@ -407,6 +544,30 @@ public class PipelineJoin<E> extends PipelineOp implements
 		 */
 		final private Executor service;
 
+		/**
+		 * The maximum #of threads which may scan a single access path.
+		 * 
+		 * @see Annotations#MORSEL_PARALLELISM
+		 */
+		final private int morselParallelism;
+
+		/**
+		 * @see Annotations#MIN_DATAPOINTS_PER_TASK
+		 */
+		final private int minDatapointsPerTask;
+
+		/**
+		 * @see Annotations#NUM_TASKS_PER_THREAD
+		 */
+		final private int numTasksPerThread;
+
+		/**
+		 * The service used for scanning access path morsels (optional).
+		 * 
+		 * @see #morselParallelism
+		 */
+		final private Executor morselService;
+
 		/**
 		 * True iff the {@link #predicate} operand is an optional pattern (aka
 		 * if this is a SPARQL style left join).
@@ -534,6 +695,22 @@ public class PipelineJoin<E> extends PipelineOp implements
 		 */
 		final private TLBFactory threadLocalBufferFactory2;
 
+		/**
+		 * The state of the adaptive hash join and <code>null</code> unless
+		 * {@link Annotations#ADAPTIVE_HASH_JOIN} is enabled for this join.
+		 */
+		final private AdaptiveHashJoinState adaptive;
+
+		/**
+		 * @see Annotations#ADAPTIVE_PROBE_COST
+		 */
+		final private int adaptiveProbeCost;
+
+		/**
+		 * @see Annotations#ADAPTIVE_MAX_HASH_INDEX_SIZE
+		 */
+		final private long adaptiveMaxHashIndexSize;
+
 		/**
 		 * Instances of this class MUST be created in the appropriate execution
 		 * context of the target {@link DataService} so that the federation and
@@ -553,7 +730,7 @@ public class PipelineJoin<E> extends PipelineOp implements
 				throw new IllegalArgumentException();
 
 			this.joinOp = joinOp;
-			this.predicate = joinOp.getPredicate();
+			this.predicate = applySidewaysFilters(joinOp, context);
 			this.constraints = joinOp.constraints();
 			this.maxParallelChunks = joinOp.getMaxParallelChunks();
 			if (maxParallelChunks < 0)
@@ -567,6 +744,26 @@ public class PipelineJoin<E> extends PipelineOp implements
 				// run in the caller's thread.
 				service = null;
 			}
+			this.morselParallelism = joinOp.getProperty(
+					Annotations.MORSEL_PARALLELISM,
+					Annotations.DEFAULT_MORSEL_PARALLELISM);
+			if (morselParallelism < 0)
+				throw new IllegalArgumentException(Annotations.MORSEL_PARALLELISM
+						+ "=" + morselParallelism);
+			this.minDatapointsPerTask = Math.max(1, joinOp.getProperty(
+					Annotations.MIN_DATAPOINTS_PER_TASK,
+					Annotations.DEFAULT_MIN_DATAPOINTS_PER_TASK));
+			this.numTasksPerThread = Math.max(1, joinOp.getProperty(
+					Annotations.NUM_TASKS_PER_THREAD,
+					Annotations.DEFAULT_NUM_TASKS_PER_THREAD));
+			if (morselParallelism > 1) {
+				// shared service (the caller's thread scans one morsel).
+				morselService = new LatchedExecutor(context.getIndexManager()
+						.getExecutorService(), morselParallelism - 1);
+			} else {
+				// morsels are not used.
+				morselService = null;
+			}
 			this.optional = joinOp.isOptional();
 			this.variablesToKeep = joinOp.variablesToKeep();
 			this.context = context;
@@ -584,6 +781,30 @@ public class PipelineJoin<E> extends PipelineOp implements
             this.reorderAccessPaths = joinOp.getProperty(
                     Annotations.REORDER_ACCESS_PATHS,
                     Annotations.DEFAULT_REORDER_ACCESS_PATHS);
+			this.adaptiveProbeCost = Math.max(1, joinOp.getProperty(
+					Annotations.ADAPTIVE_PROBE_COST,
+					Annotations.DEFAULT_ADAPTIVE_PROBE_COST));
+			this.adaptiveMaxHashIndexSize = joinOp.getProperty(
+					Annotations.ADAPTIVE_MAX_HASH_INDEX_SIZE,
+					Annotations.DEFAULT_ADAPTIVE_MAX_HASH_INDEX_SIZE);
+			if (joinOp.getProperty(Annotations.ADAPTIVE_HASH_JOIN,
+					Annotations.DEFAULT_ADAPTIVE_HASH_JOIN)
+					&& limit == Long.MAX_VALUE
+					&& partitionId == -1
+					&& predicate.getProperty(
+							IPredicate.Annotations.CUTOFF_LIMIT,
+							IPredicate.Annotations.DEFAULT_CUTOFF_LIMIT) == Long.MAX_VALUE) {
+				// shared by all JoinTasks for this join in this query.
+				final String key = PipelineJoin.class.getName()
+						+ ".adaptiveHashJoin." + joinOp.getId();
+				final AdaptiveHashJoinState tmp = new AdaptiveHashJoinState();
+				final Object old = context.getQueryAttributes().putIfAbsent(
+						key, tmp);
+				this.adaptive = old == null ? tmp
+						: (AdaptiveHashJoinState) old;
+			} else {
+				this.adaptive = null;
+			}
 
 			this.threadLocalBufferFactory = new TLBFactory(sink);
 
@@ -695,6 +916,237 @@ public class PipelineJoin<E> extends PipelineOp implements
 
 		}
 
+		/**
+		 * Return the predicate for the join with an index local filter for any
+		 * published {@link SidewaysFilter}s.
+		 * 
+		 * @see Annotations#SIDEWAYS_FILTERS
+		 */
+		private static <E> IPredicate<E> applySidewaysFilters(
+				final PipelineJoin<E> joinOp,
+				final BOpContext<IBindingSet> context) {
+
+			final IPredicate<E> pred = joinOp.getPredicate();
+
+			final INamedSolutionSetRef[] refs = (INamedSolutionSetRef[]) joinOp
+					.getProperty(Annotations.SIDEWAYS_FILTERS);
+
+			if (refs == null || refs.length == 0 || joinOp.isOptional()
+					|| !(pred instanceof Predicate))
+				return pred;
+
+			final List<Integer> positions = new LinkedList<Integer>();
+			final List<SidewaysFilter> filters = new LinkedList<SidewaysFilter>();
+
+			for (int i = 0; i < pred.arity(); i++) {
+
+				final BOp arg = pred.get(i);
+
+				if (!(arg instanceof IVariable<?>))
+					continue;
+
+				for (INamedSolutionSetRef ref : refs) {
+
+					if (!Arrays.asList(ref.getJoinVars()).contains(arg)) {
+						// Not a join variable for that hash index.
+						continue;
+					}
+
+					final SidewaysFilter f = (SidewaysFilter) context
+							.getQueryAttributes(ref.getQueryId()).get(
+									SidewaysFilter.getAttributeKey(ref,
+											(IVariable<?>) arg));
+
+					if (f != null) {
+
+						positions.add(i);
+
+						filters.add(f);
+
+					}
+
+				}
+
+			}
+
+			if (filters.isEmpty())
+				return pred;
+
+			final int[] a = new int[positions.size()];
+
+			int j = 0;
+
+			for (Integer i : positions) {
+
+				a[j++] = i;
+
+			}
+
+			final PipelineJoinStats stats = (PipelineJoinStats) context
+					.getStats();
+
+			stats.sidewaysFilters.add(a.length);
+
+			if (log.isInfoEnabled())
+				log.info("joinOp=" + joinOp.getId() + ", filters=" + filters);
+
+			return ((Predicate<E>) pred).addIndexLocalFilter(ElementFilter
+					.newInstance(new SidewaysFilter.ElementTest(a, filters
+							.toArray(new SidewaysFilter[a.length]),
+							stats.sidewaysFilterRejects)));
+
+		}
+
+		/**
+		 * Return the adaptive hash index for this join, building it if the
+		 * cost of the index probes issued so far has reached the cost of a
+		 * scan of the access path for the unbound predicate.
+		 * 
+		 * @param left
+		 *            The source solution on whose behalf the request is made.
+		 *            When the hash index is built, it is keyed on the variables
+		 *            of the predicate which are bound in this solution.
+		 * 
+		 * @return The hash index -or- <code>null</code> if the join should
+		 *         continue to use index probes.
+		 * 
+		 * @see Annotations#ADAPTIVE_HASH_JOIN
+		 */
+		private JVMHashIndex getAdaptiveHashIndex(final IBindingSet left)
+				throws Exception {
+
+			JVMHashIndex index = adaptive.index;
+
+			if (index != null)
+				return index;
+
+			long rangeCount = adaptive.rangeCount;
+
+			if (rangeCount == Long.MAX_VALUE) {
+				// Not eligible.
+				return null;
+			}
+
+			if (rangeCount != -1L
+					&& stats.accessPathCount.get() * adaptiveProbeCost < rangeCount) {
+				// Index probes are still cheaper than a scan.
+				return null;
+			}
+
+			adaptive.lock.lock();
+			try {
+
+				if ((index = adaptive.index) != null)
+					return index;
+
+				if (adaptive.rangeCount == -1L) {
+
+					final IAccessPath<E> ap = context.getAccessPath(relation,
+							predicate);
+
+					if (!(ap instanceof AccessPath)
+							|| ((AccessPath<E>) ap).hasFilter()) {
+
+						adaptive.rangeCount = Long.MAX_VALUE;
+
+					} else {
+
+						final long n = ap.rangeCount(false/* exact */);
+
+						adaptive.rangeCount = n > adaptiveMaxHashIndexSize ? Long.MAX_VALUE
+								: n;
+
+					}
+
+				}
+
+				rangeCount = adaptive.rangeCount;
+
+				if (rangeCount == Long.MAX_VALUE
+						|| stats.accessPathCount.get() * adaptiveProbeCost < rangeCount) {
+					return null;
+				}
+
+				// The variables of the predicate which are bound by [left].
+				final List<IVariable<?>> vars = new LinkedList<IVariable<?>>();
+				{
+					final Iterator<IVariable<?>> itr = BOpUtility
+							.getArgumentVariables(predicate);
+					while (itr.hasNext()) {
+						final IVariable<?> v = itr.next();
+						if (left.isBound(v) && !vars.contains(v))
+							vars.add(v);
+					}
+				}
+
+				if (vars.isEmpty()) {
+					/*
+					 * The access paths are not constrained by the source
+					 * solutions, so the hash index would not be any cheaper.
+					 */
+					return null;
+				}
+
+				final IVariable<?>[] keyVars = vars
+						.toArray(new IVariable[vars.size()]);
+
+				index = new JVMHashIndex(keyVars,
+						false/* indexSolutionsHavingUnboundJoinVars */,
+						new HashMap<JVMHashIndex.Key, JVMHashIndex.Bucket>());
+
+				final IAccessPath<E> ap = context.getAccessPath(relation,
+						predicate);
+
+				final ICloseableIterator<IBindingSet[]> itr = ((IBindingSetAccessPath<?>) ap)
+						.solutions(context, Long.MAX_VALUE/* limit */, stats);
+
+				long n = 0L;
+
+				try {
+
+					while (itr.hasNext()) {
+
+						halted();
+
+						for (IBindingSet right : itr.next()) {
+
+							index.add(right);
+
+							n++;
+
+						}
+
+					}
+
+				} finally {
+
+					itr.close();
+
+				}
+
+				if (log.isInfoEnabled())
+					log.info("Switched to hash join: joinOp=" + joinOp.getId()
+							+ ", keyVars=" + Arrays.toString(keyVars)
+							+ ", nprobes=" + stats.accessPathCount.get()
+							+ ", rangeCount=" + rangeCount + ", nindexed="
+							+ n);
+
+				stats.adaptiveHashIndexSize.add(n);
+
+				adaptive.keyVars = keyVars;
+
+				adaptive.index = index;
+
+				return index;
+
+			} finally {
+
+				adaptive.lock.unlock();
+
+			}
+
+		}
+
 		/**
 		 * Consume {@link IBindingSet} chunks from the {@link #source}.
 		 * 
@@ -1654,6 +2106,11 @@ public class PipelineJoin<E> extends PipelineOp implements
 					return null;
 				}
 
+				if (adaptive != null && handleAdaptiveHashJoin()) {
+					// Handled by a probe of the adaptive hash index.
+					return null;
+				}
+
 				// range count of the as-bound access path (should be cached).
 				final long rangeCount = accessPath
 						.rangeCount(false/* exact */);
@@ -1679,7 +2136,9 @@ public class PipelineJoin<E> extends PipelineOp implements
 
 				} else {
 
-				    if(true && accessPath instanceof IBindingSetAccessPath) {
+				    if (handleMorselJoin(rangeCount)) {
+				        // Handled by parallel scans of key-range morsels.
+				    } else if(true && accessPath instanceof IBindingSetAccessPath) {
 				        // Handle join in terms of an IBindingSet iterator.
                         handleJoin2();
 				    } else {
@@ -1968,6 +2427,318 @@ public class PipelineJoin<E> extends PipelineOp implements
 
                 }
 
+            }
+
+            /**
+             * Join the source solutions by probing the adaptive hash index
+             * rather than reading the as-bound access path.
+             * 
+             * @return <code>false</code> if the hash index is not available or
+             *         some source solution does not bind all of its key
+             *         variables, in which case nothing was done and the caller
+             *         must handle the join.
+             * 
+             * @see Annotations#ADAPTIVE_HASH_JOIN
+             */
+            protected boolean handleAdaptiveHashJoin() throws Exception {
+
+                final JVMHashIndex index = getAdaptiveHashIndex(bindingSets[0]);
+
+                if (index == null)
+                    return false;
+
+                for (IBindingSet left : bindingSets) {
+
+                    for (IVariable<?> v : adaptive.keyVars) {
+
+                        if (!left.isBound(v))
+                            return false;
+
+                    }
+
+                }
+
+                final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer = threadLocalBufferFactory
+                        .get();
+
+                // #of input solutions consumed (pre-increment).
+                stats.inputSolutions.add(bindingSets.length);
+
+                stats.adaptiveHashIndexProbes.add(bindingSets.length);
+
+                int bindex = 0; // index 1:1 with bindingSets[].
+
+                for (IBindingSet left : bindingSets) {
+
+                    halted();
+
+                    final JVMHashIndex.Bucket bucket = index.getBucket(left);
+
+                    if (bucket != null) {
+
+                        for (JVMHashIndex.SolutionHit hit : bucket) {
+
+                            final IBindingSet bset = BOpContext.bind(left,
+                                    hit.solution, constraints, variablesToKeep);
+
+                            if (bset == null)
+                                continue;
+
+                            if (limit != Long.MAX_VALUE
+                                    && exactOutputCount.incrementAndGet() > limit) {
+                                // break query @ limit.
+                                halt((Void) null);
+                                return true;
+                            }
+
+                            unsyncBuffer.add(bset);
+
+                            naccepted[bindex]++;
+
+                            stats.outputSolutions.increment();
+
+                        }
+
+                    }
+
+                    bindex++;
+
+                }
+
+                if (optional) {
+
+                    /*
+                     * Note: when NO binding sets were accepted AND the
+                     * predicate is OPTIONAL then we output the _original_
+                     * binding set(s) to the sink join task(s).
+                     */
+
+                    // Thread-local buffer iff optional sink is in use.
+                    final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer2 = threadLocalBufferFactory2 == null ? null
+                            : threadLocalBufferFactory2.get();
+
+                    for (bindex = 0; bindex < bindingSets.length; bindex++) {
+
+                        if (naccepted[bindex] > 0)
+                            continue;
+
+                        if (unsyncBuffer2 == null) {
+                            // use the default sink.
+                            unsyncBuffer.add(bindingSets[bindex]);
+                        } else {
+                            // use the alternative sink.
+                            unsyncBuffer2.add(bindingSets[bindex]);
+                        }
+
+                        stats.outputSolutions.increment();
+
+                    }
+
+                }
+
+                return true;
+
+            }
+
+            /**
+             * Join the source solution against the access path by scanning
+             * key-range morsels of the access path in parallel. The caller's
+             * thread scans the first morsel while the other morsels are
+             * scanned on the {@link JoinTask#morselService}.
+             * 
+             * @param rangeCount
+             *            The fast range count of the access path.
+             * 
+             * @return <code>false</code> if the access path was not split, in
+             *         which case nothing was done and the caller must handle
+             *         the join.
+             * 
+             * @see Annotations#MORSEL_PARALLELISM
+             */
+            protected boolean handleMorselJoin(final long rangeCount)
+                    throws Exception {
+
+                /*
+                 * Note: When the solution order must be preserved the access
+                 * path is scanned sequentially. Otherwise the solutions for
+                 * each morsel after the first would have to be buffered until
+                 * the preceding morsels were done, and that buffer is not
+                 * bounded.
+                 */
+                if (morselService == null || bindingSets.length != 1
+                        || optional || limit != Long.MAX_VALUE
+                        || !joinOp.isReorderSolutions()
+                        || !(accessPath instanceof AccessPath)
+                        || rangeCount < 2L * minDatapointsPerTask) {
+
+                    return false;
+
+                }
+
+                if (predicate.getProperty(IPredicate.Annotations.CUTOFF_LIMIT,
+                        IPredicate.Annotations.DEFAULT_CUTOFF_LIMIT) != Long.MAX_VALUE) {
+
+                    return false;
+
+                }
+
+                final AccessPath<E> ap = (AccessPath<E>) accessPath;
+
+                final int nmorsels = (int) Math.min(
+                        (long) morselParallelism * numTasksPerThread,
+                        rangeCount / minDatapointsPerTask);
+
+                final byte[][] keys = ap.getMorselKeys(nmorsels);
+
+                if (keys == null) {
+
+                    return false;
+
+                }
+
+                final int n = keys.length - 1;
+
+                if (log.isDebugEnabled())
+                    log.debug("Scanning " + n + " morsels: rangeCount="
+                            + rangeCount + ", accessPath=" + accessPath);
+
+                stats.accessPathMorsels.add(n);
+
+                // #of input solutions consumed (pre-increment).
+                stats.inputSolutions.add(1);
+
+                final List<MorselTask> tasks = new ArrayList<MorselTask>(n);
+
+                for (int i = 0; i < n; i++) {
+
+                    tasks.add(new MorselTask(ap, keys[i], keys[i + 1]));
+
+                }
+
+                final List<FutureTask<Void>> futureTasks = new LinkedList<FutureTask<Void>>();
+
+                try {
+
+                    for (int i = 1; i < n; i++) {
+
+                        halted();
+
+                        final FutureTask<Void> ft = new FutureTaskMon<Void>(
+                                tasks.get(i));
+
+                        futureTasks.add(ft);
+
+                        morselService.execute(ft);
+
+                    }
+
+                    // Scan the first morsel in the caller's thread.
+                    tasks.get(0).call();
+
+                    // Wait for the other morsels.
+                    for (FutureTask<Void> ft : futureTasks) {
+
+                        if (isDone())
+                            break;
+
+                        ft.get();
+
+                    }
+
+                } catch (Throwable t) {
+
+                    // ensure query halts.
+                    halt(t);
+                    if (getCause() != null) {
+                        // abnormal termination.
+                        throw new RuntimeException(t);
+                    }
+                    // normal termination - ignore exception.
+
+                } finally {
+
+                    for (FutureTask<Void> ft : futureTasks) {
+
+                        ft.cancel(true/* mayInterruptIfRunning */);
+
+                    }
+
+                }
+
+                return true;
+
+            }
+
+            /**
+             * Scans a key-range morsel of the access path, joining each
+             * solution against the source solution.
+             */
+            private class MorselTask implements Callable<Void> {
+
+                private final AccessPath<E> ap;
+
+                private final byte[] fromKey;
+
+                private final byte[] toKey;
+
+                MorselTask(final AccessPath<E> ap, final byte[] fromKey,
+                        final byte[] toKey) {
+
+                    this.ap = ap;
+                    this.fromKey = fromKey;
+                    this.toKey = toKey;
+
+                }
+
+                @Override
+                public Void call() throws Exception {
+
+                    final IBindingSet left = bindingSets[0];
+
+                    final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer = threadLocalBufferFactory
+                            .get();
+
+                    final ICloseableIterator<IBindingSet[]> itr = context
+                            .solutions(ap.morselIterator(fromKey, toKey),
+                                    ap.getPredicate(), stats);
+
+                    try {
+
+                        while (itr.hasNext()) {
+
+                            halted();
+
+                            final IBindingSet[] rightChunk = itr.next();
+
+                            for (IBindingSet right : rightChunk) {
+
+                                final IBindingSet bset = BOpContext.bind(left,
+                                        right, constraints, variablesToKeep);
+
+                                if (bset == null)
+                                    continue;
+
+                                unsyncBuffer.add(bset);
+
+                                stats.outputSolutions.increment();
+
+                            }
+
+                            if (Thread.interrupted())
+                                throw new InterruptedException();
+
+                        }
+
+                    } finally {
+
+                        itr.close();
+
+                    }
+
+                    return null;
+
+                }
+
             }
 
 			protected void handleStarJoin() {
@@ -63,6 +63,43 @@ public class PipelineJoinStats extends BaseJoinStats {
      */
     public final CAT outputSolutions = new CAT();
 
+    /**
+     * The #of key-range morsels into which access paths were split for
+     * parallel evaluation.
+     * 
+     * @see Annotations#MORSEL_PARALLELISM
+     */
+    public final CAT accessPathMorsels = new CAT();
+
+    /**
+     * The #of solutions indexed by an adaptive hash join.
+     * 
+     * @see Annotations#ADAPTIVE_HASH_JOIN
+     */
+    public final CAT adaptiveHashIndexSize = new CAT();
+
+    /**
+     * The #of source solutions joined by probing an adaptive hash index rather
+     * than reading an access path.
+     * 
+     * @see Annotations#ADAPTIVE_HASH_JOIN
+     */
+    public final CAT adaptiveHashIndexProbes = new CAT();
+
+    /**
+     * The #of {@link SidewaysFilter}s applied to the access paths of the join.
+     * 
+     * @see Annotations#SIDEWAYS_FILTERS
+     */
+    public final CAT sidewaysFilters = new CAT();
+
+    /**
+     * The #of tuples rejected by a {@link SidewaysFilter}.
+     * 
+     * @see Annotations#SIDEWAYS_FILTERS
+     */
+    public final CAT sidewaysFilterRejects = new CAT();
+
     /**
      * The estimated join hit ratio. This is computed as
      * 
@@ -128,6 +165,16 @@ public class PipelineJoinStats extends BaseJoinStats {
 
 			outputSolutions.add(t.outputSolutions.get());
 
+			accessPathMorsels.add(t.accessPathMorsels.get());
+
+			adaptiveHashIndexSize.add(t.adaptiveHashIndexSize.get());
+
+			adaptiveHashIndexProbes.add(t.adaptiveHashIndexProbes.get());
+
+			sidewaysFilters.add(t.sidewaysFilters.get());
+
+			sidewaysFilterRejects.add(t.sidewaysFilterRejects.get());
+
 			// if (t.fanIn > this.fanIn) {
 			// // maximum reported fanIn for this join dimension.
 			// this.fanIn = t.fanIn;
@@ -146,6 +193,11 @@ public class PipelineJoinStats extends BaseJoinStats {
 		sb.append(",inputSolutions=" + inputSolutions.get());
 		sb.append(",outputSolutions=" + outputSolutions.get());
 		sb.append(",joinHitRatio=" + getJoinHitRatio());
+		sb.append(",accessPathMorsels=" + accessPathMorsels.get());
+		sb.append(",adaptiveHashIndexSize=" + adaptiveHashIndexSize.get());
+		sb.append(",adaptiveHashIndexProbes=" + adaptiveHashIndexProbes.get());
+		sb.append(",sidewaysFilters=" + sidewaysFilters.get());
+		sb.append(",sidewaysFilterRejects=" + sidewaysFilterRejects.get());
 	}
 
 }
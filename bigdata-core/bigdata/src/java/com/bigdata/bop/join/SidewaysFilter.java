@@ -0,0 +1,485 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.bop.join;
+
+import java.io.Serializable;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IElement;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.bop.controller.NamedSetAnnotations;
+import com.bigdata.counters.CAT;
+import com.bigdata.relation.accesspath.IElementFilter;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A compact summary of the distinct bindings of a join variable on the build
+ * side of a hash join. The summary combines a bloom filter over the hash codes
+ * of the bound values with the minimum and maximum of those values (when the
+ * values are mutually {@link Comparable}). It is published as an
+ * {@link IQueryAttributes} attribute once the hash index is complete so that
+ * joins on the probe side can discard tuples which can not join with the hash
+ * index before they are materialized as solutions (sideways information
+ * passing).
+ * <p>
+ * A filter may report false positives, but it never reports a false negative.
+ * A filter is only published for a join variable which is bound in every
+ * solution in the hash index and only for a {@link JoinTypeEnum#Normal} join.
+ * 
+ * @see PipelineJoin.Annotations#SIDEWAYS_FILTERS
+ * @see NamedSetAnnotations#SIDEWAYS_FILTER
+ */
+public class SidewaysFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The #of hash functions.
+     */
+    private static final int K = 4;
+
+    /**
+     * The #of bits allocated per expected value.
+     */
+    private static final int BITS_PER_VALUE = 8;
+
+    /**
+     * The variable whose bindings are summarized.
+     */
+    private final IVariable<?> var;
+
+    /**
+     * The bits of the bloom filter. The length of the bit vector is a power of
+     * two.
+     */
+    private final long[] bits;
+
+    /**
+     * The mask used to map a hash code onto a bit index.
+     */
+    private final int mask;
+
+    /**
+     * The #of values added to the filter.
+     */
+    private long size = 0L;
+
+    /**
+     * The class of the values or <code>null</code> if no value has been added
+     * or if the values are not of a single {@link Comparable} class.
+     */
+    private Class<?> valueClass = null;
+
+    /**
+     * <code>false</code> once a value has been added which can not be ordered
+     * against the other values.
+     */
+    private boolean ordered = true;
+
+    /**
+     * The minimum and maximum of the values (iff {@link #ordered}).
+     */
+    @SuppressWarnings("rawtypes")
+    private Comparable min = null, max = null;
+
+    /**
+     * @param var
+     *            The variable whose bindings are summarized.
+     * @param expectedSize
+     *            The expected #of values.
+     */
+    public SidewaysFilter(final IVariable<?> var, final long expectedSize) {
+
+        if (var == null)
+            throw new IllegalArgumentException();
+
+        if (expectedSize < 0)
+            throw new IllegalArgumentException();
+
+        this.var = var;
+
+        // #of bits (power of 2, at least one word).
+        final long nbits = Long.highestOneBit(Math.max(64L, Math.min(
+                1L << 30, expectedSize * BITS_PER_VALUE) * 2 - 1));
+
+        this.bits = new long[(int) (nbits >>> 6)];
+
+        this.mask = (int) (nbits - 1);
+
+    }
+
+    /**
+     * The variable whose bindings are summarized.
+     */
+    public IVariable<?> getVariable() {
+
+        return var;
+
+    }
+
+    /**
+     * The #of values added to the filter.
+     */
+    public long size() {
+
+        return size;
+
+    }
+
+    /**
+     * Add a value to the filter.
+     * 
+     * @param value
+     *            The value (required).
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void add(final Object value) {
+
+        if (value == null)
+            throw new IllegalArgumentException();
+
+        final int h1 = hash1(value);
+        final int h2 = hash2(h1);
+
+        for (int i = 0; i < K; i++) {
+
+            final int bit = (h1 + i * h2) & mask;
+
+            bits[bit >>> 6] |= (1L << bit);
+
+        }
+
+        if (ordered) {
+
+            if (!(value instanceof Comparable)
+                    || (valueClass != null && valueClass != value.getClass())) {
+
+                // The range can not be used.
+                ordered = false;
+                min = max = null;
+
+            } else if (valueClass == null) {
+
+                valueClass = value.getClass();
+                min = max = (Comparable) value;
+
+            } else {
+
+                if (min.compareTo(value) > 0)
+                    min = (Comparable) value;
+
+                if (max.compareTo(value) < 0)
+                    max = (Comparable) value;
+
+            }
+
+        }
+
+        size++;
+
+    }
+
+    /**
+     * Return <code>false</code> iff the value was certainly not added to the
+     * filter.
+     * 
+     * @param value
+     *            The value (required).
+     */
+    @SuppressWarnings("unchecked")
+    public boolean mightContain(final Object value) {
+
+        if (value == null)
+            throw new IllegalArgumentException();
+
+        if (ordered && min != null && value.getClass() == valueClass) {
+
+            if (min.compareTo(value) > 0 || max.compareTo(value) < 0) {
+
+                // Outside of the range of the values in the filter.
+                return false;
+
+            }
+
+        }
+
+        final int h1 = hash1(value);
+        final int h2 = hash2(h1);
+
+        for (int i = 0; i < K; i++) {
+
+            final int bit = (h1 + i * h2) & mask;
+
+            if ((bits[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Spread the hash code of the value (murmur3 finalizer).
+     */
+    private static int hash1(final Object value) {
+
+        int h = value.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+
+    }
+
+    /**
+     * The second hash function used for double hashing (always odd).
+     */
+    private static int hash2(final int h1) {
+
+        return hash1(h1 ^ 0x9e3779b9) | 1;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{var=" + var + ",size=" + size
+                + ",nbits=" + (mask + 1L) + ",min=" + min + ",max=" + max
+                + "}";
+
+    }
+
+    /**
+     * Return the name of the {@link IQueryAttributes} attribute under which
+     * the filter for a join variable of a hash index is published.
+     * 
+     * @param namedSetRef
+     *            The hash index.
+     * @param var
+     *            The join variable.
+     */
+    public static String getAttributeKey(
+            final INamedSolutionSetRef namedSetRef, final IVariable<?> var) {
+
+        return SidewaysFilter.class.getName() + "."
+                + namedSetRef.getLocalName() + "." + var.getName();
+
+    }
+
+    /**
+     * Build and publish a {@link SidewaysFilter} for each join variable of a
+     * hash index. This must be invoked once the hash index is complete.
+     * 
+     * @param attrs
+     *            The attributes of the query on which the hash index is
+     *            stored.
+     * @param namedSetRef
+     *            The hash index.
+     * @param state
+     *            The hash index state.
+     * @param maxSize
+     *            No filters are published if the hash index has more than this
+     *            many solutions.
+     * 
+     * @return The #of filters which were published.
+     */
+    public static int publish(final IQueryAttributes attrs,
+            final INamedSolutionSetRef namedSetRef,
+            final IHashJoinUtility state, final long maxSize) {
+
+        if (state.getJoinType() != JoinTypeEnum.Normal) {
+            // Only an inner join may discard solutions on the probe side.
+            return 0;
+        }
+
+        final IVariable<?>[] vars = state.getJoinVars();
+
+        final long n = state.getRightSolutionCount();
+
+        if (vars.length == 0 || n > maxSize)
+            return 0;
+
+        final SidewaysFilter[] filters = new SidewaysFilter[vars.length];
+
+        for (int i = 0; i < vars.length; i++) {
+
+            filters[i] = new SidewaysFilter(vars[i], n);
+
+        }
+
+        final ICloseableIterator<IBindingSet> itr = state.indexScan();
+
+        try {
+
+            while (itr.hasNext()) {
+
+                final IBindingSet bset = itr.next();
+
+                for (int i = 0; i < vars.length; i++) {
+
+                    if (filters[i] == null)
+                        continue;
+
+                    final IConstant<?> c = bset.get(vars[i]);
+
+                    if (c == null) {
+                        /*
+                         * An unbound join variable joins with anything, so the
+                         * bindings of that variable can not be summarized.
+                         */
+                        filters[i] = null;
+                        continue;
+                    }
+
+                    filters[i].add(c.get());
+
+                }
+
+            }
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        int npublished = 0;
+
+        for (SidewaysFilter f : filters) {
+
+            if (f == null)
+                continue;
+
+            attrs.put(getAttributeKey(namedSetRef, f.getVariable()), f);
+
+            npublished++;
+
+        }
+
+        return npublished;
+
+    }
+
+    /**
+     * An {@link IElementFilter} which rejects an element when the value at
+     * some position is not accepted by the {@link SidewaysFilter} for the
+     * variable at that position of the predicate.
+     */
+    public static class ElementTest implements IElementFilter<IElement> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The positions of the variables in the predicate.
+         */
+        private final int[] positions;
+
+        /**
+         * The filters (correlated with {@link #positions}).
+         */
+        private final SidewaysFilter[] filters;
+
+        /**
+         * The #of rejected elements (optional).
+         */
+        private final CAT rejected;
+
+        /**
+         * @param positions
+         *            The positions of the variables in the predicate.
+         * @param filters
+         *            The filters (correlated with <i>positions</i>).
+         * @param rejected
+         *            A counter for the rejected elements (optional).
+         */
+        public ElementTest(final int[] positions,
+                final SidewaysFilter[] filters, final CAT rejected) {
+
+            if (positions == null || filters == null
+                    || positions.length != filters.length)
+                throw new IllegalArgumentException();
+
+            this.positions = positions;
+            this.filters = filters;
+            this.rejected = rejected;
+
+        }
+
+        @Override
+        public boolean isValid(final Object obj) {
+
+            final IElement e = (IElement) obj;
+
+            for (int i = 0; i < positions.length; i++) {
+
+                final Object value = e.get(positions[i]);
+
+                if (value != null && !filters[i].mightContain(value)) {
+
+                    if (rejected != null)
+                        rejected.increment();
+
+                    return false;
+
+                }
+
+            }
+
+            return true;
+
+        }
+
+        @Override
+        public boolean canAccept(final Object o) {
+
+            return o instanceof IElement;
+
+        }
+
+        @Override
+        public String toString() {
+
+            final StringBuilder sb = new StringBuilder();
+            sb.append(getClass().getSimpleName() + "{");
+            for (int i = 0; i < positions.length; i++) {
+                if (i > 0)
+                    sb.append(",");
+                sb.append(positions[i] + "=" + filters[i]);
+            }
+            sb.append("}");
+            return sb.toString();
+
+        }
+
+    }
+
+}
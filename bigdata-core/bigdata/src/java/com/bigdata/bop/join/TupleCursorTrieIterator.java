@@ -0,0 +1,306 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleCursor;
+import com.bigdata.btree.keys.NoSuccessorException;
+import com.bigdata.btree.keys.SuccessorUtil;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * An {@link ITrieIterator} which reads directly on a statement index using an
+ * {@link ITupleCursor}. The key range of the cursor is the key prefix formed
+ * from the constants of the atom. The remaining components of the key are the
+ * levels of the trie, so the key order of the index MUST place the variables
+ * of the atom in the global variable order of the join.
+ * <p>
+ * Each level is positioned using {@link ITupleCursor#seek(byte[])}. Moving to
+ * the next key at a level seeks to the successor of the key prefix through
+ * that level, which skips over all tuples sharing that prefix without visiting
+ * them. The key components are {@link IV}s and are delimited by decoding the
+ * {@link IV} at the offset of the level.
+ * 
+ * @see LeapfrogTriejoinOp
+ */
+public class TupleCursorTrieIterator implements ITrieIterator {
+
+    private final ITupleCursor<?> cursor;
+
+    /**
+     * The key prefix for the atom (never <code>null</code>).
+     */
+    private final byte[] fromKey;
+
+    /**
+     * The exclusive upper bound (optional).
+     */
+    private final byte[] toKey;
+
+    private final int depth;
+
+    private int level = -1;
+
+    /**
+     * The offset of the key component for each level.
+     */
+    private final int[] off;
+
+    /**
+     * The key of the tuple on which each level is positioned.
+     */
+    private final byte[][] tupleKeys;
+
+    /**
+     * The key component for each level.
+     */
+    private final byte[][] keys;
+
+    /**
+     * The decoded key component for each level.
+     */
+    private final IV<?, ?>[] values;
+
+    /**
+     * <code>true</code> iff the level is exhausted.
+     */
+    private final boolean[] end;
+
+    /**
+     * @param cursor
+     *            A cursor over the key range of the atom.
+     * @param fromKey
+     *            The key prefix formed from the constants of the atom -or-
+     *            <code>null</code> if there are no constants.
+     * @param toKey
+     *            The exclusive upper bound for the key range -or-
+     *            <code>null</code> if there is no upper bound.
+     * @param depth
+     *            The #of levels (the #of variables in the atom).
+     */
+    public TupleCursorTrieIterator(final ITupleCursor<?> cursor,
+            final byte[] fromKey, final byte[] toKey, final int depth) {
+
+        if (cursor == null)
+            throw new IllegalArgumentException();
+
+        if (depth < 0)
+            throw new IllegalArgumentException();
+
+        this.cursor = cursor;
+        this.fromKey = fromKey == null ? new byte[0] : fromKey;
+        this.toKey = toKey;
+        this.depth = depth;
+        this.off = new int[depth];
+        this.tupleKeys = new byte[depth][];
+        this.keys = new byte[depth][];
+        this.values = new IV<?, ?>[depth];
+        this.end = new boolean[depth];
+
+    }
+
+    @Override
+    public int getDepth() {
+
+        return depth;
+
+    }
+
+    @Override
+    public void open() {
+
+        if (level + 1 >= depth)
+            throw new IllegalStateException();
+
+        if (level == -1) {
+
+            off[0] = fromKey.length;
+
+        } else {
+
+            if (atEnd())
+                throw new IllegalStateException();
+
+            off[level + 1] = off[level] + keys[level].length;
+
+        }
+
+        level++;
+
+        position(parentPrefix());
+
+    }
+
+    @Override
+    public void up() {
+
+        if (level < 0)
+            throw new IllegalStateException();
+
+        level--;
+
+    }
+
+    @Override
+    public boolean atEnd() {
+
+        return end[level];
+
+    }
+
+    @Override
+    public byte[] key() {
+
+        return keys[level];
+
+    }
+
+    @Override
+    public Object value() {
+
+        return values[level];
+
+    }
+
+    @Override
+    public void next() {
+
+        if (atEnd())
+            return;
+
+        final byte[] prefix = Arrays.copyOf(tupleKeys[level], off[level]
+                + keys[level].length);
+
+        try {
+
+            SuccessorUtil.successor(prefix);
+
+        } catch (NoSuccessorException ex) {
+
+            end[level] = true;
+
+            return;
+
+        }
+
+        position(prefix);
+
+    }
+
+    @Override
+    public void seek(final byte[] key) {
+
+        if (atEnd())
+            return;
+
+        if (BytesUtil.compareBytes(key, keys[level]) <= 0)
+            return;
+
+        final byte[] prefix = parentPrefix();
+
+        final byte[] target = Arrays.copyOf(prefix, prefix.length + key.length);
+
+        System.arraycopy(key, 0, target, prefix.length, key.length);
+
+        position(target);
+
+    }
+
+    /**
+     * The key prefix shared by all tuples at the current level.
+     */
+    private byte[] parentPrefix() {
+
+        if (level == 0)
+            return fromKey;
+
+        return Arrays.copyOf(tupleKeys[level - 1], off[level]);
+
+    }
+
+    /**
+     * Position the current level on the first tuple whose key is GTE the
+     * target key and which shares the key prefix of the parent level.
+     */
+    private void position(final byte[] target) {
+
+        if (toKey != null && BytesUtil.compareBytes(target, toKey) >= 0) {
+
+            end[level] = true;
+
+            return;
+
+        }
+
+        ITuple<?> t = cursor.seek(target);
+
+        if (t == null) {
+
+            t = cursor.hasNext() ? cursor.next() : null;
+
+        }
+
+        if (t == null) {
+
+            end[level] = true;
+
+            return;
+
+        }
+
+        final byte[] key = t.getKey();
+
+        final int n = off[level];
+
+        final byte[] parent = level == 0 ? fromKey : tupleKeys[level - 1];
+
+        if (key.length < n
+                || BytesUtil.compareBytesWithLenAndOffset(0/* aoff */, n,
+                        key, 0/* boff */, n, parent) != 0) {
+
+            // Left the key range of the parent.
+            end[level] = true;
+
+            return;
+
+        }
+
+        final IV<?, ?> iv = IVUtility.decodeFromOffset(key, n);
+
+        tupleKeys[level] = key;
+        keys[level] = Arrays.copyOfRange(key, n, n + iv.byteLength());
+        values[level] = iv;
+        end[level] = false;
+
+    }
+
+}
@@ -45,7 +45,7 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * {@link IV}s and the ability of the value comparator to handle comparisons
  * between materialized non-inline {@link IV}s and inline {@link IV}s.
  * 
- * TODO External memory ORDER BY operator.
+ * Note: See {@link NativeSortOp} for an external memory ORDER BY operator.
  * <p>
  * SPARQL ORDER BY semantics are complex and evaluating a SPARQL ORDER BY is
  * further complicated by the schema flexibility of the value to be sorted. The
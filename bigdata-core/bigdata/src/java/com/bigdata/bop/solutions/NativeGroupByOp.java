@@ -0,0 +1,1446 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Literal;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.ContextBindingSet;
+import com.bigdata.bop.HashMapAnnotations;
+import com.bigdata.bop.IBind;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.ISingleThreadedOp;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.rdf.aggregate.AVERAGE;
+import com.bigdata.bop.rdf.aggregate.COUNT;
+import com.bigdata.bop.rdf.aggregate.MAX;
+import com.bigdata.bop.rdf.aggregate.MIN;
+import com.bigdata.bop.rdf.aggregate.SUM;
+import com.bigdata.io.DataInputBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.journal.TemporaryRawStore;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.constraints.IVValueExpression;
+import com.bigdata.rdf.internal.constraints.MathBOp.MathOp;
+import com.bigdata.rdf.internal.constraints.MathUtility;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetDecoder;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+import com.bigdata.rdf.internal.impl.literal.NumericIV;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.rwstore.sector.IMemoryManager;
+import com.bigdata.rwstore.sector.MemStore;
+import com.bigdata.util.Bytes;
+import com.bigdata.util.InnerCause;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A pipelined GROUP BY operator for high cardinality groups. The
+ * {@link PipelinedAggregationOp} keeps a cloned {@link IAggregate} and an
+ * intermediate {@link IBindingSet} for each group. This operator instead keeps
+ * the running state of each aggregate in fixed slots (a <code>long</code> and
+ * an {@link IV}) for each group, and supports only aggregates which can be
+ * updated that way: COUNT, SUM, AVG, MIN and MAX without DISTINCT (see
+ * {@link #canEvaluate(IGroupByState, IGroupByRewriteState)}).
+ * <p>
+ * At most {@link Annotations#MAX_GROUPS} groups are kept on the JVM heap. The
+ * solutions for a new group observed once that limit is reached are hash
+ * partitioned on their group and spilled, encoded with an
+ * {@link IVSolutionSetEncoder}, onto the native heap using the
+ * {@link IMemoryManager} of the query and, once
+ * {@link Annotations#NATIVE_MEMORY} bytes have been written there, onto a
+ * {@link TemporaryRawStore}. Groups which are on the JVM heap continue to be
+ * updated in place, so a group is either entirely on the JVM heap or entirely
+ * within one spilled partition. On the last pass the groups on the JVM heap
+ * are written out and then each spilled partition is aggregated in turn,
+ * spilling again (with a different hash function) if necessary.
+ * <p>
+ * When {@link Annotations#PARTIAL_INPUTS} is specified this operator is the
+ * final phase of a two-phase aggregation and combines the partial aggregates
+ * computed in parallel by a {@link PartialAggregationOp}, including those
+ * retained by that operator until the last pass (see
+ * {@link Annotations#PARTIAL_AGGREGATION_ID}).
+ * <p>
+ * The order in which the groups are reported is not defined.
+ * 
+ * @see PartialAggregationOp
+ * @see PipelinedAggregationOp
+ * @see MemoryGroupByOp
+ */
+public class NativeGroupByOp extends GroupByOp implements ISingleThreadedOp {
+
+    private static final transient Logger log = Logger
+            .getLogger(NativeGroupByOp.class);
+
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends GroupByOp.Annotations,
+            HashMapAnnotations {
+
+        /**
+         * The maximum #of groups which will be aggregated on the JVM heap at
+         * any given time.
+         */
+        String MAX_GROUPS = NativeGroupByOp.class.getName() + ".maxGroups";
+
+        int DEFAULT_MAX_GROUPS = 100000;
+
+        /**
+         * The #of partitions into which the solutions for the groups which do
+         * not fit on the JVM heap are spilled.
+         */
+        String PARTITIONS = NativeGroupByOp.class.getName() + ".partitions";
+
+        int DEFAULT_PARTITIONS = 16;
+
+        /**
+         * The maximum #of bytes of spilled solutions which will be written
+         * onto the native heap before further spilled solutions are written
+         * onto a temporary store. Use ZERO (0) to always spill onto the
+         * temporary store.
+         */
+        String NATIVE_MEMORY = NativeGroupByOp.class.getName()
+                + ".nativeMemory";
+
+        long DEFAULT_NATIVE_MEMORY = 256 * Bytes.megabyte;
+
+        /**
+         * When <code>true</code> the source solutions are the partial
+         * aggregates computed by a {@link PartialAggregationOp} for the same
+         * {@link GroupByOp.Annotations#GROUP_BY_STATE} and
+         * {@link GroupByOp.Annotations#GROUP_BY_REWRITE}. The operator then
+         * combines the partial aggregates for each group rather than
+         * evaluating the aggregates against the solutions.
+         */
+        String PARTIAL_INPUTS = NativeGroupByOp.class.getName()
+                + ".partialInputs";
+
+        boolean DEFAULT_PARTIAL_INPUTS = false;
+
+        /**
+         * The identifier of the {@link PartialAggregationOp} whose retained
+         * partial aggregates are drained and combined on the last pass (only
+         * with {@link #PARTIAL_INPUTS}). When not specified, only the partial
+         * aggregates read from the source are combined.
+         */
+        String PARTIAL_AGGREGATION_ID = NativeGroupByOp.class.getName()
+                + ".partialAggregationId";
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns <code>true</code>. This operator may only be used when
+     * {@link #canEvaluate(IGroupByState, IGroupByRewriteState)} is satisfied.
+     */
+    @Override
+    public boolean isPipelinedAggregationOp() {
+
+        return true;
+
+    }
+
+    /**
+     * Deep copy constructor.
+     */
+    public NativeGroupByOp(final NativeGroupByOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public NativeGroupByOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        if (!isLastPassRequested()) {
+            /*
+             * Note: A final evaluation pass is required to write out the
+             * aggregates.
+             */
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        /*
+         * Note: The operator MUST be single threaded in order to receive the
+         * isLastInvocation notice.
+         */
+        assertMaxParallelOne();
+
+        if (!canEvaluate(getGroupByState(), getGroupByRewrite()))
+            throw new UnsupportedOperationException(
+                    "Aggregation not supported: " + getGroupByState());
+
+        if (getMaxGroups() <= 0)
+            throw new IllegalArgumentException(Annotations.MAX_GROUPS + "="
+                    + getMaxGroups());
+
+        if (getPartitions() < 2)
+            throw new IllegalArgumentException(Annotations.PARTITIONS + "="
+                    + getPartitions());
+
+        if (getNativeMemory() < 0)
+            throw new IllegalArgumentException(Annotations.NATIVE_MEMORY + "="
+                    + getNativeMemory());
+
+    }
+
+    /**
+     * @see Annotations#INITIAL_CAPACITY
+     */
+    public int getInitialCapacity() {
+
+        return getProperty(Annotations.INITIAL_CAPACITY,
+                Annotations.DEFAULT_INITIAL_CAPACITY);
+
+    }
+
+    /**
+     * @see Annotations#LOAD_FACTOR
+     */
+    public float getLoadFactor() {
+
+        return getProperty(Annotations.LOAD_FACTOR,
+                Annotations.DEFAULT_LOAD_FACTOR);
+
+    }
+
+    /**
+     * @see Annotations#MAX_GROUPS
+     */
+    public int getMaxGroups() {
+
+        return getProperty(Annotations.MAX_GROUPS,
+                Annotations.DEFAULT_MAX_GROUPS);
+
+    }
+
+    /**
+     * @see Annotations#PARTITIONS
+     */
+    public int getPartitions() {
+
+        return getProperty(Annotations.PARTITIONS,
+                Annotations.DEFAULT_PARTITIONS);
+
+    }
+
+    /**
+     * @see Annotations#NATIVE_MEMORY
+     */
+    public long getNativeMemory() {
+
+        return getProperty(Annotations.NATIVE_MEMORY,
+                Annotations.DEFAULT_NATIVE_MEMORY);
+
+    }
+
+    /**
+     * Return <code>true</code> iff the aggregation can be evaluated by this
+     * operator. There must be a GROUP BY clause, DISTINCT may not be used, the
+     * aggregates may not be nested or depend on one another, and each
+     * aggregate must be one of COUNT, SUM, AVG, MIN or MAX.
+     */
+    public static boolean canEvaluate(final IGroupByState groupByState,
+            final IGroupByRewriteState rewrite) {
+
+        final IValueExpression<?>[] groupBy = groupByState.getGroupByClause();
+
+        if (groupBy == null || groupBy.length == 0)
+            return false;
+
+        if (groupByState.isAnyDistinct() || groupByState.isNestedAggregates()
+                || groupByState.isSelectDependency())
+            return false;
+
+        for (IAggregate<?> a : rewrite.getAggExpr().keySet()) {
+
+            final AggKind kind = AggKind.valueOf(a);
+
+            if (kind == null)
+                return false;
+
+            if ((kind == AggKind.COUNT || kind == AggKind.AVERAGE)
+                    && a.arity() != 1)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public NativeGroupByStats newStats() {
+
+        return new NativeGroupByStats();
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new GroupByTask(this, context));
+
+    }
+
+    /**
+     * @see Annotations#PARTIAL_INPUTS
+     */
+    public boolean isPartialInputs() {
+
+        return getProperty(Annotations.PARTIAL_INPUTS,
+                Annotations.DEFAULT_PARTIAL_INPUTS);
+
+    }
+
+    /**
+     * @see Annotations#PARTIAL_AGGREGATION_ID
+     * 
+     * @return The identifier -or- <code>-1</code> if not specified.
+     */
+    public int getPartialAggregationId() {
+
+        return getProperty(Annotations.PARTIAL_AGGREGATION_ID, -1);
+
+    }
+
+    /**
+     * Return the variable on which a {@link PartialAggregationOp} binds the
+     * partial count for an aggregate.
+     * 
+     * @param aggVar
+     *            The anonymous variable on which the aggregate is bound by the
+     *            {@link IGroupByRewriteState}.
+     */
+    static IVariable<?> partialCountVar(final IVariable<?> aggVar) {
+
+        return Var.var(aggVar.getName() + ".count");
+
+    }
+
+    /**
+     * The aggregates which can be maintained in fixed slots.
+     */
+    static enum AggKind {
+
+        COUNT, SUM, AVERAGE, MIN, MAX;
+
+        /**
+         * Return the kind of the aggregate -or- <code>null</code> if it is not
+         * supported.
+         */
+        static AggKind valueOf(final IAggregate<?> a) {
+            if (a instanceof COUNT)
+                return COUNT;
+            if (a instanceof SUM)
+                return SUM;
+            if (a instanceof AVERAGE)
+                return AVERAGE;
+            if (a instanceof MIN)
+                return MIN;
+            if (a instanceof MAX)
+                return MAX;
+            return null;
+        }
+
+    }
+
+    /**
+     * The value of a count slot once the aggregate has failed for a group.
+     */
+    static final long ERROR = -1L;
+
+    @SuppressWarnings("rawtypes")
+    private static final NumericIV ZERO = new XSDNumericIV<BigdataLiteral>(0);
+
+    /**
+     * Provides SPARQL ORDER BY semantics for MIN and MAX.
+     */
+    private static final IVComparator comparator = new IVComparator();
+
+    /**
+     * The target size of a block of encoded solutions in a spilled partition.
+     */
+    private static final int BLOCK_SIZE = 32 * Bytes.kilobyte32;
+
+    /**
+     * The computed values of the GROUP BY value expressions for a solution.
+     */
+    static class SolutionGroup {
+
+        /** The hash code for {@link #vals}. */
+        private final int hash;
+
+        /**
+         * The computed values for the groupBy value expressions in the order in
+         * which they were declared.
+         */
+        final IConstant<?>[] vals;
+
+        @Override
+        public String toString() {
+            return super.toString() + //
+                    "{group=" + Arrays.toString(vals) + //
+                    "}";
+        }
+
+        /**
+         * Return a new {@link SolutionGroup} given the value expressions and
+         * the binding set. The value of an expression which can not be
+         * evaluated is the error value.
+         */
+        static SolutionGroup newInstance(final IValueExpression<?>[] groupBy,
+                final IBindingSet bset) {
+
+            final IConstant<?>[] r = new IConstant<?>[groupBy.length];
+
+            for (int i = 0; i < groupBy.length; i++) {
+
+                Object exprValue;
+
+                try {
+                    // Note: side-effect for a BIND in the GROUP BY clause.
+                    exprValue = groupBy[i].get(bset);
+                } catch (SparqlTypeErrorException ex) {
+                    exprValue = null;
+                }
+
+                @SuppressWarnings({ "rawtypes", "unchecked" })
+                final IConstant<?> x = exprValue == null ? Constant
+                        .errorValue() : new Constant(exprValue);
+
+                r[i] = x;
+
+            }
+
+            return new SolutionGroup(r);
+
+        }
+
+        private SolutionGroup(final IConstant<?>[] vals) {
+            this.vals = vals;
+            this.hash = java.util.Arrays.hashCode(vals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof SolutionGroup)) {
+                return false;
+            }
+            final SolutionGroup t = (SolutionGroup) o;
+            if (vals.length != t.vals.length)
+                return false;
+            for (int i = 0; i < vals.length; i++) {
+                if (vals[i] == t.vals[i])
+                    continue;
+                if (vals[i] == null)
+                    return false;
+                if (!vals[i].equals(t.vals[i]))
+                    return false;
+            }
+            return true;
+        }
+
+    } // SolutionGroup
+
+    /**
+     * The aggregate slots for a group. Slot <code>i</code> holds the running
+     * state of the i<sup>th</sup> aggregate: the count for COUNT and AVG, the
+     * running sum for SUM and AVG and the current value for MIN and MAX. A
+     * count of {@link NativeGroupByOp#ERROR} marks an aggregate which has
+     * failed for the group and will not be bound.
+     */
+    static class GroupSlots {
+
+        final long[] counts;
+
+        @SuppressWarnings("rawtypes")
+        final IV[] values;
+
+        GroupSlots(final AggKind[] kinds) {
+            counts = new long[kinds.length];
+            values = new IV[kinds.length];
+            for (int i = 0; i < kinds.length; i++) {
+                switch (kinds[i]) {
+                case SUM:
+                case AVERAGE:
+                    values[i] = ZERO;
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A block of solutions in a spilled partition.
+     */
+    private static class Block {
+
+        final IRawStore store;
+
+        final long addr;
+
+        Block(final IRawStore store, final long addr) {
+            this.store = store;
+            this.addr = addr;
+        }
+
+    }
+
+    /**
+     * The solutions spilled into one partition. The solutions in a partition
+     * share a single encoder so they must be decoded in order.
+     */
+    private static class Partition {
+
+        final List<Block> blocks = new ArrayList<Block>();
+
+        final IVSolutionSetEncoder encoder = new IVSolutionSetEncoder();
+
+        final DataOutputBuffer out = new DataOutputBuffer();
+
+        /** The #of solutions in {@link #out}. */
+        int n = 0;
+
+    }
+
+    /**
+     * The groups being aggregated on the JVM heap at some level together with
+     * the solutions spilled at that level.
+     */
+    private static class Level {
+
+        final int depth;
+
+        final LinkedHashMap<SolutionGroup, GroupSlots> map;
+
+        /**
+         * The spilled partitions (lazily allocated).
+         */
+        Partition[] partitions;
+
+        Level(final int depth, final NativeGroupByOp op) {
+            this.depth = depth;
+            this.map = new LinkedHashMap<SolutionGroup, GroupSlots>(
+                    op.getInitialCapacity(), op.getLoadFactor());
+        }
+
+    }
+
+    /**
+     * The state of the operator. A reference to this object is stored on the
+     * {@link IQueryAttributes}.
+     */
+    private static class GroupByState {
+
+        final Level top;
+
+        /**
+         * The #of bytes spilled onto the native heap.
+         */
+        long nativeBytes = 0L;
+
+        /**
+         * Spilled solutions on the native heap (lazily allocated).
+         */
+        MemStore memStore;
+
+        /**
+         * Spilled solutions on the disk (lazily allocated).
+         */
+        TemporaryRawStore tempStore;
+
+        GroupByState(final NativeGroupByOp op) {
+            this.top = new Level(0, op);
+        }
+
+    }
+
+    /**
+     * Update the slots of a group for each aggregate against a solution. A
+     * type error for an aggregate is trapped and marks that aggregate as
+     * {@link #ERROR} for the group.
+     * 
+     * @param aggs
+     *            The aggregates in the order of their slots.
+     * @param kinds
+     *            The kind of each aggregate.
+     * @param slots
+     *            The slots for the group of the solution.
+     * @param bset
+     *            The solution.
+     * @param stats
+     *            Used to report type errors.
+     */
+    static void aggregate(final IAggregate<?>[] aggs, final AggKind[] kinds,
+            final GroupSlots slots, final IBindingSet bset,
+            final BOpStats stats) {
+
+        for (int i = 0; i < aggs.length; i++) {
+
+            if (slots.counts[i] == ERROR)
+                continue;
+
+            try {
+
+                update(aggs[i], kinds[i], i, slots, bset);
+
+            } catch (Throwable t) {
+
+                if (InnerCause.isInnerCause(t, SparqlTypeErrorException.class)) {
+
+                    /*
+                     * Trap the type error. The group will be reported, but
+                     * this aggregate will not bind a value for the group.
+                     */
+                    TypeErrorLog.handleTypeError(t, aggs[i], stats);
+
+                    slots.counts[i] = ERROR;
+
+                    continue;
+
+                }
+
+                throw new RuntimeException(t);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Update the slot for an aggregate. This has the same semantics as
+     * {@link IAggregate#get(IBindingSet)} for the corresponding aggregate.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static void update(final IAggregate<?> a, final AggKind kind,
+            final int i, final GroupSlots slots, final IBindingSet bset) {
+
+        switch (kind) {
+        case COUNT: {
+            final IValueExpression<?> expr = (IValueExpression<?>) a.get(0);
+            if (expr instanceof IVariable<?>
+                    && ((IVariable<?>) expr).isWildcard()) {
+                slots.counts[i]++;
+            } else if (expr.get(bset) != null) {
+                slots.counts[i]++;
+            }
+            break;
+        }
+        case SUM:
+        case AVERAGE: {
+            for (int j = 0; j < a.arity(); j++) {
+                final IV iv = ((IValueExpression<IV>) a.get(j)).get(bset);
+                if (iv != null) {
+                    final Literal lit = IVValueExpression.asLiteral(iv);
+                    if (!MathUtility.checkNumericDatatype(lit))
+                        throw new SparqlTypeErrorException();
+                    slots.values[i] = MathUtility.literalMath(
+                            (NumericIV) slots.values[i], lit, MathOp.PLUS);
+                    slots.counts[i]++;
+                }
+            }
+            break;
+        }
+        case MIN:
+        case MAX: {
+            for (int j = 0; j < a.arity(); j++) {
+                final IV iv = ((IValueExpression<IV>) a.get(j)).get(bset);
+                if (iv != null) {
+                    minMax(kind, i, slots, iv);
+                }
+            }
+            break;
+        }
+        default:
+            throw new AssertionError();
+        }
+
+    }
+
+    /**
+     * Replace the current value of a MIN or MAX slot if the given value is
+     * ordered before (MIN) or after (MAX) it.
+     */
+    @SuppressWarnings("rawtypes")
+    private static void minMax(final AggKind kind, final int i,
+            final GroupSlots slots, final IV iv) {
+
+        final IV cur = slots.values[i];
+
+        if (cur == null) {
+            slots.values[i] = iv;
+        } else {
+            final int ret = comparator.compare(iv, cur);
+            if (kind == AggKind.MIN ? ret < 0 : ret > 0)
+                slots.values[i] = iv;
+        }
+
+    }
+
+    /**
+     * Combine the partial aggregates in a solution produced by a
+     * {@link PartialAggregationOp} into the slots of a group. An aggregate
+     * which failed for any partial aggregate fails for the group.
+     * 
+     * @param aggVars
+     *            The variables on which the (partial) aggregates are bound.
+     * @param kinds
+     *            The kind of each aggregate.
+     * @param slots
+     *            The slots for the group of the solution.
+     * @param bset
+     *            The partial aggregates for the group.
+     */
+    @SuppressWarnings("rawtypes")
+    static void merge(final IVariable<?>[] aggVars, final AggKind[] kinds,
+            final GroupSlots slots, final IBindingSet bset) {
+
+        for (int i = 0; i < aggVars.length; i++) {
+
+            if (slots.counts[i] == ERROR)
+                continue;
+
+            final long n = ((NumericIV) bset.get(
+                    partialCountVar(aggVars[i])).get()).longValue();
+
+            if (n == ERROR) {
+                slots.counts[i] = ERROR;
+                continue;
+            }
+
+            final IConstant<?> c = bset.get(aggVars[i]);
+
+            final IV iv = c == null ? null : (IV) c.get();
+
+            switch (kinds[i]) {
+            case COUNT:
+                slots.counts[i] += n;
+                break;
+            case SUM:
+            case AVERAGE:
+                if (n > 0) {
+                    /*
+                     * Note: A partial sum of no values is not added so the
+                     * datatype of the sum is not promoted from that of ZERO.
+                     */
+                    slots.values[i] = MathUtility.literalMath(
+                            (NumericIV) slots.values[i], (Literal) iv,
+                            MathOp.PLUS);
+                    slots.counts[i] += n;
+                }
+                break;
+            case MIN:
+            case MAX:
+                if (iv != null) {
+                    minMax(kinds[i], i, slots, iv);
+                }
+                break;
+            default:
+                throw new AssertionError();
+            }
+
+        }
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class GroupByTask implements Callable<Void> {
+
+        private final NativeGroupByOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final NativeGroupByStats stats;
+
+        private final IGroupByState groupByState;
+
+        private final IGroupByRewriteState rewrite;
+
+        private final IValueExpression<?>[] groupBy;
+
+        /**
+         * @see Annotations#PARTIAL_INPUTS
+         */
+        private final boolean partialInputs;
+
+        /**
+         * The variables on which the GROUP BY value expressions are bound in
+         * the partial aggregates (only when {@link #partialInputs}).
+         */
+        private final IVariable<?>[] groupVars;
+
+        /**
+         * The aggregates in the order of their slots.
+         */
+        private final IAggregate<?>[] aggs;
+
+        /**
+         * The variables on which the aggregates will be bound.
+         */
+        private final IVariable<?>[] aggVars;
+
+        private final AggKind[] kinds;
+
+        private final int maxGroups;
+
+        private final int npartitions;
+
+        private final long nativeMemory;
+
+        /**
+         * The {@link IQueryAttributes} for the query off which we will hang
+         * the {@link GroupByState}.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #state} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private transient GroupByState state;
+
+        GroupByTask(final NativeGroupByOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = (NativeGroupByStats) context.getStats();
+
+            this.groupByState = op.getGroupByState();
+
+            this.rewrite = op.getGroupByRewrite();
+
+            this.groupBy = groupByState.getGroupByClause();
+
+            this.partialInputs = op.isPartialInputs();
+
+            this.groupVars = partialInputs ? PartialAggregationOp
+                    .getGroupVars(groupBy) : null;
+
+            final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr = rewrite
+                    .getAggExpr();
+
+            this.aggs = new IAggregate<?>[aggExpr.size()];
+
+            this.aggVars = new IVariable<?>[aggExpr.size()];
+
+            this.kinds = new AggKind[aggExpr.size()];
+
+            int i = 0;
+
+            for (Map.Entry<IAggregate<?>, IVariable<?>> e : aggExpr.entrySet()) {
+
+                aggs[i] = e.getKey();
+
+                aggVars[i] = e.getValue();
+
+                kinds[i] = AggKind.valueOf(e.getKey());
+
+                i++;
+
+            }
+
+            this.maxGroups = op.getMaxGroups();
+
+            this.npartitions = op.getPartitions();
+
+            this.nativeMemory = op.getNativeMemory();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            state = (GroupByState) attrs.get(key);
+
+            if (state == null) {
+
+                state = new GroupByState(op);
+
+                if (attrs.putIfAbsent(key, state) != null)
+                    throw new AssertionError();
+
+            }
+
+        }
+
+        void release() {
+
+            if (log.isInfoEnabled())
+                log.info("Releasing state");
+
+            attrs.remove(key);
+
+            if (state.memStore != null) {
+                state.memStore.close();
+                state.memStore = null;
+            }
+
+            if (state.tempStore != null) {
+                state.tempStore.destroy();
+                state.tempStore = null;
+            }
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        final IBindingSet[] a = itr.next();
+
+                        stats.chunksIn.increment();
+                        stats.unitsIn.add(a.length);
+
+                        for (IBindingSet bset : a) {
+
+                            accept(state.top, bset);
+
+                        }
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+                if (lastInvocation) {
+
+                    if (partialInputs && op.getPartialAggregationId() != -1) {
+
+                        /*
+                         * Combine the partial aggregates retained by the
+                         * PartialAggregationOp. It can no longer be evaluated.
+                         */
+                        final List<IBindingSet> partials = PartialAggregationOp
+                                .drain(attrs, op.getPartialAggregationId(),
+                                        groupVars, aggVars);
+
+                        stats.partialsDrained.add(partials.size());
+
+                        for (IBindingSet bset : partials) {
+
+                            accept(state.top, bset);
+
+                        }
+
+                    }
+
+                    output(state.top, sink);
+
+                    sink.flush();
+
+                }
+
+                // done.
+                return null;
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    release();
+
+                }
+
+                sink.close();
+
+            }
+
+        }
+
+        /**
+         * Update the aggregates for the group of the solution if that group is
+         * on the JVM heap (or can be added to the JVM heap) and otherwise
+         * spill the solution. When the solution is a partial aggregate it is
+         * combined with the aggregates for the group.
+         */
+        private void accept(final Level level, final IBindingSet bset) {
+
+            final SolutionGroup g = SolutionGroup.newInstance(
+                    partialInputs ? groupVars : groupBy, bset);
+
+            GroupSlots slots = level.map.get(g);
+
+            if (slots == null) {
+
+                if (level.map.size() >= maxGroups) {
+
+                    spill(level, g, bset);
+
+                    return;
+
+                }
+
+                level.map.put(g, slots = new GroupSlots(kinds));
+
+                stats.groupCount.increment();
+
+            }
+
+            if (partialInputs) {
+
+                merge(aggVars, kinds, slots, bset);
+
+            } else {
+
+                aggregate(aggs, kinds, slots, bset, stats);
+
+            }
+
+        }
+
+        /**
+         * Return the value of an aggregate for a group. This has the same
+         * semantics as {@link IAggregate#done()} for the corresponding
+         * aggregate.
+         * 
+         * @return The value -or- <code>null</code> if the aggregate will not
+         *         be bound.
+         */
+        @SuppressWarnings({ "rawtypes" })
+        private IV done(final int i, final GroupSlots slots) {
+
+            if (slots.counts[i] == ERROR)
+                return null;
+
+            switch (kinds[i]) {
+            case COUNT:
+                return new XSDIntegerIV<BigdataLiteral>(
+                        BigInteger.valueOf(slots.counts[i]));
+            case SUM:
+                return slots.values[i];
+            case AVERAGE:
+                if (slots.counts[i] == 0)
+                    return ZERO;
+                return MathUtility.literalMath((NumericIV) slots.values[i],
+                        new XSDNumericIV<BigdataLiteral>(slots.counts[i]),
+                        MathOp.DIVIDE);
+            case MIN:
+            case MAX:
+                return slots.values[i];
+            default:
+                throw new AssertionError();
+            }
+
+        }
+
+        /**
+         * Spill a solution into the partition for its group.
+         */
+        private void spill(final Level level, final SolutionGroup g,
+                final IBindingSet bset) {
+
+            if (level.partitions == null) {
+
+                if (log.isInfoEnabled())
+                    log.info("Spilling: depth=" + level.depth + ", ngroups="
+                            + level.map.size());
+
+                level.partitions = new Partition[npartitions];
+
+            }
+
+            final int p = partition(g.hash, level.depth);
+
+            Partition partition = level.partitions[p];
+
+            if (partition == null) {
+
+                partition = level.partitions[p] = new Partition();
+
+                stats.spilledPartitions.increment();
+
+            }
+
+            partition.encoder.encodeSolution(partition.out, bset);
+
+            partition.n++;
+
+            stats.spilledSolutions.increment();
+
+            if (partition.out.pos() >= BLOCK_SIZE) {
+
+                writeBlock(partition);
+
+            }
+
+        }
+
+        /**
+         * Return the partition for a group. The hash code is remixed at each
+         * level so a partition which is spilled again is spread over new
+         * partitions.
+         */
+        private int partition(final int hash, final int depth) {
+
+            int h = hash ^ (depth * 0x9E3779B9);
+
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+
+            return (h & 0x7fffffff) % npartitions;
+
+        }
+
+        /**
+         * Write the buffered solutions for a partition onto the native heap or,
+         * once the native heap budget is exhausted, onto the temporary store.
+         */
+        private void writeBlock(final Partition partition) {
+
+            final boolean onNativeHeap = state.nativeBytes < nativeMemory;
+
+            final IRawStore store;
+            if (onNativeHeap) {
+                if (state.memStore == null) {
+                    final IMemoryManager mmgr = context.getMemoryManager(null/* queryId */);
+                    state.memStore = new MemStore(mmgr.createAllocationContext());
+                }
+                store = state.memStore;
+            } else {
+                if (state.tempStore == null) {
+                    state.tempStore = new TemporaryRawStore();
+                }
+                store = state.tempStore;
+            }
+
+            final DataOutputBuffer out = partition.out;
+
+            final int len = out.pos();
+
+            final ByteBuffer b = ByteBuffer.allocate(Bytes.SIZEOF_INT + len);
+
+            b.putInt(partition.n);
+
+            b.put(out.array(), 0, len);
+
+            b.flip();
+
+            partition.blocks.add(new Block(store, store.write(b)));
+
+            out.reset();
+
+            partition.n = 0;
+
+            final int nbytes = Bytes.SIZEOF_INT + len;
+
+            if (onNativeHeap) {
+                state.nativeBytes += nbytes;
+                stats.nativeBytes.add(nbytes);
+            } else {
+                stats.tempStoreBytes.add(nbytes);
+            }
+
+        }
+
+        /**
+         * Write out the groups on the JVM heap for a level and then aggregate
+         * and write out each of the partitions spilled at that level.
+         */
+        private void output(final Level level,
+                final IBlockingBuffer<IBindingSet[]> sink) throws IOException {
+
+            final int chunkCapacity = op.getChunkCapacity();
+
+            final List<IBindingSet> outList = new ArrayList<IBindingSet>();
+
+            for (Map.Entry<SolutionGroup, GroupSlots> e : level.map.entrySet()) {
+
+                final IBindingSet out = finalizeGroup(e.getKey(), e.getValue());
+
+                if (out != null) {
+
+                    outList.add(out);
+
+                    if (outList.size() >= chunkCapacity) {
+
+                        sink.add(outList.toArray(new IBindingSet[0]));
+
+                        outList.clear();
+
+                    }
+
+                }
+
+            }
+
+            if (!outList.isEmpty()) {
+
+                sink.add(outList.toArray(new IBindingSet[0]));
+
+            }
+
+            // discard the groups.
+            level.map.clear();
+
+            if (level.partitions == null)
+                return;
+
+            for (int p = 0; p < level.partitions.length; p++) {
+
+                final Partition partition = level.partitions[p];
+
+                if (partition == null)
+                    continue;
+
+                level.partitions[p] = null;
+
+                if (partition.n > 0) {
+
+                    writeBlock(partition);
+
+                }
+
+                partition.encoder.release();
+
+                final Level child = new Level(level.depth + 1, op);
+
+                final IVSolutionSetDecoder decoder = new IVSolutionSetDecoder();
+
+                for (Block block : partition.blocks) {
+
+                    final ByteBuffer b = block.store.read(block.addr);
+
+                    final byte[] a = new byte[b.remaining()];
+
+                    b.get(a);
+
+                    // Release the block on the native heap.
+                    block.store.delete(block.addr);
+
+                    final DataInputBuffer in = new DataInputBuffer(a);
+
+                    final int n = in.readInt();
+
+                    for (int i = 0; i < n; i++) {
+
+                        accept(child,
+                                decoder.decodeSolution(in, true/* resolveCachedValues */));
+
+                    }
+
+                }
+
+                decoder.release();
+
+                output(child, sink);
+
+            }
+
+        }
+
+        /**
+         * Compute the solution for a group.
+         * 
+         * @return The solution -or- <code>null</code> if the solution for the
+         *         group was dropped by the HAVING constraint(s).
+         */
+        private IBindingSet finalizeGroup(final SolutionGroup g,
+                final GroupSlots slots) {
+
+            final IBindingSet aggregates = new ContextBindingSet(context,
+                    new ListBindingSet());
+
+            /*
+             * Propagate GROUP_BY expression onto [aggregates].
+             */
+            for (int i = 0; i < groupBy.length; i++) {
+
+                final IValueExpression<?> expr = groupBy[i];
+
+                if (expr instanceof IVariable<?>) {
+
+                    // GROUP BY ?x
+                    aggregates.set((IVariable<?>) expr, g.vals[i]);
+
+                } else if (expr instanceof IBind<?>) {
+
+                    // GROUP BY (2*?y as ?x)
+                    aggregates.set(((IBind<?>) expr).getVar(), g.vals[i]);
+
+                }
+
+            }
+
+            // Finalize and bind the aggregates.
+            for (int i = 0; i < aggs.length; i++) {
+
+                @SuppressWarnings("rawtypes")
+                final IV val;
+
+                try {
+
+                    val = done(i, slots);
+
+                } catch (Throwable t) {
+
+                    if (InnerCause.isInnerCause(t,
+                            SparqlTypeErrorException.class)) {
+
+                        // No binding.
+                        TypeErrorLog.handleTypeError(t, aggs[i], stats);
+
+                        continue;
+
+                    }
+
+                    throw new RuntimeException(t);
+
+                }
+
+                if (val != null) {
+
+                    @SuppressWarnings({ "rawtypes", "unchecked" })
+                    final IConstant<?> c = new Constant(val);
+
+                    aggregates.set(aggVars[i], c);
+
+                }
+
+            }
+
+            // Evaluate SELECT expressions.
+            for (IValueExpression<?> expr : rewrite.getSelect2()) {
+
+                try {
+                    expr.get(aggregates);
+                } catch (SparqlTypeErrorException ex) {
+                    TypeErrorLog.handleTypeError(ex, expr, stats);
+                    continue;
+                } catch (IllegalArgumentException ex) {
+                    /*
+                     * Note: This hack turns an IllegalArgumentException which
+                     * we presume is coming out of new Constant(null) into an
+                     * (implicit) SPARQL type error so we can drop the binding
+                     * for this SELECT expression (see PipelinedAggregationOp).
+                     */
+                    TypeErrorLog.handleTypeError(ex, expr, stats);
+                    continue;
+                }
+
+            }
+
+            // Verify optional HAVING constraint(s)
+            final IConstraint[] having2 = rewrite.getHaving2();
+
+            if (having2 != null && !BOpUtility.isConsistent(having2, aggregates)) {
+
+                if (log.isDebugEnabled())
+                    log.debug("drop : " + aggregates);
+
+                return null;
+
+            }
+
+            // project out only selected variables that are not assigned error
+            // values.
+            return aggregates.copyMinusErrors(groupByState.getSelectVars()
+                    .toArray(new IVariable[0]));
+
+        }
+
+    } // GroupByTask
+
+} // NativeGroupByOp
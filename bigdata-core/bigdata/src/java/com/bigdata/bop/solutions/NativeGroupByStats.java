@@ -0,0 +1,117 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.counters.CAT;
+
+/**
+ * Extended statistics for the {@link NativeGroupByOp}.
+ */
+public class NativeGroupByStats extends BOpStats {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The #of groups which were aggregated (including the groups for spilled
+     * partitions).
+     */
+    public final CAT groupCount = new CAT();
+
+    /**
+     * The #of partitions which were spilled (at any level).
+     */
+    public final CAT spilledPartitions = new CAT();
+
+    /**
+     * The #of solutions written into spilled partitions (a solution is counted
+     * again each time it is spilled).
+     */
+    public final CAT spilledSolutions = new CAT();
+
+    /**
+     * The #of bytes written into spilled partitions on the native heap.
+     */
+    public final CAT nativeBytes = new CAT();
+
+    /**
+     * The #of bytes written into spilled partitions on the temporary store.
+     */
+    public final CAT tempStoreBytes = new CAT();
+
+    /**
+     * The #of partial aggregates retained by a {@link PartialAggregationOp}
+     * which were drained and combined on the last pass.
+     */
+    public final CAT partialsDrained = new CAT();
+
+    @Override
+    public void add(final BOpStats o) {
+
+        super.add(o);
+
+        if (o instanceof NativeGroupByStats) {
+
+            final NativeGroupByStats t = (NativeGroupByStats) o;
+
+            groupCount.add(t.groupCount.get());
+
+            spilledPartitions.add(t.spilledPartitions.get());
+
+            spilledSolutions.add(t.spilledSolutions.get());
+
+            nativeBytes.add(t.nativeBytes.get());
+
+            tempStoreBytes.add(t.tempStoreBytes.get());
+
+            partialsDrained.add(t.partialsDrained.get());
+
+        }
+
+    }
+
+    @Override
+    protected void toString(final StringBuilder sb) {
+
+        super.toString(sb);
+
+        sb.append(",groupCount=" + groupCount.get());
+
+        sb.append(",spilledPartitions=" + spilledPartitions.get());
+
+        sb.append(",spilledSolutions=" + spilledSolutions.get());
+
+        sb.append(",nativeBytes=" + nativeBytes.get());
+
+        sb.append(",tempStoreBytes=" + tempStoreBytes.get());
+
+        sb.append(",partialsDrained=" + partialsDrained.get());
+
+    }
+
+}
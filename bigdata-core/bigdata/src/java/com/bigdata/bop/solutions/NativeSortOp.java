@@ -0,0 +1,934 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.IBind;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.io.DataInputBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.journal.TemporaryRawStore;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetDecoder;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.rwstore.sector.IMemoryManager;
+import com.bigdata.rwstore.sector.MemStore;
+import com.bigdata.util.Bytes;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * An external memory merge sort for binding sets. The value expressions are
+ * evaluated and bound on the incoming solutions exactly as for the
+ * {@link MemorySortOp}. The as-bound solutions are collected into runs of at
+ * most {@link Annotations#RUN_SIZE} solutions. Each time a run is full it is
+ * sorted, encoded using an {@link IVSolutionSetEncoder} and written out in
+ * blocks onto the native heap using the {@link IMemoryManager} of the query.
+ * Once {@link Annotations#NATIVE_MEMORY} bytes have been written onto the native
+ * heap, further runs are written onto a {@link TemporaryRawStore}. When the
+ * last chunk of source solutions has been observed the runs are combined with
+ * the final (in memory) run using a k-way merge. If nothing was spilled, the
+ * operator degenerates to an in memory sort.
+ * <p>
+ * The runs are ordered using the same {@link BindingSetComparator} as the
+ * {@link MemorySortOp} rather than by normalized binary keys. SPARQL ORDER BY
+ * over mixed datatypes, language tags and non-inline {@link com.bigdata.rdf.internal.IV}s
+ * whose materialized values must be compared can not be faithfully reduced to
+ * an unsigned byte[] order, so only the solutions (and not the sort keys) are
+ * moved off the JVM heap. The encoding carries the cached RDF Values, so the
+ * decoded solutions can still be compared during the merge.
+ * <p>
+ * When {@link Annotations#LIMIT} is given (the sort is followed by a
+ * {@link SliceOp} and the LIMIT plus the OFFSET is known) and that limit is no
+ * more than the run size, a bounded heap is used to retain just the first
+ * LIMIT solutions and nothing is ever written out. Otherwise the limit is used
+ * to stop the merge early. Either way, the {@link SliceOp} must still be
+ * applied to impose the OFFSET and LIMIT.
+ * <p>
+ * Both the merge and the top-K heap break ties on the arrival order of the
+ * solutions so the sort is stable, just like the {@link MemorySortOp}.
+ * 
+ * @see MemorySortOp
+ */
+public class NativeSortOp extends SortOp {
+
+    private static final transient Logger log = Logger.getLogger(NativeSortOp.class);
+
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends SortOp.Annotations {
+
+        /**
+         * The maximum #of solutions in a run. A run is sorted on the JVM heap
+         * and then written out once it is full.
+         */
+        String RUN_SIZE = NativeSortOp.class.getName() + ".runSize";
+
+        int DEFAULT_RUN_SIZE = 100000;
+
+        /**
+         * The maximum #of bytes of sorted runs which will be written onto the
+         * native heap before runs are spilled onto a temporary store. Use ZERO
+         * (0) to always write the runs onto the temporary store.
+         */
+        String NATIVE_MEMORY = NativeSortOp.class.getName() + ".nativeMemory";
+
+        long DEFAULT_NATIVE_MEMORY = 256 * Bytes.megabyte;
+
+        /**
+         * The maximum #of solutions which could be consumed downstream from
+         * this operator (default {@value #DEFAULT_LIMIT}). When there is a
+         * LIMIT, this is the sum of the OFFSET and the LIMIT of the
+         * {@link SliceOp} which follows the sort.
+         */
+        String LIMIT = NativeSortOp.class.getName() + ".limit";
+
+        long DEFAULT_LIMIT = Long.MAX_VALUE;
+
+    }
+
+    /**
+     * Deep copy constructor.
+     */
+    public NativeSortOp(final NativeSortOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public NativeSortOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        if (!isLastPassRequested()) {
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        // ORDER_BY must preserve order.
+        if (isReorderSolutions())
+            throw new UnsupportedOperationException(
+                    Annotations.REORDER_SOLUTIONS + "=" + isReorderSolutions());
+
+        // required parameter.
+        getValueComparator();
+
+        // validate required parameter.
+        for (ISortOrder<?> s : getSortOrder()) {
+
+            final IValueExpression<?> expr = s.getExpr();
+
+            if (expr instanceof IVariableOrConstant<?>)
+                continue;
+
+            if (expr instanceof IBind<?>)
+                continue;
+
+            throw new IllegalArgumentException(
+                    "Value expression not wrapped by bind: " + expr);
+
+        }
+
+        if (getRunSize() <= 0)
+            throw new IllegalArgumentException(Annotations.RUN_SIZE + "="
+                    + getRunSize());
+
+        if (getNativeMemory() < 0)
+            throw new IllegalArgumentException(Annotations.NATIVE_MEMORY + "="
+                    + getNativeMemory());
+
+        if (getLimit() < 0)
+            throw new IllegalArgumentException(Annotations.LIMIT + "="
+                    + getLimit());
+
+    }
+
+    /**
+     * @see Annotations#RUN_SIZE
+     */
+    public int getRunSize() {
+
+        return getProperty(Annotations.RUN_SIZE, Annotations.DEFAULT_RUN_SIZE);
+
+    }
+
+    /**
+     * @see Annotations#NATIVE_MEMORY
+     */
+    public long getNativeMemory() {
+
+        return getProperty(Annotations.NATIVE_MEMORY,
+                Annotations.DEFAULT_NATIVE_MEMORY);
+
+    }
+
+    /**
+     * @see Annotations#LIMIT
+     */
+    public long getLimit() {
+
+        return getProperty(Annotations.LIMIT, Annotations.DEFAULT_LIMIT);
+
+    }
+
+    /**
+     * Return <code>true</code> iff the solutions will be sorted using a
+     * bounded heap which retains just the first {@link #getLimit()} solutions.
+     */
+    public boolean isTopK() {
+
+        return getLimit() <= getRunSize();
+
+    }
+
+    @Override
+    public NativeSortStats newStats() {
+
+        return new NativeSortStats();
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new SortTask(this, context));
+
+    }
+
+    /**
+     * The target size of a block of encoded solutions within a run.
+     */
+    private static final int BLOCK_SIZE = 32 * Bytes.kilobyte32;
+
+    /**
+     * A solution paired with its arrival order.
+     */
+    private static class Entry {
+
+        final IBindingSet bset;
+
+        final long seq;
+
+        Entry(final IBindingSet bset, final long seq) {
+            this.bset = bset;
+            this.seq = seq;
+        }
+
+    }
+
+    /**
+     * A sorted run. The run is a sequence of blocks. Each block is an int32
+     * #of solutions followed by that many encoded solutions. The solutions in
+     * a run share a single encoder so they must be decoded in order.
+     */
+    private static class Run {
+
+        final IRawStore store;
+
+        final List<Long> addrs = new ArrayList<Long>();
+
+        Run(final IRawStore store) {
+            this.store = store;
+        }
+
+    }
+
+    /**
+     * Reads the solutions from a {@link Run} in order.
+     */
+    private static class RunReader {
+
+        private final Run run;
+
+        private final IVSolutionSetDecoder decoder = new IVSolutionSetDecoder();
+
+        private int nextBlock = 0;
+
+        private DataInputBuffer in = null;
+
+        private int remaining = 0;
+
+        RunReader(final Run run) {
+            this.run = run;
+        }
+
+        /**
+         * Return the next solution in the run or <code>null</code> if the run
+         * is exhausted.
+         */
+        IBindingSet next() throws IOException {
+
+            while (remaining == 0) {
+
+                if (nextBlock == run.addrs.size()) {
+
+                    decoder.release();
+
+                    return null;
+
+                }
+
+                final ByteBuffer b = run.store.read(run.addrs.get(nextBlock++));
+
+                final byte[] a = new byte[b.remaining()];
+
+                b.get(a);
+
+                in = new DataInputBuffer(a);
+
+                remaining = in.readInt();
+
+            }
+
+            remaining--;
+
+            return decoder.decodeSolution(in, true/* resolveCachedValues */);
+
+        }
+
+    }
+
+    /**
+     * The state of the operator. A reference to this object is stored on the
+     * {@link IQueryAttributes}.
+     */
+    private static class SortState {
+
+        /**
+         * The current run (unless using top-K).
+         */
+        List<IBindingSet> run = new ArrayList<IBindingSet>();
+
+        /**
+         * The bounded max-heap used for top-K (otherwise <code>null</code>).
+         */
+        PriorityQueue<Entry> heap;
+
+        /**
+         * The arrival order of the next solution.
+         */
+        long seq = 0L;
+
+        /**
+         * The sorted runs which have been written out.
+         */
+        final List<Run> runs = new ArrayList<Run>();
+
+        /**
+         * The #of bytes of runs written onto the native heap.
+         */
+        long nativeBytes = 0L;
+
+        /**
+         * Runs on the native heap (lazily allocated).
+         */
+        MemStore memStore;
+
+        /**
+         * Runs spilled onto the disk (lazily allocated).
+         */
+        TemporaryRawStore tempStore;
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class SortTask implements Callable<Void> {
+
+        private final NativeSortOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final NativeSortStats stats;
+
+        private final ISortOrder<?>[] sortOrder;
+
+        private final Comparator<IBindingSet> comparator;
+
+        /**
+         * Compares {@link Entry}s by solution and then by arrival order.
+         */
+        private final Comparator<Entry> entryComparator;
+
+        private final int runSize;
+
+        private final long nativeMemory;
+
+        private final long limit;
+
+        /**
+         * The {@link IQueryAttributes} for the {@link IRunningQuery} off which
+         * we will hang the {@link SortState}.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #state} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private transient SortState state;
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        SortTask(final NativeSortOp op, final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = (NativeSortStats) context.getStats();
+
+            this.sortOrder = op.getSortOrder();
+
+            this.comparator = new BindingSetComparator(sortOrder,
+                    op.getValueComparator());
+
+            this.entryComparator = new Comparator<Entry>() {
+                @Override
+                public int compare(final Entry o1, final Entry o2) {
+                    final int ret = comparator.compare(o1.bset, o2.bset);
+                    if (ret != 0)
+                        return ret;
+                    return o1.seq < o2.seq ? -1 : o1.seq == o2.seq ? 0 : 1;
+                }
+            };
+
+            this.runSize = op.getRunSize();
+
+            this.nativeMemory = op.getNativeMemory();
+
+            this.limit = op.getLimit();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            state = (SortState) attrs.get(key);
+
+            if (state == null) {
+
+                state = new SortState();
+
+                if (op.isTopK()) {
+
+                    // max-heap : the root is the last of the retained solutions.
+                    state.heap = new PriorityQueue<Entry>(
+                            (int) Math.max(1L, limit),
+                            Collections.reverseOrder(entryComparator));
+
+                    state.run = null;
+
+                }
+
+                if (attrs.putIfAbsent(key, state) != null)
+                    throw new AssertionError();
+
+            }
+
+        }
+
+        void release() {
+
+            if (log.isInfoEnabled())
+                log.info("Releasing state");
+
+            attrs.remove(key);
+
+            if (state.memStore != null) {
+                state.memStore.close();
+                state.memStore = null;
+            }
+
+            if (state.tempStore != null) {
+                state.tempStore.destroy();
+                state.tempStore = null;
+            }
+
+            state.runs.clear();
+
+            state.run = null;
+
+            state.heap = null;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                acceptSolutions(itr);
+
+                if (lastInvocation) {
+
+                    doOrderBy(sink);
+
+                }
+
+            } catch (Throwable t) {
+
+                log.error(t, t);
+
+                throw new RuntimeException(t);
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    release();
+
+                }
+
+                sink.close();
+
+            }
+
+            // Done.
+            return null;
+
+        }
+
+        /**
+         * Evaluate the value expressions for each input solution and buffer
+         * the as-bound solutions, writing out a sorted run each time the
+         * current run is full.
+         * 
+         * @param itr
+         *            The source solutions.
+         */
+        private void acceptSolutions(
+                final ICloseableIterator<IBindingSet[]> itr) {
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IBindingSet[] a = itr.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(a.length);
+
+                    for (IBindingSet bset : a) {
+
+                        // Note: Necessary scope for type error reporting.
+                        IValueExpression<?> expr = null;
+
+                        try {
+
+                            for (ISortOrder<?> s : sortOrder) {
+
+                                /*
+                                 * Evaluate. A BIND() will have side-effect on
+                                 * [bset].
+                                 */
+                                (expr = s.getExpr()).get(bset);
+
+                            }
+
+                        } catch (SparqlTypeErrorException ex) {
+
+                            // log type error, do not drop solution (see trac 765).
+                            TypeErrorLog.handleTypeError(ex, expr, stats);
+
+                        }
+
+                        if (state.heap != null) {
+
+                            acceptTopK(bset);
+
+                        } else {
+
+                            state.run.add(bset);
+
+                            if (state.run.size() >= runSize) {
+
+                                writeRun(sortRun());
+
+                            }
+
+                        }
+
+                    } // next source solution
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        } // acceptSolutions
+
+        /**
+         * Retain the solution iff it is one of the first {@link #limit}
+         * solutions observed so far.
+         */
+        private void acceptTopK(final IBindingSet bset) {
+
+            final Entry e = new Entry(bset, state.seq++);
+
+            if (state.heap.size() < limit) {
+
+                state.heap.add(e);
+
+                return;
+
+            }
+
+            if (limit > 0 && entryComparator.compare(e, state.heap.peek()) < 0) {
+
+                // Replace the last retained solution.
+                state.heap.poll();
+
+                state.heap.add(e);
+
+            }
+
+            stats.topKDiscarded.increment();
+
+        }
+
+        /**
+         * Sort the current run and start a new one.
+         */
+        private IBindingSet[] sortRun() {
+
+            final IBindingSet[] all = state.run.toArray(new IBindingSet[0]);
+
+            state.run = new ArrayList<IBindingSet>();
+
+            // Note: stable sort.
+            Arrays.sort(all, comparator);
+
+            return all;
+
+        }
+
+        /**
+         * Write a sorted run onto the native heap or, once the native heap
+         * budget is exhausted, onto the temporary store.
+         */
+        private void writeRun(final IBindingSet[] all) {
+
+            final boolean onNativeHeap = state.nativeBytes < nativeMemory;
+
+            final IRawStore store;
+            if (onNativeHeap) {
+                if (state.memStore == null) {
+                    final IMemoryManager mmgr = context.getMemoryManager(null/* queryId */);
+                    state.memStore = new MemStore(mmgr.createAllocationContext());
+                }
+                store = state.memStore;
+            } else {
+                if (state.tempStore == null) {
+                    state.tempStore = new TemporaryRawStore();
+                }
+                store = state.tempStore;
+            }
+
+            final Run run = new Run(store);
+
+            // Note: A new encoder for each run since the encoding is stateful.
+            final IVSolutionSetEncoder encoder = new IVSolutionSetEncoder();
+
+            final DataOutputBuffer out = new DataOutputBuffer();
+
+            long nbytes = 0L;
+
+            int n = 0;
+
+            for (IBindingSet bset : all) {
+
+                encoder.encodeSolution(out, bset);
+
+                n++;
+
+                if (out.pos() >= BLOCK_SIZE) {
+
+                    nbytes += writeBlock(run, out, n);
+
+                    n = 0;
+
+                }
+
+            }
+
+            if (n > 0) {
+
+                nbytes += writeBlock(run, out, n);
+
+            }
+
+            encoder.release();
+
+            state.runs.add(run);
+
+            stats.runCount.increment();
+
+            stats.spilledSolutions.add(all.length);
+
+            if (onNativeHeap) {
+                state.nativeBytes += nbytes;
+                stats.nativeBytes.add(nbytes);
+            } else {
+                stats.tempStoreBytes.add(nbytes);
+            }
+
+            if (log.isInfoEnabled())
+                log.info("Wrote run: nsolutions=" + all.length + ", nbytes="
+                        + nbytes + ", nblocks=" + run.addrs.size()
+                        + ", onNativeHeap=" + onNativeHeap);
+
+        }
+
+        /**
+         * Write a block onto the store for the run and reset the buffer.
+         * 
+         * @return The #of bytes written.
+         */
+        private int writeBlock(final Run run, final DataOutputBuffer out,
+                final int n) {
+
+            final int len = out.pos();
+
+            final ByteBuffer b = ByteBuffer.allocate(Bytes.SIZEOF_INT + len);
+
+            b.putInt(n);
+
+            b.put(out.array(), 0, len);
+
+            b.flip();
+
+            run.addrs.add(run.store.write(b));
+
+            out.reset();
+
+            return Bytes.SIZEOF_INT + len;
+
+        }
+
+        /**
+         * Sort the solutions based on the as-bound value expressions.
+         * 
+         * @param sink
+         *            Where to write the results.
+         */
+        private void doOrderBy(final IBlockingBuffer<IBindingSet[]> sink)
+                throws IOException {
+
+            if (state.heap != null) {
+
+                final Entry[] a = state.heap.toArray(new Entry[0]);
+
+                Arrays.sort(a, entryComparator);
+
+                final IBindingSet[] all = new IBindingSet[a.length];
+
+                for (int i = 0; i < a.length; i++) {
+
+                    all[i] = a[i].bset;
+
+                }
+
+                if (log.isInfoEnabled())
+                    log.info("Top-K: retained " + all.length + " of "
+                            + state.seq + " solutions.");
+
+                output(sink, all);
+
+            } else if (state.runs.isEmpty()) {
+
+                // Nothing was written out.
+                output(sink, sortRun());
+
+            } else {
+
+                mergeRuns(sink);
+
+            }
+
+            sink.flush();
+
+        }
+
+        /**
+         * k-way merge of the runs which were written out and the final run on
+         * the JVM heap.
+         */
+        private void mergeRuns(final IBlockingBuffer<IBindingSet[]> sink)
+                throws IOException {
+
+            final IBindingSet[] last = sortRun();
+
+            final int nruns = state.runs.size();
+
+            if (log.isInfoEnabled())
+                log.info("Merging " + nruns + " runs plus " + last.length
+                        + " solutions on the JVM heap.");
+
+            final RunReader[] readers = new RunReader[nruns];
+
+            for (int i = 0; i < nruns; i++) {
+
+                readers[i] = new RunReader(state.runs.get(i));
+
+            }
+
+            /*
+             * Note: The entries are ordered by solution and then by run, which
+             * is the arrival order across the runs, so the merge is stable.
+             */
+            final PriorityQueue<Entry> queue = new PriorityQueue<Entry>(
+                    nruns + 1, entryComparator);
+
+            for (int i = 0; i < nruns; i++) {
+
+                final IBindingSet bset = readers[i].next();
+
+                if (bset != null)
+                    queue.add(new Entry(bset, i));
+
+            }
+
+            int lastIndex = 0;
+
+            if (last.length > 0)
+                queue.add(new Entry(last[lastIndex++], nruns));
+
+            final int chunkSize = op.getChunkCapacity();
+
+            final List<IBindingSet> chunk = new ArrayList<IBindingSet>(
+                    chunkSize);
+
+            long nout = 0L;
+
+            while (!queue.isEmpty() && nout < limit) {
+
+                final Entry e = queue.poll();
+
+                chunk.add(e.bset);
+
+                nout++;
+
+                if (chunk.size() == chunkSize) {
+
+                    output(sink, chunk.toArray(new IBindingSet[chunk.size()]));
+
+                    chunk.clear();
+
+                }
+
+                final int i = (int) e.seq;
+
+                final IBindingSet next;
+
+                if (i == nruns) {
+                    next = lastIndex < last.length ? last[lastIndex++] : null;
+                } else {
+                    next = readers[i].next();
+                }
+
+                if (next != null)
+                    queue.add(new Entry(next, i));
+
+            }
+
+            if (!chunk.isEmpty()) {
+
+                output(sink, chunk.toArray(new IBindingSet[chunk.size()]));
+
+            }
+
+        }
+
+        /**
+         * Drop the variables for computed value expressions and write the
+         * solutions onto the sink.
+         */
+        private void output(final IBlockingBuffer<IBindingSet[]> sink,
+                final IBindingSet[] all) {
+
+            for (IBindingSet bset : all) {
+                for (ISortOrder<?> s : sortOrder) {
+                    final IValueExpression<?> expr = s.getExpr();
+                    if (expr instanceof IBind) {
+                        bset.clear(((IBind<?>) expr).getVar());
+                    }
+                }
+            }
+
+            if (all.length > 0)
+                sink.add(all);
+
+        }
+
+    } // SortTask
+
+} // NativeSortOp
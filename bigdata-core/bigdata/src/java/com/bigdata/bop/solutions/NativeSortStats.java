@@ -0,0 +1,106 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.counters.CAT;
+
+/**
+ * Extended statistics for the {@link NativeSortOp}.
+ */
+public class NativeSortStats extends BOpStats {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The #of sorted runs which were written out.
+     */
+    public final CAT runCount = new CAT();
+
+    /**
+     * The #of solutions written into sorted runs.
+     */
+    public final CAT spilledSolutions = new CAT();
+
+    /**
+     * The #of bytes written into runs on the native heap.
+     */
+    public final CAT nativeBytes = new CAT();
+
+    /**
+     * The #of bytes written into runs on the temporary store.
+     */
+    public final CAT tempStoreBytes = new CAT();
+
+    /**
+     * The #of solutions discarded by the top-K sort because they could not be
+     * among the first LIMIT solutions.
+     */
+    public final CAT topKDiscarded = new CAT();
+
+    @Override
+    public void add(final BOpStats o) {
+
+        super.add(o);
+
+        if (o instanceof NativeSortStats) {
+
+            final NativeSortStats t = (NativeSortStats) o;
+
+            runCount.add(t.runCount.get());
+
+            spilledSolutions.add(t.spilledSolutions.get());
+
+            nativeBytes.add(t.nativeBytes.get());
+
+            tempStoreBytes.add(t.tempStoreBytes.get());
+
+            topKDiscarded.add(t.topKDiscarded.get());
+
+        }
+
+    }
+
+    @Override
+    protected void toString(final StringBuilder sb) {
+
+        super.toString(sb);
+
+        sb.append(",runCount=" + runCount.get());
+
+        sb.append(",spilledSolutions=" + spilledSolutions.get());
+
+        sb.append(",nativeBytes=" + nativeBytes.get());
+
+        sb.append(",tempStoreBytes=" + tempStoreBytes.get());
+
+        sb.append(",topKDiscarded=" + topKDiscarded.get());
+
+    }
+
+}
@@ -0,0 +1,599 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.HashMapAnnotations;
+import com.bigdata.bop.IBind;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.solutions.NativeGroupByOp.AggKind;
+import com.bigdata.bop.solutions.NativeGroupByOp.GroupSlots;
+import com.bigdata.bop.solutions.NativeGroupByOp.SolutionGroup;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * The first phase of a two-phase aggregation. The operator may run with
+ * {@link PipelineOp.Annotations#MAX_PARALLEL} GT ONE (1). Each invocation
+ * takes a partial aggregation state (a map from each group to its partial
+ * aggregates) from a pool hung off of the {@link IQueryAttributes}, or
+ * creates one if the pool is empty, aggregates the solutions in the chunk(s)
+ * which it reads into that state, and returns the state to the pool. Since a
+ * state is used by only one invocation at a time, there are at most as many
+ * states as concurrent invocations of the operator and each state is updated
+ * without synchronization. The partial aggregates therefore accumulate across
+ * the chunks rather than being written out for each chunk.
+ * <p>
+ * A state is written out (one solution per group containing the partial
+ * aggregates for that group) and cleared once it holds
+ * {@link Annotations#MAX_PARTIAL_GROUPS} groups. The states which remain in
+ * the pool are drained on the last pass of the {@link NativeGroupByOp} with
+ * {@link NativeGroupByOp.Annotations#PARTIAL_INPUTS} whose
+ * {@link NativeGroupByOp.Annotations#PARTIAL_AGGREGATION_ID} is the
+ * identifier of this operator. That operator combines the partial aggregates
+ * for each group on the query controller and evaluates the SELECT and HAVING
+ * expressions. Since the pool is shared through the JVM heap, this operator
+ * MUST be evaluated on the query controller.
+ * <p>
+ * A partial aggregate solution binds the variable (or the variable of the
+ * BIND) of each GROUP BY value expression. For each aggregate it binds the
+ * count of the aggregated values (or {@link NativeGroupByOp#ERROR} if the
+ * aggregate failed) on {@link NativeGroupByOp#partialCountVar(IVariable)} and
+ * the running sum (SUM, AVG) or the current value (MIN, MAX), if any, on the
+ * anonymous variable assigned to the aggregate by the
+ * {@link IGroupByRewriteState}.
+ * <p>
+ * Only the aggregations accepted by
+ * {@link #canEvaluate(IGroupByState, IGroupByRewriteState)} may be decomposed
+ * in this manner. Aggregations using DISTINCT, GROUP_CONCAT or SAMPLE must be
+ * evaluated by a single operator.
+ * 
+ * @see NativeGroupByOp
+ */
+public class PartialAggregationOp extends GroupByOp {
+
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends GroupByOp.Annotations,
+            HashMapAnnotations {
+
+        /**
+         * The maximum #of groups in a partial aggregation state. Once a state
+         * reaches this size its partial aggregates are written out and the
+         * state is cleared. This bounds the heap used by the operator for a
+         * high cardinality GROUP BY.
+         */
+        String MAX_PARTIAL_GROUPS = PartialAggregationOp.class.getName()
+                + ".maxPartialGroups";
+
+        int DEFAULT_MAX_PARTIAL_GROUPS = 10000;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns <code>true</code>. This operator may only be used when
+     * {@link #canEvaluate(IGroupByState, IGroupByRewriteState)} is satisfied.
+     */
+    @Override
+    public boolean isPipelinedAggregationOp() {
+
+        return true;
+
+    }
+
+    /**
+     * Deep copy constructor.
+     */
+    public PartialAggregationOp(final PartialAggregationOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public PartialAggregationOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            /*
+             * Note: The partial aggregation states are drained through the
+             * JVM heap by the operator combining the partial aggregates.
+             */
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        if (isLastPassRequested()) {
+            /*
+             * Note: The retained partial aggregates are drained by the
+             * operator which combines them, so a final evaluation pass is
+             * never required (and would force MAX_PARALLEL := 1).
+             */
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        if (getMaxPartialGroups() <= 0)
+            throw new IllegalArgumentException(Annotations.MAX_PARTIAL_GROUPS
+                    + "=" + getMaxPartialGroups());
+
+        if (!canEvaluate(getGroupByState(), getGroupByRewrite()))
+            throw new UnsupportedOperationException(
+                    "Aggregation not supported: " + getGroupByState());
+
+    }
+
+    /**
+     * @see Annotations#INITIAL_CAPACITY
+     */
+    public int getInitialCapacity() {
+
+        return getProperty(Annotations.INITIAL_CAPACITY,
+                Annotations.DEFAULT_INITIAL_CAPACITY);
+
+    }
+
+    /**
+     * @see Annotations#LOAD_FACTOR
+     */
+    public float getLoadFactor() {
+
+        return getProperty(Annotations.LOAD_FACTOR,
+                Annotations.DEFAULT_LOAD_FACTOR);
+
+    }
+
+    /**
+     * @see Annotations#MAX_PARTIAL_GROUPS
+     */
+    public int getMaxPartialGroups() {
+
+        return getProperty(Annotations.MAX_PARTIAL_GROUPS,
+                Annotations.DEFAULT_MAX_PARTIAL_GROUPS);
+
+    }
+
+    /**
+     * Return <code>true</code> iff the aggregation may be decomposed into
+     * partial aggregates which are combined by a {@link NativeGroupByOp}. In
+     * addition to the requirements of
+     * {@link NativeGroupByOp#canEvaluate(IGroupByState, IGroupByRewriteState)}
+     * , each GROUP BY value expression must be either a variable or a BIND.
+     */
+    public static boolean canEvaluate(final IGroupByState groupByState,
+            final IGroupByRewriteState rewrite) {
+
+        if (!NativeGroupByOp.canEvaluate(groupByState, rewrite))
+            return false;
+
+        for (IValueExpression<?> expr : groupByState.getGroupByClause()) {
+
+            if (!(expr instanceof IVariable<?>) && !(expr instanceof IBind<?>))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Return the variables on which the GROUP BY value expressions are bound
+     * in the partial aggregates.
+     */
+    static IVariable<?>[] getGroupVars(final IValueExpression<?>[] groupBy) {
+
+        final IVariable<?>[] vars = new IVariable<?>[groupBy.length];
+
+        for (int i = 0; i < groupBy.length; i++) {
+
+            final IValueExpression<?> expr = groupBy[i];
+
+            if (expr instanceof IVariable<?>) {
+
+                vars[i] = (IVariable<?>) expr;
+
+            } else if (expr instanceof IBind<?>) {
+
+                vars[i] = ((IBind<?>) expr).getVar();
+
+            } else {
+
+                throw new UnsupportedOperationException(expr.toString());
+
+            }
+
+        }
+
+        return vars;
+
+    }
+
+    /**
+     * The pool of partial aggregation states for an operator. A reference to
+     * this object is stored on the {@link IQueryAttributes}.
+     */
+    private static class PartialState {
+
+        final ConcurrentLinkedQueue<LinkedHashMap<SolutionGroup, GroupSlots>> pool = new ConcurrentLinkedQueue<LinkedHashMap<SolutionGroup, GroupSlots>>();
+
+    }
+
+    /**
+     * Return the pool of partial aggregation states for the operator, creating
+     * it if necessary.
+     */
+    private static PartialState getPartialState(final IQueryAttributes attrs,
+            final int bopId) {
+
+        final String key = Integer.toString(bopId);
+
+        PartialState state = (PartialState) attrs.get(key);
+
+        if (state == null) {
+
+            final PartialState tmp = (PartialState) attrs.putIfAbsent(key,
+                    state = new PartialState());
+
+            if (tmp != null)
+                state = tmp;
+
+        }
+
+        return state;
+
+    }
+
+    /**
+     * Remove the partial aggregates retained by the invocations of a
+     * {@link PartialAggregationOp} and return them as partial solutions. This
+     * MUST NOT be invoked until that operator can no longer be evaluated.
+     * 
+     * @param attrs
+     *            The attributes of the query.
+     * @param bopId
+     *            The identifier of the {@link PartialAggregationOp}.
+     * @param groupVars
+     *            The variables on which the GROUP BY value expressions are
+     *            bound.
+     * @param aggVars
+     *            The variables on which the partial aggregates are bound.
+     * 
+     * @return The partial solutions.
+     */
+    static List<IBindingSet> drain(final IQueryAttributes attrs,
+            final int bopId, final IVariable<?>[] groupVars,
+            final IVariable<?>[] aggVars) {
+
+        final PartialState state = (PartialState) attrs.remove(Integer
+                .toString(bopId));
+
+        final List<IBindingSet> out = new ArrayList<IBindingSet>();
+
+        if (state == null) {
+
+            // Never evaluated.
+            return out;
+
+        }
+
+        LinkedHashMap<SolutionGroup, GroupSlots> map;
+
+        while ((map = state.pool.poll()) != null) {
+
+            for (Map.Entry<SolutionGroup, GroupSlots> e : map.entrySet()) {
+
+                out.add(newPartialSolution(groupVars, aggVars, e.getKey(),
+                        e.getValue()));
+
+            }
+
+        }
+
+        return out;
+
+    }
+
+    /**
+     * Return the solution carrying the partial aggregates for a group.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IBindingSet newPartialSolution(
+            final IVariable<?>[] groupVars, final IVariable<?>[] aggVars,
+            final SolutionGroup g, final GroupSlots slots) {
+
+        final IBindingSet out = new ListBindingSet();
+
+        for (int i = 0; i < groupVars.length; i++) {
+
+            final IConstant<?> val = g.vals[i];
+
+            /*
+             * Note: The error value is not bound and is recovered when the
+             * partial aggregates are grouped.
+             */
+            if (val != Constant.errorValue()) {
+
+                out.set(groupVars[i], val);
+
+            }
+
+        }
+
+        for (int i = 0; i < aggVars.length; i++) {
+
+            out.set(NativeGroupByOp.partialCountVar(aggVars[i]), new Constant(
+                    new XSDNumericIV<BigdataLiteral>(slots.counts[i])));
+
+            if (slots.counts[i] != NativeGroupByOp.ERROR
+                    && slots.values[i] != null) {
+
+                out.set(aggVars[i], new Constant(slots.values[i]));
+
+            }
+
+        }
+
+        return out;
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new PartialAggregationTask(this, context));
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class PartialAggregationTask implements Callable<Void> {
+
+        private final PartialAggregationOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final BOpStats stats;
+
+        private final IValueExpression<?>[] groupBy;
+
+        private final IVariable<?>[] groupVars;
+
+        /**
+         * The aggregates in the order of their slots.
+         */
+        private final IAggregate<?>[] aggs;
+
+        /**
+         * The variables on which the partial aggregates will be bound.
+         */
+        private final IVariable<?>[] aggVars;
+
+        private final AggKind[] kinds;
+
+        /**
+         * @see Annotations#MAX_PARTIAL_GROUPS
+         */
+        private final int maxPartialGroups;
+
+        /**
+         * The pool of partial aggregation states.
+         */
+        private final PartialState state;
+
+        PartialAggregationTask(final PartialAggregationOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = context.getStats();
+
+            this.groupBy = op.getGroupByState().getGroupByClause();
+
+            this.groupVars = getGroupVars(groupBy);
+
+            final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr = op
+                    .getGroupByRewrite().getAggExpr();
+
+            this.aggs = new IAggregate<?>[aggExpr.size()];
+
+            this.aggVars = new IVariable<?>[aggExpr.size()];
+
+            this.kinds = new AggKind[aggExpr.size()];
+
+            int i = 0;
+
+            for (Map.Entry<IAggregate<?>, IVariable<?>> e : aggExpr.entrySet()) {
+
+                aggs[i] = e.getKey();
+
+                aggVars[i] = e.getValue();
+
+                kinds[i] = AggKind.valueOf(e.getKey());
+
+                i++;
+
+            }
+
+            this.maxPartialGroups = op.getMaxPartialGroups();
+
+            this.state = getPartialState(context.getQueryAttributes(),
+                    op.getId());
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            /*
+             * Take a partial aggregation state which is not in use by another
+             * invocation.
+             */
+            LinkedHashMap<SolutionGroup, GroupSlots> map = state.pool.poll();
+
+            if (map == null) {
+
+                map = new LinkedHashMap<SolutionGroup, GroupSlots>(
+                        op.getInitialCapacity(), op.getLoadFactor());
+
+            }
+
+            try {
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        final IBindingSet[] a = itr.next();
+
+                        stats.chunksIn.increment();
+                        stats.unitsIn.add(a.length);
+
+                        for (IBindingSet bset : a) {
+
+                            final SolutionGroup g = SolutionGroup.newInstance(
+                                    groupBy, bset);
+
+                            GroupSlots slots = map.get(g);
+
+                            if (slots == null) {
+
+                                if (map.size() >= maxPartialGroups) {
+
+                                    // Write out and clear the state.
+                                    output(map, sink);
+
+                                    map.clear();
+
+                                }
+
+                                map.put(g, slots = new GroupSlots(kinds));
+
+                            }
+
+                            NativeGroupByOp.aggregate(aggs, kinds, slots,
+                                    bset, stats);
+
+                        }
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+                sink.flush();
+
+                // done.
+                return null;
+
+            } finally {
+
+                // Return the state for use by another invocation.
+                state.pool.add(map);
+
+                sink.close();
+
+            }
+
+        }
+
+        /**
+         * Write out the partial aggregates for each group.
+         */
+        private void output(final Map<SolutionGroup, GroupSlots> map,
+                final IBlockingBuffer<IBindingSet[]> sink) {
+
+            final int chunkCapacity = op.getChunkCapacity();
+
+            final List<IBindingSet> outList = new ArrayList<IBindingSet>();
+
+            for (Map.Entry<SolutionGroup, GroupSlots> e : map.entrySet()) {
+
+                outList.add(newPartialSolution(groupVars, aggVars,
+                        e.getKey(), e.getValue()));
+
+                if (outList.size() >= chunkCapacity) {
+
+                    sink.add(outList.toArray(new IBindingSet[0]));
+
+                    outList.clear();
+
+                }
+
+            }
+
+            if (!outList.isEmpty()) {
+
+                sink.add(outList.toArray(new IBindingSet[0]));
+
+            }
+
+        }
+
+    } // PartialAggregationTask
+
+} // PartialAggregationOp
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -59,6 +60,7 @@ import com.bigdata.btree.AbstractBTreeTupleCursor.MutableBTreeTupleCursor;
 import com.bigdata.btree.AbstractBTreeTupleCursor.ReadOnlyBTreeTupleCursor;
 import com.bigdata.btree.IndexMetadata.Options;
 import com.bigdata.btree.IndexSegment.IndexSegmentTupleCursor;
+import com.bigdata.btree.data.AbstractReadOnlyNodeData;
 import com.bigdata.btree.data.IAbstractNodeData;
 import com.bigdata.btree.data.ILeafData;
 import com.bigdata.btree.data.INodeData;
@@ -71,6 +73,7 @@ import com.bigdata.btree.proc.AbstractKeyArrayIndexProcedureConstructor;
 import com.bigdata.btree.proc.IKeyRangeIndexProcedure;
 import com.bigdata.btree.proc.IResultHandler;
 import com.bigdata.btree.proc.ISimpleIndexProcedure;
+import com.bigdata.btree.raba.IRaba;
 import com.bigdata.btree.view.FusedView;
 import com.bigdata.cache.HardReferenceQueue;
 import com.bigdata.cache.HardReferenceQueueWithBatchingUpdates;
@@ -281,6 +284,21 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
     @Deprecated
     protected final ConcurrentMap<Long, Object> storeCache;
 
+    /**
+     * The JVM wide cache of coded node and leaf records -or- <code>null</code>
+     * if the cache is disabled or the B+Tree is transient.
+     * 
+     * @see IndexMetadata.Options#NODE_RECORD_CACHE_CAPACITY
+     */
+    private final NodeRecordCache nodeRecordCache;
+
+    /**
+     * The {@link UUID} of the backing store used to key the
+     * {@link #nodeRecordCache} and <code>null</code> iff that cache is not
+     * used.
+     */
+    private final UUID storeUUID;
+
     /**
      * Hard reference iff the index is mutable (aka unisolated) allows us to
      * avoid patterns that create short life time versions of the object to
@@ -1085,6 +1103,10 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             this.storeCache = null;
             
+            this.nodeRecordCache = null;
+            
+            this.storeUUID = null;
+            
 //            this.globalLRU = null;
             
 //            this.readRetentionQueue = null;
@@ -1115,6 +1137,15 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
              */
 //            this.storeCache = LRUNexus.getCache(store);
             this.storeCache = null;
+
+            /*
+             * Note: The coded node and leaf records are cached off-heap by
+             * (storeUUID,addr) rather than caching the INodeData or ILeafData
+             * objects per-store.
+             */
+            this.nodeRecordCache = NodeRecordCache.INSTANCE;
+            
+            this.storeUUID = nodeRecordCache == null ? null : store.getUUID();
             
 //            this.readRetentionQueue = newReadRetentionQueue();
         
@@ -4099,6 +4130,13 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
         assert dirtyLevelCount <= getHeight() + 1 : "dirtyLevelCount=" + dirtyLevelCount + ", height=" + getHeight()
                 + ", dirtyMap.keys=" + dirtyMap.keySet();
 
+        /*
+         * NodeSerializer instances for the parallel eviction tasks. These are
+         * created on demand and reused across the levels, so there are never
+         * more instances than the maximum #of concurrent eviction tasks.
+         */
+        final ConcurrentLinkedQueue<NodeSerializer> nodeSerPool = new ConcurrentLinkedQueue<NodeSerializer>();
+
         /*
          * Now evict each dirtyList in parallel starting at the deepest, and
          * then proceeding one by one until we reach the list at level ZERO (the
@@ -4168,18 +4206,33 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
                                 }
 
-                                // An instance just for this thread.
-                                final NodeSerializer myNodeSer = new NodeSerializer(//
-                                        store, // addressManager
-                                        nodeSer.nodeFactory, //
-                                        branchingFactor, //
-                                        nodeSer.getWriteBufferCapacity(),//
-                                        metadata, //
-                                        readOnly, //
-                                        nodeSer.recordCompressorFactory);
+                                // An instance which is not in use by another thread.
+                                NodeSerializer myNodeSer = nodeSerPool.poll();
+
+                                if (myNodeSer == null) {
+
+                                    myNodeSer = new NodeSerializer(//
+                                            store, // addressManager
+                                            nodeSer.nodeFactory, //
+                                            branchingFactor, //
+                                            nodeSer.getWriteBufferCapacity(),//
+                                            metadata, //
+                                            readOnly, //
+                                            nodeSer.recordCompressorFactory);
+
+                                }
+
+                                try {
+
+                                    // write dirty node on store (non-recursive)
+                                    writeNodeOrLeaf(u, myNodeSer);
+
+                                } finally {
 
-                                // write dirty node on store (non-recursive)
-                                writeNodeOrLeaf(u, myNodeSer);
+                                    // Return the instance for reuse.
+                                    nodeSerPool.offer(myNodeSer);
+
+                                }
 
                             }
 
@@ -4412,8 +4465,37 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             final long beginNanos = System.nanoTime();
             
-            // wrap as ByteBuffer and write on the store.
-            addr = store.write(slice.asByteBuffer());
+            // wrap as ByteBuffer (compressing if configured).
+            final ByteBuffer rec;
+            if (nodeSer.recordCompressorFactory == null) {
+
+                rec = slice.asByteBuffer();
+
+            } else {
+
+                final long beginCompressNanos = System.nanoTime();
+
+                rec = nodeSer.compress(slice);
+
+                btreeCounters.compressNanos.add(System.nanoTime()
+                        - beginCompressNanos);
+
+                btreeCounters.bytesBeforeCompression.add(slice.len());
+
+                btreeCounters.bytesAfterCompression.add(rec.remaining());
+
+            }
+
+            // write on the store.
+            addr = store.write(rec);
+            
+            if (nodeRecordCache != null) {
+                /*
+                 * The address may have been recycled, so clear any record
+                 * cached for that address.
+                 */
+                nodeRecordCache.remove(storeUUID, addr);
+            }
             
             // now we have a new address, delete previous identity if any
             if (node.isPersistent()) {
@@ -4521,30 +4603,107 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
      */
     protected AbstractNode<?> readNodeOrLeaf(final long addr) {
 
+        final IAbstractNodeData data = readNodeOrLeafData(addr);
+
+        try {
+
+            // wrap as Node or Leaf.
+            final AbstractNode<?> node = nodeSer.wrap(this, addr, data);
+
+            // Note: The de-serialization ctor already does this.
+//            node.setDirty(false);
+
+            // Note: The de-serialization ctor already does this.
+//            touch(node);
+
+            // return Node or Leaf.
+            return node;
+
+        } catch (Throwable t) {
+
+            throw new RuntimeException("De-serialization problem: addr="
+                    + store.toString(addr) + " from store=" + store.getFile()
+                    + " : cause=" + t, t);
+
+        }
+
+    }
+
+    /**
+     * Read and decode the data record for a node or leaf from the store. Unlike
+     * {@link #readNodeOrLeaf(long)}, this does not wrap the data record as a
+     * {@link Node} or {@link Leaf} and may therefore be safely invoked by
+     * concurrent threads for any B+Tree.
+     * 
+     * @param addr
+     *            The address in the store.
+     * 
+     * @return The data record for the node or leaf.
+     * 
+     * @throws IllegalArgumentException
+     *             if the address is {@link IRawStore#NULL}.
+     */
+    protected IAbstractNodeData readNodeOrLeafData(final long addr) {
+
         if (addr == IRawStore.NULL)
             throw new IllegalArgumentException();
         
         
+        final ByteBuffer cached = nodeRecordCache == null ? null
+                : nodeRecordCache.get(storeUUID, addr);
+        
         final ByteBuffer tmp;
-        {
+        if (cached != null) {
+            
+            tmp = cached;
+            
+        } else {
 
             final long begin = System.nanoTime();
             
-            tmp = store.read(addr);
+            final ByteBuffer rec = store.read(addr);
             
-            assert tmp.position() == 0;
+            assert rec.position() == 0;
             
-            // Note: This assertion is invalidated when checksums are inlined in the store records.
-//            assert tmp.limit() == store.getByteCount(addr) : "limit="
-//                    + tmp.limit() + ", byteCount(addr)="
-//                    + store.getByteCount(addr)+", addr="+store.toString(addr);
-
             btreeCounters.readNanos.add( System.nanoTime() - begin );
             
-            final int bytesRead = tmp.limit();
+            final int bytesRead = rec.limit();
 
             btreeCounters.bytesRead.add(bytesRead);
+
+            if (rec.get(AbstractReadOnlyNodeData.O_TYPE) == AbstractReadOnlyNodeData.COMPRESSED) {
+
+                /*
+                 * Decompress the record. The decompressed record is cached
+                 * so a cache hit does not need to decompress it again.
+                 */
+
+                final long beginDecompress = System.nanoTime();
+
+                tmp = nodeSer.decompress(rec);
+
+                btreeCounters.decompressNanos.add(System.nanoTime()
+                        - beginDecompress);
+
+                btreeCounters.recordsDecompressed.increment();
+
+            } else {
+
+                tmp = rec;
+
+            }
+
+            if (nodeRecordCache != null) {
+                
+                nodeRecordCache.put(storeUUID, addr, tmp);
+                
+            }
             
+            // Note: This assertion is invalidated when checksums are inlined in the store records.
+//            assert tmp.limit() == store.getByteCount(addr) : "limit="
+//                    + tmp.limit() + ", byteCount(addr)="
+//                    + store.getByteCount(addr)+", addr="+store.toString(addr);
+
         }
 // Note: This is not necessary.  The most likely place to be interrupted is in the IO on the raw store.  It is not worth testing for an interrupt here since we are more liklely to notice one in the raw store and this method is low latency except for the potential IO read.
 //        if (Thread.interrupted()) {
@@ -4580,17 +4739,7 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             }
 
-            // wrap as Node or Leaf.
-            final AbstractNode<?> node = nodeSer.wrap(this, addr, data);
-
-            // Note: The de-serialization ctor already does this.
-//            node.setDirty(false);
-
-            // Note: The de-serialization ctor already does this.
-//            touch(node);
-
-            // return Node or Leaf.
-            return node;
+            return data;
 
         } catch (Throwable t) {
 
@@ -4602,6 +4751,248 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
     }
 
+    /**
+     * Materialize the nodes and leaves spanned by a set of keys, reading any
+     * pages which are not already in memory with up to <i>nparallel</i>
+     * concurrent IOs. The B+Tree is descended one level at a time from the
+     * root. At each level, the keys are partitioned by the child which spans
+     * them and the missing children are read concurrently. This converts a
+     * sequence of blocking reads in the caller's thread into a small number of
+     * batches of concurrent reads, which keeps the disk queue full for a
+     * scattered batch of keys.
+     * <p>
+     * For a read-only B+Tree, the children are read using
+     * {@link Node#getChild(int)}, which is already safe for concurrent readers.
+     * For a mutable B+Tree, only the data records are read by the concurrent
+     * tasks. Those records are wrapped and attached to their parents by the
+     * caller's thread, so the single-threaded contract for the mutable B+Tree
+     * is not violated. The caller MUST be the thread which owns the mutable
+     * B+Tree (e.g., it is running within an index procedure).
+     * <p>
+     * Note: The pages are not pinned. A page read by this method may be
+     * evicted again before it is used if the batch spans more pages than will
+     * be retained by the write retention queue or the garbage collector.
+     * 
+     * @param keys
+     *            The keys (in sorted order). <code>null</code> elements are
+     *            not permitted.
+     * @param executor
+     *            The service on which the reads will be executed.
+     * @param nparallel
+     *            The maximum #of concurrent reads.
+     * 
+     * @return The #of nodes and leaves which were read from the backing store.
+     * 
+     * @see AbstractKeyArrayIndexProcedure
+     */
+    public int prefetch(final IRaba keys, final Executor executor,
+            final int nparallel) {
+
+        if (keys == null)
+            throw new IllegalArgumentException();
+
+        if (executor == null)
+            throw new IllegalArgumentException();
+
+        if (nparallel <= 0)
+            throw new IllegalArgumentException();
+
+        final int nkeys = keys.size();
+
+        final AbstractNode<?> root = getRoot();
+
+        if (nkeys == 0 || root.isLeaf()) {
+
+            // Nothing to read.
+            return 0;
+
+        }
+
+        final LatchedExecutor latchedExecutor = new LatchedExecutor(executor,
+                nparallel);
+
+        int nread = 0;
+
+        List<PrefetchFrame> frontier = new LinkedList<PrefetchFrame>();
+
+        frontier.add(new PrefetchFrame((Node) root, -1/* index */,
+                IRawStore.NULL, 0/* fromKey */, nkeys/* toKey */));
+
+        while (!frontier.isEmpty()) {
+
+            // The materialized nodes at the next level.
+            final List<PrefetchFrame> next = new LinkedList<PrefetchFrame>();
+
+            // The children which must be read for the next level.
+            final List<PrefetchFrame> reads = new LinkedList<PrefetchFrame>();
+
+            for (PrefetchFrame f : frontier) {
+
+                int i = f.fromKey;
+
+                while (i < f.toKey) {
+
+                    // The child spanning the key at index i.
+                    final int childIndex = f.node.findChild(keys.get(i));
+
+                    // Consume the keys spanned by the same child.
+                    int j = i + 1;
+                    while (j < f.toKey
+                            && f.node.findChild(keys.get(j)) == childIndex) {
+                        j++;
+                    }
+
+                    final AbstractNode<?> child = f.node
+                            .getChildIfPresent(childIndex);
+
+                    if (child == null) {
+
+                        reads.add(new PrefetchFrame(f.node, childIndex,
+                                f.node.getChildAddr(childIndex), i, j));
+
+                    } else if (!child.isLeaf()) {
+
+                        next.add(new PrefetchFrame((Node) child, -1/* index */,
+                                IRawStore.NULL, i, j));
+
+                    }
+
+                    i = j;
+
+                }
+
+            }
+
+            if (!reads.isEmpty()) {
+
+                readChildren(reads, latchedExecutor, next);
+
+                nread += reads.size();
+
+            }
+
+            frontier = next;
+
+        }
+
+        return nread;
+
+    }
+
+    /**
+     * Read the children for one level of {@link #prefetch(IRaba, Executor, int)}
+     * concurrently. The children which are nodes are added to the next
+     * frontier.
+     */
+    private void readChildren(final List<PrefetchFrame> reads,
+            final Executor executor, final List<PrefetchFrame> next) {
+
+        final boolean readOnly = memo != null;
+
+        final List<FutureTask<Object>> futures = new ArrayList<FutureTask<Object>>(
+                reads.size());
+
+        try {
+
+            for (final PrefetchFrame r : reads) {
+
+                final FutureTask<Object> ft = new FutureTask<Object>(
+                        new Callable<Object>() {
+                            @Override
+                            public Object call() throws Exception {
+                                if (readOnly) {
+                                    // Read and attach the child.
+                                    return r.node.getChild(r.index);
+                                }
+                                // Read the data record only.
+                                return readNodeOrLeafData(r.addr);
+                            }
+                        });
+
+                futures.add(ft);
+
+                executor.execute(ft);
+
+            }
+
+            final Iterator<PrefetchFrame> itr = reads.iterator();
+
+            for (FutureTask<Object> ft : futures) {
+
+                final PrefetchFrame r = itr.next();
+
+                final Object ret = ft.get();
+
+                final AbstractNode<?> child;
+
+                if (readOnly) {
+
+                    child = (AbstractNode<?>) ret;
+
+                } else {
+
+                    btreeCounters.cacheMisses.increment();
+
+                    // Wrap and attach the child in the caller's thread.
+                    child = r.node._setChild(r.index,
+                            (IAbstractNodeData) ret);
+
+                }
+
+                if (!child.isLeaf()) {
+
+                    next.add(new PrefetchFrame((Node) child, -1/* index */,
+                            IRawStore.NULL, r.fromKey, r.toKey));
+
+                }
+
+            }
+
+        } catch (InterruptedException e) {
+
+            throw new RuntimeException(e);
+
+        } catch (ExecutionException e) {
+
+            throw new RuntimeException(e);
+
+        } finally {
+
+            for (FutureTask<Object> ft : futures) {
+
+                ft.cancel(true/* mayInterruptIfRunning */);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * A node and the half-open range of keys which it spans for
+     * {@link AbstractBTree#prefetch(IRaba, Executor, int)}. When
+     * {@link #index} is non-negative, this also identifies a child of that
+     * node which must be read from the backing store.
+     */
+    private static class PrefetchFrame {
+
+        final Node node;
+        final int index;
+        final long addr;
+        final int fromKey;
+        final int toKey;
+
+        PrefetchFrame(final Node node, final int index, final long addr,
+                final int fromKey, final int toKey) {
+            this.node = node;
+            this.index = index;
+            this.addr = addr;
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+    }
+
     /**
      * Create the reference that will be used by a {@link Node} to refer to its
      * children (nodes or leaves).
@@ -45,6 +45,7 @@ import com.bigdata.mdi.JournalMetadata;
 import com.bigdata.mdi.LocalPartitionMetadata;
 import com.bigdata.rawstore.IRawStore;
 import com.bigdata.rwstore.IRWStrategy;
+import com.bigdata.rwstore.IRelocationFilter;
 import com.bigdata.util.Bytes;
 
 /**
@@ -1497,6 +1498,175 @@ public class BTree extends AbstractBTree implements //ICommitter,
    
     }
 
+    /**
+     * Relocate persistent nodes and leaves selected by the filter by forcing a
+     * copy-on-write of each selected node or leaf. The copies are written onto
+     * new allocations when the {@link BTree} is next checkpointed, and the old
+     * addresses are released through {@link #deleteNodeOrLeaf(long)}. On the
+     * {@link com.bigdata.rwstore.RWStore} this goes through the deferred free
+     * protocol, so records which are visible to open read-only transactions
+     * are retained until those transactions are done.
+     * <p>
+     * The tree is traversed in key order. At most <i>maxRecords</i> records
+     * are relocated and at most <i>maxVisits</i> nodes and leaves are visited
+     * per invocation. The returned key may be passed back in as
+     * <i>fromKey</i> to resume the traversal, which makes it possible to
+     * compact a large index as a series of short unisolated operations.
+     * <p>
+     * Note: Raw records referenced from the leaves are not relocated.
+     * 
+     * @param fromKey
+     *            The key from which to resume the traversal and
+     *            <code>null</code> to start with the first leaf.
+     * @param maxRecords
+     *            The maximum #of nodes and leaves to relocate (GT ZERO).
+     * @param maxVisits
+     *            The maximum #of nodes and leaves to visit (GT ZERO).
+     * @param filter
+     *            Selects the records to be relocated.
+     * 
+     * @return The key from which to resume the traversal and <code>null</code>
+     *         if the traversal is complete.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the {@link BTree} is read-only.
+     */
+    public byte[] relocate(final byte[] fromKey, final int maxRecords,
+            final int maxVisits, final IRelocationFilter filter) {
+
+        assertNotReadOnly();
+
+        if (maxRecords <= 0)
+            throw new IllegalArgumentException();
+
+        if (maxVisits <= 0)
+            throw new IllegalArgumentException();
+
+        if (filter == null)
+            throw new IllegalArgumentException();
+
+        final RelocationState state = new RelocationState(maxRecords,
+                maxVisits, filter);
+
+        relocate(getRoot(), fromKey, state);
+
+        return state.nextKey;
+
+    }
+
+    /**
+     * State for {@link BTree#relocate(byte[], int, int, IRelocationFilter)}.
+     */
+    private static class RelocationState {
+
+        private final IRelocationFilter filter;
+
+        /** The #of records which may still be relocated. */
+        private int budget;
+
+        /** The #of nodes and leaves which may still be visited. */
+        private int visits;
+
+        /** The key from which to resume and <code>null</code> until set. */
+        private byte[] nextKey = null;
+
+        RelocationState(final int maxRecords, final int maxVisits,
+                final IRelocationFilter filter) {
+            this.budget = maxRecords;
+            this.visits = maxVisits;
+            this.filter = filter;
+        }
+
+    }
+
+    /**
+     * Relocate the node or leaf (if selected) and then its children.
+     * 
+     * @param node
+     *            The node or leaf.
+     * @param fromKey
+     *            The first key to visit within that node and <code>null</code>
+     *            to visit all of its children.
+     * @param state
+     *            The traversal state.
+     * 
+     * @return The node or leaf which now occupies the same position in the
+     *         tree. This is a copy if the node or leaf, or any of its
+     *         descendants, was relocated.
+     */
+    private AbstractNode<?> relocate(AbstractNode<?> node,
+            final byte[] fromKey, final RelocationState state) {
+
+        state.visits--;
+
+        if (node.isPersistent() && state.budget > 0
+                && state.filter.isRelocationCandidate(node.getIdentity())) {
+
+            final long addr = node.getIdentity();
+
+            // Note: replaces the reference in the (possibly copied) parent.
+            node = node.copyOnWrite(IRawStore.NULL);
+
+            state.filter.relocated(addr);
+
+            state.budget--;
+
+        }
+
+        if (node.isLeaf())
+            return node;
+
+        Node n = (Node) node;
+
+        final int first = fromKey == null ? 0 : n.findChild(fromKey);
+
+        final int nchildren = n.getChildCount();
+
+        for (int i = first; i < nchildren; i++) {
+
+            /*
+             * Note: The first child is always visited so each invocation
+             * makes progress through the key range.
+             */
+            if (state.budget == 0 || (i > first && state.visits <= 0)) {
+
+                /*
+                 * Resume with the first key spanned by this child.
+                 */
+                if (i > 0) {
+                    state.nextKey = n.getKeys().get(i - 1);
+                } else {
+                    state.nextKey = fromKey == null ? new byte[0] : fromKey;
+                }
+
+                return n;
+
+            }
+
+            final AbstractNode<?> child = n.getChild(i);
+
+            final AbstractNode<?> newChild = relocate(child,
+                    i == first ? fromKey : null, state);
+
+            if (newChild != child) {
+
+                /*
+                 * The child was copied, which may have copied this node as
+                 * well.
+                 */
+                n = newChild.getParent();
+
+            }
+
+            if (state.nextKey != null)
+                return n;
+
+        }
+
+        return n;
+
+    }
+
     /**
      * Create a new checkpoint for a mutable {@link BTree} in which the view is
      * redefined to include the previous view of the {@link BTree} (the one from
@@ -1698,7 +1868,185 @@ public class BTree extends AbstractBTree implements //ICommitter,
          * no root so a new root leaf will be created when the B+Tree is opened.
          */
         return load(store, firstCheckpoint.getCheckpointAddr(), false/* readOnly */);
-        
+
+    }
+
+    /**
+     * Create a new {@link BTree} or derived class from an ordered tuple
+     * iterator in a single streaming pass. The nodes and leaves are generated
+     * bottom-up and written directly onto the store, which is much faster than
+     * inserting the tuples one at a time and yields a compact tree. The
+     * resulting {@link BTree} is mutable. This is intended for restores,
+     * re-indexing and initial loads.
+     * <p>
+     * Note: The {@link BTree} has not been checkpointed other than to write
+     * its first {@link Checkpoint} record. The caller is responsible for
+     * registering the index (if desired) and the commit.
+     *
+     * @param store
+     *            The backing store.
+     * @param metadata
+     *            The metadata record for the new index. The metadata record
+     *            MUST NOT have been written yet (see
+     *            {@link #create(IRawStore, IndexMetadata)}).
+     * @param src
+     *            An iterator visiting keys and values in strictly ascending
+     *            key order, e.g., the {@link AbstractBTree#rangeIterator()} of
+     *            an existing index. Deleted tuples are copied iff the new
+     *            index supports delete markers.
+     * @param fillFactor
+     *            The fraction of the branching factor which will be used in
+     *            each node and leaf in <code>(0:1]</code>. Use <code>1.0</code>
+     *            for an index which will be read-mostly and something smaller
+     *            if the index will absorb random writes without splitting
+     *            every leaf.
+     *
+     * @return The new {@link BTree}.
+     *
+     * @throws IllegalArgumentException
+     *             if the keys visited by the iterator are not in strictly
+     *             ascending order.
+     */
+    public static BTree build(final IRawStore store,
+            final IndexMetadata metadata, final ITupleIterator<?> src,
+            final double fillFactor) {
+
+        return build(store, metadata, src, fillFactor, null/* prior */);
+
+    }
+
+    /**
+     * Variant of {@link #build(IRawStore, IndexMetadata, ITupleIterator, double)}
+     * used to rebuild an existing index. The index local counter and the
+     * record version of the <i>prior</i> index are carried over to the new
+     * index so that values already assigned using the counter (e.g., term
+     * identifiers) will not be reassigned.
+     * 
+     * @param prior
+     *            The index which is being rebuilt (optional). When
+     *            <code>null</code> the counter and the record version start
+     *            at zero.
+     */
+    public static BTree build(final IRawStore store,
+            final IndexMetadata metadata, final ITupleIterator<?> src,
+            final double fillFactor, final BTree prior) {
+
+        final long counter = prior == null ? 0L : prior.counter.get();
+
+        final long recordVersion = prior == null ? 0L : prior
+                .getRecordVersion();
+
+        return new BTreeBuilder(store, metadata, fillFactor).build(src,
+                counter, recordVersion);
+
+    }
+
+    /**
+     * Load an empty {@link BTree} from an ordered tuple iterator. The nodes
+     * and leaves are generated bottom-up in a single streaming pass (as for
+     * {@link #build(IRawStore, IndexMetadata, ITupleIterator, double)}) and
+     * the generated root then replaces the empty root leaf of this
+     * {@link BTree}. Unlike a build, the identity of the index is unchanged,
+     * so existing references to this {@link BTree} (and the name under which
+     * it is registered) remain valid. The new nodes and leaves are made
+     * restart-safe by the next checkpoint.
+     * 
+     * @param src
+     *            An iterator visiting keys and values in strictly ascending
+     *            key order.
+     * @param fillFactor
+     *            The fraction of the branching factor which will be used in
+     *            each node and leaf in <code>(0:1]</code>.
+     * 
+     * @return The #of tuples in the {@link BTree}.
+     * 
+     * @throws IllegalStateException
+     *             if the {@link BTree} is not empty.
+     * @throws IllegalArgumentException
+     *             if the keys visited by the iterator are not in strictly
+     *             ascending order.
+     */
+    public long bulkLoad(final ITupleIterator<?> src, final double fillFactor) {
+
+        assertNotTransient();
+        assertNotReadOnly();
+
+        // make sure the index is open.
+        final AbstractNode<?> oldRoot = getRoot();
+
+        if (getEntryCount() != 0L)
+            throw new IllegalStateException("Not empty: entryCount="
+                    + getEntryCount());
+
+        final BTreeBuilder builder = new BTreeBuilder(store, metadata,
+                fillFactor);
+
+        builder.writeTree(src);
+
+        if (builder.getEntryCount() == 0L) {
+
+            // Nothing was visited.
+            return 0L;
+
+        }
+
+        /*
+         * Discard the empty root leaf. The write retention queue is cleared
+         * since the old root is no longer reachable (see removeAll()).
+         */
+
+        writeRetentionQueue.clear(true/* clearRefs */);
+
+        ndistinctOnWriteRetentionQueue = 0;
+
+        if (oldRoot.getIdentity() != IRawStore.NULL) {
+
+            // delete root iff persistent.
+            deleteNodeOrLeaf(oldRoot.getIdentity());
+
+        }
+
+        root = readNodeOrLeaf(builder.getRootAddr());
+
+        height = builder.getHeight();
+
+        nnodes = builder.getNodeCount();
+
+        nleaves = builder.getLeafCount();
+
+        nentries = builder.getEntryCount();
+
+        if (metadata.getBloomFilterFactory() != null) {
+
+            final BloomFilter oldFilter = getBloomFilter();
+
+            final BloomFilter newFilter = builder.getBloomFilter();
+
+            if (newFilter != null) {
+
+                if (oldFilter != null) {
+
+                    // recycle the empty filter iff persistent.
+                    recycle(oldFilter.getAddr());
+
+                }
+
+                // written by the next checkpoint since it is dirty.
+                bloomFilter = newFilter;
+
+            } else if (oldFilter != null) {
+
+                // Too many tuples for an acceptable error rate.
+                recycle(oldFilter.disable());
+
+            }
+
+        }
+
+        fireDirtyEvent();
+
+        return nentries;
+
     }
 
     /**
@@ -0,0 +1,829 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.data.IAbstractNodeData;
+import com.bigdata.btree.raba.MutableKeyBuffer;
+import com.bigdata.btree.raba.MutableValueBuffer;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.ByteArrayBuffer;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.util.Bytes;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Builds a mutable {@link BTree} bottom-up from an ordered tuple iterator in a
+ * single streaming pass. Leaves are filled left-to-right and written onto the
+ * backing store as soon as they are full. The separator key and address of
+ * each written leaf are then pushed into its parent, which is written in turn
+ * once it is full, and so on up to the root. Unlike the
+ * {@link IndexSegmentBuilder}, the #of tuples does not need to be known in
+ * advance and the generated nodes and leaves are ordinary {@link BTree}
+ * records, so the resulting index may be updated like any other {@link BTree}.
+ * <p>
+ * Each node and leaf is filled to <code>fillFactor * branchingFactor</code>,
+ * but never less than the minimum required by the {@link BTree} invariants. A
+ * full node or leaf is only written once enough children (or tuples) have been
+ * buffered behind it to form a valid right sibling. This means that the last
+ * node or leaf in each level can always be completed without underflow: if the
+ * remainder does not fit into one record then it is divided evenly between
+ * two.
+ * <p>
+ * Delete markers, version timestamps and raw records are carried over as
+ * configured by the {@link IndexMetadata}. If the index has a bloom filter
+ * then it is populated as the keys are visited and written along with the
+ * {@link Checkpoint}.
+ * <p>
+ * Note: The nodes and leaves are not entered into the write retention queue
+ * of the new {@link BTree}. They are read back from the store on demand.
+ *
+ * @see BTree#build(IRawStore, IndexMetadata, ITupleIterator, double)
+ */
+class BTreeBuilder {
+
+    private static final Logger log = Logger.getLogger(BTreeBuilder.class);
+
+    private final IRawStore store;
+
+    private final IndexMetadata metadata;
+
+    /**
+     * The branching factor of the generated tree.
+     */
+    private final int m;
+
+    /**
+     * The minimum #of tuples in a leaf and the minimum #of children of a node
+     * (other than the root).
+     */
+    private final int minChildren;
+
+    /**
+     * The #of tuples in a leaf and the #of children in a node when written in
+     * the steady state.
+     */
+    private final int target;
+
+    private final NodeSerializer nodeSer;
+
+    private final boolean deleteMarkers;
+
+    private final boolean versionTimestamps;
+
+    private final boolean rawRecords;
+
+    private final int maxRecLen;
+
+    /**
+     * Used to encode the address of a raw record into a tuple value.
+     */
+    private final ByteArrayBuffer recordAddrBuf;
+
+    /**
+     * The bloom filter and <code>null</code> if the index does not use one or
+     * if the #of tuples exceeded its capacity.
+     */
+    private BloomFilter bloomFilter;
+
+    private final LeafLevel leaves;
+
+    /**
+     * The node levels. The first element is the parent level of the leaves.
+     */
+    private final List<NodeLevel> nodes = new ArrayList<NodeLevel>();
+
+    /*
+     * Counters reported in the checkpoint record.
+     */
+    private long nnodes = 0;
+    private long nleaves = 0;
+    private long nentries = 0;
+
+    /**
+     * The address of the last node or leaf written, which is the root once
+     * the build is complete.
+     */
+    private long addrRoot = 0L;
+
+    /**
+     * @param store
+     *            The backing store.
+     * @param metadata
+     *            The metadata for the index.
+     * @param fillFactor
+     *            The fraction of the branching factor that will be used in
+     *            each node and leaf in <code>(0:1]</code>.
+     */
+    BTreeBuilder(final IRawStore store, final IndexMetadata metadata,
+            final double fillFactor) {
+
+        if (store == null)
+            throw new IllegalArgumentException();
+
+        if (metadata == null)
+            throw new IllegalArgumentException();
+
+        if (fillFactor <= 0d || fillFactor > 1d)
+            throw new IllegalArgumentException("fillFactor=" + fillFactor);
+
+        if (metadata.getIndexType() != IndexTypeEnum.BTree)
+            throw new IllegalArgumentException("Wrong index type: "
+                    + metadata.getIndexType());
+
+        this.store = store;
+
+        this.metadata = metadata;
+
+        this.m = metadata.getBranchingFactor();
+
+        this.minChildren = (m + 1) >> 1;
+
+        this.target = Math.max(minChildren,
+                Math.min(m, (int) Math.round(m * fillFactor)));
+
+        this.nodeSer = new NodeSerializer(//
+                store, // addressManager
+                IndexSegmentBuilder.NOPNodeFactory.INSTANCE,//
+                m,//
+                0, // initialBufferCapacity
+                metadata,//
+                false, // readOnly
+                metadata.getBtreeRecordCompressorFactory()
+                );
+
+        this.deleteMarkers = metadata.getDeleteMarkers();
+
+        this.versionTimestamps = metadata.getVersionTimestamps();
+
+        this.rawRecords = metadata.getRawRecords();
+
+        this.maxRecLen = rawRecords ? metadata.getMaxRecLen() : 0;
+
+        this.recordAddrBuf = rawRecords ? new ByteArrayBuffer(
+                Bytes.SIZEOF_LONG) : null;
+
+        this.bloomFilter = metadata.getBloomFilterFactory() == null ? null
+                : metadata.getBloomFilterFactory().newBloomFilter();
+
+        this.leaves = new LeafLevel();
+
+    }
+
+    /**
+     * Consume the source iterator, writing the nodes and leaves onto the
+     * store, and return the new {@link BTree}. The caller is responsible for
+     * registering the index, if desired, and for the commit. The metadata
+     * record MUST NOT have been written yet.
+     *
+     * @param src
+     *            An iterator visiting the tuples in strictly ascending key
+     *            order. The iterator must visit keys and values. Deleted
+     *            tuples are copied iff the index supports delete markers and
+     *            are otherwise skipped.
+     *
+     * @param counter
+     *            The initial value of the index local counter (see
+     *            {@link BTree#getCounter()}).
+     * @param recordVersion
+     *            The initial value of the record version.
+     *
+     * @return The new {@link BTree}.
+     *
+     * @throws IllegalArgumentException
+     *             if the keys are not in strictly ascending order.
+     */
+    BTree build(final ITupleIterator<?> src, final long counter,
+            final long recordVersion) {
+
+        if (metadata.getMetadataAddr() != 0L)
+            throw new IllegalStateException("Metadata record already in use");
+
+        final long begin = System.currentTimeMillis();
+
+        writeTree(src);
+
+        if (nentries == 0L) {
+
+            /*
+             * Nothing was visited. There is no root, so a new root leaf will
+             * be created when the B+Tree is opened.
+             */
+
+            metadata.write(store);
+
+            final Checkpoint checkpoint = new Checkpoint(metadata, 0L/* addrRoot */,
+                    0L/* addrBloomFilter */, 0/* height */, 0L/* nnodes */,
+                    0L/* nleaves */, 0L/* nentries */, counter, recordVersion);
+
+            checkpoint.write(store);
+
+            return BTree.load(store, checkpoint.getCheckpointAddr(), false/* readOnly */);
+
+        }
+
+        metadata.write(store);
+
+        final long addrBloomFilter = bloomFilter == null ? 0L : bloomFilter
+                .write(store);
+
+        final Checkpoint checkpoint = new Checkpoint(metadata, addrRoot,
+                addrBloomFilter, nodes.size()/* height */, nnodes, nleaves,
+                nentries, counter, recordVersion);
+
+        checkpoint.write(store);
+
+        if (log.isInfoEnabled())
+            log.info("name=" + metadata.getName() + ", m=" + m + ", target="
+                    + target + ", height=" + nodes.size() + ", nnodes="
+                    + nnodes + ", nleaves=" + nleaves + ", nentries="
+                    + nentries + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        return BTree.load(store, checkpoint.getCheckpointAddr(), false/* readOnly */);
+
+    }
+
+    /**
+     * Consume the source iterator, writing the nodes and leaves onto the
+     * store. Nothing else is written. Once this returns, the address of the
+     * root is reported by {@link #getRootAddr()} unless the iterator was
+     * empty.
+     *
+     * @param src
+     *            An iterator visiting the tuples in strictly ascending key
+     *            order (see {@link #build(ITupleIterator, long, long)}).
+     *
+     * @throws IllegalArgumentException
+     *             if the keys are not in strictly ascending order.
+     */
+    void writeTree(final ITupleIterator<?> src) {
+
+        if (src == null)
+            throw new IllegalArgumentException();
+
+        while (src.hasNext()) {
+
+            final ITuple<?> tuple = src.next();
+
+            final boolean deleted = tuple.isDeletedVersion();
+
+            if (deleted && !deleteMarkers) {
+
+                // Nothing to copy.
+                continue;
+
+            }
+
+            leaves.add(tuple.getKey(), deleted ? null : tuple.getValue(),
+                    deleted, tuple.getVersionTimestamp());
+
+        }
+
+        if (nentries == 0L) {
+
+            // Nothing was visited.
+            return;
+
+        }
+
+        // Flush the partial leaf, then the nodes, bottom-up.
+        leaves.finish();
+
+        for (int i = 0; i < nodes.size(); i++) {
+
+            nodes.get(i).finish();
+
+        }
+
+    }
+
+    /**
+     * The address of the root node or leaf written by
+     * {@link #writeTree(ITupleIterator)}.
+     */
+    long getRootAddr() {
+
+        return addrRoot;
+
+    }
+
+    /**
+     * The height of the generated tree.
+     */
+    int getHeight() {
+
+        return nodes.size();
+
+    }
+
+    /**
+     * The #of nodes written.
+     */
+    long getNodeCount() {
+
+        return nnodes;
+
+    }
+
+    /**
+     * The #of leaves written.
+     */
+    long getLeafCount() {
+
+        return nleaves;
+
+    }
+
+    /**
+     * The #of tuples written.
+     */
+    long getEntryCount() {
+
+        return nentries;
+
+    }
+
+    /**
+     * The populated bloom filter (not yet written on the store) and
+     * <code>null</code> if the index does not use one or if the #of tuples
+     * exceeded its capacity.
+     */
+    BloomFilter getBloomFilter() {
+
+        return bloomFilter;
+
+    }
+
+    /**
+     * Code the node or leaf and write it onto the store.
+     *
+     * @return The address of the record.
+     */
+    private long writeRecord(final IAbstractNodeData data) {
+
+        final AbstractFixedByteArrayBuffer slice = nodeSer.encodeLive(data)
+                .data();
+
+        final ByteBuffer rec = nodeSer.recordCompressorFactory == null ? slice
+                .asByteBuffer() : nodeSer.compress(slice);
+
+        addrRoot = store.write(rec);
+
+        /*
+         * The address may have been recycled (e.g., from an index which was
+         * dropped before this one was built), so clear any record cached for
+         * that address.
+         */
+        NodeRecordCache.invalidate(store.getUUID(), addrRoot);
+
+        return addrRoot;
+
+    }
+
+    /**
+     * Return the node level above the given level, creating it if necessary.
+     *
+     * @param level
+     *            The level of the child (zero for the leaves).
+     */
+    private NodeLevel getParent(final int level) {
+
+        if (level == nodes.size()) {
+
+            nodes.add(new NodeLevel(level + 1));
+
+        }
+
+        return nodes.get(level);
+
+    }
+
+    /**
+     * The tuples buffered for the leaves which have not been written yet.
+     */
+    private class LeafLevel {
+
+        private final byte[][] keys;
+        private final byte[][] vals;
+        private final boolean[] deleted;
+        private final boolean[] raw;
+        private final long[] timestamps;
+
+        /** The #of buffered tuples. */
+        private int n = 0;
+
+        /** <code>true</code> once some leaf has been written. */
+        private boolean emitted = false;
+
+        /** The last key in the last leaf written. */
+        private byte[] priorKey = null;
+
+        LeafLevel() {
+
+            final int capacity = target + minChildren;
+
+            keys = new byte[capacity][];
+            vals = new byte[capacity][];
+            deleted = deleteMarkers ? new boolean[capacity] : null;
+            raw = rawRecords ? new boolean[capacity] : null;
+            timestamps = versionTimestamps ? new long[capacity] : null;
+
+        }
+
+        void add(final byte[] key, byte[] val, final boolean isDeleted,
+                final long timestamp) {
+
+            final byte[] lastKey = n > 0 ? keys[n - 1] : priorKey;
+
+            if (lastKey != null && BytesUtil.compareBytes(lastKey, key) >= 0) {
+
+                throw new IllegalArgumentException("Keys out of order: "
+                        + BytesUtil.toString(lastKey) + ", "
+                        + BytesUtil.toString(key));
+
+            }
+
+            boolean isRaw = false;
+
+            if (rawRecords && val != null && val.length > maxRecLen) {
+
+                // write the value on the backing store.
+                val = AbstractBTree.encodeRecordAddr(recordAddrBuf,
+                        store.write(ByteBuffer.wrap(val)));
+
+                isRaw = true;
+
+            }
+
+            keys[n] = key;
+            vals[n] = val;
+            if (deleted != null)
+                deleted[n] = isDeleted;
+            if (raw != null)
+                raw[n] = isRaw;
+            if (timestamps != null)
+                timestamps[n] = timestamp;
+            n++;
+
+            if (bloomFilter != null) {
+
+                if (nentries >= bloomFilter.getMaxN()) {
+
+                    // Too many tuples, so the filter would be disabled.
+                    bloomFilter = null;
+
+                } else {
+
+                    bloomFilter.add(key);
+
+                }
+
+            }
+
+            nentries++;
+
+            if (n == keys.length) {
+
+                /*
+                 * Write a full leaf. The tuples which remain are enough to
+                 * form a valid right sibling.
+                 */
+
+                write(0, target);
+
+                shift(target);
+
+            }
+
+        }
+
+        /**
+         * Write out the buffered tuples.
+         */
+        void finish() {
+
+            if (n <= m) {
+
+                /*
+                 * Note: This is the root leaf iff no leaf was written before,
+                 * in which case it may have fewer than minChildren tuples.
+                 */
+                write(0, n);
+
+            } else {
+
+                // Divide the remainder evenly between two leaves.
+                final int half = n >> 1;
+
+                write(0, half);
+
+                write(half, n - half);
+
+            }
+
+            n = 0;
+
+        }
+
+        private void shift(final int off) {
+
+            final int len = n - off;
+
+            System.arraycopy(keys, off, keys, 0, len);
+            System.arraycopy(vals, off, vals, 0, len);
+            if (deleted != null)
+                System.arraycopy(deleted, off, deleted, 0, len);
+            if (raw != null)
+                System.arraycopy(raw, off, raw, 0, len);
+            if (timestamps != null)
+                System.arraycopy(timestamps, off, timestamps, 0, len);
+
+            for (int i = len; i < n; i++) {
+                // clear references.
+                keys[i] = vals[i] = null;
+            }
+
+            n = len;
+
+        }
+
+        /**
+         * Write a leaf from the buffered tuples and add it to its parent
+         * (unless it is the root leaf).
+         */
+        private void write(final int off, final int len) {
+
+            final MutableLeafData data = new MutableLeafData(m,
+                    versionTimestamps, deleteMarkers, rawRecords);
+
+            final MutableKeyBuffer dkeys = data.keys;
+
+            final MutableValueBuffer dvals = data.vals;
+
+            for (int i = 0; i < len; i++) {
+
+                final int j = off + i;
+
+                dkeys.keys[i] = keys[j];
+
+                dvals.values[i] = vals[j];
+
+                if (deleted != null)
+                    data.deleteMarkers[i] = deleted[j];
+
+                if (raw != null)
+                    data.rawRecords[i] = raw[j];
+
+                if (timestamps != null) {
+
+                    final long t = timestamps[j];
+
+                    data.versionTimestamps[i] = t;
+
+                    if (t < data.minimumVersionTimestamp)
+                        data.minimumVersionTimestamp = t;
+
+                    if (t > data.maximumVersionTimestamp)
+                        data.maximumVersionTimestamp = t;
+
+                }
+
+            }
+
+            dkeys.nkeys = dvals.nvalues = len;
+
+            final long addr = writeRecord(data);
+
+            nleaves++;
+
+            final boolean isRoot = !emitted && len == n && nodes.isEmpty();
+
+            if (!isRoot) {
+
+                /*
+                 * The shortest separator between the last key in the prior
+                 * leaf and the first key in this leaf. This is not used for
+                 * the first leaf since that is always the first child of its
+                 * parent.
+                 */
+                final byte[] separatorKey = priorKey == null ? null
+                        : BytesUtil.getSeparatorKey(keys[off], priorKey);
+
+                getParent(0).add(separatorKey, addr, len,
+                        data.minimumVersionTimestamp,
+                        data.maximumVersionTimestamp);
+
+            }
+
+            priorKey = keys[off + len - 1];
+
+            emitted = true;
+
+        }
+
+    }
+
+    /**
+     * The children buffered for one level of nodes which have not been
+     * written yet.
+     */
+    private class NodeLevel {
+
+        /** The level (one is the parent of the leaves). */
+        private final int level;
+
+        /**
+         * The separator key which directs searches to each child. The first
+         * child of the first node in each level does not have a separator
+         * key.
+         */
+        private final byte[][] separatorKeys;
+        private final long[] childAddr;
+        private final long[] childEntryCount;
+        private final long[] minTimestamp;
+        private final long[] maxTimestamp;
+
+        /** The #of buffered children. */
+        private int n = 0;
+
+        /** <code>true</code> once some node has been written. */
+        private boolean emitted = false;
+
+        NodeLevel(final int level) {
+
+            this.level = level;
+
+            final int capacity = target + minChildren;
+
+            separatorKeys = new byte[capacity][];
+            childAddr = new long[capacity];
+            childEntryCount = new long[capacity];
+            minTimestamp = new long[capacity];
+            maxTimestamp = new long[capacity];
+
+        }
+
+        void add(final byte[] separatorKey, final long addr,
+                final long entryCount, final long minTs, final long maxTs) {
+
+            separatorKeys[n] = separatorKey;
+            childAddr[n] = addr;
+            childEntryCount[n] = entryCount;
+            minTimestamp[n] = minTs;
+            maxTimestamp[n] = maxTs;
+            n++;
+
+            if (n == separatorKeys.length) {
+
+                write(0, target);
+
+                shift(target);
+
+            }
+
+        }
+
+        void finish() {
+
+            if (n <= m) {
+
+                /*
+                 * Note: a level is only created once two children exist, so
+                 * the root node always has at least two children.
+                 */
+                write(0, n);
+
+            } else {
+
+                final int half = n >> 1;
+
+                write(0, half);
+
+                write(half, n - half);
+
+            }
+
+            n = 0;
+
+        }
+
+        private void shift(final int off) {
+
+            final int len = n - off;
+
+            System.arraycopy(separatorKeys, off, separatorKeys, 0, len);
+            System.arraycopy(childAddr, off, childAddr, 0, len);
+            System.arraycopy(childEntryCount, off, childEntryCount, 0, len);
+            System.arraycopy(minTimestamp, off, minTimestamp, 0, len);
+            System.arraycopy(maxTimestamp, off, maxTimestamp, 0, len);
+
+            for (int i = len; i < n; i++) {
+                // clear references.
+                separatorKeys[i] = null;
+            }
+
+            n = len;
+
+        }
+
+        /**
+         * Write a node from the buffered children and add it to its parent
+         * (unless it is the root node).
+         */
+        private void write(final int off, final int len) {
+
+            final MutableKeyBuffer keys = new MutableKeyBuffer(m);
+
+            final long[] addrs = new long[m + 1];
+
+            final long[] counts = new long[m + 1];
+
+            long sum = 0L;
+
+            long minTs = Long.MAX_VALUE;
+
+            long maxTs = Long.MIN_VALUE;
+
+            for (int i = 0; i < len; i++) {
+
+                final int j = off + i;
+
+                if (i > 0)
+                    keys.keys[i - 1] = separatorKeys[j];
+
+                addrs[i] = childAddr[j];
+
+                counts[i] = childEntryCount[j];
+
+                sum += childEntryCount[j];
+
+                if (minTimestamp[j] < minTs)
+                    minTs = minTimestamp[j];
+
+                if (maxTimestamp[j] > maxTs)
+                    maxTs = maxTimestamp[j];
+
+            }
+
+            keys.nkeys = len - 1;
+
+            if (!versionTimestamps) {
+
+                minTs = maxTs = 0L;
+
+            }
+
+            final long addr = writeRecord(new MutableNodeData(sum, keys,
+                    addrs, counts, versionTimestamps, minTs, maxTs));
+
+            nnodes++;
+
+            final boolean isRoot = !emitted && len == n
+                    && level == nodes.size();
+
+            if (!isRoot) {
+
+                getParent(level).add(separatorKeys[off], addr, sum, minTs,
+                        maxTs);
+
+            }
+
+            emitted = true;
+
+        }
+
+    }
+
+}
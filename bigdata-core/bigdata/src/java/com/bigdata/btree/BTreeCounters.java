@@ -164,6 +164,8 @@ final public class BTreeCounters implements Cloneable, ICounterSetAccess {
         deserializeNanos.add(o.deserializeNanos.get());
         rawRecordsRead.add(o.rawRecordsRead.get());
         rawRecordsBytesRead.add(o.rawRecordsBytesRead.get());
+        recordsDecompressed.add(o.recordsDecompressed.get());
+        decompressNanos.add(o.decompressNanos.get());
         // IO writes.
         nodesWritten.add(o.nodesWritten.get());
         leavesWritten.add(o.leavesWritten.get());
@@ -173,6 +175,9 @@ final public class BTreeCounters implements Cloneable, ICounterSetAccess {
         serializeNanos.add(o.serializeNanos.get());
         rawRecordsWritten.add(o.rawRecordsWritten.get());
         rawRecordsBytesWritten.add(o.rawRecordsBytesWritten.get());
+        bytesBeforeCompression.add(o.bytesBeforeCompression.get());
+        bytesAfterCompression.add(o.bytesAfterCompression.get());
+        compressNanos.add(o.compressNanos.get());
 //        // touch()
 //        syncTouchNanos.add(o.syncTouchNanos.get());
 //        touchNanos.add(o.touchNanos.get());
@@ -236,6 +241,8 @@ final public class BTreeCounters implements Cloneable, ICounterSetAccess {
         t.deserializeNanos.add(-o.deserializeNanos.get());
         t.rawRecordsRead.add(-o.rawRecordsRead.get());
         t.rawRecordsBytesRead.add(-o.rawRecordsBytesRead.get());
+        t.recordsDecompressed.add(-o.recordsDecompressed.get());
+        t.decompressNanos.add(-o.decompressNanos.get());
         // IO writes.
         t.nodesWritten.add(-o.nodesWritten.get());
         t.leavesWritten.add(-o.leavesWritten.get());
@@ -245,6 +252,9 @@ final public class BTreeCounters implements Cloneable, ICounterSetAccess {
         t.writeNanos.add(-o.writeNanos.get());
         t.rawRecordsWritten.add(-o.rawRecordsWritten.get());
         t.rawRecordsBytesWritten.add(-o.rawRecordsBytesWritten.get());
+        t.bytesBeforeCompression.add(-o.bytesBeforeCompression.get());
+        t.bytesAfterCompression.add(-o.bytesAfterCompression.get());
+        t.compressNanos.add(-o.compressNanos.get());
 //        // touch()
 //        syncTouchNanos.add(-o.syncTouchNanos.get());
 //        touchNanos.add(-o.touchNanos.get());
@@ -370,6 +380,10 @@ final public class BTreeCounters implements Cloneable, ICounterSetAccess {
     public final CAT rawRecordsRead = new CAT();
     /** Total bytes read for raw records. */
     public final CAT rawRecordsBytesRead = new CAT();
+    /** The #of compressed node or leaf records which were decompressed. */
+    public final CAT recordsDecompressed = new CAT();
+    /** Decompression time for nodes and leaves. */
+    public final CAT decompressNanos = new CAT();
 
     // IO writes (multi-threaded since BLZG-1665)
     public CAT nodesWritten = new CAT();
@@ -380,6 +394,12 @@ final public class BTreeCounters implements Cloneable, ICounterSetAccess {
     public CAT serializeNanos = new CAT();
     public CAT rawRecordsWritten = new CAT();
     public CAT rawRecordsBytesWritten = new CAT();
+    /** The size of the coded nodes and leaves before compression. */
+    public final CAT bytesBeforeCompression = new CAT();
+    /** The size of the coded nodes and leaves after compression. */
+    public final CAT bytesAfterCompression = new CAT();
+    /** Compression time for nodes and leaves. */
+    public final CAT compressNanos = new CAT();
 
 	/*
 	 * Note: The introduction of these performance counters caused a significant
@@ -1114,6 +1134,57 @@ final public class BTreeCounters implements Cloneable, ICounterSetAccess {
                     }
                 });
 
+                /*
+                 * Record level compression of nodes and leaves.
+                 */
+
+                /*
+                 * The ratio of the compressed size to the coded size of the
+                 * nodes and leaves written (1.0 if compression is not used).
+                 */
+                tmp.addCounter("compressionRatio", new Instrument<Double>() {
+                    @Override
+                    protected void sample() {
+                        final long before = bytesBeforeCompression.get();
+                        setValue(before == 0L ? 1d : bytesAfterCompression
+                                .get() / (double) before);
+                    }
+                });
+
+                tmp.addCounter("compressSecs", new Instrument<Double>() {
+                    @Override
+                    public void sample() {
+                        final double secs = (compressNanos.get() / 1000000000.);
+                        setValue(secs);
+                    }
+                });
+
+                tmp.addCounter("recordsDecompressed", new Instrument<Long>() {
+                    @Override
+                    protected void sample() {
+                        setValue(recordsDecompressed.get());
+                    }
+                });
+
+                tmp.addCounter("decompressSecs", new Instrument<Double>() {
+                    @Override
+                    public void sample() {
+                        final double secs = (decompressNanos.get() / 1000000000.);
+                        setValue(secs);
+                    }
+                });
+
+                tmp.addCounter("decompressLatencyNanos",
+                        new Instrument<Double>() {
+                    @Override
+                            public void sample() {
+                                final long n = recordsDecompressed.get();
+                                final double decompressLatencyNanos = (n == 0L ? 0d
+                                        : (decompressNanos.get() / n));
+                                setValue(decompressLatencyNanos);
+                            }
+                        });
+
             }
 
 //            /*
@@ -467,6 +467,50 @@ public class Checkpoint implements ICheckpoint, Externalizable {
                 IndexTypeEnum.Stream // IndexTypeEnum
                 );
            
+    }
+
+    /**
+     * Create the checkpoint record for a {@link BTree} whose nodes and leaves
+     * were written bottom-up by the {@link BTreeBuilder}.
+     *
+     * @param metadata
+     *            The index metadata record (already written on the store).
+     * @param addrRoot
+     *            The address of the root node or leaf.
+     * @param addrBloomFilter
+     *            The address of the bloom filter or <code>0L</code> if there
+     *            is none.
+     * @param height
+     *            The height of the generated tree.
+     * @param nnodes
+     *            The #of nodes written.
+     * @param nleaves
+     *            The #of leaves written.
+     * @param nentries
+     *            The #of tuples written.
+     * @param counter
+     *            The value of the index local counter.
+     * @param recordVersion
+     *            The value of the record version.
+     */
+    Checkpoint(final IndexMetadata metadata, final long addrRoot,
+            final long addrBloomFilter, final int height, final long nnodes,
+            final long nleaves, final long nentries, final long counter,
+            final long recordVersion) {
+
+        this( //
+                metadata.getMetadataAddr(), //
+                addrRoot, //
+                addrBloomFilter, //
+                height, //
+                nnodes, //
+                nleaves, //
+                nentries, //
+                counter, //
+                recordVersion, //
+                IndexTypeEnum.BTree //
+                );
+
     }
 
 	private Checkpoint(final long addrMetadata, final long addrRoot,
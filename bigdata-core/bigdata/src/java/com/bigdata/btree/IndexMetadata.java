@@ -59,6 +59,7 @@ import com.bigdata.io.DirectBufferPool;
 import com.bigdata.io.LongPacker;
 import com.bigdata.io.SerializerUtil;
 import com.bigdata.io.compression.IRecordCompressorFactory;
+import com.bigdata.io.compression.LZ4RecordCompressorFactory;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.mdi.LocalPartitionMetadata;
 import com.bigdata.mdi.MetadataIndex;
@@ -605,12 +606,20 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
 
         /**
          * An optional factory providing record-level compression for the nodes
-         * and leaves of an {@link IndexSegment} (default
-         * {@value #DEFAULT_BTREE_RECORD_COMPRESSOR_FACTORY}).
+         * and leaves of a {@link BTree} (default
+         * {@value #DEFAULT_BTREE_RECORD_COMPRESSOR_FACTORY}). The value is the
+         * name of a class implementing {@link IRecordCompressorFactory} which
+         * has a public zero argument constructor, e.g.,
+         * {@link LZ4RecordCompressorFactory}. A node or leaf is written without
+         * compression if compression would not reduce its size, so the
+         * factory may be changed for an existing index only if the new
+         * factory can decompress the records written by the old one.
+         * <p>
+         * Each node or leaf read from the backing store must be decompressed.
+         * The decompressed records are retained by the {@link NodeRecordCache}
+         * when it is enabled (see {@link #NODE_RECORD_CACHE_CAPACITY}).
          * 
          * @see #INDEX_SEGMENT_RECORD_COMPRESSOR_FACTORY
-         * 
-         * FIXME Record level compression support is not finished.
          */
         String BTREE_RECORD_COMPRESSOR_FACTORY = (BTree.class.getName()
                 + ".recordCompressorFactory").intern();
@@ -652,6 +661,25 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
          */
         String MIN_DIRTY_LIST_SIZE_FOR_PARALLEL_EVICT = BTree.class.getName()+".minDirtyListSizeForParallelEvict";
         String DEFAULT_MIN_DIRTY_LIST_SIZE_FOR_PARALLEL_EVICT = "5";
+
+        /**
+         * The maximum #of bytes of native memory which will be used by the JVM
+         * wide {@link NodeRecordCache}. The cache holds the coded node and
+         * leaf records of persistent indices keyed by the store {@link UUID}
+         * and address, so those records are shared by all B+Tree instances
+         * (including read-only views as of different commit points) which read
+         * them. The memory is drawn from the {@link DirectBufferPool} in
+         * buffer sized segments. The cache is disabled when this is ZERO (0)
+         * (default {@value #DEFAULT_NODE_RECORD_CACHE_CAPACITY}).
+         * <p>
+         * Note: This is currently a System property (set with -D).
+         * <p>
+         * Note: The cache should not be enabled for the followers of a highly
+         * available replication cluster since the records replicated onto a
+         * follower do not clear the cache entries for recycled addresses.
+         */
+        String NODE_RECORD_CACHE_CAPACITY = BTree.class.getName()+".nodeRecordCacheCapacity";
+        String DEFAULT_NODE_RECORD_CACHE_CAPACITY = "0";
  
         
         /*
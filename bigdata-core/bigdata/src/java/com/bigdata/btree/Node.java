@@ -42,6 +42,7 @@ import com.bigdata.BigdataStatics;
 import com.bigdata.btree.AbstractBTree.ChildMemoizer;
 import com.bigdata.btree.AbstractBTree.LoadChildRequest;
 import com.bigdata.btree.data.DefaultNodeCoder;
+import com.bigdata.btree.data.IAbstractNodeData;
 import com.bigdata.btree.data.INodeData;
 import com.bigdata.btree.raba.IRaba;
 import com.bigdata.btree.raba.MutableKeyBuffer;
@@ -2794,6 +2795,77 @@ public class Node extends AbstractNode<Node> implements INodeData {
 
     }
 
+    /**
+     * Return the child at the specified index iff it is already materialized.
+     * This never reads through to the backing store.
+     * 
+     * @param index
+     *            The index of the child.
+     * 
+     * @return The child -or- <code>null</code> if it is not materialized.
+     */
+    final AbstractNode<?> getChildIfPresent(final int index) {
+
+        synchronized (childRefs) {
+
+            final Reference<AbstractNode<?>> childRef = childRefs[index];
+
+            return childRef == null ? null : childRef.get();
+
+        }
+
+    }
+
+    /**
+     * Wrap a data record which was read from the backing store by the caller
+     * and set it as the child at the specified index (unless the child is
+     * already materialized). This is used to attach children which were read
+     * concurrently by {@link AbstractBTree#prefetch(IRaba, Executor, int)} for
+     * the mutable B+Tree. The same single-threaded guarantee as for
+     * {@link #_getChild(int, LoadChildRequest)} applies.
+     * 
+     * @param index
+     *            The index of the child.
+     * @param data
+     *            The data record for the child.
+     * 
+     * @return The child and never <code>null</code>.
+     */
+    AbstractNode _setChild(final int index, final IAbstractNodeData data) {
+
+        synchronized (childRefs) {
+
+            final Reference<AbstractNode<?>> childRef = childRefs[index];
+
+            final AbstractNode child = childRef == null ? null : childRef
+                    .get();
+
+            if (child != null) {
+
+                // Already materialized.
+                return child;
+
+            }
+
+        }
+
+        final AbstractNode child = btree.nodeSer.wrap(btree,
+                this.data.getChildAddr(index), data);
+
+        synchronized (childRefs) {
+
+            // patch parent reference since loaded from store.
+            child.parent = this.self;
+
+            // patch the child reference.
+            childRefs[index] = child.self;
+
+        }
+
+        return child;
+
+    }
+
     // /**
     // * Static helper method allocates the per-child lock objects.
     // * <p>
@@ -0,0 +1,691 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.io.IBufferAccess;
+import com.bigdata.rawstore.IRawStore;
+
+/**
+ * A JVM wide cache of coded node and leaf records held in native memory. The
+ * records are keyed by the {@link UUID} of the backing store and the address
+ * of the record on that store. Since the key does not depend on the B+Tree
+ * instance, read-only views of an index as of different commit points share
+ * the cached records for any nodes or leaves which are common to those views.
+ * <p>
+ * The cache is organized as a set of segments, each of which is a buffer
+ * acquired from the {@link DirectBufferPool}. Records are appended onto the
+ * current segment. When no segment has room for a record, a segment is
+ * selected for reuse using the CLOCK policy (a segment which has been read
+ * since the hand last passed over it is given a second chance) and all records
+ * on that segment are dropped. The total memory is bounded by
+ * {@link IndexMetadata.Options#NODE_RECORD_CACHE_CAPACITY}.
+ * <p>
+ * Records which were compressed using the {@link IndexMetadata.Options#BTREE_RECORD_COMPRESSOR_FACTORY}
+ * are cached after they have been decompressed, so a cache hit avoids both the
+ * IO and the decompression of the record.
+ * <p>
+ * Records are copied out of the cache into a new heap buffer since a segment
+ * may be reused while the caller still holds a reference to the decoded node
+ * or leaf.
+ * <p>
+ * Note: An address on an {@link IRawStore} may be recycled. The stores which
+ * recycle addresses (the journal and the {@link com.bigdata.rwstore.sector.MemStore})
+ * therefore {@link #invalidate(UUID, long)} the address whenever a record is
+ * written onto or deleted from that address, regardless of who wrote the
+ * record. Records written onto the store by other means (for example, the
+ * write replication pipeline of a highly available follower) are not
+ * visible to the cache, so it should not be enabled for such stores.
+ */
+public class NodeRecordCache {
+
+    private static final Logger log = Logger.getLogger(NodeRecordCache.class);
+
+    /**
+     * The singleton instance -or- <code>null</code> if the cache is disabled.
+     *
+     * @see IndexMetadata.Options#NODE_RECORD_CACHE_CAPACITY
+     */
+    public static final NodeRecordCache INSTANCE;
+
+    static {
+
+        final long capacity = Long.parseLong(System.getProperty(
+                IndexMetadata.Options.NODE_RECORD_CACHE_CAPACITY,
+                IndexMetadata.Options.DEFAULT_NODE_RECORD_CACHE_CAPACITY));
+
+        INSTANCE = capacity > 0 ? new NodeRecordCache(
+                DirectBufferPool.INSTANCE, capacity) : null;
+
+        if (INSTANCE != null && log.isInfoEnabled())
+            log.info(IndexMetadata.Options.NODE_RECORD_CACHE_CAPACITY + "="
+                    + capacity);
+
+    }
+
+    /**
+     * The key for a record.
+     */
+    private static class Key {
+
+        private final UUID storeUUID;
+
+        private final long addr;
+
+        Key(final UUID storeUUID, final long addr) {
+
+            this.storeUUID = storeUUID;
+
+            this.addr = addr;
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return storeUUID.hashCode() ^ (int) (addr ^ (addr >>> 32));
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            final Key k = (Key) o;
+
+            return addr == k.addr && storeUUID.equals(k.storeUUID);
+
+        }
+
+    }
+
+    /**
+     * The location of a record within a segment.
+     */
+    private static class Entry {
+
+        private final Segment segment;
+
+        /**
+         * The generation of the segment when the record was written. The
+         * entry is stale if the segment has since been reused.
+         */
+        private final int generation;
+
+        private final int offset;
+
+        private final int length;
+
+        Entry(final Segment segment, final int generation, final int offset,
+                final int length) {
+
+            this.segment = segment;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+
+        }
+
+    }
+
+    /**
+     * A buffer onto which records are appended.
+     */
+    private static class Segment {
+
+        private final IBufferAccess buf;
+
+        /**
+         * Incremented each time the segment is reused.
+         */
+        private volatile int generation = 0;
+
+        /**
+         * Set when a record is read from the segment and cleared when the
+         * CLOCK hand passes over the segment.
+         */
+        private volatile boolean referenced = false;
+
+        /**
+         * The #of readers copying data from the segment -or- <code>-1</code>
+         * while the segment is being reused.
+         */
+        private final AtomicInteger pins = new AtomicInteger();
+
+        /**
+         * The next free byte in the segment (guarded by the cache lock).
+         */
+        private int nextOffset = 0;
+
+        /**
+         * The keys of the records on the segment (guarded by the cache lock).
+         */
+        private final List<Key> keys = new ArrayList<Key>();
+
+        Segment(final IBufferAccess buf) {
+
+            this.buf = buf;
+
+        }
+
+        /**
+         * Pin the segment against reuse.
+         *
+         * @return <code>false</code> if the segment is being reused.
+         */
+        boolean pin() {
+
+            while (true) {
+
+                final int n = pins.get();
+
+                if (n < 0)
+                    return false;
+
+                if (pins.compareAndSet(n, n + 1))
+                    return true;
+
+            }
+
+        }
+
+        void unpin() {
+
+            pins.decrementAndGet();
+
+        }
+
+    }
+
+    /**
+     * The source for the segments.
+     */
+    private final DirectBufferPool pool;
+
+    /**
+     * The maximum #of segments.
+     */
+    private final int maxSegments;
+
+    /**
+     * The record map.
+     */
+    private final ConcurrentHashMap<Key, Entry> map = new ConcurrentHashMap<Key, Entry>();
+
+    /**
+     * The allocated segments (guarded by <code>this</code>).
+     */
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    /**
+     * The segment onto which records are being appended (guarded by
+     * <code>this</code>).
+     */
+    private Segment current = null;
+
+    /**
+     * The CLOCK hand (guarded by <code>this</code>).
+     */
+    private int hand = 0;
+
+    private final CAT nhit = new CAT();
+    private final CAT nmiss = new CAT();
+    private final CAT ninsert = new CAT();
+    private final CAT nclear = new CAT();
+    private final CAT nreuse = new CAT();
+    private final CAT bytesInserted = new CAT();
+
+    /**
+     * @param pool
+     *            The pool from which the segments will be acquired.
+     * @param capacity
+     *            The maximum #of bytes of native memory to be used by the
+     *            cache.
+     */
+    public NodeRecordCache(final DirectBufferPool pool, final long capacity) {
+
+        if (pool == null)
+            throw new IllegalArgumentException();
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.pool = pool;
+
+        this.maxSegments = (int) Math.max(2L,
+                capacity / pool.getBufferCapacity());
+
+    }
+
+    /**
+     * Return a copy of the cached record.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     * @param addr
+     *            The address of the record on that store.
+     *
+     * @return A new heap buffer containing the record -or- <code>null</code>
+     *         if the record is not in the cache.
+     */
+    public ByteBuffer get(final UUID storeUUID, final long addr) {
+
+        final Entry e = map.get(new Key(storeUUID, addr));
+
+        if (e == null) {
+
+            nmiss.increment();
+
+            return null;
+
+        }
+
+        final Segment s = e.segment;
+
+        if (!s.pin()) {
+
+            // The segment is being reused.
+            nmiss.increment();
+
+            return null;
+
+        }
+
+        try {
+
+            if (s.generation != e.generation) {
+
+                // The segment was reused since the record was written.
+                nmiss.increment();
+
+                return null;
+
+            }
+
+            final ByteBuffer src = s.buf.buffer().duplicate();
+
+            src.limit(e.offset + e.length);
+
+            src.position(e.offset);
+
+            final ByteBuffer dst = ByteBuffer.allocate(e.length);
+
+            dst.put(src);
+
+            dst.flip();
+
+            s.referenced = true;
+
+            nhit.increment();
+
+            return dst;
+
+        } finally {
+
+            s.unpin();
+
+        }
+
+    }
+
+    /**
+     * Insert a record into the cache. The record is silently ignored if it is
+     * larger than a segment or if no segment could be reused.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     * @param addr
+     *            The address of the record on that store.
+     * @param data
+     *            The record. The position and limit of the caller's buffer
+     *            are not changed.
+     */
+    public void put(final UUID storeUUID, final long addr,
+            final ByteBuffer data) {
+
+        final int length = data.remaining();
+
+        if (length == 0 || length > pool.getBufferCapacity())
+            return;
+
+        final Key key = new Key(storeUUID, addr);
+
+        synchronized (this) {
+
+            if (current == null
+                    || current.nextOffset + length > current.buf.buffer()
+                            .capacity()) {
+
+                current = nextSegment();
+
+                if (current == null)
+                    return;
+
+            }
+
+            final Segment s = current;
+
+            final int offset = s.nextOffset;
+
+            final ByteBuffer dst = s.buf.buffer().duplicate();
+
+            dst.limit(offset + length);
+
+            dst.position(offset);
+
+            dst.put(data.duplicate());
+
+            s.nextOffset += length;
+
+            s.keys.add(key);
+
+            map.put(key, new Entry(s, s.generation, offset, length));
+
+        }
+
+        ninsert.increment();
+
+        bytesInserted.add(length);
+
+    }
+
+    /**
+     * Clear the cache entry for a record (if any). This MUST be invoked when
+     * a new record is written onto an address since the address may have
+     * been recycled.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     * @param addr
+     *            The address of the record on that store.
+     */
+    public void remove(final UUID storeUUID, final long addr) {
+
+        if (map.remove(new Key(storeUUID, addr)) != null) {
+
+            nclear.increment();
+
+        }
+
+    }
+
+    /**
+     * Clear the cache entry for a record (if any) if the cache is enabled.
+     * This is invoked by the stores which recycle addresses each time a
+     * record is written onto or deleted from an address.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     * @param addr
+     *            The address of the record on that store.
+     */
+    public static void invalidate(final UUID storeUUID, final long addr) {
+
+        final NodeRecordCache cache = INSTANCE;
+
+        if (cache != null) {
+
+            cache.remove(storeUUID, addr);
+
+        }
+
+    }
+
+    /**
+     * Return a segment onto which records may be appended. A new segment is
+     * acquired if we are under the maximum #of segments. Otherwise a segment
+     * is selected for reuse using the CLOCK policy.
+     *
+     * @return The segment -or- <code>null</code> if no segment is available.
+     */
+    private Segment nextSegment() {
+
+        if (segments.size() < maxSegments) {
+
+            try {
+
+                final Segment s = new Segment(pool.acquire(
+                        0L/* timeout */, TimeUnit.MILLISECONDS));
+
+                segments.add(s);
+
+                return s;
+
+            } catch (TimeoutException ex) {
+
+                // The pool is exhausted. Reuse a segment instead.
+
+            } catch (InterruptedException ex) {
+
+                // Propagate the interrupt and do not cache the record.
+                Thread.currentThread().interrupt();
+
+                return null;
+
+            }
+
+        }
+
+        final int n = segments.size();
+
+        // At most two passes (the first pass may only clear the bits).
+        for (int i = 0; i < 2 * n; i++) {
+
+            final Segment s = segments.get(hand);
+
+            hand = (hand + 1) % n;
+
+            if (s == current)
+                continue;
+
+            if (s.referenced) {
+
+                // Second chance.
+                s.referenced = false;
+
+                continue;
+
+            }
+
+            if (!s.pins.compareAndSet(0, -1)) {
+
+                // Readers are copying data from this segment.
+                continue;
+
+            }
+
+            try {
+
+                s.generation++;
+
+                for (Key key : s.keys) {
+
+                    final Entry e = map.get(key);
+
+                    if (e != null && e.segment == s) {
+
+                        map.remove(key, e);
+
+                    }
+
+                }
+
+                s.keys.clear();
+
+                s.nextOffset = 0;
+
+            } finally {
+
+                s.pins.set(0);
+
+            }
+
+            nreuse.increment();
+
+            return s;
+
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Clear the cache and release its segments back to the pool.
+     */
+    public synchronized void close() {
+
+        map.clear();
+
+        for (Segment s : segments) {
+
+            // Wait for any readers.
+            while (!s.pins.compareAndSet(0, -1)) {
+                Thread.yield();
+            }
+
+            s.generation++;
+
+            try {
+                s.buf.release();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+        }
+
+        segments.clear();
+
+        current = null;
+
+        hand = 0;
+
+    }
+
+    /**
+     * Performance counters for the cache.
+     */
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("maxSegments", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(maxSegments);
+            }
+        });
+
+        root.addCounter("segmentCount", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                synchronized (NodeRecordCache.this) {
+                    setValue(segments.size());
+                }
+            }
+        });
+
+        root.addCounter("recordCount", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(map.size());
+            }
+        });
+
+        root.addCounter("nhit", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nhit.get());
+            }
+        });
+
+        root.addCounter("nmiss", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nmiss.get());
+            }
+        });
+
+        root.addCounter("hitRatio", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                final long hits = nhit.get();
+                final long total = hits + nmiss.get();
+                setValue(total == 0L ? 0d : hits / (double) total);
+            }
+        });
+
+        root.addCounter("ninsert", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(ninsert.get());
+            }
+        });
+
+        root.addCounter("bytesInserted", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(bytesInserted.get());
+            }
+        });
+
+        root.addCounter("nclear", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nclear.get());
+            }
+        });
+
+        root.addCounter("nsegmentReuse", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nreuse.get());
+            }
+        });
+
+        return root;
+
+    }
+
+}
@@ -26,6 +26,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
  */
 package com.bigdata.btree;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 
@@ -352,11 +353,14 @@ public class NodeSerializer {
      *         FIXME modify to accept {@link IDataRecord} rather than
      *         {@link ByteBuffer}.
      */
-    public IAbstractNodeData decode(final ByteBuffer buf) {
+    public IAbstractNodeData decode(ByteBuffer buf) {
 
         if (buf == null)
             throw new IllegalArgumentException();
 
+        // Note: NOP unless the record was compressed.
+        buf = decompress(buf);
+
         final boolean isNode = AbstractReadOnlyNodeData.isNode(buf
                 .get(AbstractReadOnlyNodeData.O_TYPE));
 
@@ -385,6 +389,101 @@ public class NodeSerializer {
 
     }
 
+    /**
+     * Compress a coded node or leaf data record using the
+     * {@link IRecordCompressor} for the index (NOT thread-safe). The record is
+     * written without compression if there is no
+     * {@link IRecordCompressorFactory} or if compression would not reduce the
+     * size of the record.
+     * 
+     * @param slice
+     *            The coded data record.
+     * 
+     * @return The record to be written onto the backing store.
+     * 
+     * @see AbstractReadOnlyNodeData#COMPRESSED
+     */
+    public ByteBuffer compress(final AbstractFixedByteArrayBuffer slice) {
+
+        if (recordCompressorFactory == null) {
+
+            return slice.asByteBuffer();
+
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(slice.len());
+
+        os.write(AbstractReadOnlyNodeData.COMPRESSED);
+
+        getRecordCompressor().compress(slice.array(), slice.off(), slice.len(),
+                os);
+
+        if (os.size() >= slice.len()) {
+
+            // Not worth compressing.
+            return slice.asByteBuffer();
+
+        }
+
+        return ByteBuffer.wrap(os.toByteArray());
+
+    }
+
+    /**
+     * Decompress a node or leaf data record (thread-safe). The record is
+     * returned unchanged unless it was written by
+     * {@link #compress(AbstractFixedByteArrayBuffer)}.
+     * 
+     * @param buf
+     *            The record read from the backing store.
+     * 
+     * @return The coded data record. The position will be zero and the limit
+     *         will be the capacity.
+     */
+    public ByteBuffer decompress(final ByteBuffer buf) {
+
+        if (buf.get(AbstractReadOnlyNodeData.O_TYPE) != AbstractReadOnlyNodeData.COMPRESSED) {
+
+            return buf;
+
+        }
+
+        if (recordCompressorFactory == null) {
+
+            throw new IllegalStateException(
+                    "Compressed record but no compression provider");
+
+        }
+
+        final ByteBuffer tmp = buf.duplicate();
+
+        // skip over the type byte.
+        tmp.position(AbstractReadOnlyNodeData.O_TYPE + 1);
+
+        /*
+         * Note: The read-only path uses a new or thread-local compressor from
+         * the factory since there may be concurrent readers.
+         */
+        final ByteBuffer b = recordCompressorFactory.getInstance().decompress(
+                tmp.slice());
+
+        if (!b.isReadOnly() && b.hasArray() && b.arrayOffset() == 0
+                && b.position() == 0 && b.limit() == b.capacity()) {
+
+            // Exact fit and not a view onto a shared buffer.
+            return b;
+
+        }
+
+        // Copy the data out of the compressor's (shared) buffer.
+        final byte[] a = new byte[b.remaining()];
+
+        b.duplicate().get(a);
+
+        return ByteBuffer.wrap(a);
+
+    }
+
     /**
      * Wrap an {@link INodeData} or {@link ILeafData} instance as a {@link Node}
      * or a {@link Leaf}. This DOES NOT set the parent of the new {@link Node}
@@ -60,6 +60,16 @@ abstract public class AbstractReadOnlyNodeData<U extends IAbstractNodeData> {
      */
     public static final byte LINKED_LEAF = 2;
 
+    /**
+     * A B+Tree node or leaf data record which was compressed using the
+     * {@link com.bigdata.io.compression.IRecordCompressor} for the index. The
+     * remainder of the record is the compressed data. Once decompressed, the
+     * record is a {@link #NODE}, {@link #LEAF}, or {@link #LINKED_LEAF}.
+     * 
+     * @see com.bigdata.btree.NodeSerializer#decompress(ByteBuffer)
+     */
+    public static final byte COMPRESSED = 3;
+
     /**
      * Return <code>true</code> iff the byte indicates an {@link INodeData}
      * record.
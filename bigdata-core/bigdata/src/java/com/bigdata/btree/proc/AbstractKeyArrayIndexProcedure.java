@@ -167,6 +167,19 @@ abstract public class AbstractKeyArrayIndexProcedure<T> extends
 	transient static private final int queueCapacity = Integer
 			.parseInt(System.getProperty(AbstractKeyArrayIndexProcedure.class.getName() + ".queueCapacity", "0"));;
 
+	/**
+	 * When positive, the nodes and leaves spanned by the keys are read from
+	 * the backing store by up to this many concurrent tasks before the
+	 * procedure is applied in the caller's thread (see
+	 * {@link AbstractBTree#prefetch(IRaba, java.util.concurrent.Executor, int)}
+	 * ). This is only used when the procedure is not otherwise parallelized
+	 * (see {@link #maxReaders}) and the index is a local {@link AbstractBTree}
+	 * backed by an {@link IIndexManager}. Set to ZERO (0) to disable (this is
+	 * the historical behavior).
+	 */
+	transient static private final int prefetchReaders = Integer
+			.parseInt(System.getProperty(AbstractKeyArrayIndexProcedure.class.getName() + ".prefetchReaders", "0"));
+
 	static private class Stats {
 
 		/**
@@ -326,6 +339,44 @@ abstract public class AbstractKeyArrayIndexProcedure<T> extends
 
     }
 
+	/**
+	 * Read the nodes and leaves spanned by the {@link #getKeys() keys} using
+	 * concurrent IOs so that the caller's thread will not block on a
+	 * sequence of disk reads when it applies the procedure. This is a NOP
+	 * unless {@link #prefetchReaders} is positive and the index is an
+	 * {@link AbstractBTree} whose backing store is an {@link IIndexManager}.
+	 * 
+	 * @param ndx
+	 *            The index.
+	 */
+	private void prefetch(final IIndex ndx) {
+
+		if (prefetchReaders <= 0 || keys == null || keys.size() <= 1
+				|| !(ndx instanceof AbstractBTree)) {
+
+			return;
+
+		}
+
+		final AbstractBTree btree = (AbstractBTree) ndx;
+
+		final IRawStore store = btree.getStore();
+
+		if (!(store instanceof IIndexManager)) {
+
+			return;
+
+		}
+
+		final int nread = btree.prefetch(keys,
+				((IIndexManager) store).getExecutorService(), prefetchReaders);
+
+		if (log.isDebugEnabled())
+			log.debug("Prefetched " + nread + " pages for " + keys.size()
+					+ " keys: " + btree);
+
+	}
+
     /**
 	 * Applies the logic of the procedure.
 	 * <p>
@@ -377,6 +428,9 @@ abstract public class AbstractKeyArrayIndexProcedure<T> extends
 
 		if (maxReaders <= 0 || smallBatch || !(this instanceof IParallelizableIndexProcedure)) {
 
+			// Optionally read the pages spanned by the keys concurrently.
+			prefetch(ndx);
+
 			// Disables parallelism entirely.
 			return applyOnce(ndx, keys, vals);
 			
@@ -0,0 +1,897 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree.raba.codec;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.codec.FrontCodedRabaCoder.DefaultFrontCodedRabaCoder;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.Bytes;
+import com.bigdata.util.BytesUtil.UnsignedByteArrayComparator;
+
+/**
+ * Column-wise coding for B+Tree keys having a fixed length, such as the keys
+ * of the statement indices when the key components are term identifiers. Each
+ * key is divided into columns of a fixed width (the last column may be
+ * narrower) and each column is coded separately for the leaf:
+ * <ul>
+ * <li>If all keys have the same value for the column (e.g., the leading
+ * component of the keys in most leaves), that value is stored once.</li>
+ * <li>If the column has a small number of distinct values, the values are
+ * stored once in a sorted dictionary and each key stores a one byte code.</li>
+ * <li>Otherwise the column values are stored without compression.</li>
+ * </ul>
+ * Every key can be located in the coded record with constant effort, so
+ * {@link IRaba#search(byte[])} is a binary search which compares the probe key
+ * against the coded columns directly rather than materializing a
+ * <code>byte[]</code> for each key visited (front coding requires a linear
+ * scan of each bucket).
+ * <p>
+ * If the keys in a leaf do not all have the same length (e.g., when the key
+ * components are inline values of different datatypes) the keys are coded
+ * using a {@link DefaultFrontCodedRabaCoder} instead. This is decided
+ * independently for each leaf.
+ *
+ * <h2>Binary Format</h2>
+ *
+ * <pre>
+ * version   : byte
+ * mode      : byte (columnar or front coded)
+ * size      : int32
+ *
+ * -- columnar --
+ * keyLength : int32
+ * width     : int32
+ * columns   : ncolumns * (type : byte, offset : int32)
+ * data      : column data
+ *
+ * -- front coded --
+ * data      : the record coded by the {@link DefaultFrontCodedRabaCoder}
+ * </pre>
+ *
+ * where <code>ncolumns := ceil(keyLength / width)</code> and the data for a
+ * column is:
+ *
+ * <pre>
+ * raw        : size * columnWidth
+ * constant   : columnWidth
+ * dictionary : ndistinct - 1 : byte, ndistinct * columnWidth, size * code : byte
+ * </pre>
+ *
+ * The column offsets are relative to the start of the record.
+ * <p>
+ * Note: This is a key coder only.
+ */
+public class ColumnarKeyRabaCoder implements IRabaCoder, Externalizable {
+
+    private static final long serialVersionUID = -5519306226155568913L;
+
+    /**
+     * The default column width is the length of the key component for an
+     * <code>IV</code> which is a term identifier (a flags byte and a 64-bit
+     * term identifier).
+     */
+    public static final int DEFAULT_WIDTH = 1 + Bytes.SIZEOF_LONG;
+
+    private static final byte VERSION0 = 0x00;
+
+    /** The keys are coded by column. */
+    private static final byte MODE_COLUMNAR = 0x00;
+
+    /** The keys are coded by the {@link DefaultFrontCodedRabaCoder}. */
+    private static final byte MODE_FRONT_CODED = 0x01;
+
+    /** The column values are not compressed. */
+    private static final byte TYPE_RAW = 0x00;
+
+    /** All keys have the same value for the column. */
+    private static final byte TYPE_CONSTANT = 0x01;
+
+    /** The column values are coded using a dictionary. */
+    private static final byte TYPE_DICTIONARY = 0x02;
+
+    /** The maximum #of entries in a column dictionary. */
+    private static final int MAX_DICTIONARY_SIZE = 256;
+
+    /** The size of the version field. */
+    static private final int SIZEOF_VERSION = 1;
+    /** The size of the mode field. */
+    static private final int SIZEOF_MODE = 1;
+    /** The size of the size field. */
+    static private final int SIZEOF_SIZE = Bytes.SIZEOF_INT;
+    /** The size of an entry in the column directory. */
+    static private final int SIZEOF_COLUMN = 1 + Bytes.SIZEOF_INT;
+
+    /** The byte offset to the version identifier. */
+    static private final int O_VERSION = 0;
+    /** The byte offset of the mode. */
+    static private final int O_MODE = O_VERSION + SIZEOF_VERSION;
+    /** The byte offset of the field coding the #of entries in the raba. */
+    static private final int O_SIZE = O_MODE + SIZEOF_MODE;
+    /** The byte offset of the key length (columnar) or the front coded data. */
+    static private final int O_DATA = O_SIZE + SIZEOF_SIZE;
+    /** The byte offset of the column width (columnar). */
+    static private final int O_WIDTH = O_DATA + Bytes.SIZEOF_INT;
+    /** The byte offset of the column directory (columnar). */
+    static private final int O_COLUMNS = O_WIDTH + Bytes.SIZEOF_INT;
+
+    /**
+     * The width of a column.
+     */
+    private int width;
+
+    /**
+     * No.
+     */
+    @Override
+    final public boolean isValueCoder() {
+
+        return false;
+
+    }
+
+    /**
+     * Yes.
+     */
+    @Override
+    final public boolean isKeyCoder() {
+
+        return true;
+
+    }
+
+    @Override
+    public boolean isDuplicateKeys() {
+
+        return false;
+
+    }
+
+    /**
+     * The width of a column.
+     */
+    final public int getWidth() {
+
+        return width;
+
+    }
+
+    /**
+     * Uses the {@link #DEFAULT_WIDTH}. This is also the de-serialization
+     * constructor.
+     */
+    public ColumnarKeyRabaCoder() {
+
+        this(DEFAULT_WIDTH);
+
+    }
+
+    /**
+     * @param width
+     *            The width of a column.
+     */
+    public ColumnarKeyRabaCoder(final int width) {
+
+        if (width <= 0)
+            throw new IllegalArgumentException();
+
+        this.width = width;
+
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+        out.writeInt(width);
+
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        width = in.readInt();
+
+    }
+
+    /**
+     * Return the length of the keys iff all keys have the same non-zero length
+     * and otherwise <code>-1</code>.
+     */
+    private static int getKeyLength(final IRaba raba) {
+
+        final int size = raba.size();
+
+        if (size == 0)
+            return -1;
+
+        final int len = raba.length(0);
+
+        if (len == 0)
+            return -1;
+
+        for (int i = 1; i < size; i++) {
+
+            if (raba.length(i) != len)
+                return -1;
+
+        }
+
+        return len;
+
+    }
+
+    @Override
+    public ICodedRaba encodeLive(final IRaba raba, final DataOutputBuffer buf) {
+
+        if (raba == null)
+            throw new IllegalArgumentException();
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        if (!raba.isKeys())
+            throw new UnsupportedOperationException();
+
+        // The #of entries.
+        final int size = raba.size();
+
+        // The byte offset of the origin of the coded data in the buffer.
+        final int O_origin = buf.pos();
+
+        buf.ensureFree(O_DATA);
+
+        buf.putByte(VERSION0);
+
+        final int keyLength = getKeyLength(raba);
+
+        if (keyLength == -1) {
+
+            // Variable length keys (or no keys).
+            buf.putByte(MODE_FRONT_CODED);
+
+            buf.putInt(size);
+
+            final ICodedRaba delegate = DefaultFrontCodedRabaCoder.INSTANCE
+                    .encodeLive(raba, buf);
+
+            final AbstractFixedByteArrayBuffer slice = buf.slice(//
+                    O_origin, buf.pos() - O_origin);
+
+            return new FrontCodedRabaImpl(slice, delegate);
+
+        }
+
+        buf.putByte(MODE_COLUMNAR);
+
+        buf.putInt(size);
+
+        final int ncolumns = (keyLength + width - 1) / width;
+
+        buf.ensureFree(2 * Bytes.SIZEOF_INT + ncolumns * SIZEOF_COLUMN);
+
+        buf.putInt(keyLength);
+
+        buf.putInt(width);
+
+        // The position of the column directory.
+        final int O_dir = buf.pos();
+
+        // Reserve space for the column directory.
+        buf.advancePosAndLimit(ncolumns * SIZEOF_COLUMN);
+
+        final byte[][] keys = new byte[size][];
+
+        for (int i = 0; i < size; i++) {
+
+            keys[i] = raba.get(i);
+
+        }
+
+        for (int c = 0; c < ncolumns; c++) {
+
+            final int off = c * width;
+
+            final int wc = Math.min(width, keyLength - off);
+
+            // The offset of the column data relative to the origin.
+            final int O_column = buf.pos() - O_origin;
+
+            final byte type = encodeColumn(keys, off, wc, buf);
+
+            // Fill in the directory entry for the column.
+            final int O_entry = O_dir + c * SIZEOF_COLUMN;
+
+            buf.putByte(O_entry, type);
+
+            buf.putInt(O_entry + 1, O_column);
+
+        }
+
+        final AbstractFixedByteArrayBuffer slice = buf.slice(//
+                O_origin, buf.pos() - O_origin);
+
+        return new ColumnarRabaImpl(slice, size);
+
+    }
+
+    /**
+     * Code one column of the keys onto the buffer.
+     * 
+     * @param keys
+     *            The keys.
+     * @param off
+     *            The offset of the column in each key.
+     * @param wc
+     *            The width of the column.
+     * @param buf
+     *            The buffer.
+     * 
+     * @return The type of coding used for the column.
+     */
+    private static byte encodeColumn(final byte[][] keys, final int off,
+            final int wc, final DataOutputBuffer buf) {
+
+        final int size = keys.length;
+
+        /*
+         * Collect the distinct values for the column (in sorted order), giving
+         * up once there are too many for a dictionary.
+         */
+        final TreeMap<byte[], Integer> dict = new TreeMap<byte[], Integer>(
+                UnsignedByteArrayComparator.INSTANCE);
+
+        for (int i = 0; i < size && dict.size() <= MAX_DICTIONARY_SIZE; i++) {
+
+            final byte[] v = new byte[wc];
+
+            System.arraycopy(keys[i], off, v, 0, wc);
+
+            if (!dict.containsKey(v))
+                dict.put(v, null);
+
+        }
+
+        final int ndistinct = dict.size();
+
+        if (ndistinct == 1) {
+
+            buf.ensureFree(wc);
+
+            buf.put(keys[0], off, wc);
+
+            return TYPE_CONSTANT;
+
+        }
+
+        final int rawSize = size * wc;
+
+        final int dictSize = 1 + ndistinct * wc + size;
+
+        if (ndistinct > MAX_DICTIONARY_SIZE || dictSize >= rawSize) {
+
+            buf.ensureFree(rawSize);
+
+            for (int i = 0; i < size; i++) {
+
+                buf.put(keys[i], off, wc);
+
+            }
+
+            return TYPE_RAW;
+
+        }
+
+        buf.ensureFree(dictSize);
+
+        buf.putByte((byte) (ndistinct - 1));
+
+        // Write the sorted dictionary, assigning the codes in the same order.
+        int code = 0;
+
+        for (Map.Entry<byte[], Integer> e : dict.entrySet()) {
+
+            buf.put(e.getKey());
+
+            e.setValue(code++);
+
+        }
+
+        // Write the code for each key.
+        final byte[] v = new byte[wc];
+
+        for (int i = 0; i < size; i++) {
+
+            System.arraycopy(keys[i], off, v, 0, wc);
+
+            buf.putByte((byte) dict.get(v).intValue());
+
+        }
+
+        return TYPE_DICTIONARY;
+
+    }
+
+    @Override
+    public AbstractFixedByteArrayBuffer encode(final IRaba raba,
+            final DataOutputBuffer buf) {
+
+        return encodeLive(raba, buf).data();
+
+    }
+
+    @Override
+    public ICodedRaba decode(final AbstractFixedByteArrayBuffer data) {
+
+        final byte version = data.getByte(O_VERSION);
+
+        switch (version) {
+        case VERSION0:
+            break;
+        default:
+            throw new RuntimeException("Unknown version: " + version);
+        }
+
+        final int size = data.getInt(O_SIZE);
+
+        final byte mode = data.getByte(O_MODE);
+
+        switch (mode) {
+        case MODE_COLUMNAR:
+            return new ColumnarRabaImpl(data, size);
+        case MODE_FRONT_CODED:
+            return new FrontCodedRabaImpl(data,
+                    DefaultFrontCodedRabaCoder.INSTANCE.decode(data.slice(
+                            O_DATA, data.len() - O_DATA)));
+        default:
+            throw new RuntimeException("Unknown mode: " + mode);
+        }
+
+    }
+
+
+    /**
+     * Class provides in place access to the column coded keys.
+     */
+    private static class ColumnarRabaImpl extends AbstractCodedRaba {
+
+        private final AbstractFixedByteArrayBuffer data;
+
+        /**
+         * The #of entries (cached).
+         */
+        private final int size;
+
+        /**
+         * The length of each key.
+         */
+        private final int keyLength;
+
+        /**
+         * The width of each column.
+         */
+        private final int width;
+
+        /**
+         * The type of coding for each column.
+         */
+        private final byte[] types;
+
+        /**
+         * The offset of the data for each column relative to the origin of
+         * the backing array.
+         */
+        private final int[] offsets;
+
+        /**
+         * The #of entries in the dictionary for each column (zero unless the
+         * column is dictionary coded).
+         */
+        private final int[] ndict;
+
+        /**
+         * The backing array (cached).
+         */
+        private final byte[] a;
+
+        public ColumnarRabaImpl(final AbstractFixedByteArrayBuffer data,
+                final int size) {
+
+            if (data == null)
+                throw new IllegalArgumentException();
+
+            if (size < 0)
+                throw new IllegalArgumentException();
+
+            this.data = data;
+
+            this.size = size;
+
+            this.a = data.array();
+
+            this.keyLength = data.getInt(O_DATA);
+
+            this.width = data.getInt(O_WIDTH);
+
+            final int ncolumns = (keyLength + width - 1) / width;
+
+            types = new byte[ncolumns];
+
+            offsets = new int[ncolumns];
+
+            ndict = new int[ncolumns];
+
+            for (int c = 0; c < ncolumns; c++) {
+
+                final int O_entry = O_COLUMNS + c * SIZEOF_COLUMN;
+
+                types[c] = data.getByte(O_entry);
+
+                offsets[c] = data.off() + data.getInt(O_entry + 1);
+
+                if (types[c] == TYPE_DICTIONARY) {
+
+                    ndict[c] = (a[offsets[c]] & 0xff) + 1;
+
+                }
+
+            }
+
+        }
+
+        @Override
+        final public AbstractFixedByteArrayBuffer data() {
+
+            return data;
+
+        }
+
+        @Override
+        public boolean isKeys() {
+
+            return true;
+
+        }
+
+        @Override
+        final public int capacity() {
+
+            return size;
+
+        }
+
+        @Override
+        final public int size() {
+
+            return size;
+
+        }
+
+        @Override
+        final public boolean isEmpty() {
+
+            return size == 0;
+
+        }
+
+        @Override
+        final public boolean isFull() {
+
+            return true;
+
+        }
+
+        protected void rangeCheck(final int index) {
+
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException();
+
+        }
+
+        @Override
+        public boolean isNull(final int index) {
+
+            rangeCheck(index);
+
+            return false;
+
+        }
+
+        @Override
+        public int length(final int index) {
+
+            rangeCheck(index);
+
+            return keyLength;
+
+        }
+
+        /**
+         * Return the offset in the backing array of the value of the column
+         * for the key at the given index.
+         */
+        private int valueOffset(final int c, final int index) {
+
+            final int off = offsets[c];
+
+            final int wc = Math.min(width, keyLength - c * width);
+
+            switch (types[c]) {
+            case TYPE_RAW:
+                return off + index * wc;
+            case TYPE_CONSTANT:
+                return off;
+            case TYPE_DICTIONARY: {
+                final int n = ndict[c];
+                final int code = a[off + 1 + n * wc + index] & 0xff;
+                return off + 1 + code * wc;
+            }
+            default:
+                throw new AssertionError();
+            }
+
+        }
+
+        @Override
+        public byte[] get(final int index) {
+
+            rangeCheck(index);
+
+            final byte[] b = new byte[keyLength];
+
+            for (int c = 0, pos = 0; c < types.length; c++, pos += width) {
+
+                final int wc = Math.min(width, keyLength - pos);
+
+                System.arraycopy(a, valueOffset(c, index), b, pos, wc);
+
+            }
+
+            return b;
+
+        }
+
+        @Override
+        public int copy(final int index, final OutputStream os) {
+
+            rangeCheck(index);
+
+            try {
+
+                for (int c = 0, pos = 0; c < types.length; c++, pos += width) {
+
+                    final int wc = Math.min(width, keyLength - pos);
+
+                    os.write(a, valueOffset(c, index), wc);
+
+                }
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+            return keyLength;
+
+        }
+
+        /**
+         * Compare the key at the given index with the probe key using the
+         * unsigned byte[] ordering.
+         * 
+         * @return A negative integer, zero, or a positive integer as the key
+         *         is less than, equal to, or greater than the probe key.
+         */
+        private int compare(final int index, final byte[] key) {
+
+            for (int c = 0, pos = 0; c < types.length; c++, pos += width) {
+
+                final int wc = Math.min(width, keyLength - pos);
+
+                final int off = valueOffset(c, index);
+
+                for (int j = 0; j < wc; j++) {
+
+                    if (pos + j >= key.length) {
+
+                        // The probe key is a prefix of this key.
+                        return 1;
+
+                    }
+
+                    final int ret = (a[off + j] & 0xff)
+                            - (key[pos + j] & 0xff);
+
+                    if (ret != 0)
+                        return ret;
+
+                }
+
+            }
+
+            // This key is the same as or a prefix of the probe key.
+            return keyLength == key.length ? 0 : -1;
+
+        }
+
+        /**
+         * Binary search which compares the probe key against the coded
+         * columns without materializing the keys.
+         */
+        @Override
+        public int search(final byte[] key) {
+
+            if (key == null)
+                throw new IllegalArgumentException();
+
+            int low = 0;
+
+            int high = size - 1;
+
+            while (low <= high) {
+
+                final int mid = (low + high) >>> 1;
+
+                final int ret = compare(mid, key);
+
+                if (ret < 0) {
+
+                    low = mid + 1;
+
+                } else if (ret > 0) {
+
+                    high = mid - 1;
+
+                } else {
+
+                    // Found.
+                    return mid;
+
+                }
+
+            }
+
+            // Not found: return the insertion point.
+            return -(low + 1);
+
+        }
+
+    }
+
+    /**
+     * Wraps the {@link ICodedRaba} decoded by the
+     * {@link DefaultFrontCodedRabaCoder} so that {@link #data()} reports the
+     * entire coded record (including the header written by this class).
+     */
+    private static class FrontCodedRabaImpl extends AbstractCodedRaba {
+
+        private final AbstractFixedByteArrayBuffer data;
+
+        private final ICodedRaba delegate;
+
+        public FrontCodedRabaImpl(final AbstractFixedByteArrayBuffer data,
+                final ICodedRaba delegate) {
+
+            if (data == null)
+                throw new IllegalArgumentException();
+
+            if (delegate == null)
+                throw new IllegalArgumentException();
+
+            this.data = data;
+
+            this.delegate = delegate;
+
+        }
+
+        @Override
+        final public AbstractFixedByteArrayBuffer data() {
+
+            return data;
+
+        }
+
+        @Override
+        public boolean isKeys() {
+
+            return true;
+
+        }
+
+        @Override
+        public int capacity() {
+
+            return delegate.capacity();
+
+        }
+
+        @Override
+        public int size() {
+
+            return delegate.size();
+
+        }
+
+        @Override
+        public boolean isEmpty() {
+
+            return delegate.isEmpty();
+
+        }
+
+        @Override
+        public boolean isFull() {
+
+            return delegate.isFull();
+
+        }
+
+        @Override
+        public boolean isNull(final int index) {
+
+            return delegate.isNull(index);
+
+        }
+
+        @Override
+        public int length(final int index) {
+
+            return delegate.length(index);
+
+        }
+
+        @Override
+        public byte[] get(final int index) {
+
+            return delegate.get(index);
+
+        }
+
+        @Override
+        public int copy(final int index, final OutputStream os) {
+
+            return delegate.copy(index, os);
+
+        }
+
+        @Override
+        public int search(final byte[] key) {
+
+            return delegate.search(key);
+
+        }
+
+    }
+
+}
@@ -45,6 +45,7 @@ import org.apache.system.SystemUtil;
 
 import com.bigdata.Banner;
 import com.bigdata.BigdataStatics;
+import com.bigdata.btree.NodeRecordCache;
 import com.bigdata.counters.httpd.CounterSetHTTPD;
 import com.bigdata.counters.linux.StatisticsCollectorForLinux;
 import com.bigdata.counters.osx.StatisticsCollectorForOSX;
@@ -330,6 +331,20 @@ abstract public class AbstractStatisticsCollector implements IStatisticsCollecto
                             + "DirectBufferPool").attach(
                     DirectBufferPool.getCounters());
 
+            if (NodeRecordCache.INSTANCE != null) {
+
+                /*
+                 * Add counters reporting on the native memory cache for the
+                 * coded node and leaf records.
+                 */
+
+                serviceRoot.makePath(
+                        IProcessCounters.Memory + ICounterSet.pathSeparator
+                                + "NodeRecordCache").attach(
+                        NodeRecordCache.INSTANCE.getCounters());
+
+            }
+
 //          @see BLZG-1501 (remove LRUNexus)
 //            if (LRUNexus.INSTANCE != null) {
 //
@@ -11,6 +11,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
@@ -1964,6 +1965,13 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 //        assert dirtyLevelCount <= getHeight() + 1 : "dirtyLevelCount=" + dirtyLevelCount + ", height=" + getHeight()
 //                + ", dirtyMap.keys=" + dirtyMap.keySet();
 
+        /*
+         * NodeSerializer instances for the parallel eviction tasks. These are
+         * created on demand and reused across the levels, so there are never
+         * more instances than the maximum #of concurrent eviction tasks.
+         */
+        final ConcurrentLinkedQueue<NodeSerializer> nodeSerPool = new ConcurrentLinkedQueue<NodeSerializer>();
+
         /*
          * Now evict each dirtyList in parallel starting at the deepest, and
          * then proceeding one by one until we reach the list at level ZERO (the
@@ -1997,8 +2005,8 @@ abstract public class AbstractHTree implements ICounterSetAccess,
                     
                 }
 
-//                if (log.isInfoEnabled())
-                    log.error("Evicting " + dirtyListSize + " dirty nodes/leaves using " + nparallel + " threads.");
+                if (log.isInfoEnabled())
+                    log.info("Evicting " + dirtyListSize + " dirty nodes/leaves using " + nparallel + " threads.");
 
             } else {
 
@@ -2033,19 +2041,34 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 
                                 }
 
-                                // An instance just for this thread.
-                                final NodeSerializer myNodeSer = new NodeSerializer(//
-                                        store, // addressManager
-                                        nodeSer.nodeFactory,//
-                                        addressBits,//
-                                        nodeSer.getWriteBufferCapacity(),//
-                                        metadata,//
-                                        readOnly,//
-                                        nodeSer.recordCompressorFactory
-                                        );
-
-                                // write dirty node on store (non-recursive)
-                                writeNodeOrLeaf(u, myNodeSer);
+                                // An instance which is not in use by another thread.
+                                NodeSerializer myNodeSer = nodeSerPool.poll();
+
+                                if (myNodeSer == null) {
+
+                                    myNodeSer = new NodeSerializer(//
+                                            store, // addressManager
+                                            nodeSer.nodeFactory,//
+                                            addressBits,//
+                                            nodeSer.getWriteBufferCapacity(),//
+                                            metadata,//
+                                            readOnly,//
+                                            nodeSer.recordCompressorFactory
+                                            );
+
+                                }
+
+                                try {
+
+                                    // write dirty node on store (non-recursive)
+                                    writeNodeOrLeaf(u, myNodeSer);
+
+                                } finally {
+
+                                    // Return the instance for reuse.
+                                    nodeSerPool.offer(myNodeSer);
+
+                                }
 
         }
 
@@ -55,6 +55,14 @@ public class CompressorRegistry {
      */
     final public static String GZIP = "GZIP";
     
+    /**
+     * Key for LZ4 compression (fast, but a lower compression ratio than
+     * {@link Deflater}).
+     * 
+     * @see LZ4Compressor
+     */
+    final public static String LZ4 = "LZ4";
+
     /**
      * Key for no compression.
      * <p>
@@ -80,6 +88,7 @@ public class CompressorRegistry {
 		add(DEFLATE_BEST_SPEED, new RecordCompressor(Deflater.BEST_SPEED));
 		add(DEFLATE_BEST_COMPRESSION, new RecordCompressor(Deflater.BEST_COMPRESSION));
 		add(GZIP, new GZipCompressor());
+		add(LZ4, new LZ4Compressor());
 		add(NOP, new NOPRecordCompressor());
 	}
 	
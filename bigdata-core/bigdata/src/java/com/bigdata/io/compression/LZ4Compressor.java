@@ -0,0 +1,786 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.io.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pure Java implementation of the LZ4 block format. LZ4 trades compression
+ * ratio for speed. Decompression is a sequence of literal and match copies and
+ * is typically an order of magnitude faster than {@link RecordCompressor},
+ * which makes it suitable for compressing the nodes and leaves of indices on
+ * the read path.
+ * <p>
+ * The compressed record is the uncompressed length (int32) followed by a
+ * single LZ4 block.
+ * <p>
+ * An optional dictionary may be specified. The dictionary is treated as if it
+ * immediately preceded each record, so matches may refer back into the
+ * dictionary. This is useful for small records having a lot of redundancy
+ * across records but little within a record (e.g., the leaves of the ID2TERM
+ * and BLOBS indices). The same dictionary MUST be used to decompress a record
+ * as was used to compress it. See {@link #trainDictionary(Iterator, int)}.
+ * <p>
+ * This class is thread-safe. Unlike {@link RecordCompressor}, the decompressed
+ * data are returned in a new buffer which is not shared with other requests.
+ */
+public class LZ4Compressor implements IRecordCompressor, Externalizable {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = -3154384924367431282L;
+
+    /** The minimum length of a match. */
+    private static final int MIN_MATCH = 4;
+
+    /** The last 5 bytes of the input are always coded as literals. */
+    private static final int LAST_LITERALS = 5;
+
+    /** A match may not start within the last 12 bytes of the input. */
+    private static final int MF_LIMIT = 12;
+
+    /** The maximum distance to a match. */
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+
+    /** log2 of the size of the hash table. */
+    private static final int HASH_LOG = 12;
+
+    /**
+     * Controls how quickly the compressor skips ahead through incompressible
+     * data.
+     */
+    private static final int SKIP_STRENGTH = 6;
+
+    /** The size of the header (the uncompressed length). */
+    private static final int SIZEOF_HEADER = 4;
+
+    /**
+     * The maximum length of a dictionary. Only the last {@link #MAX_DISTANCE}
+     * bytes of a dictionary may be referenced by a match.
+     */
+    public static final int MAX_DICTIONARY_LENGTH = MAX_DISTANCE;
+
+    /**
+     * The dictionary (optional).
+     */
+    private byte[] dictionary;
+
+    public String toString() {
+
+        return getClass().getName() + "{dictionaryLength="
+                + (dictionary == null ? 0 : dictionary.length) + "}";
+
+    }
+
+    /**
+     * Create a compressor without a dictionary. This is also the
+     * de-serialization constructor.
+     */
+    public LZ4Compressor() {
+
+        this(null/* dictionary */);
+
+    }
+
+    /**
+     * Create a compressor using a dictionary.
+     * 
+     * @param dictionary
+     *            The dictionary (optional). At most
+     *            {@link #MAX_DICTIONARY_LENGTH} bytes are used. If the
+     *            dictionary is longer, then its trailing bytes are used.
+     */
+    public LZ4Compressor(final byte[] dictionary) {
+
+        this.dictionary = truncate(dictionary);
+
+    }
+
+    private static byte[] truncate(final byte[] dictionary) {
+
+        if (dictionary == null || dictionary.length == 0)
+            return null;
+
+        if (dictionary.length <= MAX_DICTIONARY_LENGTH)
+            return dictionary;
+
+        return Arrays.copyOfRange(dictionary, dictionary.length
+                - MAX_DICTIONARY_LENGTH, dictionary.length);
+
+    }
+
+    /**
+     * The maximum length of the compressed record for an input of the given
+     * length.
+     */
+    static public int maxCompressedLength(final int len) {
+
+        return SIZEOF_HEADER + len + len / 255 + 16;
+
+    }
+
+    @Override
+    public void compress(final ByteBuffer bin, final ByteBuffer out) {
+
+        final byte[] a = toByteArray(bin);
+
+        out.put(a);
+
+    }
+
+    @Override
+    public ByteBuffer compress(final ByteBuffer bin) {
+
+        return ByteBuffer.wrap(toByteArray(bin));
+
+    }
+
+    @Override
+    public void compress(final ByteBuffer bin, final OutputStream os) {
+
+        try {
+
+            os.write(toByteArray(bin));
+
+        } catch (IOException ex) {
+
+            throw new RuntimeException(ex);
+
+        }
+
+    }
+
+    @Override
+    public void compress(final byte[] bytes, final OutputStream os) {
+
+        compress(bytes, 0, bytes.length, os);
+
+    }
+
+    @Override
+    public void compress(final byte[] bytes, final int off, final int len,
+            final OutputStream os) {
+
+        final byte[] dst = new byte[maxCompressedLength(len)];
+
+        final int n = compress(bytes, off, len, dst, 0/* dstoff */);
+
+        try {
+
+            os.write(dst, 0, n);
+
+        } catch (IOException ex) {
+
+            throw new RuntimeException(ex);
+
+        }
+
+    }
+
+    /**
+     * Compress the data from the position to the limit, advancing the position
+     * to the limit, and return an exact fit byte[] containing the compressed
+     * record.
+     */
+    private byte[] toByteArray(final ByteBuffer bin) {
+
+        final int len = bin.remaining();
+
+        final byte[] src;
+        final int off;
+        if (bin.hasArray()) {
+            src = bin.array();
+            off = bin.arrayOffset() + bin.position();
+            bin.position(bin.limit());
+        } else {
+            src = new byte[len];
+            off = 0;
+            bin.get(src);
+        }
+
+        final byte[] dst = new byte[maxCompressedLength(len)];
+
+        final int n = compress(src, off, len, dst, 0/* dstoff */);
+
+        return Arrays.copyOf(dst, n);
+
+    }
+
+    /**
+     * Compress a record.
+     * 
+     * @param src
+     *            The source data.
+     * @param srcOff
+     *            The offset of the first byte to be compressed.
+     * @param srcLen
+     *            The #of bytes to be compressed.
+     * @param dst
+     *            The compressed record is written here. The caller must
+     *            ensure that there are at least
+     *            {@link #maxCompressedLength(int)} bytes available.
+     * @param dstOff
+     *            The offset at which the compressed record will be written.
+     * 
+     * @return The #of bytes in the compressed record.
+     */
+    public int compress(final byte[] src, final int srcOff, final int srcLen,
+            final byte[] dst, final int dstOff) {
+
+        if (srcOff < 0 || srcLen < 0 || srcOff + srcLen > src.length)
+            throw new IllegalArgumentException();
+
+        putInt(dst, dstOff, srcLen);
+
+        /*
+         * The input is addressed within [in]. When there is a dictionary, the
+         * dictionary and the source data are copied into a single array so the
+         * match finder does not need to distinguish between them.
+         */
+        final byte[] in;
+        final int base, lowLimit;
+        if (dictionary == null) {
+            in = src;
+            base = srcOff;
+            lowLimit = srcOff;
+        } else {
+            in = new byte[dictionary.length + srcLen];
+            System.arraycopy(dictionary, 0, in, 0, dictionary.length);
+            System.arraycopy(src, srcOff, in, dictionary.length, srcLen);
+            base = dictionary.length;
+            lowLimit = 0;
+        }
+
+        final int end = base + srcLen;
+
+        final int matchLimit = end - LAST_LITERALS;
+
+        final int mfLimit = end - MF_LIMIT;
+
+        int op = dstOff + SIZEOF_HEADER;
+
+        int anchor = base;
+
+        if (srcLen >= MF_LIMIT + 1) {
+
+            final int[] table = new int[1 << HASH_LOG];
+
+            Arrays.fill(table, -1);
+
+            if (dictionary != null) {
+
+                for (int p = 0; p + MIN_MATCH <= base; p++) {
+
+                    table[hash(getInt(in, p))] = p;
+
+                }
+
+            }
+
+            int ip = base;
+
+            search: while (true) {
+
+                // Find a match.
+                int ref;
+                int step = 1;
+                int attempts = 1 << SKIP_STRENGTH;
+                int next = ip;
+                do {
+
+                    ip = next;
+
+                    next = ip + step;
+
+                    step = attempts++ >>> SKIP_STRENGTH;
+
+                    if (next > mfLimit)
+                        break search;
+
+                    final int h = hash(getInt(in, ip));
+
+                    ref = table[h];
+
+                    table[h] = ip;
+
+                } while (ref < lowLimit || ip - ref > MAX_DISTANCE
+                        || getInt(in, ref) != getInt(in, ip));
+
+                // Extend the match backwards.
+                while (ip > anchor && ref > lowLimit
+                        && in[ip - 1] == in[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+
+                // Code the literals.
+                final int litLen = ip - anchor;
+
+                final int tokenPos = op++;
+
+                int token;
+                if (litLen >= 15) {
+                    token = 15 << 4;
+                    op = putLength(dst, op, litLen - 15);
+                } else {
+                    token = litLen << 4;
+                }
+
+                System.arraycopy(in, anchor, dst, op, litLen);
+
+                op += litLen;
+
+                // Code the match.
+                final int offset = ip - ref;
+
+                dst[op++] = (byte) offset;
+                dst[op++] = (byte) (offset >>> 8);
+
+                ip += MIN_MATCH;
+                ref += MIN_MATCH;
+
+                int matchLen = 0;
+                while (ip < matchLimit && in[ip] == in[ref]) {
+                    ip++;
+                    ref++;
+                    matchLen++;
+                }
+
+                if (matchLen >= 15) {
+                    token |= 15;
+                    op = putLength(dst, op, matchLen - 15);
+                } else {
+                    token |= matchLen;
+                }
+
+                dst[tokenPos] = (byte) token;
+
+                anchor = ip;
+
+                if (ip > mfLimit)
+                    break;
+
+                // Index a position within the match.
+                table[hash(getInt(in, ip - 2))] = ip - 2;
+
+            }
+
+        }
+
+        // Code the last literals.
+        final int litLen = end - anchor;
+
+        if (litLen >= 15) {
+            dst[op++] = (byte) (15 << 4);
+            op = putLength(dst, op, litLen - 15);
+        } else {
+            dst[op++] = (byte) (litLen << 4);
+        }
+
+        System.arraycopy(in, anchor, dst, op, litLen);
+
+        op += litLen;
+
+        return op - dstOff;
+
+    }
+
+    @Override
+    public ByteBuffer decompress(final ByteBuffer bin) {
+
+        final int len = bin.remaining();
+
+        final byte[] src;
+        final int off;
+        if (bin.hasArray()) {
+            src = bin.array();
+            off = bin.arrayOffset() + bin.position();
+        } else {
+            src = new byte[len];
+            off = 0;
+            bin.duplicate().get(src);
+        }
+
+        return ByteBuffer.wrap(decompress(src, off, len));
+
+    }
+
+    @Override
+    public ByteBuffer decompress(final byte[] bin) {
+
+        return ByteBuffer.wrap(decompress(bin, 0, bin.length));
+
+    }
+
+    /**
+     * Decompress a record.
+     * 
+     * @param src
+     *            The compressed record.
+     * @param srcOff
+     *            The offset of the compressed record.
+     * @param srcLen
+     *            The length of the compressed record.
+     * 
+     * @return The decompressed data.
+     * 
+     * @throws RuntimeException
+     *             if the record is corrupt.
+     */
+    public byte[] decompress(final byte[] src, final int srcOff,
+            final int srcLen) {
+
+        if (srcLen < SIZEOF_HEADER + 1)
+            throw new RuntimeException("Corrupt record: length=" + srcLen);
+
+        final int dstLen = getInt(src, srcOff);
+
+        // Note: a sequence can not expand to more than 255 bytes per byte.
+        if (dstLen < 0 || dstLen > 255L * srcLen)
+            throw new RuntimeException("Corrupt record: length=" + dstLen);
+
+        final byte[] dst = new byte[dstLen];
+
+        final int end = srcOff + srcLen;
+
+        int ip = srcOff + SIZEOF_HEADER;
+
+        int op = 0;
+
+        try {
+
+            while (true) {
+
+                final int token = src[ip++] & 0xff;
+
+                // Copy the literals.
+                int litLen = token >>> 4;
+
+                if (litLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        litLen += b;
+                    } while (b == 255);
+                }
+
+                if (ip + litLen > end || op + litLen > dstLen)
+                    throw new RuntimeException("Corrupt record");
+
+                System.arraycopy(src, ip, dst, op, litLen);
+
+                ip += litLen;
+
+                op += litLen;
+
+                if (ip == end) {
+
+                    // The last sequence has no match.
+                    break;
+
+                }
+
+                if (ip + 2 > end)
+                    throw new RuntimeException("Corrupt record");
+
+                // Copy the match.
+                final int offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+
+                ip += 2;
+
+                int matchLen = token & 0x0f;
+
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+
+                matchLen += MIN_MATCH;
+
+                if (offset == 0 || op + matchLen > dstLen)
+                    throw new RuntimeException("Corrupt record");
+
+                int ref = op - offset;
+
+                if (ref < 0) {
+
+                    // The match begins in the dictionary.
+                    final int dictLen = dictionary == null ? 0
+                            : dictionary.length;
+
+                    final int dictPos = dictLen + ref;
+
+                    if (dictPos < 0)
+                        throw new RuntimeException("Corrupt record");
+
+                    final int n = Math.min(matchLen, dictLen - dictPos);
+
+                    System.arraycopy(dictionary, dictPos, dst, op, n);
+
+                    op += n;
+
+                    matchLen -= n;
+
+                    ref = 0;
+
+                }
+
+                if (op - ref >= matchLen) {
+
+                    System.arraycopy(dst, ref, dst, op, matchLen);
+
+                    op += matchLen;
+
+                } else {
+
+                    // Overlapping copy.
+                    for (int i = 0; i < matchLen; i++) {
+
+                        dst[op++] = dst[ref++];
+
+                    }
+
+                }
+
+            }
+
+        } catch (ArrayIndexOutOfBoundsException ex) {
+
+            throw new RuntimeException("Corrupt record", ex);
+
+        }
+
+        if (op != dstLen)
+            throw new RuntimeException("Corrupt record: expected=" + dstLen
+                    + ", actual=" + op);
+
+        return dst;
+
+    }
+
+    private static int hash(final int i) {
+
+        return (i * -1640531535) >>> (32 - HASH_LOG);
+
+    }
+
+    private static int getInt(final byte[] a, final int off) {
+
+        return ((a[off] & 0xff) << 24) | ((a[off + 1] & 0xff) << 16)
+                | ((a[off + 2] & 0xff) << 8) | (a[off + 3] & 0xff);
+
+    }
+
+    private static void putInt(final byte[] a, final int off, final int v) {
+
+        a[off] = (byte) (v >>> 24);
+        a[off + 1] = (byte) (v >>> 16);
+        a[off + 2] = (byte) (v >>> 8);
+        a[off + 3] = (byte) v;
+
+    }
+
+    /**
+     * Code the remainder of a literal or match length.
+     * 
+     * @return The new offset in the output.
+     */
+    private static int putLength(final byte[] dst, int op, int len) {
+
+        while (len >= 255) {
+
+            dst[op++] = (byte) 255;
+
+            len -= 255;
+
+        }
+
+        dst[op++] = (byte) len;
+
+        return op;
+
+    }
+
+    /**
+     * The length of the sequences which are counted when training a
+     * dictionary.
+     */
+    private static final int SEGMENT_LENGTH = 16;
+
+    /**
+     * Build a dictionary from sample records. Each record is broken into
+     * sequences of {@value #SEGMENT_LENGTH} bytes and the dictionary is
+     * assembled from the sequences which occur most frequently across the
+     * samples. The most frequent sequences are placed at the end of the
+     * dictionary, where they are closest to the record being compressed.
+     * 
+     * @param samples
+     *            The sample records.
+     * @param capacity
+     *            The maximum length of the dictionary (at most
+     *            {@link #MAX_DICTIONARY_LENGTH}).
+     * 
+     * @return The dictionary. This will be empty if no sequence occurs more
+     *         than once.
+     */
+    public static byte[] trainDictionary(final Iterator<byte[]> samples,
+            final int capacity) {
+
+        if (samples == null)
+            throw new IllegalArgumentException();
+
+        if (capacity <= 0 || capacity > MAX_DICTIONARY_LENGTH)
+            throw new IllegalArgumentException();
+
+        // The #of occurrences of each sequence.
+        final Map<ByteBuffer, int[]> counts = new HashMap<ByteBuffer, int[]>();
+
+        while (samples.hasNext()) {
+
+            final byte[] a = samples.next();
+
+            for (int off = 0; off + SEGMENT_LENGTH <= a.length; off += SEGMENT_LENGTH / 2) {
+
+                final ByteBuffer key = ByteBuffer.wrap(a, off, SEGMENT_LENGTH)
+                        .slice();
+
+                final int[] n = counts.get(key);
+
+                if (n == null) {
+
+                    counts.put(key, new int[] { 1 });
+
+                } else {
+
+                    n[0]++;
+
+                }
+
+            }
+
+        }
+
+        final List<Map.Entry<ByteBuffer, int[]>> entries = new ArrayList<Map.Entry<ByteBuffer, int[]>>(
+                counts.entrySet());
+
+        // Most frequent first.
+        Collections.sort(entries,
+                new Comparator<Map.Entry<ByteBuffer, int[]>>() {
+                    @Override
+                    public int compare(final Map.Entry<ByteBuffer, int[]> o1,
+                            final Map.Entry<ByteBuffer, int[]> o2) {
+                        return o2.getValue()[0] - o1.getValue()[0];
+                    }
+                });
+
+        final ByteArrayOutputStream selected = new ByteArrayOutputStream();
+
+        final List<ByteBuffer> tmp = new ArrayList<ByteBuffer>();
+
+        for (Map.Entry<ByteBuffer, int[]> e : entries) {
+
+            if (e.getValue()[0] < 2)
+                break;
+
+            if ((tmp.size() + 1) * SEGMENT_LENGTH > capacity)
+                break;
+
+            tmp.add(e.getKey());
+
+        }
+
+        // Least frequent first so the most frequent are at the end.
+        Collections.reverse(tmp);
+
+        for (ByteBuffer b : tmp) {
+
+            final byte[] a = new byte[SEGMENT_LENGTH];
+
+            b.duplicate().get(a);
+
+            selected.write(a, 0, a.length);
+
+        }
+
+        return selected.toByteArray();
+
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        final int len = in.readInt();
+
+        if (len == 0) {
+
+            dictionary = null;
+
+        } else {
+
+            dictionary = new byte[len];
+
+            in.readFully(dictionary);
+
+        }
+
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+        if (dictionary == null) {
+
+            out.writeInt(0);
+
+        } else {
+
+            out.writeInt(dictionary.length);
+
+            out.write(dictionary);
+
+        }
+
+    }
+
+}
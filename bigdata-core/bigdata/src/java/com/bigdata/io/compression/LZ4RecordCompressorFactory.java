@@ -0,0 +1,136 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.io.compression;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import com.bigdata.btree.IndexMetadata;
+
+/**
+ * A serializable compression provider based on {@link LZ4Compressor}. Since
+ * the {@link LZ4Compressor} is thread-safe, the same instance is returned by
+ * each request.
+ * <p>
+ * The factory may be configured for an index using
+ * {@link IndexMetadata.Options#BTREE_RECORD_COMPRESSOR_FACTORY} (without a
+ * dictionary) or {@link IndexMetadata#setBtreeRecordCompressorFactory(IRecordCompressorFactory)}.
+ * The dictionary (if any) is serialized with the factory and hence with the
+ * {@link IndexMetadata}.
+ */
+public class LZ4RecordCompressorFactory implements
+        IRecordCompressorFactory<LZ4Compressor>, Externalizable {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 2771066826101003544L;
+
+    private transient LZ4Compressor compressor;
+
+    private byte[] dictionary;
+
+    public String toString() {
+
+        return getClass().getName() + "{dictionaryLength="
+                + (dictionary == null ? 0 : dictionary.length) + "}";
+
+    }
+
+    /**
+     * Factory without a dictionary. This is also the de-serialization
+     * constructor.
+     */
+    public LZ4RecordCompressorFactory() {
+
+        this(null/* dictionary */);
+
+    }
+
+    /**
+     * Factory using a dictionary.
+     * 
+     * @param dictionary
+     *            The dictionary (optional).
+     * 
+     * @see LZ4Compressor#trainDictionary(java.util.Iterator, int)
+     */
+    public LZ4RecordCompressorFactory(final byte[] dictionary) {
+
+        this.dictionary = dictionary;
+
+        this.compressor = new LZ4Compressor(dictionary);
+
+    }
+
+    @Override
+    public LZ4Compressor getInstance() {
+
+        return compressor;
+
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        final int len = in.readInt();
+
+        if (len == 0) {
+
+            dictionary = null;
+
+        } else {
+
+            dictionary = new byte[len];
+
+            in.readFully(dictionary);
+
+        }
+
+        compressor = new LZ4Compressor(dictionary);
+
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+        if (dictionary == null) {
+
+            out.writeInt(0);
+
+        } else {
+
+            out.writeInt(dictionary.length);
+
+            out.write(dictionary);
+
+        }
+
+    }
+
+}
@@ -63,6 +63,16 @@ public interface IWriteCacheCounters {
      * The effective hit rate for the cache.
      */
     String HIT_RATE = "hitRate";
+    /**
+     * The #of optimistic (lock-free) reads which were retried because the
+     * cache was concurrently reset or rewritten.
+     */
+    String NREAD_RETRY = "nreadRetry";
+    /**
+     * The #of reads which fell back to taking the read lock after repeated
+     * optimistic read failures.
+     */
+    String NREAD_LOCKED = "nreadLocked";
     /**
      * The #of records that were accepted by the cache.
      */
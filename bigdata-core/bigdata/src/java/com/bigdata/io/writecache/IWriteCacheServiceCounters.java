@@ -213,4 +213,21 @@ public interface IWriteCacheServiceCounters {
      */
     String MEMO_CACHE_SIZE = "memoCacheSize";
 
+    /**
+     * The #of read requests satisfied by a dirty or clean write cache buffer.
+     */
+    String NREAD_WRITE_CACHE_HIT = "nreadWriteCacheHit";
+
+    /**
+     * The #of read requests satisfied by a read cache buffer.
+     */
+    String NREAD_READ_CACHE_HIT = "nreadReadCacheHit";
+
+    /**
+     * The #of times a read found a cache buffer in the service map which no
+     * longer held the record (because it was concurrently compacted, moved to
+     * the read cache or reset) and retried the lookup.
+     */
+    String NREAD_SERVICE_MAP_RETRY = "nreadServiceMapRetry";
+
 } // interface IWriteCacheCounters
@@ -146,6 +146,53 @@ abstract public class WriteCache implements IWriteCache {
      */
     final private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * Version used to validate optimistic (lock-free) reads. The version is
+     * odd while the buffer contents or the {@link #recordMap} are being reset
+     * or rewritten and is advanced again once that operation is done. A read
+     * which copies a record without holding the {@link #lock} is valid iff the
+     * version was even and unchanged across the copy. The version is
+     * revalidated with a CAS rather than a volatile read since a volatile read
+     * does not prevent the preceding (plain) reads of the buffer from being
+     * reordered after it. The CAS is also a volatile write, which they can not
+     * pass (there is no <code>loadFence()</code> for Java 7).
+     * <p>
+     * Note: Writes which append new records do not change the version since
+     * the data for a record is always written before the record is entered
+     * into the {@link #recordMap}. Likewise,
+     * {@link #flush(boolean, long, TimeUnit)} does not change the buffer
+     * contents, so optimistic readers are not blocked while a buffer is being
+     * written onto the disk.
+     * 
+     * @see #read(long, int)
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * The maximum #of optimistic read attempts before a reader falls back to
+     * {@link #acquire()}.
+     */
+    private static final int MAX_OPTIMISTIC_READS = 3;
+
+    /**
+     * Mark the start of a change to the buffer contents or the record map
+     * which invalidates optimistic reads.
+     */
+    private void beginMutation() {
+
+        version.incrementAndGet();
+
+    }
+
+    /**
+     * Mark the end of a change started by {@link #beginMutation()}.
+     */
+    private void endMutation() {
+
+        version.incrementAndGet();
+
+    }
+
     /**
      * Return the backing {@link ByteBuffer}. The caller may read or write on
      * the buffer, but MUST NOT have a side effect on the
@@ -1030,6 +1077,130 @@ abstract public class WriteCache implements IWriteCache {
 
         final WriteCacheCounters counters = this.counters.get();
 
+        for (int i = 0; i < MAX_OPTIMISTIC_READS; i++) {
+
+            final long v = version.get();
+
+            if ((v & 1L) != 0) {
+
+                // Concurrent reset or rewrite of the buffer.
+                counters.nreadRetry.increment();
+
+                Thread.yield();
+
+                continue;
+
+            }
+
+            final IBufferAccess b = buf.get();
+
+            if (b == null) {
+
+                // Closed.
+                throw new IllegalStateException();
+
+            }
+
+            final ByteBuffer tmp = b.buffer();
+
+            final RecordMetadata md = recordMap.get(offset);
+
+            if (md == null) {
+
+                /*
+                 * The record is not in this write cache. This does not need to
+                 * be validated since a concurrent reset would also remove the
+                 * record.
+                 */
+                counters.nmiss.increment();
+
+                return null;
+
+            }
+
+            // length of the record w/o checksum field.
+            final int reclen = md.recordLength - (useChecksum ? 4 : 0);
+
+            // the start of the record in writeCache.
+            final int pos = md.bufferOffset;
+
+            if (reclen < 0 || pos < 0
+                    || pos + md.recordLength > tmp.capacity()) {
+
+                // Stale metadata from a concurrent reset.
+                counters.nreadRetry.increment();
+
+                continue;
+
+            }
+
+            final ByteBuffer view = tmp.duplicate();
+
+            view.limit(pos + reclen);
+            view.position(pos);
+
+            final byte[] a = new byte[reclen];
+
+            final ByteBuffer dst = ByteBuffer.wrap(a);
+
+            dst.put(view);
+
+            dst.flip();
+
+            final int chk = useChecksum ? tmp.getInt(pos + reclen) : 0;
+
+            // Note: CAS orders the reads above before the validation.
+            if (!version.compareAndSet(v, v)) {
+
+                // The copy may be torn. Retry.
+                counters.nreadRetry.increment();
+
+                continue;
+
+            }
+
+            if (useChecksum
+                    && chk != ChecksumUtility.threadChk.get().checksum(a,
+                            0/* offset */, reclen)) {
+
+                /*
+                 * Note: This is checked for a ReadCache as well since its
+                 * records (including the checksum) are copied from a
+                 * WriteCache. Retry and then fall back to the locked read,
+                 * which reports the ChecksumError if the record is in fact
+                 * corrupt.
+                 */
+                counters.nreadRetry.increment();
+
+                continue;
+
+            }
+
+            counters.nhit.increment();
+
+            // Increment cache read count (benign race).
+            md.hitCount++;
+
+            return dst;
+
+        }
+
+        // Too much contention. Fall back to the locked read.
+        counters.nreadLocked.increment();
+
+        return readLocked(offset, nbytes, counters);
+
+    }
+
+    /**
+     * Read a record while holding the read lock. This is the fall back for
+     * {@link #read(long, int)} when the optimistic read is repeatedly
+     * invalidated by concurrent resets of the buffer.
+     */
+    private ByteBuffer readLocked(final long offset, final int nbytes,
+            final WriteCacheCounters counters) throws InterruptedException,
+            ChecksumError {
+
         // takes readLock returning buffer
         final ByteBuffer tmp = acquire();
 
@@ -1507,7 +1678,21 @@ abstract public class WriteCache implements IWriteCache {
             // The caller must be holding the write lock.
             throw new IllegalMonitorStateException();
         }
-        
+
+        beginMutation();
+        try {
+            _resetBufferAndRecordMap(tmp);
+        } finally {
+            endMutation();
+        }
+
+    }
+
+    /**
+     * Resets the state while optimistic reads are invalidated.
+     */
+    private void _resetBufferAndRecordMap(final ByteBuffer tmp) {
+
         // clear the index since all records were flushed to disk.
         if (!recordMap.isEmpty())
         	recordMap.clear();
@@ -2445,12 +2630,16 @@ abstract public class WriteCache implements IWriteCache {
 
         writeLock.lockInterruptibly();
 
+        beginMutation();
+
         try {
         
             resetRecordMapFromBuffer(buf.get().buffer().duplicate(), recordMap);
 
         } finally {
             
+            endMutation();
+
             writeLock.unlock();
             
         }
@@ -2471,6 +2660,8 @@ abstract public class WriteCache implements IWriteCache {
 
         writeLock.lockInterruptibly();
 
+        beginMutation();
+
         try {
 
             final ByteBuffer buf = this.buf.get().buffer();
@@ -2503,6 +2694,8 @@ abstract public class WriteCache implements IWriteCache {
 
         } finally {
 
+            endMutation();
+
             writeLock.unlock();
 
         }
@@ -2781,35 +2974,43 @@ abstract public class WriteCache implements IWriteCache {
                     return false;
 
                 }
+
+                // Note: overwrites the record data.
+                beginMutation();
+                try {
                 
-                tmp.position(0);
-                tmp.limit(tmp.capacity());
+                    tmp.position(0);
+                    tmp.limit(tmp.capacity());
+
+                    for (RecordMetadata md : orderedRecords) {
+
+                        if (md.deleted) {
+                            /*
+                             * Entry is address of deleted record. No application
+                             * data follows the entry (the next thing in the buffer
+                             * will be another entry).
+                             */
+                            tmp.putLong(-md.fileOffset);
+                            tmp.putInt(-md.recordLength);
+                        } else {
+                            /*
+                             * Entry is notice of non-deleted address. No
+                             * application data follows the entry (the next thing in
+                             * the buffer will be another entry).
+                             */
+                            tmp.putLong(md.fileOffset);
+                            tmp.putInt(-md.recordLength);
+                        }
+                        tmp.putInt(md.latchedAddr);
 
-                for (RecordMetadata md : orderedRecords) {
+                    } // next RecordMetadata
 
-                    if (md.deleted) {
-                        /*
-                         * Entry is address of deleted record. No application
-                         * data follows the entry (the next thing in the buffer
-                         * will be another entry).
-                         */
-                        tmp.putLong(-md.fileOffset);
-                        tmp.putInt(-md.recordLength);
-                    } else {
-                        /*
-                         * Entry is notice of non-deleted address. No
-                         * application data follows the entry (the next thing in
-                         * the buffer will be another entry).
-                         */
-                        tmp.putLong(md.fileOffset);
-                        tmp.putInt(-md.recordLength);
-                    }
-                    tmp.putInt(md.latchedAddr);
-
-                } // next RecordMetadata
+                    // Note: Guarded by synchronized(tmp)
+                    orderedRecords.clear();
 
-                // Note: Guarded by synchronized(tmp)
-                orderedRecords.clear();
+                } finally {
+                    endMutation();
+                }
 
             } // synchronized(tmp)
 
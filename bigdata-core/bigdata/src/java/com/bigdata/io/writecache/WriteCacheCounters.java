@@ -30,7 +30,8 @@ import com.bigdata.counters.Instrument;
 /**
  * Performance counters for the {@link WriteCache}.
  * <p>
- * Note: thread-safety is required for: {@link #nhit} and {@link #nmiss}. The
+ * Note: thread-safety is required for: {@link #nhit}, {@link #nmiss},
+ * {@link #nreadRetry} and {@link #nreadLocked}. The
  * rest should be Ok without additional synchronization, CAS operators, etc
  * (mainly because they are updated while holding a lock).
  * 
@@ -52,6 +53,16 @@ public class WriteCacheCounters implements IWriteCacheCounters {
      */
     public final CAT nmiss = new CAT();
 
+    /**
+     * The #of optimistic reads which were retried.
+     */
+    public final CAT nreadRetry = new CAT();
+
+    /**
+     * The #of reads which fell back to the read lock.
+     */
+    public final CAT nreadLocked = new CAT();
+
     /*
      * write on the cache.
      */
@@ -123,6 +134,18 @@ public class WriteCacheCounters implements IWriteCacheCounters {
             }
         });
 
+        root.addCounter(NREAD_RETRY, new Instrument<Long>() {
+            public void sample() {
+                setValue(nreadRetry.get());
+            }
+        });
+
+        root.addCounter(NREAD_LOCKED, new Instrument<Long>() {
+            public void sample() {
+                setValue(nreadLocked.get());
+            }
+        });
+
         /*
          * write on the cache.
          */
@@ -3336,10 +3336,19 @@ the clear/dirty list threshold)
 
                 }
 
-                if (ret != null)
+                if (ret != null) {
+
+                    if (cache instanceof WriteCache.ReadCache)
+                        counters.get().nreadReadCacheHit.increment();
+                    else
+                        counters.get().nreadWriteCacheHit.increment();
+
                     return ret;
 
+                }
+
                 // May have been transferred to another Cache!
+                counters.get().nreadServiceMapRetry.increment();
                 //
                 // Fall through.
                 continue;
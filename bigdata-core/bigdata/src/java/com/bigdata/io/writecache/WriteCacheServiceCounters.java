@@ -167,6 +167,22 @@ public class WriteCacheServiceCounters extends WriteCacheCounters implements
     public final CAT nreadNotInstalled = new CAT();
     
     public final CAT memoCacheSize = new CAT();
+
+    /**
+     * The #of read requests satisfied by a write cache buffer.
+     */
+    public final CAT nreadWriteCacheHit = new CAT();
+
+    /**
+     * The #of read requests satisfied by a read cache buffer.
+     */
+    public final CAT nreadReadCacheHit = new CAT();
+
+    /**
+     * The #of service map lookups which were retried because the buffer no
+     * longer held the record.
+     */
+    public final CAT nreadServiceMapRetry = new CAT();
     
     public WriteCacheServiceCounters(final int nbuffers,
             final int dirtyListThreshold, final int compactingThreshold) {
@@ -366,6 +382,27 @@ public class WriteCacheServiceCounters extends WriteCacheCounters implements
             }
         });
 
+        root.addCounter(NREAD_WRITE_CACHE_HIT, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nreadWriteCacheHit.get());
+            }
+        });
+
+        root.addCounter(NREAD_READ_CACHE_HIT, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nreadReadCacheHit.get());
+            }
+        });
+
+        root.addCounter(NREAD_SERVICE_MAP_RETRY, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nreadServiceMapRetry.get());
+            }
+        });
+
         return root;
 
     }
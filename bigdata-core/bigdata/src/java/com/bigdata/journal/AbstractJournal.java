@@ -80,6 +80,7 @@ import com.bigdata.btree.ITuple;
 import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexInconsistentError;
 import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.NodeRecordCache;
 import com.bigdata.btree.keys.ICUVersionRecord;
 import com.bigdata.btree.view.FusedView;
 import com.bigdata.cache.ConcurrentWeakValueCache;
@@ -3188,6 +3189,16 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
          * the root block, and then sync'ing the disk.
          */
         private final CAT elapsedSimpleCommitNanos = new CAT();
+        /**
+         * Elapsed nanoseconds syncing the disk and writing the root block for
+         * the simple atomic commit (non-HA). This is the portion of the commit
+         * latency which is amortized by group commit.
+         */
+        private final CAT elapsedSyncNanos = new CAT();
+        /**
+         * The #of simple atomic commits (non-HA) which wrote a root block.
+         */
+        private final CAT nsync = new CAT();
         /**
          * Elapsed nanoseconds for the entire commit protocol.
          */
@@ -3248,6 +3259,31 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
                 }
             });
             
+            root.addCounter("syncSecs", new Instrument<Double>() {
+                @Override
+                public void sample() {
+                    final double secs = (elapsedSyncNanos.get() / 1000000000.);
+                    setValue(secs);
+                }
+            });
+            
+            root.addCounter("syncCount", new Instrument<Long>() {
+                @Override
+                public void sample() {
+                    setValue(nsync.get());
+                }
+            });
+            
+            root.addCounter("averageSyncMillis", new Instrument<Double>() {
+                @Override
+                public void sample() {
+                    final long n = nsync.get();
+                    final double millis = n == 0L ? 0d : (elapsedSyncNanos
+                            .get() / 1000000.) / n;
+                    setValue(millis);
+                }
+            });
+            
             root.addCounter("totalCommitSecs", new Instrument<Double>() {
                 @Override
                 public void sample() {
@@ -3774,6 +3810,8 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
              * If that is done, it will be done by a force()
              * after we write the root block on the disk.
              */
+            final long beginSyncNanos = System.nanoTime();
+
             if (store.doubleSync) {
 
                 _bufferStrategy.force(false/* metadata */);
@@ -3783,6 +3821,11 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
             // write the root block on to the backing store.
             _bufferStrategy.writeRootBlock(newRootBlock, store.forceOnCommit);
 
+            store.commitCounters.elapsedSyncNanos.add(System.nanoTime()
+                    - beginSyncNanos);
+
+            store.commitCounters.nsync.increment();
+
             if (_bufferStrategy instanceof IRWStrategy) {
 
                 /*
@@ -4313,7 +4356,12 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 
         assertCanWrite();
 
-        return _bufferStrategy.write(data);
+        final long addr = _bufferStrategy.write(data);
+
+        // The address may have been recycled.
+        NodeRecordCache.invalidate(getUUID(), addr);
+
+        return addr;
 	
     }
 
@@ -4322,15 +4370,22 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 
         assertCanWrite();
 
+        final long addr;
+        
         if (_bufferStrategy instanceof IRWStrategy) {
 
-            return ((IRWStrategy) _bufferStrategy).write(data, context);
+            addr = ((IRWStrategy) _bufferStrategy).write(data, context);
             
         } else {
 
-            return _bufferStrategy.write(data);
+            addr = _bufferStrategy.write(data);
 
         }
+
+        // The address may have been recycled.
+        NodeRecordCache.invalidate(getUUID(), addr);
+
+        return addr;
         
     }
 
@@ -4372,6 +4427,8 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 
         _bufferStrategy.delete(addr);
 
+        NodeRecordCache.invalidate(getUUID(), addr);
+
     }
 
     @Override
@@ -4389,6 +4446,8 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
             
         }
 
+        NodeRecordCache.invalidate(getUUID(), addr);
+
     }
     
     @Override
@@ -5727,6 +5786,59 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 	    
     }
 
+    /**
+     * Create or replace a named {@link BTree} from an ordered tuple iterator.
+     * The nodes and leaves are built bottom-up in a single streaming pass and
+     * written directly onto the backing store (see
+     * {@link BTree#build(IRawStore, IndexMetadata, ITupleIterator, double)}).
+     * If an index is already registered under that name then it is dropped
+     * once the new index has been built, and the storage of the old index is
+     * reclaimed iff the backing store supports that functionality. The index
+     * local counter and the record version of the old index are carried over
+     * to the new index.
+     * <p>
+     * Note: You MUST {@link #commit()} before the new index will be either
+     * restart-safe or visible to new transactions.
+     *
+     * @param name
+     *            The name of the index.
+     * @param metadata
+     *            The metadata for the new index.
+     * @param src
+     *            An iterator visiting the tuples in strictly ascending key
+     *            order.
+     * @param fillFactor
+     *            The fraction of the branching factor which will be used in
+     *            each node and leaf in <code>(0:1]</code>.
+     *
+     * @return The new index.
+     */
+    public BTree buildIndex(final String name, final IndexMetadata metadata,
+            final ITupleIterator<?> src, final double fillFactor) {
+
+        if (name == null)
+            throw new IllegalArgumentException();
+
+        validateIndexMetadata(name, metadata);
+
+        final ICheckpointProtocol prior = getUnisolatedIndex(name);
+
+        final BTree btree = BTree.build(this, metadata, src, fillFactor,
+                prior instanceof BTree ? (BTree) prior : null);
+
+        if (prior != null) {
+
+            // Replace the existing index.
+            dropIndex(name);
+
+        }
+
+        _register(name, btree);
+
+        return btree;
+
+    }
+
     final public void registerIndex(final String name, final HTree ndx) {
 
         _register(name, ndx);
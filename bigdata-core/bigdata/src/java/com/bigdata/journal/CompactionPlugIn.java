@@ -0,0 +1,485 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.journal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.ICheckpointProtocol;
+import com.bigdata.btree.IndexTypeEnum;
+import com.bigdata.htree.HTree;
+import com.bigdata.rwstore.IRelocationFilter;
+import com.bigdata.rwstore.RWStore;
+import com.bigdata.rwstore.StorageStats;
+import com.bigdata.util.InnerCause;
+
+/**
+ * Plugin for online compaction of the {@link RWStore}. After heavy delete
+ * workloads the {@link RWStore} allocators can become sparse. Rather than
+ * copying the entire journal offline (see {@link CompactJournalUtility}), this
+ * plugin periodically relocates the nodes and leaves of the named indices
+ * which lie in sparse allocators into the allocators which are currently
+ * being filled. Each step is an unisolated {@link RelocateTask} which touches
+ * a bounded #of records, so the work is throttled and interleaves with the
+ * application's own write tasks. A pass is skipped unless the write service
+ * is idle.
+ * <p>
+ * The old records are released by the normal deferred free protocol, so
+ * records which are visible to open read-only transactions or which are
+ * protected by the history retention policy are retained until they are no
+ * longer visible. The progress of the compaction is reported by the
+ * {@link StorageStats}.
+ * <p>
+ * Note: The plugin only runs when {@link Journal.Options#GROUP_COMMIT} is
+ * enabled since it relies on all mutations being submitted to the
+ * {@link IConcurrencyManager}.
+ * 
+ * @see RWStore.Options#COMPACTION_SPARSE_THRESHOLD
+ */
+public class CompactionPlugIn implements IPlugIn<Journal, Runnable> {
+
+    private static final Logger log = Logger.getLogger(CompactionPlugIn.class);
+
+    /**
+     * Online compaction options.
+     */
+    public interface Options {
+
+        /**
+         * The delay in milliseconds between compaction passes and ZERO (0) to
+         * disable online compaction (default
+         * {@value #DEFAULT_COMPACTION_INTERVAL}).
+         */
+        String COMPACTION_INTERVAL = Journal.class.getName()
+                + ".compactionInterval";
+
+        String DEFAULT_COMPACTION_INTERVAL = "0";
+
+        /**
+         * The maximum #of records relocated by a single compaction pass
+         * (default {@value #DEFAULT_COMPACTION_BATCH_SIZE}). This bounds the
+         * size of the write set which the compaction adds to a commit.
+         */
+        String COMPACTION_BATCH_SIZE = Journal.class.getName()
+                + ".compactionBatchSize";
+
+        String DEFAULT_COMPACTION_BATCH_SIZE = "1000";
+
+        /**
+         * The maximum #of nodes and leaves examined by a single compaction
+         * pass (default {@value #DEFAULT_COMPACTION_SCAN_SIZE}). This bounds
+         * the IO performed by a pass when few records are sparse.
+         */
+        String COMPACTION_SCAN_SIZE = Journal.class.getName()
+                + ".compactionScanSize";
+
+        String DEFAULT_COMPACTION_SCAN_SIZE = "10000";
+
+    }
+
+    /**
+     * The compaction pass.
+     * <p>
+     * Note: Guarded by synchronized(this).
+     */
+    private CompactionTask compactionTask = null;
+
+    /**
+     * The {@link ScheduledFuture} for the task.
+     * <p>
+     * Note: Guarded by synchronized(this).
+     */
+    private ScheduledFuture<?> scheduledFuture = null;
+
+    @Override
+    public void startService(final Journal indexManager) {
+
+        final long interval = Long.valueOf(indexManager.getProperty(
+                Options.COMPACTION_INTERVAL,
+                Options.DEFAULT_COMPACTION_INTERVAL));
+
+        final int batchSize = Integer.valueOf(indexManager.getProperty(
+                Options.COMPACTION_BATCH_SIZE,
+                Options.DEFAULT_COMPACTION_BATCH_SIZE));
+
+        final int scanSize = Integer.valueOf(indexManager.getProperty(
+                Options.COMPACTION_SCAN_SIZE,
+                Options.DEFAULT_COMPACTION_SCAN_SIZE));
+
+        if (log.isInfoEnabled())
+            log.info(Options.COMPACTION_INTERVAL + "=" + interval + ", "
+                    + Options.COMPACTION_BATCH_SIZE + "=" + batchSize + ", "
+                    + Options.COMPACTION_SCAN_SIZE + "=" + scanSize);
+
+        if (interval <= 0) {
+
+            return;
+
+        }
+
+        if (batchSize <= 0)
+            throw new IllegalArgumentException(Options.COMPACTION_BATCH_SIZE
+                    + " : Must be positive");
+
+        if (scanSize <= 0)
+            throw new IllegalArgumentException(Options.COMPACTION_SCAN_SIZE
+                    + " : Must be positive");
+
+        if (!(indexManager.getBufferStrategy() instanceof IRelocationFilter)) {
+
+            log.warn("Online compaction requires the RWStore.");
+
+            return;
+
+        }
+
+        if (!indexManager.isGroupCommit()) {
+
+            log.warn("Online compaction requires "
+                    + Journal.Options.GROUP_COMMIT);
+
+            return;
+
+        }
+
+        synchronized (this) {
+
+            compactionTask = new CompactionTask(indexManager, batchSize,
+                    scanSize);
+
+            scheduledFuture = indexManager.addScheduledTask(compactionTask,
+                    interval/* initialDelay */, interval, TimeUnit.MILLISECONDS);
+
+        }
+
+    }
+
+    @Override
+    public void stopService(final boolean immediateShutdown) {
+
+        synchronized (this) {
+
+            if (scheduledFuture != null) {
+
+                scheduledFuture
+                        .cancel(immediateShutdown/* mayInterruptIfRunning */);
+
+                scheduledFuture = null;
+
+            }
+
+            if (compactionTask != null) {
+
+                compactionTask.cancel(immediateShutdown);
+
+                compactionTask = null;
+
+            }
+
+        }
+
+    }
+
+    @Override
+    public Runnable getService() {
+
+        synchronized (this) {
+
+            return compactionTask;
+
+        }
+
+    }
+
+    @Override
+    public boolean isRunning() {
+
+        synchronized (this) {
+
+            if (scheduledFuture == null || scheduledFuture.isDone())
+                return false;
+
+            return true;
+
+        }
+
+    }
+
+    /**
+     * Scheduled task which hands off a compaction pass to the journal's
+     * executor service when the write service is idle and the previous pass
+     * is done. The pass resumes where the previous pass stopped, visiting
+     * each named index (as of the last commit point) in turn.
+     */
+    static class CompactionTask implements Runnable {
+
+        private final Journal journal;
+
+        private final int batchSize;
+
+        private final int scanSize;
+
+        /**
+         * The future of the current pass (if any).
+         * <p>
+         * Note: Guarded by synchronized(this).
+         */
+        private Future<?> future = null;
+
+        /*
+         * Traversal state. Only accessed by the current pass.
+         */
+
+        /** The names of the indices in the current sweep. */
+        private Iterator<String> names = null;
+
+        /** The current index and <code>null</code> if none. */
+        private String name = null;
+
+        /** The key from which to resume within the current index. */
+        private byte[] fromKey = null;
+
+        CompactionTask(final Journal journal, final int batchSize,
+                final int scanSize) {
+
+            this.journal = journal;
+
+            this.batchSize = batchSize;
+
+            this.scanSize = scanSize;
+
+        }
+
+        @Override
+        public void run() {
+
+            synchronized (this) {
+
+                if (future != null && !future.isDone()) {
+
+                    // The previous pass is still running.
+                    return;
+
+                }
+
+                if (!isQuiet()) {
+
+                    return;
+
+                }
+
+                future = journal.getExecutorService().submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            compact();
+                        } catch (InterruptedException t) {
+                            // Note: normal at shutdown.
+                            if (log.isInfoEnabled())
+                                log.info("Interrupted");
+                        } catch (Throwable t) {
+                            log.error(t, t);
+                        }
+                    }
+                });
+
+            }
+
+        }
+
+        synchronized void cancel(final boolean mayInterruptIfRunning) {
+
+            if (future != null) {
+
+                future.cancel(mayInterruptIfRunning);
+
+                future = null;
+
+            }
+
+        }
+
+        /**
+         * Return <code>true</code> iff there are no running or queued tasks
+         * on the write service.
+         */
+        private boolean isQuiet() {
+
+            final WriteExecutorService writeService = journal
+                    .getConcurrencyManager().getWriteService();
+
+            return writeService.getActiveCount() == 0
+                    && writeService.getQueue().isEmpty();
+
+        }
+
+        /**
+         * Run a single compaction pass.
+         */
+        private void compact() throws InterruptedException {
+
+            int budget = batchSize;
+
+            int visits = scanSize;
+
+            while (budget > 0 && visits > 0 && isQuiet()) {
+
+                if (name == null) {
+
+                    if (names == null) {
+
+                        // Start a new sweep.
+                        names = getIndexNames().iterator();
+
+                    }
+
+                    if (!names.hasNext()) {
+
+                        /*
+                         * The sweep is done. The next pass will start a new
+                         * sweep.
+                         */
+                        names = null;
+
+                        return;
+
+                    }
+
+                    name = names.next();
+
+                    fromKey = null;
+
+                }
+
+                final RelocateTask task = new RelocateTask(
+                        journal.getConcurrencyManager(), name, fromKey, budget,
+                        visits);
+
+                try {
+
+                    // Note: returns once the write set was committed.
+                    fromKey = journal.getConcurrencyManager().submit(task)
+                            .get();
+
+                    final IBufferStrategy bufferStrategy = journal
+                            .getBufferStrategy();
+
+                    if (bufferStrategy instanceof IRelocationFilter) {
+
+                        task.reportRelocated((IRelocationFilter) bufferStrategy);
+
+                    }
+
+                } catch (ExecutionException ex) {
+
+                    if (!InnerCause.isInnerCause(ex,
+                            NoSuchIndexException.class)) {
+
+                        /*
+                         * Skip the index rather than retrying it on every
+                         * pass. It will be visited again by the next sweep.
+                         */
+                        log.warn("Could not compact: name=" + name, ex);
+
+                    }
+
+                    // Done with this index (dropped or failed).
+                    fromKey = null;
+
+                }
+
+                budget -= task.getRelocatedCount();
+
+                visits -= Math.max(1, task.getExaminedCount());
+
+                if (log.isDebugEnabled())
+                    log.debug("name=" + name + ", relocated="
+                            + task.getRelocatedCount());
+
+                if (fromKey == null) {
+
+                    // Done with this index.
+                    name = null;
+
+                }
+
+            }
+
+        }
+
+        /**
+         * The names of the {@link BTree}s as of the last commit point. Other
+         * index types (for example, an {@link HTree}) can not be compacted.
+         */
+        private List<String> getIndexNames() {
+
+            final List<String> list = new ArrayList<String>();
+
+            final long lastCommitTime = journal.getLastCommitTime();
+
+            if (lastCommitTime == 0L) {
+
+                // Nothing committed yet.
+                return list;
+
+            }
+
+            final Iterator<String> itr = journal.indexNameScan(
+                    null/* prefix */, lastCommitTime);
+
+            while (itr.hasNext()) {
+
+                final String name = itr.next();
+
+                final ICheckpointProtocol ndx = journal.getIndexLocal(name,
+                        lastCommitTime);
+
+                if (ndx == null
+                        || ndx.getCheckpoint().getIndexType() != IndexTypeEnum.BTree) {
+
+                    // Dropped or not a BTree.
+                    continue;
+
+                }
+
+                list.add(name);
+
+            }
+
+            return list;
+
+        }
+
+    }
+
+}
@@ -299,6 +299,40 @@ public class ConcurrencyManager implements IConcurrencyManager {
 
         String DEFAULT_WRITE_SERVICE_GROUP_COMMIT_TIMEOUT = "100";
 
+        /**
+         * The time in milliseconds that the {@link WriteExecutorService} will
+         * hold open a commit group for tasks which have not yet started to
+         * execute (default {@value #DEFAULT_WRITE_SERVICE_GROUP_COMMIT_LINGER}).
+         * Unlike {@link #WRITE_SERVICE_GROUP_COMMIT_TIMEOUT}, which only awaits
+         * tasks that are already running, this window also admits tasks which
+         * are queued or submitted while the commit group is being formed. This
+         * trades a bounded latency for fewer commits (and hence fewer syncs to
+         * the disk) when there are many small write tasks. When ZERO (0), the
+         * commit group is formed only from the running tasks (this is the
+         * historical behavior).
+         * 
+         * @see #WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE
+         */
+        String WRITE_SERVICE_GROUP_COMMIT_LINGER = ConcurrencyManager.class
+                .getName()
+                + ".writeService.groupCommitLinger";
+
+        String DEFAULT_WRITE_SERVICE_GROUP_COMMIT_LINGER = "0";
+
+        /**
+         * The maximum #of tasks in a commit group (default
+         * {@value #DEFAULT_WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE}). Once this many
+         * tasks have joined the commit group, the commit is initiated without
+         * waiting for the {@link #WRITE_SERVICE_GROUP_COMMIT_TIMEOUT} or the
+         * {@link #WRITE_SERVICE_GROUP_COMMIT_LINGER} to expire. When ZERO (0),
+         * the size of the commit group is not bounded.
+         */
+        String WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE = ConcurrencyManager.class
+                .getName()
+                + ".writeService.groupCommitMaxSize";
+
+        String DEFAULT_WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE = "0";
+
         /**
          * The time in milliseconds that a group commit will await an exclusive
          * lock on the write service in order to perform synchronous overflow
@@ -832,6 +866,28 @@ public class ConcurrencyManager implements IConcurrencyManager {
                         .info(ConcurrencyManager.Options.WRITE_SERVICE_GROUP_COMMIT_TIMEOUT
                                 + "=" + groupCommitTimeout);
 
+            final long groupCommitLinger = Long
+                    .parseLong(properties
+                            .getProperty(
+                                    ConcurrencyManager.Options.WRITE_SERVICE_GROUP_COMMIT_LINGER,
+                                    ConcurrencyManager.Options.DEFAULT_WRITE_SERVICE_GROUP_COMMIT_LINGER));
+
+            if (log.isInfoEnabled())
+                log
+                        .info(ConcurrencyManager.Options.WRITE_SERVICE_GROUP_COMMIT_LINGER
+                                + "=" + groupCommitLinger);
+
+            final int groupCommitMaxSize = Integer
+                    .parseInt(properties
+                            .getProperty(
+                                    ConcurrencyManager.Options.WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE,
+                                    ConcurrencyManager.Options.DEFAULT_WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE));
+
+            if (log.isInfoEnabled())
+                log
+                        .info(ConcurrencyManager.Options.WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE
+                                + "=" + groupCommitMaxSize);
+
             final long overflowLockRequestTimeout = Long
                     .parseLong(properties
                             .getProperty(
@@ -873,6 +929,8 @@ public class ConcurrencyManager implements IConcurrencyManager {
                     queue, //
                     new DaemonThreadFactory(getClass().getName()+".writeService"), //
                     groupCommitTimeout,//
+                    groupCommitLinger,//
+                    groupCommitMaxSize,//
                     overflowLockRequestTimeout
             );
 
@@ -159,7 +159,8 @@ public class Journal extends AbstractJournal implements IConcurrencyManager,
             com.bigdata.journal.TemporaryStoreFactory.Options,
             com.bigdata.journal.QueueStatsPlugIn.Options,
             com.bigdata.journal.PlatformStatsPlugIn.Options,
-            com.bigdata.journal.HttpPlugin.Options
+            com.bigdata.journal.HttpPlugin.Options,
+            com.bigdata.journal.CompactionPlugIn.Options
             // Note: Do not import. Forces bigdata-ganglia dependency.
             // com.bigdata.journal.GangliaPlugIn.Options
             {
@@ -3352,6 +3353,19 @@ public class Journal extends AbstractJournal implements IConcurrencyManager,
         if (!isOpen())
             return;
 
+        {
+
+            final IPlugIn<?, ?> plugIn = pluginCompaction.get();
+
+            if (plugIn != null) {
+
+                // stop if running.
+                plugIn.stopService(false/* immediateShutdown */);
+
+            }
+
+        }
+
         /*
          * Shutdown the transaction service. This will not permit new
          * transactions to start and will wait until running transactions either
@@ -3473,6 +3487,19 @@ public class Journal extends AbstractJournal implements IConcurrencyManager,
         if (!isOpen())
             return;
 
+        {
+
+            final IPlugIn<?, ?> plugIn = pluginCompaction.get();
+
+            if (plugIn != null) {
+
+                // stop if running.
+                plugIn.stopService(true/* immediateShutdown */);
+
+            }
+
+        }
+
         /*
          * Note: The ganglia plug in is executed on the main thread pool. We
          * need to terminate it in order for the thread pool to shutdown.
@@ -3922,6 +3949,7 @@ public class Journal extends AbstractJournal implements IConcurrencyManager,
     private final AtomicReference<IPlugIn<Journal, ThreadPoolExecutorBaseStatisticsTask>> pluginQueueStats = new AtomicReference<IPlugIn<Journal,ThreadPoolExecutorBaseStatisticsTask>>();
     private final AtomicReference<IPlugIn<Journal, AbstractStatisticsCollector>> pluginPlatformStats = new AtomicReference<IPlugIn<Journal, AbstractStatisticsCollector>>();
     private final AtomicReference<IPlugIn<Journal, ?>> pluginHttpd = new AtomicReference<IPlugIn<Journal, ?>>();
+    private final AtomicReference<IPlugIn<Journal, ?>> pluginCompaction = new AtomicReference<IPlugIn<Journal, ?>>();
     
     /**
      * An optional plug in for Ganglia.
@@ -4140,6 +4168,22 @@ public class Journal extends AbstractJournal implements IConcurrencyManager,
 
             }
 
+            // start online compaction of the RWStore (if enabled).
+            {
+
+                final IPlugIn<Journal, ?> tmp = new CompactionPlugIn();
+
+                tmp.startService(Journal.this);
+
+                if (tmp.isRunning()) {
+
+                    // Save reference iff started.
+                    pluginCompaction.set(tmp);
+
+                }
+
+            }
+
         }
 
     } // class StartDeferredTasks
@@ -59,6 +59,7 @@ import com.bigdata.rawstore.IAllocationContext;
 import com.bigdata.rawstore.IPSOutputStream;
 import com.bigdata.rwstore.IRWStrategy;
 import com.bigdata.rwstore.IRawTx;
+import com.bigdata.rwstore.IRelocationFilter;
 import com.bigdata.rwstore.RWStore;
 import com.bigdata.rwstore.RWStore.StoreCounters;
 import com.bigdata.util.ChecksumError;
@@ -92,7 +93,7 @@ import com.bigdata.util.ChecksumError;
  * @author Martyn Cutcher
  */
 public class RWStrategy extends AbstractRawStore implements IBufferStrategy,
-        IHABufferStrategy, IRWStrategy {
+        IHABufferStrategy, IRWStrategy, IRelocationFilter {
 
     private static final transient Logger log = Logger.getLogger(RWStrategy.class);
 
@@ -799,6 +800,27 @@ public class RWStrategy extends AbstractRawStore implements IBufferStrategy,
 	    
 	}
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Records allocated from sparse allocators are relocation candidates.
+     * 
+     * @see RWStore#isSparse(int)
+     */
+    @Override
+    public boolean isRelocationCandidate(final long addr) {
+
+        return m_store.isSparse(decodeAddr(addr));
+
+    }
+
+    @Override
+    public void relocated(final long addr) {
+
+        m_store.relocated(decodeAddr(addr), decodeSize(addr));
+
+    }
+
     /**
      * Return <code>true</code> iff the address was in the write cache as of the
      * moment the write cache was inspected.
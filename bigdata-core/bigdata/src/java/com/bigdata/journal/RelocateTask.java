@@ -0,0 +1,203 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.ILocalBTreeView;
+import com.bigdata.rwstore.IRelocationFilter;
+
+/**
+ * Relocate the nodes and leaves of a named index which lie in sparse
+ * allocators (unisolated write operation). This is one step of online
+ * compaction. The old records are released when the write set of the task is
+ * committed. The relocations are reported to the store's
+ * {@link IRelocationFilter} by {@link #reportRelocated(IRelocationFilter)}
+ * once that commit has succeeded.
+ * 
+ * @see BTree#relocate(byte[], int, int, IRelocationFilter)
+ * @see CompactionPlugIn
+ */
+public class RelocateTask extends AbstractTask<byte[]> {
+
+    /**
+     * The key from which to resume and <code>null</code> to start with the
+     * first leaf.
+     */
+    private final byte[] fromKey;
+
+    /**
+     * The maximum #of records to relocate.
+     */
+    private final int maxRecords;
+
+    /**
+     * The maximum #of nodes and leaves to visit.
+     */
+    private final int maxVisits;
+
+    /**
+     * The #of persistent records examined by the task.
+     */
+    private volatile int nexamined = 0;
+
+    /**
+     * The #of records relocated by the task.
+     */
+    private volatile int nrelocated = 0;
+
+    /**
+     * The addresses of the records relocated by the task.
+     */
+    private final List<Long> relocatedAddrs = new ArrayList<Long>();
+
+    /**
+     * @param concurrencyManager
+     * @param name
+     *            The name of the index.
+     * @param fromKey
+     *            The key from which to resume and <code>null</code> to start
+     *            with the first leaf.
+     * @param maxRecords
+     *            The maximum #of records to relocate (GT ZERO).
+     * @param maxVisits
+     *            The maximum #of nodes and leaves to visit (GT ZERO).
+     */
+    public RelocateTask(final IConcurrencyManager concurrencyManager,
+            final String name, final byte[] fromKey, final int maxRecords,
+            final int maxVisits) {
+
+        super(concurrencyManager, ITx.UNISOLATED, name);
+
+        if (maxRecords <= 0)
+            throw new IllegalArgumentException();
+
+        if (maxVisits <= 0)
+            throw new IllegalArgumentException();
+
+        this.fromKey = fromKey;
+
+        this.maxRecords = maxRecords;
+
+        this.maxVisits = maxVisits;
+
+    }
+
+    /**
+     * The #of persistent records examined by the task.
+     */
+    public int getExaminedCount() {
+
+        return nexamined;
+
+    }
+
+    /**
+     * The #of records relocated by the task.
+     */
+    public int getRelocatedCount() {
+
+        return nrelocated;
+
+    }
+
+    /**
+     * Report the records relocated by the task to the store. This MUST NOT
+     * be invoked until the write set of the task has been committed, since
+     * the relocations are discarded if the commit fails.
+     * 
+     * @param filter
+     *            The store's {@link IRelocationFilter}.
+     */
+    public void reportRelocated(final IRelocationFilter filter) {
+
+        synchronized (relocatedAddrs) {
+
+            for (Long addr : relocatedAddrs) {
+
+                filter.relocated(addr.longValue());
+
+            }
+
+            relocatedAddrs.clear();
+
+        }
+
+    }
+
+    /**
+     * Relocate up to the configured #of records.
+     * 
+     * @return The key from which to resume and <code>null</code> if the index
+     *         has been fully visited (or is not a {@link BTree} on a store
+     *         which supports relocation).
+     */
+    @Override
+    public byte[] doTask() throws Exception {
+
+        final IBufferStrategy bufferStrategy = resourceManager
+                .getLiveJournal().getBufferStrategy();
+
+        if (!(bufferStrategy instanceof IRelocationFilter))
+            return null;
+
+        final ILocalBTreeView ndx = getIndex(getOnlyResource());
+
+        if (!(ndx instanceof BTree))
+            return null;
+
+        final IRelocationFilter delegate = (IRelocationFilter) bufferStrategy;
+
+        return ((BTree) ndx).relocate(fromKey, maxRecords, maxVisits,
+                new IRelocationFilter() {
+
+                    @Override
+                    public boolean isRelocationCandidate(final long addr) {
+
+                        nexamined++;
+
+                        return delegate.isRelocationCandidate(addr);
+
+                    }
+
+                    @Override
+                    public void relocated(final long addr) {
+
+                        nrelocated++;
+
+                        // Note: reported to the store after the commit.
+                        synchronized (relocatedAddrs) {
+                            relocatedAddrs.add(addr);
+                        }
+
+                    }
+
+                });
+
+    }
+
+}
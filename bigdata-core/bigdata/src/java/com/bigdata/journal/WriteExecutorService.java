@@ -190,6 +190,21 @@ public class WriteExecutorService extends ThreadPoolExecutor {
      */
     protected final long groupCommitTimeout;
 
+    /**
+     * The time in milliseconds that a group commit will linger for tasks which
+     * are not yet running to join the commit group.
+     * 
+     * @see ConcurrencyManager.Options#WRITE_SERVICE_GROUP_COMMIT_LINGER
+     */
+    protected final long groupCommitLinger;
+
+    /**
+     * The maximum #of tasks in a commit group (unbounded if ZERO).
+     * 
+     * @see ConcurrencyManager.Options#WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE
+     */
+    protected final int groupCommitMaxSize;
+
     /**
      * The time in milliseconds that a group commit will await an exclusive lock
      * on the write service in order to perform synchronous overflow processing.
@@ -289,6 +304,45 @@ public class WriteExecutorService extends ThreadPoolExecutor {
             final long groupCommitTimeout,
             final long overflowLockRequestTimeout) {
 
+        this(resourceManager, corePoolSize, maximumPoolSize, keepAliveTime,
+                keepAliveUnit, queue, threadFactory, groupCommitTimeout,
+                0L/* groupCommitLinger */, 0/* groupCommitMaxSize */,
+                overflowLockRequestTimeout);
+
+    }
+
+    /**
+     * 
+     * @param resourceManager
+     * @param corePoolSize
+     * @param maximumPoolSize
+     * @param keepAliveTime
+     * @param keepAliveUnit
+     * @param queue
+     * @param threadFactory
+     * @param groupCommitTimeout
+     *            The time in milliseconds that a group commit will await
+     *            currently running tasks to join the commit group.
+     * @param groupCommitLinger
+     *            The time in milliseconds that a group commit will linger for
+     *            tasks which are not yet running to join the commit group.
+     * @param groupCommitMaxSize
+     *            The maximum #of tasks in a commit group (unbounded if ZERO).
+     * @param overflowLockRequestTimeout
+     */
+    public WriteExecutorService(//
+            final IResourceManager resourceManager,
+            final int corePoolSize,
+            final int maximumPoolSize,
+            final long keepAliveTime,//
+            final TimeUnit keepAliveUnit,//
+            final BlockingQueue<Runnable> queue, 
+            final ThreadFactory threadFactory,
+            final long groupCommitTimeout,
+            final long groupCommitLinger,
+            final int groupCommitMaxSize,
+            final long overflowLockRequestTimeout) {
+
         super(  corePoolSize, //
                 maximumPoolSize,//
                 keepAliveTime,//
@@ -303,11 +357,21 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         if (groupCommitTimeout < 0L) 
             throw new IllegalArgumentException();
 
+        if (groupCommitLinger < 0L) 
+            throw new IllegalArgumentException();
+
+        if (groupCommitMaxSize < 0) 
+            throw new IllegalArgumentException();
+
         if (overflowLockRequestTimeout < 0L) 
             throw new IllegalArgumentException();
         
         this.groupCommitTimeout = groupCommitTimeout;
         
+        this.groupCommitLinger = groupCommitLinger;
+        
+        this.groupCommitMaxSize = groupCommitMaxSize;
+        
         this.overflowLockRequestTimeout = overflowLockRequestTimeout;
         
         // Setup the lock manager used by the write service.
@@ -477,6 +541,7 @@ public class WriteExecutorService extends ThreadPoolExecutor {
     private long failedTaskCount = 0;
     private long successTaskCount = 0;
     private long committedTaskCount = 0;
+    private long nfullCommitGroups = 0;
     private long noverflow = 0;
 
     protected final AtomicInteger activeTaskCountWithLocksHeld = new AtomicInteger(0);
@@ -632,6 +697,18 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         
     }
     
+    /**
+     * The #of commit groups which were closed because they reached the
+     * configured maximum commit group size.
+     * 
+     * @see ConcurrencyManager.Options#WRITE_SERVICE_GROUP_COMMIT_MAX_SIZE
+     */
+    public long getFullCommitGroupCount() {
+        
+        return nfullCommitGroups;
+        
+    }
+    
     /**
      * The #of times synchronous overflow processing has been performed.
      */
@@ -1144,6 +1221,7 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         sb.append(", successTaskCount="+successTaskCount);
         
         sb.append(", committedTaskCount="+committedTaskCount);
+        sb.append(", fullCommitGroupCount="+nfullCommitGroups);
         
         sb.append(", overflowCount="+noverflow);
         
@@ -1413,7 +1491,7 @@ public class WriteExecutorService extends ThreadPoolExecutor {
                      * Note: This will return normally unless interrupted.
                      */
                     waitForRunningTasks(groupCommitTimeout,
-                            TimeUnit.MILLISECONDS);
+                            groupCommitLinger, TimeUnit.MILLISECONDS);
                 }
                 {
                     // update [maxCommitWaitingTime]
@@ -1496,6 +1574,12 @@ public class WriteExecutorService extends ThreadPoolExecutor {
                 maxCommitGroupSize = nwrites;
                 
             }
+
+            if (groupCommitMaxSize > 0 && nwrites >= groupCommitMaxSize) {
+
+                nfullCommitGroups++;
+
+            }
             
             if (log.isInfoEnabled())
                 log.info("Commit Ok : commitLatency=" + commitLatency
@@ -1566,6 +1650,16 @@ public class WriteExecutorService extends ThreadPoolExecutor {
 
     }
 
+    /**
+     * Return <code>true</code> iff the commit group has reached the configured
+     * maximum size.
+     */
+    private boolean isCommitGroupFull() {
+
+        return groupCommitMaxSize > 0 && nwrites.get() >= groupCommitMaxSize;
+
+    }
+
     /**
      * Wait a moment to let other tasks finish, but if the queue is empty then
      * return immediately in order to keep down latency for a single task that
@@ -1576,11 +1670,21 @@ public class WriteExecutorService extends ThreadPoolExecutor {
      * not allow other tasks into the commit group and essentially disables
      * group commit.
      * 
+     * <p>
+     * When the <i>linger</i> is positive, this will continue to yield the
+     * {@link #lock} until the linger expires, allowing tasks which are queued
+     * or which are submitted while the commit group is being formed to join
+     * the commit group. Either way, this returns as soon as the commit group
+     * reaches the {@link #groupCommitMaxSize}.
+     * 
      * @param timeout
      *            The timeout to await currently running tasks to join the
      *            commit group.
+     * @param linger
+     *            The time to await tasks which are not yet running to join
+     *            the commit group (measured from the start of the wait).
      * @param unit
-     *            The unit in which that timeout is expressed.
+     *            The unit in which that timeout and linger are expressed.
      * 
      * @todo do NOT wait if the current task might exceeds its max latency from
      *       submit (likewise, do not start task if it has already exceeded its
@@ -1588,8 +1692,8 @@ public class WriteExecutorService extends ThreadPoolExecutor {
      * 
      * @todo possibly do not wait if task is part of tx?
      */
-    private void waitForRunningTasks(final long timeout, final TimeUnit unit)
-            throws InterruptedException {
+    private void waitForRunningTasks(final long timeout, final long linger,
+            final TimeUnit unit) throws InterruptedException {
 
         if (!lock.isHeldByCurrentThread())
             throw new IllegalMonitorStateException();
@@ -1603,7 +1707,7 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         int nwaits = 0;
         
         // until timeout, while tasks are running.
-        while (nanos > 0 && this.nrunning.get() > 0) {
+        while (nanos > 0 && this.nrunning.get() > 0 && !isCommitGroupFull()) {
 
             /*
              * Wait on condition (yields lock, allowing other tasks to enter the
@@ -1624,6 +1728,31 @@ public class WriteExecutorService extends ThreadPoolExecutor {
             
         }
 
+        // nanoseconds remaining in the linger window.
+        long lingerNanos = unit.toNanos(linger) - (lastTime - beginWait);
+
+        // until the linger expires, while the commit group is not full.
+        while (lingerNanos > 0 && !isCommitGroupFull()) {
+
+            /*
+             * Wait on condition (yields lock, allowing tasks which were queued
+             * or submitted to start and then to enter the commit group).
+             * 
+             * Note: throws InterruptedException
+             */
+
+            waiting.await(lingerNanos, TimeUnit.NANOSECONDS);
+
+            final long now = System.nanoTime();
+            
+            lingerNanos -= now - lastTime;
+            
+            lastTime = now;
+
+            nwaits++;
+
+        }
+
         // Don't wait any longer.
 
         if (log.isInfoEnabled()) {
@@ -51,6 +51,7 @@ import com.bigdata.btree.BTree;
 import com.bigdata.btree.IBTreeStatistics;
 import com.bigdata.btree.IBloomFilter;
 import com.bigdata.btree.IIndex;
+import com.bigdata.btree.ILinearList;
 import com.bigdata.btree.ILocalBTreeView;
 import com.bigdata.btree.IRangeQuery;
 import com.bigdata.btree.ITupleIterator;
@@ -1427,6 +1428,128 @@ public class AccessPath<R> implements IAccessPath<R>, IBindingSetAccessPath<R> {
 
     }
     
+    /**
+     * Split the key range of this access path into at most <i>n</i> key-range
+     * "morsels" spanning roughly the same #of tuples. The separator keys are
+     * chosen using the {@link ILinearList} interface of the backing index, so
+     * this does not read the leaves of the index. The morsels visit disjoint
+     * key ranges and visiting them in order visits the same tuples, in the
+     * same order, as this access path.
+     * 
+     * @param n
+     *            The desired #of morsels.
+     * 
+     * @return An array of <code>m+1</code> keys, where <code>m</code> is the
+     *         #of morsels and morsel <code>i</code> is the half-open key range
+     *         <code>[keys[i],keys[i+1])</code> (a <code>null</code> key is
+     *         unbounded), -or- <code>null</code> if the access path can not be
+     *         split. Access paths can not be split if the index does not
+     *         implement {@link ILinearList}, if the access path is fully bound
+     *         for the key, if there is a filter (which might not be
+     *         stateless), or if there are fewer than two tuples in the key
+     *         range.
+     * 
+     * @see #morselIterator(byte[], byte[])
+     */
+    public byte[][] getMorselKeys(int n) {
+
+        assertInitialized();
+
+        if (n < 2 || isFullyBoundForKey || hasFilter
+                || !(ndx instanceof ILinearList)) {
+
+            return null;
+
+        }
+
+        final ILinearList list = (ILinearList) ndx;
+
+        final long fromIndex = fromKey == null ? 0L : insertionPoint(list
+                .indexOf(fromKey));
+
+        final long toIndex = toKey == null ? ndx.rangeCount()
+                : insertionPoint(list.indexOf(toKey));
+
+        final long span = toIndex - fromIndex;
+
+        if (span < n) {
+
+            n = (int) span;
+
+            if (n < 2)
+                return null;
+
+        }
+
+        final byte[][] keys = new byte[n + 1][];
+
+        keys[0] = fromKey;
+
+        for (int i = 1; i < n; i++) {
+
+            keys[i] = list.keyAt(fromIndex + (span * i) / n);
+
+        }
+
+        keys[n] = toKey;
+
+        if (DEBUG)
+            log.debug("n=" + n + ", span=" + span + " : " + toString());
+
+        return keys;
+
+    }
+
+    /**
+     * Convert the return value of {@link ILinearList#indexOf(byte[])} into the
+     * index of the first tuple GTE the probe key.
+     */
+    static private long insertionPoint(final long index) {
+
+        return index >= 0 ? index : -(index + 1);
+
+    }
+
+    /**
+     * Return an iterator visiting the elements of this access path which lie
+     * within a key-range morsel. The elements are read synchronously in the
+     * caller's thread.
+     * 
+     * @param fromKey
+     *            The inclusive lower bound (<code>null</code> iff unbounded).
+     * @param toKey
+     *            The exclusive upper bound (<code>null</code> iff unbounded).
+     * 
+     * @see #getMorselKeys(int)
+     */
+    @SuppressWarnings("unchecked")
+    public IChunkedOrderedIterator<R> morselIterator(final byte[] fromKey,
+            final byte[] toKey) {
+
+        assertInitialized();
+
+        if (DEBUG)
+            log.debug("fromKey=" + BytesUtil.toString(fromKey) + ", toKey="
+                    + BytesUtil.toString(toKey) + " : " + toString());
+
+        final ITupleIterator<R> tupleItr = ndx.rangeIterator(fromKey, toKey,
+                chunkCapacity, flags, indexLocalFilter);
+
+        final Iterator<R> src = new Striterator(tupleItr)
+                .addFilter(new TupleObjectResolver());
+
+        if (accessPathFilter != null) {
+            /*
+             * Chain in the optional access path filter stack.
+             */
+            ((Striterator) src).addFilter(accessPathFilter);
+        }
+
+        return new ChunkedWrappedIterator<R>(src, chunkCapacity, keyOrder,
+                null/* filter */);
+
+    }
+
 //    @Override
 //    final public ITupleIterator<R> rangeIterator() {
 //
@@ -1404,7 +1404,40 @@ public class FixedAllocator implements Allocator {
 	public int getSlotSize() {
 		return m_size;
 	}
-	
+
+	/**
+	 * The fraction of the reserved slots which are in use. Slots managed by
+	 * {@link AllocBlock}s which have not yet been reserved on the backing
+	 * file are not counted, so a new allocator is not reported as sparse.
+	 *
+	 * @return The fill ratio in [0:1] and <code>1</code> if no slots have
+	 *         been reserved.
+	 */
+	float getReservedFill() {
+		int reserved = 0;
+		for (AllocBlock ab : m_allocBlocks) {
+			if (ab.m_addr != 0)
+				reserved += allocBlockRange;
+		}
+		if (reserved == 0)
+			return 1f;
+
+		final int unreserved = allocBlockRange * m_allocBlocks.size() - reserved;
+		final int free = m_freeBits - unreserved;
+
+		return (reserved - free) / (float) reserved;
+	}
+
+	/**
+	 * Return <code>true</code> iff this allocator is at the head of its free
+	 * list and will therefore be used for the next allocation of its slot
+	 * size.
+	 */
+	boolean isAllocationTarget() {
+		final ArrayList list = m_freeList;
+		return list != null && !list.isEmpty() && list.get(0) == this;
+	}
+
 	/**
 	 * Add the committed allocated slot contents to the digest
 	 * 
@@ -0,0 +1,56 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rwstore;
+
+import com.bigdata.btree.BTree;
+
+/**
+ * Interface used by online compaction to decide which persistent records
+ * should be relocated.
+ * 
+ * @see BTree#relocate(byte[], int, int, IRelocationFilter)
+ * @see RWStore.Options#COMPACTION_SPARSE_THRESHOLD
+ */
+public interface IRelocationFilter {
+
+    /**
+     * Return <code>true</code> iff the record at that address should be
+     * relocated, e.g., because it lies in a sparse allocator.
+     * 
+     * @param addr
+     *            The address of a persistent record.
+     */
+    boolean isRelocationCandidate(long addr);
+
+    /**
+     * Notice that the record at that address has been copied and that the
+     * address will be released at the next commit.
+     * 
+     * @param addr
+     *            The address of the old record.
+     */
+    void relocated(long addr);
+
+}
@@ -0,0 +1,343 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rwstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.io.IReopenChannel;
+
+/**
+ * Read-only memory mapped view of the backing file of an {@link RWStore}.
+ * <p>
+ * The file is mapped as a sequence of fixed size regions. Each region is
+ * mapped with a trailing overlap of at least the maximum slot size, so any
+ * record which starts within a region is fully contained by that region and
+ * can be copied out without stitching regions together. Regions are mapped
+ * lazily and are remapped when the file is extended, so callers never need to
+ * notify this class of a change in the file extent.
+ * <p>
+ * Reads against a mapped region are NOT interruptible and do not require a
+ * system call when the page is resident. The operating system page cache is
+ * therefore used as the second level cache for the store rather than the
+ * read cache of the {@link RWWriteCacheService}.
+ * <p>
+ * Note: Records which have not yet been flushed to the disk MUST be read from
+ * the write cache. It is the caller's responsibility to consult the write
+ * cache first.
+ *
+ * @see RWStore.Options#MEMORY_MAPPED_READS
+ */
+public class MappedFileReader {
+
+    private static final Logger log = Logger.getLogger(MappedFileReader.class);
+
+    /**
+     * Used to (re-)open the backing file channel.
+     */
+    private final IReopenChannel<FileChannel> opener;
+
+    /**
+     * log2 of the size of a region.
+     */
+    private final int regionShift;
+
+    /**
+     * The #of bytes of overlap between a region and its successor.
+     */
+    private final int overlap;
+
+    /**
+     * The mapped regions. The array is replaced (never modified in place) when
+     * regions are (re-)mapped so readers do not need to take a lock.
+     */
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+    /**
+     * The file extent covered by the current mapping.
+     */
+    private volatile long mappedExtent = 0L;
+
+    /**
+     * #of times a region was (re-)mapped.
+     */
+    private volatile long nremap = 0L;
+
+    /**
+     * @param opener
+     *            Used to (re-)open the backing file.
+     * @param regionShift
+     *            log2 of the size of each mapped region.
+     * @param overlap
+     *            The #of bytes by which each region overlaps its successor.
+     *            This must be at least as large as the largest record which
+     *            will be read through the mapping.
+     */
+    public MappedFileReader(final IReopenChannel<FileChannel> opener,
+            final int regionShift, final int overlap) {
+
+        if (opener == null)
+            throw new IllegalArgumentException();
+
+        if (regionShift < 12 || regionShift > 30)
+            throw new IllegalArgumentException();
+
+        if (overlap < 0 || overlap > (1 << regionShift))
+            throw new IllegalArgumentException();
+
+        this.opener = opener;
+
+        this.regionShift = regionShift;
+
+        this.overlap = overlap;
+
+    }
+
+    /**
+     * The file extent currently covered by the mapping.
+     */
+    public long getMappedExtent() {
+
+        return mappedExtent;
+
+    }
+
+    /**
+     * The #of times that a region has been (re-)mapped.
+     */
+    public long getRemapCount() {
+
+        return nremap;
+
+    }
+
+    /**
+     * Copy {@link ByteBuffer#remaining()} bytes from the mapped file into the
+     * caller's buffer. The position of the caller's buffer is advanced by the
+     * #of bytes copied.
+     *
+     * @param offset
+     *            The byte offset in the backing file.
+     * @param dst
+     *            The caller's buffer.
+     *
+     * @return <code>true</code> iff the data were copied and
+     *         <code>false</code> if the record is not covered by the file
+     *         extent (in which case the caller must read on the channel).
+     *
+     * @throws IOException
+     *             if the file could not be mapped.
+     */
+    public boolean read(final long offset, final ByteBuffer dst)
+            throws IOException {
+
+        final int nbytes = dst.remaining();
+
+        if (offset < 0 || nbytes > overlap)
+            return false;
+
+        final int index = (int) (offset >>> regionShift);
+
+        final int off = (int) (offset - (((long) index) << regionShift));
+
+        MappedByteBuffer[] a = regions;
+
+        if (index >= a.length || a[index].capacity() < off + nbytes) {
+
+            // Attempt to map more of the file.
+            a = remap(offset + nbytes);
+
+            if (index >= a.length || a[index].capacity() < off + nbytes) {
+
+                // Not covered by the file extent.
+                return false;
+
+            }
+
+        }
+
+        // Note: duplicate() since the position and limit are not thread-safe.
+        final ByteBuffer src = a[index].duplicate();
+
+        src.limit(off + nbytes);
+
+        src.position(off);
+
+        dst.put(src);
+
+        return true;
+
+    }
+
+    /**
+     * Extend the mapping to cover the current extent of the file if the
+     * required offset is not already covered.
+     *
+     * @param required
+     *            The byte offset which must be covered.
+     *
+     * @return The current regions.
+     */
+    private synchronized MappedByteBuffer[] remap(final long required)
+            throws IOException {
+
+        if (required <= mappedExtent) {
+
+            // Mapped concurrently by another thread.
+            return regions;
+
+        }
+
+        final long extent = size();
+
+        if (extent <= mappedExtent) {
+
+            // The file has not been extended.
+            return regions;
+
+        }
+
+        final long regionSize = 1L << regionShift;
+
+        final int nregions = (int) ((extent + regionSize - 1) >>> regionShift);
+
+        final MappedByteBuffer[] old = regions;
+
+        final MappedByteBuffer[] a = new MappedByteBuffer[nregions];
+
+        for (int i = 0; i < nregions; i++) {
+
+            final long pos = ((long) i) << regionShift;
+
+            final long len = Math.min(regionSize + overlap, extent - pos);
+
+            if (i < old.length && old[i].capacity() == len) {
+
+                // Region is unchanged.
+                a[i] = old[i];
+
+                continue;
+
+            }
+
+            a[i] = map(pos, (int) len);
+
+            nremap++;
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("Mapped: extent=" + extent + ", nregions=" + nregions);
+
+        regions = a;
+
+        mappedExtent = extent;
+
+        return a;
+
+    }
+
+    /**
+     * The current size of the backing file.
+     */
+    private long size() throws IOException {
+
+        while (true) {
+
+            try {
+
+                return opener.reopenChannel().size();
+
+            } catch (ClosedByInterruptException ex) {
+
+                throw ex;
+
+            } catch (AsynchronousCloseException ex) {
+
+                continue;
+
+            } catch (ClosedChannelException ex) {
+
+                continue;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Map a region of the backing file. The channel is reopened if it was
+     * closed asynchronously, but an interrupt of the caller is always
+     * propagated.
+     */
+    private MappedByteBuffer map(final long pos, final int len)
+            throws IOException {
+
+        while (true) {
+
+            try {
+
+                return opener.reopenChannel().map(MapMode.READ_ONLY, pos, len);
+
+            } catch (ClosedByInterruptException ex) {
+
+                throw ex;
+
+            } catch (AsynchronousCloseException ex) {
+
+                continue;
+
+            } catch (ClosedChannelException ex) {
+
+                continue;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Discard the mapped regions. The mapping will be released once the
+     * regions are finalized.
+     */
+    public synchronized void close() {
+
+        regions = new MappedByteBuffer[0];
+
+        mappedExtent = 0L;
+
+    }
+
+}
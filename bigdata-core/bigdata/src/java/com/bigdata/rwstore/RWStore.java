@@ -378,6 +378,28 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
          */
         String DEFAULT_READ_BLOBS_ASYNC = SystemUtil.isWindows() ? "false" : "true";
 
+        /**
+         * When <code>true</code>, records which are not found in the write
+         * cache are read from a read-only memory mapped view of the backing
+         * file rather than through {@link FileChannel#read(ByteBuffer, long)}
+         * (default {@value #DEFAULT_MEMORY_MAPPED_READS}).
+         * <p>
+         * This avoids a system call per record read and allows the operating
+         * system page cache to act as the second level cache for the store.
+         * Records read through the mapping are NOT installed into the read
+         * cache of the {@link RWWriteCacheService}, so you will generally want
+         * to set {@link com.bigdata.journal.Options#READ_CACHE_BUFFER_COUNT}
+         * to zero when this option is enabled.
+         * <p>
+         * Note: The mapping is not used on Windows since a mapped file can not
+         * be extended.
+         *
+         * @see MappedFileReader
+         */
+        String MEMORY_MAPPED_READS = RWStore.class.getName() + ".memoryMappedReads";
+
+        String DEFAULT_MEMORY_MAPPED_READS = "false";
+
         /**
          * Defines the number of bits that must be free in a FixedAllocator for
          * it to be added to the free list.  This is used to ensure a level
@@ -481,6 +503,23 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
 
         String DEFAULT_SMALL_SLOT_HIGH_WASTE = "20.0f"; // 1638 bits: 20% waste, less than 80% usage
 
+        /**
+         * A {@link FixedAllocator} whose reserved slots are less than this
+         * fraction in use is considered to be sparse (default
+         * {@value #DEFAULT_COMPACTION_SPARSE_THRESHOLD}). Records allocated
+         * from sparse allocators are candidates for relocation by online
+         * compaction.
+         * <p>
+         * The value must be in [0:1]. A value of zero disables online
+         * compaction.
+         * 
+         * @see #isSparse(int)
+         * @see com.bigdata.journal.Journal.Options#COMPACTION_INTERVAL
+         */
+        String COMPACTION_SPARSE_THRESHOLD = RWStore.class.getName() + ".compactionSparseThreshold";
+
+        String DEFAULT_COMPACTION_SPARSE_THRESHOLD = "0.25";
+
        /**
          * When <code>true</code>, scattered writes which are strictly ascending
          * will be coalesced within a buffer and written out as a single IO
@@ -794,6 +833,18 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
      */
     private final ReopenFileChannel m_reopener;
 
+    /**
+     * Read-only memory mapped view of the backing file and <code>null</code>
+     * unless {@link Options#MEMORY_MAPPED_READS} is enabled.
+     */
+    private MappedFileReader m_mappedReader = null;
+
+    /**
+     * log2 of the size of each region mapped by the {@link #m_mappedReader}
+     * (1G).
+     */
+    private static final int MAPPED_REGION_SHIFT = 30;
+
     private volatile BufferedWrite m_bufferedWrite;
     
     /**
@@ -952,6 +1003,16 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                 Options.READ_BLOBS_ASYNC,
                 Options.DEFAULT_READ_BLOBS_ASYNC));
 
+        cCompactionSparseThreshold = Float.valueOf(fileMetadata.getProperty(
+                Options.COMPACTION_SPARSE_THRESHOLD,
+                Options.DEFAULT_COMPACTION_SPARSE_THRESHOLD));
+
+        if (cCompactionSparseThreshold < 0f || cCompactionSparseThreshold > 1f) {
+            throw new IllegalArgumentException(
+                    Options.COMPACTION_SPARSE_THRESHOLD
+                            + " : Must be between 0 and 1");
+        }
+
     	cSmallSlot = Integer.valueOf(fileMetadata.getProperty(
                 Options.SMALL_SLOT_TYPE,
                 Options.DEFAULT_SMALL_SLOT_TYPE));
@@ -1130,6 +1191,23 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
             // FIXME: do we want to constrain this as a system property?
             m_maxFileSize = ((long) Integer.MAX_VALUE) * m_maxFixedAlloc;
 
+            if (Boolean.valueOf(fileMetadata.getProperty(
+                    Options.MEMORY_MAPPED_READS,
+                    Options.DEFAULT_MEMORY_MAPPED_READS))) {
+                if (SystemUtil.isWindows()) {
+                    log.warn(Options.MEMORY_MAPPED_READS
+                            + " is not supported on Windows.");
+                } else {
+                    /*
+                     * Regions overlap by the maximum slot size so any record
+                     * read through the write cache path lies within a single
+                     * region.
+                     */
+                    m_mappedReader = new MappedFileReader(m_reopener,
+                            MAPPED_REGION_SHIFT, m_maxFixedAlloc);
+                }
+            }
+
             // setup write cache AFTER init to ensure filesize is correct!
             
             m_writeCacheService = newWriteCacheService();
@@ -1365,6 +1443,9 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                 m_bufferedWrite = null;
             }
             m_writeCacheService.close();
+            if (m_mappedReader != null) {
+                m_mappedReader.close();
+            }
             m_reopener.close();
         } catch (Throwable t) {
             throw new RuntimeException(t);
@@ -2085,6 +2166,11 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                 
                 assert paddr > 0;
                 try {
+                    if (m_mappedReader != null) {
+                        final ByteBuffer ret = readMapped(paddr, sze + 4);
+                        if (ret != null)
+                            return ret;
+                    }
                     return m_writeCacheService.read(paddr, sze+4);
                 } catch (Throwable e) {
                     /*
@@ -2104,6 +2190,68 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
     }
 
 
+    /**
+     * Read a record through the {@link #m_mappedReader}. The write cache is
+     * consulted first since records which are not yet on the disk are only
+     * visible there. The record is copied from the mapping into a new heap
+     * buffer rather than returned as a slice of the mapping since the slot
+     * could be recycled while the caller still holds the data.
+     * <p>
+     * Note: Records read through the mapping are not installed into the read
+     * cache. The operating system page cache serves that role.
+     * 
+     * @param paddr
+     *            The physical address of the record.
+     * @param nbytes
+     *            The length of the record, including the checksum.
+     * 
+     * @return The record (without the checksum) -or- <code>null</code> if the
+     *         record is not covered by the mapping.
+     */
+    private ByteBuffer readMapped(final long paddr, final int nbytes)
+            throws InterruptedException, IOException {
+
+        final ByteBuffer cached = m_writeCacheService._readFromCache(paddr,
+                nbytes);
+
+        if (cached != null)
+            return cached;
+
+        final ByteBuffer bb = ByteBuffer.allocate(nbytes);
+
+        if (!m_mappedReader.read(paddr, bb))
+            return null;
+
+        final int chk = ChecksumUtility.getCHK().checksum(bb.array(),
+                0/* offset */, nbytes - 4/* len */);
+
+        final int tstchk = bb.getInt(nbytes - 4);
+
+        if (chk != tstchk) {
+
+            storeCounters.get().checksumErrorCount++;
+
+            throw new ChecksumError("offset=" + paddr + ",nbytes=" + nbytes
+                    + ",expected=" + tstchk + ",actual=" + chk);
+
+        }
+
+        final StoreCounters<?> c = (StoreCounters<?>) storeCounters.get()
+                .acquire();
+        try {
+            c.nmappedRead++;
+            c.bytesReadFromMapping += nbytes;
+        } finally {
+            c.release();
+        }
+
+        bb.position(0);
+        bb.limit(nbytes - 4);
+        
+        return bb.slice();
+
+    }
+
     /**
      * If the buf[] size is greater than the maximum fixed allocation, then the
      * direct read will be the blob header record. In this case we should hand
@@ -2310,9 +2458,14 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                  * value, so the cached data is 4 bytes less than the buffer
                  * size.
                  */
-                final ByteBuffer bbuf;
+                ByteBuffer bbuf = null;
                 try {
-                    bbuf = m_writeCacheService != null ? m_writeCacheService.read(paddr, length) : null;
+                    if (m_mappedReader != null && m_writeCacheService != null) {
+                        bbuf = readMapped(paddr, length);
+                    }
+                    if (bbuf == null && m_writeCacheService != null) {
+                        bbuf = m_writeCacheService.read(paddr, length);
+                    }
                 } catch (Throwable t) {
                     throw new IllegalStateException(
                             "Error reading from WriteCache addr: " + paddr
@@ -4008,6 +4161,11 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
      * @see Options#META_BITS_SIZE
      */
     final int cDefaultFreeBitsThreshold;
+
+    /**
+     * @see Options#COMPACTION_SPARSE_THRESHOLD
+     */
+    private final float cCompactionSparseThreshold;
     
     /**
      * The smallSlotThreshold, when activated, is intended to ensure improve the
@@ -4560,6 +4718,77 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
         return getBlockByAddress(addr) != null;
     }
 
+    /**
+     * Return <code>true</code> iff the latched address was allocated from a
+     * {@link FixedAllocator} which is sparse as defined by
+     * {@link Options#COMPACTION_SPARSE_THRESHOLD}. The allocator which is
+     * currently the target for new allocations of its slot size is never
+     * reported as sparse since a record relocated from that allocator would
+     * simply be allocated from it again.
+     * <p>
+     * Blob headers and physical addresses are never reported as sparse.
+     * 
+     * @param latchedAddr
+     *            The latched address.
+     */
+    public boolean isSparse(final int latchedAddr) {
+
+        if (latchedAddr >= 0 || cCompactionSparseThreshold == 0f)
+            return false;
+
+        final Lock lock = m_allocationReadLock;
+
+        lock.lock();
+
+        try {
+
+            final FixedAllocator alloc = getBlock(latchedAddr);
+
+            if (alloc.getSlotSize() >= m_maxFixedAlloc
+                    || alloc.isAllocationTarget())
+                return false;
+
+            return alloc.getReservedFill() < cCompactionSparseThreshold;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Note that the record at the latched address has been relocated by
+     * online compaction. The slot is released by the caller through the
+     * normal (deferred) free protocol, so this only updates the
+     * {@link StorageStats}.
+     * 
+     * @param latchedAddr
+     *            The latched address of the old record.
+     * @param nbytes
+     *            The size of the record.
+     * 
+     * @see StorageStats#relocated(int, int)
+     */
+    public void relocated(final int latchedAddr, final int nbytes) {
+
+        if (m_storageStats == null || latchedAddr >= 0)
+            return;
+
+        final int slotSize;
+        final Lock lock = m_allocationReadLock;
+        lock.lock();
+        try {
+            slotSize = getBlock(latchedAddr).getSlotSize();
+        } finally {
+            lock.unlock();
+        }
+
+        m_storageStats.relocated(slotSize, nbytes);
+
+    }
+
     /*****************************************************************************
      * Address transformation: latched2Physical
      */
@@ -5936,6 +6165,20 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
          */
         public volatile long elapsedDiskReadNanos;
 
+        /**
+         * #of read requests that were satisfied from the memory mapped view of
+         * the backing file.
+         * 
+         * @see Options#MEMORY_MAPPED_READS
+         */
+        public volatile long nmappedRead;
+
+        /**
+         * #of bytes that have been read from the memory mapped view of the
+         * backing file.
+         */
+        public volatile long bytesReadFromMapping;
+
         /**
          * The #of checksum errors while reading on the local disk.
          */
@@ -6046,6 +6289,8 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
             maxReadSize = Math.max(maxReadSize, o.maxReadSize);
             elapsedReadNanos += o.elapsedReadNanos;
             elapsedDiskReadNanos += o.elapsedDiskReadNanos;
+            nmappedRead += o.nmappedRead;
+            bytesReadFromMapping += o.bytesReadFromMapping;
             checksumErrorCount += o.checksumErrorCount;
 
             nwrites += o.nwrites;
@@ -6077,6 +6322,8 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
             t.maxReadSize -= o.maxReadSize; // @todo report max? min?
             t.elapsedReadNanos -= o.elapsedReadNanos;
             t.elapsedDiskReadNanos -= o.elapsedDiskReadNanos;
+            t.nmappedRead -= o.nmappedRead;
+            t.bytesReadFromMapping -= o.bytesReadFromMapping;
             t.checksumErrorCount -= o.checksumErrorCount;
 
             t.nwrites -= o.nwrites;
@@ -6107,6 +6354,8 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
             maxReadSize = 0;
             elapsedReadNanos = 0;
             elapsedDiskReadNanos = 0;
+            nmappedRead = 0;
+            bytesReadFromMapping = 0;
             checksumErrorCount = 0;
 
             nwrites = 0;
@@ -6175,6 +6424,18 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                     }
                 });
 
+                root.addCounter("nmappedRead", new Instrument<Long>() {
+                    public void sample() {
+                        setValue(nmappedRead);
+                    }
+                });
+
+                root.addCounter("bytesReadFromMapping", new Instrument<Long>() {
+                    public void sample() {
+                        setValue(bytesReadFromMapping);
+                    }
+                });
+
                 /*
                  * writes
                  */
@@ -6736,6 +6997,30 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                 final long pos = offset;
                 final int length = dst.limit();
 
+                final MappedFileReader mappedReader = m_mappedReader;
+
+                if (mappedReader != null && mappedReader.read(pos, dst)) {
+
+                    // read on the memory mapped view of the file.
+                    final StoreCounters<?> c = (StoreCounters<?>) storeCounters
+                            .get().acquire();
+                    try {
+                        c.nreads++;
+                        c.bytesRead += length;
+                        c.nmappedRead++;
+                        c.bytesReadFromMapping += length;
+                        c.elapsedReadNanos += System.nanoTime() - beginDisk;
+                    } finally {
+                        c.release();
+                    }
+
+                    // reset for reading
+                    dst.position(position);
+
+                    return dst;
+
+                }
+
                 // read on the disk.
                 final int ndiskRead = FileChannelUtility.readAll(m_reopener,
                         dst, pos);
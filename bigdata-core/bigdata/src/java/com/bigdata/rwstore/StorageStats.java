@@ -461,6 +461,26 @@ public class StorageStats {
 	// store total bytes allocated/deleted as blobs
 	long m_blobAllocation;
 	long m_blobDeletion;
+
+	/*
+	 * Online compaction. These are not persisted and are reset when the store
+	 * is reopened.
+	 */
+
+	/** #of records relocated out of sparse allocators. */
+	long m_relocatedRecords;
+
+	/** #of bytes of application data in the relocated records. */
+	long m_relocatedBytes;
+
+	/** #of bytes of slots in sparse allocators released by relocation. */
+	long m_reclaimedBytes;
+
+	/** The time (nanos) of the first relocation. */
+	long m_firstRelocationNanos;
+
+	/** The time (nanos) of the most recent relocation. */
+	long m_lastRelocationNanos;
 	
 	/**
 	 * 
@@ -706,6 +726,75 @@ public class StorageStats {
 			));
 		}
 		
+		str.append("\n-------------------------\n");
+		str.append("COMPACTION\n");
+		str.append("-------------------------\n");
+		str.append(String.format("%-16s %16s %16s %16s\n",
+			"Relocated",
+			"BytesRelocated",
+			"BytesReclaimed",
+			"Relocations/s"
+			));
+		str.append(String.format("%-16d %16d %16d %16.2f\n",
+			getRelocatedRecords(), // Relocated
+			getRelocatedBytes(), // BytesRelocated
+			getReclaimedBytes(), // BytesReclaimed
+			getRelocationRate() // Relocations/s
+			));
+		
+	}
+
+	/**
+	 * Note that a record was relocated out of a sparse allocator by online
+	 * compaction.
+	 * 
+	 * @param slotSize
+	 *            The slot size of the allocator from which the record was
+	 *            relocated. This many bytes are reclaimed once the slot is
+	 *            released.
+	 * @param nbytes
+	 *            The size of the record.
+	 */
+	public synchronized void relocated(final int slotSize, final int nbytes) {
+		final long now = System.nanoTime();
+		if (m_relocatedRecords == 0)
+			m_firstRelocationNanos = now;
+		m_lastRelocationNanos = now;
+		m_relocatedRecords++;
+		m_relocatedBytes += nbytes;
+		m_reclaimedBytes += slotSize;
+	}
+
+	/**
+	 * The #of records relocated out of sparse allocators.
+	 */
+	public synchronized long getRelocatedRecords() {
+		return m_relocatedRecords;
+	}
+
+	/**
+	 * The #of bytes of application data in the relocated records.
+	 */
+	public synchronized long getRelocatedBytes() {
+		return m_relocatedBytes;
+	}
+
+	/**
+	 * The #of bytes in sparse allocators released by relocation.
+	 */
+	public synchronized long getReclaimedBytes() {
+		return m_reclaimedBytes;
+	}
+
+	/**
+	 * The mean relocation rate in records per second over the interval from
+	 * the first to the most recent relocation.
+	 */
+	public synchronized float getRelocationRate() {
+		final long elapsed = m_lastRelocationNanos - m_firstRelocationNanos;
+		if (elapsed <= 0)
+			return 0f;
+		return m_relocatedRecords * 1e9f / elapsed;
 	}
 
 	/**
@@ -95,9 +95,19 @@ public class AllocationContext implements IAllocationContext, IMemoryManager {//
 	 * All addresses allocated either directly by this {@link AllocationContext}
 	 * or recursively by any {@link AllocationContext} created within this
 	 * {@link AllocationContext}.
+	 * <p>
+	 * Note: This is guarded by its own monitor rather than the shared
+	 * allocation lock so allocations which are satisfied by the free slot
+	 * caches of the {@link MemoryManager} do not serialize on that lock. The
+	 * monitor is never held while calling into the parent.
 	 */
 	private final LinkedHashSet<Long> m_addresses = new LinkedHashSet<Long>();
 	
+	/*
+	 * Note: These are only updated while holding the monitor of
+	 * m_addresses so they remain consistent with that set. They are atomic
+	 * so they may be read without the lock.
+	 */
 	private final AtomicLong m_allocCount = new AtomicLong();
 	private final AtomicLong m_userBytes = new AtomicLong();
 	private final AtomicLong m_slotBytes = new AtomicLong();
@@ -189,28 +199,20 @@ public class AllocationContext implements IAllocationContext, IMemoryManager {//
 	@Override
 	public long allocate(final int nbytes, final boolean blocks) {
 
-		writeLock.lock();
-		try {
+		final long addr = m_parent.allocate(nbytes, blocks);
 
-			final long addr = m_parent.allocate(nbytes, blocks);
-
-			final int rwaddr = MemoryManager.getAllocationAddress(addr);
-
-			final SectorAllocator sector = m_root.getSector(rwaddr);
+		synchronized (m_addresses) {
 
 			m_addresses.add(Long.valueOf(addr));
 
 			m_allocCount.incrementAndGet();
 			m_userBytes.addAndGet(nbytes);
-			m_slotBytes.addAndGet(sector.getPhysicalSize(SectorAllocator
-					.getSectorOffset(rwaddr)));
-
-			return addr;
+			m_slotBytes.addAndGet(MemoryManager.getSlotBytes(nbytes));
 
-		} finally {
-			writeLock.unlock();
 		}
 
+		return addr;
+
 	}
 
 	@Override
@@ -221,18 +223,21 @@ public class AllocationContext implements IAllocationContext, IMemoryManager {//
 
 			if(log.isDebugEnabled())
 				log.debug("");
-			
-			for (Long addr : m_addresses) {
-
-				m_parent.free(addr);
 
+			final Long[] addrs;
+			synchronized (m_addresses) {
+				addrs = m_addresses.toArray(new Long[m_addresses.size()]);
+				m_addresses.clear();
+				m_allocCount.set(0);
+				m_userBytes.set(0);
+				m_slotBytes.set(0);
 			}
 
-			m_addresses.clear();
+			for (Long addr : addrs) {
 
-			m_allocCount.set(0);
-			m_userBytes.set(0);
-			m_slotBytes.set(0);
+				m_parent.free(addr);
+
+			}
 
 		} finally {
 			writeLock.unlock();
@@ -243,27 +248,42 @@ public class AllocationContext implements IAllocationContext, IMemoryManager {//
 	@Override
 	public void free(final long addr) {
 
-		final int rwaddr = MemoryManager.getAllocationAddress(addr);
 		final int size = MemoryManager.getAllocationSize(addr);
-		final int offset = SectorAllocator.getSectorOffset(rwaddr);
 
-		writeLock.lock();
-		try {
+		/*
+		 * Note: The address MUST be removed before the slot is released by
+		 * the parent. Otherwise a concurrent allocate() could be handed the
+		 * same slot and record it before we remove it here, leaving the new
+		 * allocation untracked (and leaked by clear()).
+		 */
+		final boolean removed;
+		synchronized (m_addresses) {
 
-			final SectorAllocator sector = m_root.getSector(rwaddr);
+			removed = m_addresses.remove(Long.valueOf(addr));
 
-			m_parent.free(addr);
+			if (removed) {
+				m_allocCount.decrementAndGet();
+				m_userBytes.addAndGet(-size);
+				m_slotBytes.addAndGet(-MemoryManager.getSlotBytes(size));
+			}
 
-			m_addresses.remove(Long.valueOf(addr));
+		}
 
-			m_allocCount.decrementAndGet();
-			m_userBytes.addAndGet(-size);
-			m_slotBytes.addAndGet(-sector.getPhysicalSize(offset));
+		if (!removed) {
+
+			/*
+			 * Either released by a concurrent clear() or not allocated by
+			 * this context. The slot is not freed since it may already have
+			 * been handed out again.
+			 */
+			log.warn("Address not allocated by this context: addr=" + addr);
+
+			return;
 
-		} finally {
-			writeLock.unlock();
 		}
 
+		m_parent.free(addr);
+
 	}
 
 	@Override
@@ -29,6 +29,7 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.UUID;
 
+import com.bigdata.btree.NodeRecordCache;
 import com.bigdata.counters.CounterSet;
 import com.bigdata.counters.OneShotInstrument;
 import com.bigdata.io.DirectBufferPool;
@@ -170,14 +171,24 @@ public class MemStore extends AbstractRawStore implements IAllocationManagerStor
 
 	public long write(final ByteBuffer data) {
 
-		return m_strategy.write(data);
+		final long addr = m_strategy.write(data);
+
+		// The address may have been recycled.
+		NodeRecordCache.invalidate(m_uuid, addr);
+
+		return addr;
 
 	}
 	
     @Override
     public long write(ByteBuffer data, IAllocationContext context) {
     
-        return m_strategy.write(data, context);
+        final long addr = m_strategy.write(data, context);
+
+        // The address may have been recycled.
+        NodeRecordCache.invalidate(m_uuid, addr);
+
+        return addr;
 
     }
 
@@ -185,12 +196,16 @@ public class MemStore extends AbstractRawStore implements IAllocationManagerStor
 
 		m_strategy.delete(addr);
 
+		NodeRecordCache.invalidate(m_uuid, addr);
+
 	}
 	
     @Override
     public void delete(long addr, IAllocationContext context) {
 
         m_strategy.delete(addr, context);
+
+        NodeRecordCache.invalidate(m_uuid, addr);
         
     }
 
@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
@@ -37,9 +38,11 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.log4j.Logger;
@@ -49,6 +52,7 @@ import com.bigdata.btree.ITuple;
 import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.cache.ConcurrentWeakValueCache;
+import com.bigdata.counters.CAT;
 import com.bigdata.counters.CounterSet;
 import com.bigdata.counters.OneShotInstrument;
 import com.bigdata.io.DirectBufferPool;
@@ -74,6 +78,15 @@ import com.bigdata.service.AbstractTransactionService;
  * requiring a mapping across multiple allocation slots. This is managed using
  * recursive calls in the main three methods: allocate, free and get.
  * 
+ * <p>
+ * Small allocations and frees are first attempted against a striped set of
+ * free slot caches (one stripe per group of threads). A hit on a stripe
+ * does not take the {@link #m_allocationLock}, so concurrent operators (hash
+ * joins, solution sets) do not serialize on the allocation lock when they
+ * recycle slots. Slots are lazily handed back to their sectors when a stripe
+ * overflows and when the {@link MemoryManager} would otherwise need to block
+ * or fail for lack of free space.
+ * 
  * @author Martyn Cutcher
  */
 public class MemoryManager implements IMemoryManager, ISectorManager {
@@ -81,6 +94,124 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 
 	private static final Logger log = Logger.getLogger(MemoryManager.class);
 
+    /**
+     * Configuration options for the {@link MemoryManager}.
+     */
+    public interface Options {
+
+        /**
+         * The #of free slot cache stripes. Threads are assigned to stripes by
+         * their thread identifier, so this is the #of threads which can
+         * allocate and free small records concurrently without contending
+         * for a stripe. When negative, the #of stripes is the #of available
+         * processors. When zero, the free slot caches are disabled and all
+         * requests are serialized by the allocation lock.
+         */
+        String SLOT_CACHE_STRIPES = MemoryManager.class.getName()
+                + ".slotCacheStripes";
+
+        String DEFAULT_SLOT_CACHE_STRIPES = "-1";
+
+        /**
+         * The maximum #of freed slots retained by each stripe for each slot
+         * size. When a stripe is full for some slot size, half of its slots
+         * of that size are handed back to their sectors.
+         */
+        String SLOT_CACHE_CAPACITY = MemoryManager.class.getName()
+                + ".slotCacheCapacity";
+
+        String DEFAULT_SLOT_CACHE_CAPACITY = "64";
+
+    }
+
+    /**
+     * A stripe of the free slot cache. Each stripe holds a stack of freed
+     * slot addresses for each slot size.
+     */
+    private static class SlotCache {
+
+        /**
+         * Guards the stripe. This is only ever acquired with
+         * {@link ReentrantLock#tryLock()} by allocate and free, and the
+         * {@link #m_allocationLock} MUST NOT be acquired while it is held.
+         */
+        final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The cached slot addresses for each slot size (lazily allocated).
+         */
+        final int[][] slots = new int[SectorAllocator.ALLOC_SIZES.length][];
+
+        /**
+         * The #of cached slot addresses for each slot size.
+         */
+        final int[] counts = new int[SectorAllocator.ALLOC_SIZES.length];
+
+    }
+
+    /**
+     * The free slot cache stripes -or- <code>null</code> if the caches are
+     * disabled.
+     * 
+     * @see Options#SLOT_CACHE_STRIPES
+     */
+    private final SlotCache[] m_slotCaches;
+
+    /**
+     * Mask used to map a thread identifier onto a stripe.
+     */
+    private final int m_slotCacheMask;
+
+    /**
+     * @see Options#SLOT_CACHE_CAPACITY
+     */
+    private final int m_slotCacheCapacity;
+
+    /**
+     * When <code>false</code>, frees are not cached. The caches are disabled
+     * once the {@link MemoryManager} is used with commits, session protection
+     * or deferred frees since a recycled slot would bypass those protocols.
+     * This is only changed while holding the {@link #m_allocationLock} and is
+     * read by free while holding the lock for the stripe.
+     */
+    private volatile boolean m_slotCacheEnabled;
+
+    /**
+     * Incremented by {@link #clear()} so a concurrent overflow of a stripe
+     * does not hand back slots from sectors which no longer exist.
+     */
+    private volatile int m_slotCacheGeneration = 0;
+
+    /**
+     * The #of threads which are about to block (or fail) for lack of free
+     * space. Frees are not cached while this is non-zero.
+     */
+    private final AtomicInteger m_sectorWaiters = new AtomicInteger();
+
+    /** The #of allocations satisfied by a free slot cache. */
+    private final CAT m_slotCacheHits = new CAT();
+
+    /** The #of small allocations not satisfied by a free slot cache. */
+    private final CAT m_slotCacheMisses = new CAT();
+
+    /** The #of frees absorbed by a free slot cache. */
+    private final CAT m_slotCacheFrees = new CAT();
+
+    /** The #of cached slots handed back to their sectors. */
+    private final CAT m_slotCacheReleased = new CAT();
+
+    /**
+     * The #of allocate or free requests which found their stripe locked by
+     * another thread and fell back onto the allocation lock.
+     */
+    private final CAT m_slotCacheContended = new CAT();
+
+    /**
+     * The #of allocate or free requests which had to wait for the
+     * {@link #m_allocationLock}.
+     */
+    private final CAT m_allocationLockContended = new CAT();
+
     private static final Logger txLog = Logger.getLogger("com.bigdata.txLog");
 
     /**
@@ -365,8 +496,54 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
                     AbstractTransactionService.Options.DEFAULT_MIN_RELEASE_AGE));
         }
 
+        int nstripes = Integer.parseInt(getProperty(properties,
+                Options.SLOT_CACHE_STRIPES,
+                Options.DEFAULT_SLOT_CACHE_STRIPES));
+
+        if (nstripes < 0)
+            nstripes = Runtime.getRuntime().availableProcessors();
+
+        m_slotCacheCapacity = Integer.parseInt(getProperty(properties,
+                Options.SLOT_CACHE_CAPACITY,
+                Options.DEFAULT_SLOT_CACHE_CAPACITY));
+
+        if (m_slotCacheCapacity <= 0)
+            throw new IllegalArgumentException(Options.SLOT_CACHE_CAPACITY
+                    + "=" + m_slotCacheCapacity);
+
+        if (nstripes == 0) {
+
+            m_slotCaches = null;
+            m_slotCacheMask = 0;
+
+        } else {
+
+            // Round up to a power of two.
+            int n = 1;
+            while (n < nstripes)
+                n <<= 1;
+
+            m_slotCaches = new SlotCache[n];
+            for (int i = 0; i < n; i++)
+                m_slotCaches[i] = new SlotCache();
+            m_slotCacheMask = n - 1;
+
+        }
+
+        m_slotCacheEnabled = m_slotCaches != null && m_retention == 0;
+
 	}
 
+    private static String getProperty(final Properties properties,
+            final String name, final String defaultValue) {
+
+        if (properties == null)
+            return defaultValue;
+
+        return properties.getProperty(name, defaultValue);
+
+    }
+
     @Override
 	protected void finalize() throws Throwable {
 		// release to pool.
@@ -479,9 +656,23 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 		if (nbytes == 0)
 			throw new IllegalArgumentException();
 
+        if (nbytes <= SectorAllocator.BLOB_SIZE) {
+
+            final long retaddr = allocateFromSlotCache(nbytes);
+
+            if (retaddr != 0L) {
+
+                // Note: get() protects against a concurrent close.
+                copyData(data, get(retaddr));
+
+                return retaddr;
+
+            }
+
+        }
+
 		// BLZG-1658 Protect against current close between allocate() and get().
-		final Lock lock = m_allocationLock.writeLock();
-    	lock.lock();
+		final Lock lock = lockAllocation();
         try {
 
             final long retaddr = allocate(nbytes, blocks);
@@ -527,6 +718,323 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 
 	}
 	
+    /**
+     * Acquire the write lock of the {@link #m_allocationLock}, noting whether
+     * the caller had to wait for it.
+     * 
+     * @return The acquired lock.
+     */
+    private Lock lockAllocation() {
+
+        final Lock lock = m_allocationLock.writeLock();
+
+        if (!lock.tryLock()) {
+
+            m_allocationLockContended.increment();
+
+            lock.lock();
+
+        }
+
+        return lock;
+
+    }
+
+    /**
+     * Return the free slot cache stripe for the current thread.
+     */
+    private SlotCache getSlotCache() {
+
+        return m_slotCaches[(int) Thread.currentThread().getId()
+                & m_slotCacheMask];
+
+    }
+
+    /**
+     * Attempt to satisfy a small allocation from the free slot cache of the
+     * current thread without acquiring the {@link #m_allocationLock}.
+     * 
+     * @param nbytes
+     *            The #of bytes to allocate (not larger than
+     *            {@link SectorAllocator#BLOB_SIZE}).
+     * 
+     * @return The address -or- <code>0L</code> if the request could not be
+     *         satisfied by the cache.
+     */
+    private long allocateFromSlotCache(final int nbytes) {
+
+        if (m_slotCaches == null || !m_slotCacheEnabled)
+            return 0L;
+
+        assertOpen(); // BLZG-1658 MemoryManager should know when it has been closed
+
+        final SlotCache c = getSlotCache();
+
+        if (!c.lock.tryLock()) {
+
+            m_slotCacheContended.increment();
+
+            return 0L;
+
+        }
+
+        final byte tag = SectorAllocator.getTag(nbytes);
+
+        // Note: A valid rwaddr is always negative.
+        int rwaddr = 0;
+
+        try {
+
+            final int n = c.counts[tag];
+
+            if (n > 0) {
+
+                rwaddr = c.slots[tag][n - 1];
+
+                c.counts[tag] = n - 1;
+
+            }
+
+        } finally {
+
+            c.lock.unlock();
+
+        }
+
+        if (rwaddr == 0) {
+
+            m_slotCacheMisses.increment();
+
+            return 0L;
+
+        }
+
+        m_slotCacheHits.increment();
+        m_allocCount.incrementAndGet();
+        m_userBytes.addAndGet(nbytes);
+        m_slotBytes.addAndGet(SectorAllocator.ALLOC_SIZES[tag]);
+
+        return makeAddr(rwaddr, nbytes);
+
+    }
+
+    /**
+     * Attempt to absorb the free of a small allocation into the free slot
+     * cache of the current thread without acquiring the
+     * {@link #m_allocationLock}. The slot remains allocated against its sector
+     * until it is either reused by {@link #allocateFromSlotCache(int)} or
+     * handed back to the sector.
+     * <p>
+     * Note: Unlike the locked code path, a duplicate free of the same address
+     * is not detected until the slot is handed back to its sector.
+     * 
+     * @param rwaddr
+     *            The address of the slot.
+     * @param nbytes
+     *            The #of bytes in the allocation.
+     * 
+     * @return <code>true</code> iff the free was absorbed by the cache.
+     */
+    private boolean freeToSlotCache(final int rwaddr, final int nbytes) {
+
+        if (m_slotCaches == null || !m_slotCacheEnabled)
+            return false;
+
+        assertOpen(); // BLZG-1658 MemoryManager should know when it has been closed
+
+        final SlotCache c = getSlotCache();
+
+        if (!c.lock.tryLock()) {
+
+            m_slotCacheContended.increment();
+
+            return false;
+
+        }
+
+        final byte tag = SectorAllocator.getTag(nbytes);
+
+        int[] overflow = null;
+        int generation = 0;
+
+        try {
+
+            if (!m_slotCacheEnabled || m_sectorWaiters.get() > 0)
+                return false;
+
+            int[] slots = c.slots[tag];
+
+            if (slots == null) {
+
+                slots = c.slots[tag] = new int[m_slotCacheCapacity];
+
+            }
+
+            int n = c.counts[tag];
+
+            if (n == slots.length) {
+
+                // Full: hand back the least recently freed half.
+                final int nrelease = Math.max(1, n / 2);
+
+                overflow = Arrays.copyOf(slots, nrelease);
+
+                System.arraycopy(slots, nrelease, slots, 0, n - nrelease);
+
+                n -= nrelease;
+
+                generation = m_slotCacheGeneration;
+
+            }
+
+            slots[n] = rwaddr;
+
+            c.counts[tag] = n + 1;
+
+        } finally {
+
+            c.lock.unlock();
+
+        }
+
+        m_slotCacheFrees.increment();
+        m_allocCount.decrementAndGet();
+        m_userBytes.addAndGet(-nbytes);
+        m_slotBytes.addAndGet(-SectorAllocator.ALLOC_SIZES[tag]);
+
+        if (overflow != null) {
+
+            final Lock lock = lockAllocation();
+            try {
+                if (open.get() && generation == m_slotCacheGeneration)
+                    releaseSlots(overflow, overflow.length);
+            } finally {
+                lock.unlock();
+            }
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Hand back cached slots to their sectors. The slots were already removed
+     * from the allocation statistics when they were cached.
+     * <p>
+     * Note: The caller MUST hold the write lock of the
+     * {@link #m_allocationLock}.
+     */
+    private void releaseSlots(final int[] rwaddrs, final int n) {
+
+        assert m_allocationLock.isWriteLockedByCurrentThread();
+
+        for (int i = 0; i < n; i++) {
+
+            final int rwaddr = rwaddrs[i];
+
+            getSector(rwaddr).free(SectorAllocator.getSectorOffset(rwaddr));
+
+        }
+
+        m_slotCacheReleased.add(n);
+
+    }
+
+    /**
+     * Hand back all cached slots to their sectors.
+     * <p>
+     * Note: The caller MUST hold the write lock of the
+     * {@link #m_allocationLock}.
+     * 
+     * @return The #of slots handed back.
+     */
+    private int releaseSlotCaches() {
+
+        if (m_slotCaches == null)
+            return 0;
+
+        int nreleased = 0;
+
+        for (SlotCache c : m_slotCaches) {
+
+            c.lock.lock();
+            try {
+                for (int tag = 0; tag < c.counts.length; tag++) {
+                    final int n = c.counts[tag];
+                    if (n > 0) {
+                        releaseSlots(c.slots[tag], n);
+                        c.counts[tag] = 0;
+                        nreleased += n;
+                    }
+                }
+            } finally {
+                c.lock.unlock();
+            }
+
+        }
+
+        return nreleased;
+
+    }
+
+    /**
+     * Discard all cached slots (their sectors are being cleared).
+     * <p>
+     * Note: The caller MUST hold the write lock of the
+     * {@link #m_allocationLock}.
+     */
+    private void discardSlotCaches() {
+
+        if (m_slotCaches == null)
+            return;
+
+        m_slotCacheGeneration++;
+
+        for (SlotCache c : m_slotCaches) {
+
+            c.lock.lock();
+            try {
+                Arrays.fill(c.counts, 0);
+            } finally {
+                c.lock.unlock();
+            }
+
+        }
+
+    }
+
+    /**
+     * Stop caching freed slots and hand back any cached slots to their
+     * sectors. This is used before commits, session protection or a
+     * historical index cache would observe the store, since a recycled slot
+     * would bypass those protocols.
+     * <p>
+     * Note: The caller MUST hold the write lock of the
+     * {@link #m_allocationLock}.
+     */
+    private void disableSlotCaches() {
+
+        m_slotCacheEnabled = false;
+
+        releaseSlotCaches();
+
+    }
+
+    /**
+     * Return the #of slot bytes consumed by an allocation of the given size.
+     * For a blob, this is the slot size of its header.
+     */
+    static int getSlotBytes(final int nbytes) {
+
+        if (nbytes <= SectorAllocator.BLOB_SIZE)
+            return SectorAllocator.ALLOC_SIZES[SectorAllocator.getTag(nbytes)];
+
+        // The blob header: a block count and the address of each block.
+        return getSlotBytes(SectorAllocator.getBlobBlockCount(nbytes) * 4 + 4);
+
+    }
+
 	/**
 	 * Scan the sectors not on the free list and see if we can locate one which
 	 * could service this allocation request.
@@ -609,42 +1117,61 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 
 			} else {
 
-				if (blocks) {
-					
-					/*
-					 * We are at the maximum #of sectors.
-					 */
+				/*
+				 * Note: Frees bypass the free slot caches while there is a
+				 * waiter so they can signal that waiter. Any slots cached
+				 * before then are handed back here, and we retry before
+				 * blocking or failing.
+				 */
+				m_sectorWaiters.incrementAndGet();
 
-					SectorAllocator sector = scanForSectorWithFreeSpace(nbytes);
+				try {
 
-					if (sector != null) {
+					if (releaseSlotCaches() > 0)
+						continue;
 
-						return sector;
+					if (blocks) {
 
-					}
+						/*
+						 * We are at the maximum #of sectors.
+						 */
 
-					/*
-					 * Wait for something to get freed. Once enough data is
-					 * freed from some sector, that sector will be placed back
-					 * onto the free list.
-					 */
+						SectorAllocator sector = scanForSectorWithFreeSpace(nbytes);
+
+						if (sector != null) {
+
+							return sector;
+
+						}
+
+						/*
+						 * Wait for something to get freed. Once enough data is
+						 * freed from some sector, that sector will be placed
+						 * back onto the free list.
+						 */
+
+						if(log.isDebugEnabled())
+							log.debug("Blocking...");
+
+						try {
+							m_sectorFree.await();
+						} catch (InterruptedException e) {
+							throw new RuntimeException(e);
+						}
+
+						if (log.isDebugEnabled())
+							log.debug("Resuming...");
+
+					} else {
+
+						throw new MemoryManagerOutOfMemory();
 
-					if(log.isDebugEnabled())
-						log.debug("Blocking...");
-					
-					try {
-						m_sectorFree.await();
-					} catch (InterruptedException e) {
-						throw new RuntimeException(e);
 					}
-					
-					if (log.isDebugEnabled())
-						log.debug("Resuming...");
 
-				} else {
-					
-					throw new MemoryManagerOutOfMemory();
-					
+				} finally {
+
+					m_sectorWaiters.decrementAndGet();
+
 				}
 				
 			}
@@ -663,9 +1190,18 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 
 		if (nbytes <= 0)
 			throw new IllegalArgumentException();
+
+        if (nbytes <= SectorAllocator.BLOB_SIZE
+                && !m_allocationLock.isWriteLockedByCurrentThread()) {
+
+            final long addr = allocateFromSlotCache(nbytes);
+
+            if (addr != 0L)
+                return addr;
+
+        }
 		
-		final Lock lock = m_allocationLock.writeLock();
-    	lock.lock();
+		final Lock lock = lockAllocation();
 		try {
             
 		    assertOpen(); // BLZG-1658 MemoryManager should know when it has been closed
@@ -1016,9 +1552,11 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 		
 		if (log.isTraceEnabled())
 			log.trace("Releasing allocation at: " + rwaddr + "[" + size + "]");
+
+        if (size <= SectorAllocator.BLOB_SIZE && freeToSlotCache(rwaddr, size))
+            return;
 		
-		final Lock lock = m_allocationLock.writeLock();
-    	lock.lock();
+		final Lock lock = lockAllocation();
 		try {
 		    assertOpen(); // BLZG-1658 MemoryManager should know when it has been closed
 			if (m_retention > 0) {
@@ -1154,6 +1692,7 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 		try {
 			if(log.isDebugEnabled())
 				log.debug("");
+			discardSlotCaches();
 			m_sectors.clear();
 			m_free.clear();
 			m_extent.set(0L);
@@ -1282,6 +1821,40 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
         // report whether or not the allocation policy is blocking.
         root.addCounter("blocking", new OneShotInstrument<Boolean>(
                 isBlocking()));
+
+        // #of times a thread had to wait for the allocation lock.
+        root.addCounter("allocationLockContended", new OneShotInstrument<Long>(
+                m_allocationLockContended.get()));
+
+        if (m_slotCaches != null) {
+
+            final CounterSet tmp = root.makePath("slotCache");
+
+            // #of stripes.
+            tmp.addCounter("stripes", new OneShotInstrument<Integer>(
+                    m_slotCaches.length));
+
+            // #of allocations satisfied by a stripe.
+            tmp.addCounter("hits", new OneShotInstrument<Long>(
+                    m_slotCacheHits.get()));
+
+            // #of small allocations not satisfied by a stripe.
+            tmp.addCounter("misses", new OneShotInstrument<Long>(
+                    m_slotCacheMisses.get()));
+
+            // #of frees absorbed by a stripe.
+            tmp.addCounter("frees", new OneShotInstrument<Long>(
+                    m_slotCacheFrees.get()));
+
+            // #of cached slots handed back to their sectors.
+            tmp.addCounter("released", new OneShotInstrument<Long>(
+                    m_slotCacheReleased.get()));
+
+            // #of requests which found their stripe locked.
+            tmp.addCounter("contended", new OneShotInstrument<Long>(
+                    m_slotCacheContended.get()));
+
+        }
         
 		return root;
 		
@@ -1399,6 +1972,7 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
 	    if(!m_allocationLock.isWriteLockedByCurrentThread())
 	        throw new IllegalMonitorStateException();
         assertOpen(); // BLZG-1658 MemoryManager should know when it has been closed
+        disableSlotCaches();
 //		try {
         final Iterator<SectorAllocator> sectors = m_sectors.iterator();
         while (sectors.hasNext()) {
@@ -1433,6 +2007,7 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
     	lock.lock();
 		try {
 	        assertOpen(); // BLZG-1658 MemoryManager should know when it has been closed
+	        disableSlotCaches();
 			m_externalCache = externalCache;
 			m_cachedDatasize = getSlotSize(dataSize);
 		} finally {
@@ -1717,6 +2292,7 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
     	lock.lock();
         try {
             assertOpen(); // BLZG-1658 MemoryManager should know when it has been closed
+            disableSlotCaches();
             m_activeTxCount++;
             if(log.isInfoEnabled())
                 log.info("#activeTx="+m_activeTxCount);
@@ -1961,6 +2537,8 @@ public class MemoryManager implements IMemoryManager, ISectorManager {
             AllocationContext ret = new AllocationContext(this, isolated);
 	
 			if (isolated) {
+		        // Note: Cached slots are handed back lazily (read lock only).
+		        m_slotCacheEnabled = false;
 		        m_contexts.put(ret, ret);
 		    	if (m_activeTxCount == 0 && m_contexts.size() == 1)
 					acquireSessions();
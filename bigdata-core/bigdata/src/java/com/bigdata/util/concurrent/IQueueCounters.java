@@ -298,6 +298,20 @@ public interface IQueueCounters extends ICounterHierarchy {
          */
         String CommitCount = "Commit Count";
 
+        /**
+         * The #of tasks which were made durable by a commit (only reported
+         * services which do commit processing). The ratio of this counter to
+         * the {@link #CommitCount} is the mean size of a commit group.
+         */
+        String CommittedTaskCount = "Committed Task Count";
+
+        /**
+         * The #of commit groups which were closed because they reached the
+         * configured maximum commit group size (only reported services which
+         * do commit processing).
+         */
+        String FullCommitGroupCount = "Full Commit Group Count";
+
         /**
          * The #of aborts (only reported services which do commit processing).
          */
@@ -866,6 +866,20 @@ public class ThreadPoolExecutorStatisticsTask implements Runnable {
                         }
                     });
 
+            counterSet.addCounter(IWriteServiceExecutorCounters.CommittedTaskCount,
+                    new Instrument<Long>() {
+                        public void sample() {
+                            setValue(writeService.getTaskCommittedCount());
+                        }
+                    });
+
+            counterSet.addCounter(IWriteServiceExecutorCounters.FullCommitGroupCount,
+                    new Instrument<Long>() {
+                        public void sample() {
+                            setValue(writeService.getFullCommitGroupCount());
+                        }
+                    });
+
             counterSet.addCounter(IWriteServiceExecutorCounters.AbortCount,
                     new Instrument<Long>() {
                         public void sample() {
@@ -105,6 +105,9 @@ public class TestAll extends TestCase {
         // test suite for the IV cache, including serialization of cached vals.
         suite.addTestSuite(TestIVCache.class);
 
+        // test suite for the native memory cache of serialized values.
+        suite.addTestSuite(TestDirectTermCache.class);
+
         // test suite for access paths reading on the TERMS index.
         suite.addTestSuite(TestAccessPaths.class);
         
@@ -0,0 +1,219 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+
+package com.bigdata.rdf.lexicon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Test suite for the {@link DirectTermCache}.
+ */
+public class TestDirectTermCache extends TestCase2 {
+
+    public TestDirectTermCache() {
+    }
+
+    public TestDirectTermCache(String name) {
+        super(name);
+    }
+
+    private static byte[] key(final long termId) {
+
+        return new TermId<BigdataURI>(VTE.URI, termId).encode(
+                KeyBuilder.newInstance()).getKey();
+
+    }
+
+    /**
+     * A value whose size varies with the term identifier. Some values are
+     * larger than a single slot of the memory manager.
+     */
+    private static byte[] value(final long termId) {
+
+        final int len = termId % 100 == 0 ? 10000 : 20 + (int) (termId % 50);
+
+        final byte[] b = new byte[len];
+
+        for (int i = 0; i < len; i++) {
+
+            b[i] = (byte) (termId + i);
+
+        }
+
+        return b;
+
+    }
+
+    public void test_ctor_correctRejection() {
+
+        try {
+            new DirectTermCache(0L/* capacity */, 1);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            new DirectTermCache(1024L, 0/* concurrencyLevel */);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    public void test_getPutIfAbsent() {
+
+        final DirectTermCache cache = new DirectTermCache(1L, 1);
+
+        try {
+
+            assertNull(cache.get(key(1)));
+
+            assertTrue(cache.putIfAbsent(key(1), value(1)));
+
+            assertFalse(cache.putIfAbsent(key(1), value(2)));
+
+            assertEquals(value(1), cache.get(key(1)));
+
+            // a value which spans several slots.
+            assertTrue(cache.putIfAbsent(key(100), value(100)));
+
+            assertEquals(value(100), cache.get(key(100)));
+
+            assertEquals(2, cache.size());
+
+            assertEquals(2, cache.getHitCount());
+
+            assertEquals(1, cache.getMissCount());
+
+            cache.clear();
+
+            assertEquals(0, cache.size());
+
+            assertEquals(0L, cache.getBytesInUse());
+
+            assertNull(cache.get(key(1)));
+
+        } finally {
+
+            cache.close();
+
+        }
+
+        // A closed cache does not report or accept records.
+        assertFalse(cache.putIfAbsent(key(1), value(1)));
+
+        assertNull(cache.get(key(1)));
+
+    }
+
+    /**
+     * The records are evicted when the native memory is exhausted and the
+     * records remaining in the cache are intact.
+     */
+    public void test_eviction() throws IOException {
+
+        final DirectTermCache cache = new DirectTermCache(1L, 4);
+
+        try {
+
+            final int n = 100000;
+
+            // #of records added to the cache.
+            int nadded = 0;
+
+            for (long i = 1; i <= n; i++) {
+
+                if (cache.putIfAbsent(key(i), value(i)))
+                    nadded++;
+
+                assertTrue(cache.getBytesInUse() <= cache.capacity());
+
+            }
+
+            assertTrue(cache.getEvictionCount() > 0);
+
+            assertEquals(nadded, cache.size() + cache.getEvictionCount());
+
+            // the keys of each record in the cache are reported exactly once.
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+            final DataOutputStream out = new DataOutputStream(baos);
+
+            assertEquals(cache.size(),
+                    cache.writeKeys(out, Integer.MAX_VALUE/* maxKeys */));
+
+            out.flush();
+
+            final List<byte[]> keys = DirectTermCache.readKeys(
+                    new DataInputStream(new ByteArrayInputStream(baos
+                            .toByteArray())), Integer.MAX_VALUE/* maxKeys */);
+
+            assertEquals(cache.size(), keys.size());
+
+            final Set<String> distinct = new HashSet<String>();
+
+            for (byte[] key : keys) {
+
+                assertTrue(distinct.add(BytesUtil.toString(key)));
+
+                final long termId = ((TermId<?>) IVUtility.decode(key))
+                        .getTermId();
+
+                assertEquals(value(termId), cache.get(key));
+
+            }
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+}
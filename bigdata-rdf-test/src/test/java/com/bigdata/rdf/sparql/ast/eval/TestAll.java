@@ -180,6 +180,9 @@ public class TestAll extends TestCase {
 
         // Test suite for pipelined hash join
         suite.addTestSuite(TestPipelinedHashJoin.class);
+
+        // test suite for the worst-case optimal join of cyclic patterns.
+        suite.addTestSuite(TestLeapfrogTriejoin.class);
         
         
         /*
@@ -30,9 +30,14 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.Properties;
 
+import org.openrdf.model.vocabulary.RDFS;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFParseException;
 
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.rio.LoadStats;
+import com.bigdata.rdf.spo.ISPO;
 import com.bigdata.rdf.store.DataLoader.ClosureEnum;
 import com.bigdata.rdf.store.DataLoader.CommitEnum;
 import com.bigdata.util.InnerCause;
@@ -359,6 +364,224 @@ public class TestDataLoader extends AbstractTripleStoreTestCase {
 
 	}
 	
+	/**
+	 * Test durable queues using {@link DataLoader.Options#BULK_LOAD}.
+	 */
+	public void test_durableQueues03_bulkLoad() throws IOException {
+
+		final AbstractTripleStore store = getStore();
+
+		try {
+
+			final Properties properties = new Properties(store.getProperties());
+
+			// enable durable queues.
+			properties.setProperty(DataLoader.Options.DURABLE_QUEUES, "true");
+
+			properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+
+			properties.setProperty(DataLoader.Options.BULK_LOAD, "true");
+
+			final DataLoader dataLoader = new DataLoader(properties, store);
+
+			doDurableQueueTest(dataLoader);
+
+		} finally {
+
+			store.__tearDownUnitTest();
+		}
+
+	}
+
+	/**
+	 * Test of {@link DataLoader.Options#BULK_LOAD} using small buffers so that
+	 * the statements are written as many sorted runs (including duplicates)
+	 * which must be merged in more than one pass.
+	 */
+	public void test_bulkLoad01() throws IOException {
+
+		final AbstractTripleStore store = getStore();
+
+		final File tmpDir = File.createTempFile(getClass().getName(), ".tmp");
+
+		try {
+
+			tmpDir.delete(); // delete random file name.
+			tmpDir.mkdir(); // recreate it as a directory.
+
+			final String prefixes = ""+//
+			"@prefix bd: <http://www.bigdata.com/> .\n"+//
+			"@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n"+//
+			"@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"+//
+			"@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n";
+
+			writeOnFile(new File(tmpDir, "a.ttl"), prefixes +//
+					"bd:Mike rdf:type foaf:Person .\n"+//
+					"bd:Bryan rdf:type foaf:Person .\n"+//
+					"bd:Mike rdfs:label \"Mike\" .\n"+//
+					"bd:Mike foaf:knows bd:Bryan .\n"+//
+					"_:x foaf:knows bd:Mike .\n"+//
+					"_:x rdfs:label \"x\" .\n"+//
+					"");
+
+			writeOnFile(new File(tmpDir, "b.ttl"), prefixes +//
+					"bd:Bryan rdfs:label \"Bryan\" .\n"+//
+					"bd:Bryan foaf:knows bd:Mike .\n"+//
+					"bd:Mike foaf:knows bd:Bryan .\n"+// duplicate
+					"bd:Martyn rdf:type foaf:Person .\n"+//
+					"");
+
+			writeOnFile(new File(tmpDir, "c.ttl"), prefixes +//
+					"bd:Martyn foaf:knows bd:Bryan .\n"+//
+					"bd:Bryan foaf:knows bd:Martyn .\n"+//
+					"bd:Mike rdf:type foaf:Person .\n"+// duplicate
+					"bd:DC rdfs:label \"DC\" .\n"+//
+					"");
+
+			final Properties properties = new Properties(store.getProperties());
+
+			properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+
+			properties.setProperty(DataLoader.Options.BULK_LOAD, "true");
+
+			properties.setProperty(DataLoader.Options.PARSER_THREADS, "2");
+
+			properties.setProperty(DataLoader.Options.BUFFER_CAPACITY, "2");
+
+			properties.setProperty(DataLoader.Options.RUN_CAPACITY, "3");
+
+			properties.setProperty(DataLoader.Options.MERGE_FAN_IN, "2");
+
+			final long before = store.getStatementCount(true/* exact */);
+
+			final DataLoader dataLoader = new DataLoader(properties, store);
+
+			final LoadStats stats = dataLoader.loadFiles(tmpDir, null/* baseURI */, RDFFormat.TURTLE,
+					"http://www.bigdata.com/graph"/* defaultGraph */, null/* filter */);
+
+			assertEquals(14L, stats.toldTriples.get());
+
+			// 14 told triples, 2 of which are duplicates.
+			assertEquals(before + 12L, store.getStatementCount(true/* exact */));
+
+			final BigdataValueFactory f = store.getValueFactory();
+
+			final BigdataURI mike = f.createURI("http://www.bigdata.com/Mike");
+			final BigdataURI bryan = f.createURI("http://www.bigdata.com/Bryan");
+			final BigdataURI martyn = f.createURI("http://www.bigdata.com/Martyn");
+			final BigdataURI knows = f.createURI("http://xmlns.com/foaf/0.1/knows");
+			final BigdataURI label = f.asValue(RDFS.LABEL);
+
+			assertTrue(store.hasStatement(mike, knows, bryan));
+			assertTrue(store.hasStatement(bryan, knows, mike));
+			assertTrue(store.hasStatement(bryan, knows, martyn));
+			assertTrue(store.hasStatement(martyn, knows, bryan));
+			assertTrue(store.hasStatement(mike, label, f.createLiteral("Mike")));
+			assertFalse(store.hasStatement(martyn, knows, mike));
+
+			assertEquals(2L, store.getAccessPath(null, knows, mike).rangeCount(true/* exact */));
+
+			// The blank node is the same resource in both of its statements.
+			final ISPO x = store.getAccessPath(null, label, f.createLiteral("x")).iterator().next();
+			assertEquals(2L, store.getAccessPath(x.s(), null, null).rangeCount(true/* exact */));
+
+		} finally {
+
+			store.__tearDownUnitTest();
+
+			recursiveDelete(tmpDir);
+
+		}
+
+	}
+
+	/**
+	 * Test of {@link DataLoader.Options#BULK_LOAD} in two rounds. The first
+	 * round builds the statement indices bottom-up if the namespace is empty
+	 * and the second round writes onto the now non-empty statement indices.
+	 */
+	public void test_bulkLoad02_twoRounds() throws IOException {
+
+		final AbstractTripleStore store = getStore();
+
+		final File tmpDir = File.createTempFile(getClass().getName(), ".tmp");
+
+		try {
+
+			tmpDir.delete(); // delete random file name.
+			tmpDir.mkdir(); // recreate it as a directory.
+
+			final File dir1 = new File(tmpDir, "1");
+			final File dir2 = new File(tmpDir, "2");
+			dir1.mkdir();
+			dir2.mkdir();
+
+			final String prefixes = ""+//
+			"@prefix bd: <http://www.bigdata.com/> .\n"+//
+			"@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n";
+
+			final StringBuilder sb1 = new StringBuilder(prefixes);
+			final StringBuilder sb2 = new StringBuilder(prefixes);
+			for (int i = 0; i < 500; i++) {
+				sb1.append("bd:p" + i + " foaf:knows bd:p" + (i + 1) + " .\n");
+				sb2.append("bd:p" + i + " foaf:knows bd:p" + (i + 2) + " .\n");
+			}
+
+			writeOnFile(new File(dir1, "a.ttl"), sb1.toString());
+
+			writeOnFile(new File(dir2, "b.ttl"), sb2.toString());
+
+			final Properties properties = new Properties(store.getProperties());
+
+			properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+
+			properties.setProperty(DataLoader.Options.BULK_LOAD, "true");
+
+			properties.setProperty(DataLoader.Options.RUN_CAPACITY, "100");
+
+			final long before = store.getStatementCount(true/* exact */);
+
+			new DataLoader(properties, store).loadFiles(dir1, null/* baseURI */,
+					RDFFormat.TURTLE, "http://www.bigdata.com/graph"/* defaultGraph */,
+					null/* filter */);
+
+			store.commit();
+
+			assertEquals(before + 500L, store.getStatementCount(true/* exact */));
+
+			new DataLoader(properties, store).loadFiles(dir2, null/* baseURI */,
+					RDFFormat.TURTLE, "http://www.bigdata.com/graph"/* defaultGraph */,
+					null/* filter */);
+
+			store.commit();
+
+			assertEquals(before + 1000L, store.getStatementCount(true/* exact */));
+
+			final BigdataValueFactory f = store.getValueFactory();
+
+			final BigdataURI knows = f.createURI("http://xmlns.com/foaf/0.1/knows");
+
+			for (int i = 0; i < 500; i += 50) {
+				final BigdataURI p = f.createURI("http://www.bigdata.com/p" + i);
+				assertTrue(store.hasStatement(p, knows,
+						f.createURI("http://www.bigdata.com/p" + (i + 1))));
+				assertTrue(store.hasStatement(p, knows,
+						f.createURI("http://www.bigdata.com/p" + (i + 2))));
+				assertEquals(2L, store.getAccessPath(p, knows, null).rangeCount(true/* exact */));
+			}
+
+			assertEquals(1000L, store.getAccessPath(null, knows, null).rangeCount(true/* exact */));
+
+		} finally {
+
+			store.__tearDownUnitTest();
+
+			recursiveDelete(tmpDir);
+
+		}
+
+	}
+
 	private void doDurableQueueTest(final DataLoader dataLoader) throws IOException {
 		
 		// temporary directory where we setup the test.
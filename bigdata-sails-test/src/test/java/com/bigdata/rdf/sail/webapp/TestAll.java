@@ -62,6 +62,9 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(TestServiceWhiteList.class);
 
+        // Streaming writer for SELECT query results.
+        suite.addTestSuite(TestSolutionStreamWriter.class);
+
 //
 //        /*
 //         * WebApp Client.
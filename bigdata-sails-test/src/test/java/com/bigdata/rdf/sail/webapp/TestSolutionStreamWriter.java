@@ -0,0 +1,290 @@
+/**
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 18, 2026
+ */
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Properties;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.TupleQueryResultBuilder;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.rdf.axioms.NoAxioms;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.FullyInlineTypedLiteralIV;
+import com.bigdata.rdf.internal.impl.literal.XSDBooleanIV;
+import com.bigdata.rdf.internal.impl.literal.XSDDecimalIV;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParser;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.TempTripleStore;
+import com.bigdata.relation.accesspath.ThickCloseableIterator;
+
+/**
+ * Test suite for the {@link SolutionStreamWriter}.
+ */
+public class TestSolutionStreamWriter extends TestCase2 {
+
+    public TestSolutionStreamWriter() {
+    }
+
+    public TestSolutionStreamWriter(final String name) {
+        super(name);
+    }
+
+    private TempTripleStore store;
+
+    private final IVariable<?> x = Var.var("x");
+
+    private final IVariable<?> y = Var.var("y");
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        final Properties properties = new Properties();
+
+        properties.setProperty(AbstractTripleStore.Options.AXIOMS_CLASS,
+                NoAxioms.class.getName());
+
+        store = new TempTripleStore(properties);
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+
+        super.tearDown();
+
+    }
+
+    /**
+     * Three solutions: a resolved URI and an inline integer, an inline
+     * language tagged literal with the second variable unbound, and an inline
+     * boolean with a plain literal.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IBindingSet[] getSolutions() {
+
+        final BigdataURI a = store.getValueFactory().createURI(
+                "http://example.org/a");
+
+        final TermId<BigdataURI> termId = new TermId<BigdataURI>(VTE.URI, 1L);
+
+        // as if resolved against the lexicon.
+        termId.setValue(a);
+
+        final IBindingSet bset1 = new ListBindingSet();
+        bset1.set(x, new Constant<IV>(termId));
+        bset1.set(y, new Constant<IV>(new XSDIntegerIV<BigdataLiteral>(
+                BigInteger.valueOf(12))));
+
+        final IBindingSet bset2 = new ListBindingSet();
+        bset2.set(x, new Constant<IV>(new FullyInlineTypedLiteralIV<BigdataLiteral>(
+                "a \"b\"\tc", "en", null/* datatype */)));
+
+        final IBindingSet bset3 = new ListBindingSet();
+        bset3.set(x, new Constant<IV>(new XSDBooleanIV<BigdataLiteral>(true)));
+        bset3.set(y, new Constant<IV>(new FullyInlineTypedLiteralIV<BigdataLiteral>(
+                "1,2")));
+
+        return new IBindingSet[] { bset1, bset2, bset3 };
+
+    }
+
+    private String write(final TupleQueryResultFormat format)
+            throws Exception {
+
+        return write(format, getSolutions());
+
+    }
+
+    private String write(final TupleQueryResultFormat format,
+            final IBindingSet[] solutions) throws Exception {
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        final SolutionStreamWriter w = SolutionStreamWriter.getWriter(format,
+                os, store.getLexiconRelation());
+
+        final long n = w.write(new IVariable[] { x, y },
+                new ThickCloseableIterator<IBindingSet[]>(
+                        new IBindingSet[][] { solutions }));
+
+        assertEquals(solutions.length, n);
+
+        assertEquals(solutions.length, w.getSolutionCount());
+
+        return os.toString("UTF-8");
+
+    }
+
+    public void test_isSupported() {
+
+        assertTrue(SolutionStreamWriter.isSupported(TupleQueryResultFormat.JSON));
+        assertTrue(SolutionStreamWriter.isSupported(TupleQueryResultFormat.TSV));
+        assertTrue(SolutionStreamWriter.isSupported(TupleQueryResultFormat.CSV));
+        assertFalse(SolutionStreamWriter.isSupported(TupleQueryResultFormat.SPARQL));
+        assertFalse(SolutionStreamWriter.isSupported(null));
+
+    }
+
+    public void test_tsv() throws Exception {
+
+        assertEquals("?x\t?y\n" //
+                + "<http://example.org/a>\t12\n" //
+                + "\"a \\\"b\\\"\\tc\"@en\t\n" //
+                + "\"true\"^^<" + XMLSchema.BOOLEAN + ">\t\"1,2\"\n",
+                write(TupleQueryResultFormat.TSV));
+
+    }
+
+    /**
+     * Valid <code>xsd:integer</code>, <code>xsd:decimal</code> and
+     * <code>xsd:double</code> literals are written in the abbreviated
+     * canonical form whether or not the {@link IV} was materialized. Other
+     * numeric datatypes and invalid labels are quoted.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_tsv_numeric() throws Exception {
+
+        final XSDIntegerIV<BigdataLiteral> materialized = new XSDIntegerIV<BigdataLiteral>(
+                BigInteger.valueOf(5));
+
+        materialized.setValue(store.getValueFactory().createLiteral("+05",
+                XMLSchema.INTEGER));
+
+        final IBindingSet bset1 = new ListBindingSet();
+        bset1.set(x, new Constant<IV>(new XSDIntegerIV<BigdataLiteral>(
+                BigInteger.valueOf(5))));
+        bset1.set(y, new Constant<IV>(materialized));
+
+        final IBindingSet bset2 = new ListBindingSet();
+        bset2.set(x, new Constant<IV>(new XSDDecimalIV<BigdataLiteral>(
+                new BigDecimal("1.50"))));
+        bset2.set(y, new Constant<IV>(new XSDNumericIV<BigdataLiteral>(1.5d)));
+
+        final IBindingSet bset3 = new ListBindingSet();
+        bset3.set(x, new Constant<IV>(new XSDNumericIV<BigdataLiteral>(7)));
+        bset3.set(y, new Constant<IV>(new FullyInlineTypedLiteralIV<BigdataLiteral>(
+                "abc", null/* language */, XMLSchema.INTEGER)));
+
+        assertEquals("?x\t?y\n" //
+                + "5\t5\n" //
+                + "1.5\t1.5E0\n" //
+                + "\"7\"^^<" + XMLSchema.INT + ">\t\"abc\"^^<"
+                + XMLSchema.INTEGER + ">\n", //
+                write(TupleQueryResultFormat.TSV, new IBindingSet[] { bset1,
+                        bset2, bset3 }));
+
+    }
+
+    public void test_csv() throws Exception {
+
+        assertEquals("x,y\r\n" //
+                + "http://example.org/a,12\r\n" //
+                + "\"a \"\"b\"\"\tc\",\r\n" //
+                + "true,\"1,2\"\r\n", //
+                write(TupleQueryResultFormat.CSV));
+
+    }
+
+    /**
+     * The JSON is read back using the same parser as the REST API client.
+     */
+    public void test_json() throws Exception {
+
+        final String json = write(TupleQueryResultFormat.JSON);
+
+        final BigdataSPARQLResultsJSONParser parser = new BigdataSPARQLResultsJSONParser(
+                store.getValueFactory());
+
+        final TupleQueryResultBuilder qrBuilder = new TupleQueryResultBuilder();
+
+        parser.setTupleQueryResultHandler(qrBuilder);
+
+        parser.parse(new ByteArrayInputStream(json.getBytes("UTF-8")));
+
+        final TupleQueryResult result = qrBuilder.getQueryResult();
+
+        try {
+
+            assertEquals(Arrays.asList("x", "y"), result.getBindingNames());
+
+            final BindingSet bs1 = result.next();
+            assertEquals("http://example.org/a", bs1.getValue("x")
+                    .stringValue());
+            assertEquals("12", ((Literal) bs1.getValue("y")).getLabel());
+            assertEquals(XMLSchema.INTEGER,
+                    ((Literal) bs1.getValue("y")).getDatatype());
+
+            final BindingSet bs2 = result.next();
+            assertEquals("a \"b\"\tc", ((Literal) bs2.getValue("x")).getLabel());
+            assertEquals("en", ((Literal) bs2.getValue("x")).getLanguage());
+            assertNull(bs2.getValue("y"));
+
+            final BindingSet bs3 = result.next();
+            assertEquals("true", ((Literal) bs3.getValue("x")).getLabel());
+            assertEquals(XMLSchema.BOOLEAN,
+                    ((Literal) bs3.getValue("x")).getDatatype());
+            assertEquals("1,2", ((Literal) bs3.getValue("y")).getLabel());
+
+            assertFalse(result.hasNext());
+
+        } finally {
+
+            result.close();
+
+        }
+
+    }
+
+}